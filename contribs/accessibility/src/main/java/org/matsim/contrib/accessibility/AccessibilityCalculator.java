@@ -2,9 +2,15 @@ package org.matsim.contrib.accessibility;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -67,11 +73,18 @@ public final class AccessibilityCalculator {
 	
 	private Scenario scenario;
 	private AccessibilityConfigGroup acg;
+
+	// kept to create one set of (stateful) contribution calculators per thread
+	private final Map<String, TravelTime> travelTimes;
+	private final Map<String, TravelDisutilityFactory> travelDisutilityFactories;
+	private PtMatrix ptMatrix = null;
 	
 	
 	@Inject
 	public AccessibilityCalculator(Map<String, TravelTime> travelTimes, Map<String, TravelDisutilityFactory> travelDisutilityFactories, Scenario scenario) {
 		this.scenario = scenario;
+		this.travelTimes = travelTimes;
+		this.travelDisutilityFactories = travelDisutilityFactories;
 		this.acg = ConfigUtils.addOrGetModule(scenario.getConfig(), AccessibilityConfigGroup.GROUP_NAME, AccessibilityConfigGroup.class);
 
 		PlanCalcScoreConfigGroup planCalcScoreConfigGroup = scenario.getConfig().planCalcScore();
@@ -106,13 +119,16 @@ public final class AccessibilityCalculator {
 //				walkTravelTime);
 		// end new
 		
-		initDefaultContributionCalculators(travelTimes, travelDisutilityFactories, scenario);
+		calculators.putAll(createContributionCalculators());
 	}
 	
 	
-	private void initDefaultContributionCalculators(Map<String, TravelTime> travelTimes,
-			Map<String, TravelDisutilityFactory> travelDisutilityFactories, Scenario scenario) {
-		calculators.put(
+	/**
+	 * The contribution calculators keep the tree of the current origin node, so every thread needs its own set of them.
+	 */
+	private Map<Modes4Accessibility, AccessibilityContributionCalculator> createContributionCalculators() {
+		Map<Modes4Accessibility, AccessibilityContributionCalculator> contributionCalculators = new HashMap<>();
+		contributionCalculators.put(
 				Modes4Accessibility.car,
 				new NetworkModeAccessibilityContributionCalculator(
 						travelTimes.get(TransportMode.car),
@@ -123,7 +139,7 @@ public final class AccessibilityCalculator {
 						null,
 						// new
 						scenario));
-		calculators.put(
+		contributionCalculators.put(
 				Modes4Accessibility.freeSpeed,
 				new NetworkModeAccessibilityContributionCalculator(
 						new FreeSpeedTravelTime(),
@@ -134,16 +150,24 @@ public final class AccessibilityCalculator {
 						null,
 						// new
 						scenario));
-		calculators.put(
+		contributionCalculators.put(
 				Modes4Accessibility.walk,
 				new ConstantSpeedAccessibilityContributionCalculator(
 						TransportMode.walk,
 						scenario));
-		calculators.put(
+		contributionCalculators.put(
 				Modes4Accessibility.bike,
 				new ConstantSpeedAccessibilityContributionCalculator(
 						TransportMode.bike,
 						scenario));
+		if (this.ptMatrix != null) {
+			contributionCalculators.put(
+					Modes4Accessibility.pt,
+					PtMatrixAccessibilityContributionCalculator.create(
+							this.ptMatrix,
+							scenario.getConfig()));
+		}
+		return contributionCalculators;
 	}
 
 	
@@ -209,75 +233,146 @@ public final class AccessibilityCalculator {
 	}
 
 	
-	public final void computeAccessibilities( Double departureTime, ActivityFacilities opportunities) {
+	public final void computeAccessibilities( final Double departureTime, ActivityFacilities opportunities) {
 		aggregateOpportunities(opportunities, scenario.getNetwork());
-		SumOfExpUtils[] gcs = new SumOfExpUtils[Modes4Accessibility.values().length] ;
-		// this could just be a double array, or a Map.  Not using a Map for computational speed reasons (untested);
-		// not using a simple double array for type safety in long argument lists. kai, feb'14
-		for ( int ii=0 ; ii<gcs.length ; ii++ ) {
-			gcs[ii] = new SumOfExpUtils() ;
-		}
 
 		// Condense measuring points (origins) that have the same nearest node on the network
-		Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins = aggregateMeasurePointsWithSameNearestNode();
+		final Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins = aggregateMeasurePointsWithSameNearestNode();
+		final List<Id<Node>> originNodeIds = new ArrayList<>(aggregatedOrigins.keySet());
 		
-		log.info("Now going through all origins:");
-		ProgressBar bar = new ProgressBar(aggregatedOrigins.size());
+		int numberOfThreads = Math.max(1, Math.min(scenario.getConfig().global().getNumberOfThreads(), originNodeIds.size()));
+		log.info("Now going through all origins using " + numberOfThreads + " thread(s):");
+		final ProgressBar bar = new ProgressBar(originNodeIds.size());
 		
-		// go through all nodes (keys) that have a measuring point (origin) assigned
-		for (Id<Node> nodeId : aggregatedOrigins.keySet()) {
-			bar.update();
+		// the origin nodes are handed out one by one, so that threads which got cheap nodes simply take more of them
+		final AtomicInteger nextOriginNode = new AtomicInteger(0);
+		if (numberOfThreads == 1) {
+			new OriginNodeWorker(this.calculators, originNodeIds, aggregatedOrigins, nextOriginNode, departureTime, bar).run();
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+			try {
+				List<Future<?>> futures = new ArrayList<>(numberOfThreads);
+				for (int i = 0; i < numberOfThreads; i++) {
+					Map<Modes4Accessibility, AccessibilityContributionCalculator> threadCalculators =
+							i == 0 ? this.calculators : createContributionCalculators();
+					futures.add(executor.submit(new OriginNodeWorker(threadCalculators, originNodeIds, aggregatedOrigins,
+							nextOriginNode, departureTime, bar)));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				executor.shutdown();
+			}
+		}
+		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+			zoneDataExchangeInterface.finish();
+		}
+	}
 
-			Node fromNode = scenario.getNetwork().getNodes().get(nodeId);
 
-			for (AccessibilityContributionCalculator calculator : calculators.values()) {
-				calculator.notifyNewOriginNode(fromNode, departureTime);
+	/**
+	 * Goes through origin nodes until none is left, using its own contribution calculators. The results are passed to the
+	 * listeners one origin at a time, so that these need not be thread-safe; the order of the origins, however, is not
+	 * deterministic if more than one thread is used.
+	 */
+	private final class OriginNodeWorker implements Runnable {
+
+		private final AccessibilityContributionCalculator[] activeCalculators;
+		private final Modes4Accessibility[] activeModes;
+		private final List<Id<Node>> originNodeIds;
+		private final Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins;
+		private final AtomicInteger nextOriginNode;
+		private final Double departureTime;
+		private final ProgressBar bar;
+		// sum of exp(U) per active mode; primitive on purpose since this is filled inside the innermost loop
+		private final double[] sumsOfExpUtils;
+
+		OriginNodeWorker(Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators, List<Id<Node>> originNodeIds,
+				Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins, AtomicInteger nextOriginNode, Double departureTime,
+				ProgressBar bar) {
+			// only the calculators of the modes for which accessibilities are computed are looked at in the loops below
+			List<Modes4Accessibility> modes = new ArrayList<>();
+			List<AccessibilityContributionCalculator> active = new ArrayList<>();
+			for (Map.Entry<Modes4Accessibility, AccessibilityContributionCalculator> calculatorEntry : calculators.entrySet()) {
+				if (acg.getIsComputingMode().contains(calculatorEntry.getKey())) {
+					modes.add(calculatorEntry.getKey());
+					active.add(calculatorEntry.getValue());
+				}
 			}
+			this.activeModes = modes.toArray(new Modes4Accessibility[modes.size()]);
+			this.activeCalculators = active.toArray(new AccessibilityContributionCalculator[active.size()]);
+			this.sumsOfExpUtils = new double[this.activeCalculators.length];
+			this.originNodeIds = originNodeIds;
+			this.aggregatedOrigins = aggregatedOrigins;
+			this.nextOriginNode = nextOriginNode;
+			this.departureTime = departureTime;
+			this.bar = bar;
+		}
 
-			// get list with origins that are assigned to "fromNode"
-			for ( ActivityFacility origin : aggregatedOrigins.get( nodeId ) ) {
-				assert( origin.getCoord() != null );
-				
-				for (SumOfExpUtils gc : gcs) {
-					gc.reset();
-				}
+		@Override
+		public void run() {
+			int index;
+			while ((index = this.nextOriginNode.getAndIncrement()) < this.originNodeIds.size()) {
+				Id<Node> nodeId = this.originNodeIds.get(index);
+				Node fromNode = scenario.getNetwork().getNodes().get(nodeId);
 
-				// --------------------------------------------------------------------------------------------------------------
-				// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
-				for (final AggregationObject aggregatedFacility : this.aggregatedOpportunities) {
-					computeAndAddExpUtilContributions( gcs, origin, aggregatedFacility, departureTime );
+				for (AccessibilityContributionCalculator calculator : this.activeCalculators) {
+					calculator.notifyNewOriginNode(fromNode, this.departureTime);
 				}
-				// --------------------------------------------------------------------------------------------------------------
-				// What does the aggregation of the starting locations save if we do the just ended loop for all starting
-				// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
-
-				// aggregated value
-				Map< Modes4Accessibility, Double> accessibilities  = new HashMap<>() ;
-
-				for ( Modes4Accessibility mode : acg.getIsComputingMode() ) {
-					// TODO introduce here a config parameter "computation mode" that can be set to "rawSum", "minimum" or "exponential/logsum/hansen", dz, sept'16
-					if(!useRawSum){ 	// get log sum
-//						System.err.println(" ------------------ gcs[mode.ordinal()].getSum() = " + gcs[mode.ordinal()].getSum());
-						// does not seem to ever be "-infinity"
-//						System.err.println(" ------------- inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ) = " + inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ));
-						accessibilities.put( mode, inverseOfLogitScaleParameter * Math.log( gcs[mode.ordinal()].getSum() ) ) ;
-					} else {
-						// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
-						accessibilities.put( mode, gcs[mode.ordinal()].getSum() ) ;
-//							accessibilities.put( mode, inverseOfLogitScaleParameter * gcs[mode.ordinal()].getSum() ) ;
-						// yyyy why _multiply_ with "inverseOfLogitScaleParameter"??  If anything, would need to take the power:
-						// a * ln(b) = ln( b^a ).  kai, jan'14
+
+				// get list with origins that are assigned to "fromNode"
+				for ( ActivityFacility origin : this.aggregatedOrigins.get( nodeId ) ) {
+					assert( origin.getCoord() != null );
+					computeSumsOfExpUtils(origin);
+					Map<Modes4Accessibility, Double> accessibilities = getAccessibilities();
+					synchronized (zoneDataExchangeListeners) {
+						for (FacilityDataExchangeInterface zoneDataExchangeInterface : zoneDataExchangeListeners) {
+							zoneDataExchangeInterface.setFacilityAccessibilities(origin, this.departureTime, accessibilities);
+						}
 					}
 				}
+				synchronized (this.bar) {
+					this.bar.update();
+				}
+			}
+		}
 
-				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-					//log.info("here");
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
+		/**
+		 * Goes through all opportunities, e.g. jobs, (nearest network node) and sums up their exp(U) contributions. The
+		 * loop over the opportunities is the inner one, so that each loop only calls a single calculator.
+		 */
+		private void computeSumsOfExpUtils(ActivityFacility origin) {
+			final AggregationObject[] opportunities = aggregatedOpportunities;
+			for (int m = 0; m < this.activeCalculators.length; m++) {
+				final AccessibilityContributionCalculator calculator = this.activeCalculators[m];
+				double sum = 0.;
+				for (int o = 0; o < opportunities.length; o++) {
+					sum += calculator.computeContributionOfOpportunity(origin, opportunities[o], this.departureTime);
 				}
+				this.sumsOfExpUtils[m] = sum;
 			}
+			// What does the aggregation of the starting locations save if we do the just ended loop for all starting
+			// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
 		}
-		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-			zoneDataExchangeInterface.finish();
+
+		private Map<Modes4Accessibility, Double> getAccessibilities() {
+			// aggregated value
+			Map<Modes4Accessibility, Double> accessibilities = new HashMap<>();
+			for (int m = 0; m < this.activeModes.length; m++) {
+				// TODO introduce here a config parameter "computation mode" that can be set to "rawSum", "minimum" or "exponential/logsum/hansen", dz, sept'16
+				if (!useRawSum) { 	// get log sum
+					accessibilities.put(this.activeModes[m], inverseOfLogitScaleParameter * Math.log(this.sumsOfExpUtils[m]));
+				} else {
+					// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
+					accessibilities.put(this.activeModes[m], this.sumsOfExpUtils[m]);
+				}
+			}
+			return accessibilities;
 		}
 	}
 
@@ -310,18 +405,6 @@ public final class AccessibilityCalculator {
 	}
 
 	
-	private void computeAndAddExpUtilContributions( SumOfExpUtils[] gcs, ActivityFacility origin, 
-			final AggregationObject aggregatedFacility, Double departureTime) {
-		for ( Map.Entry<Modes4Accessibility, AccessibilityContributionCalculator> calculatorEntry : calculators.entrySet() ) {
-			if ( !this.acg.getIsComputingMode().contains(calculatorEntry.getKey()) ) continue; // XXX should be configured by adding only the relevant calculators
-			final double expVhk = calculatorEntry.getValue().computeContributionOfOpportunity( origin , aggregatedFacility, departureTime );
-			//System.err.println("--------------- expVhk " + expVhk);
-			// does not seem to be "-infinity"
-			gcs[ calculatorEntry.getKey().ordinal() ].addExpUtils( expVhk );
-		}
-	}
-
-	
 	public void setComputingAccessibilityForMode( Modes4Accessibility mode, boolean val ) {
 		this.acg.setComputingAccessibilityForMode(mode, val);
 	}
@@ -332,30 +415,8 @@ public final class AccessibilityCalculator {
 	}
 
 	
-	/**
-	 * stores travel disutilities for different modes
-	 */
-	static class SumOfExpUtils {
-		// could just use Map<Modes4Accessibility,Double>, but since it is fairly far inside the loop, I leave it with primitive
-		// variables on the (unfounded) intuition that this helps with computational speed.  kai, 
-
-		private double sum  	= 0.;
-
-		void reset() {
-			this.sum		  	= 0.;
-		}
-
-		void addExpUtils(double val){
-			this.sum += val;
-		}
-
-		double getSum(){
-			return this.sum;
-		}
-	}
-
-	
 	public final void setPtMatrix(PtMatrix ptMatrix) {
+		this.ptMatrix = ptMatrix;
 		calculators.put(
 				Modes4Accessibility.pt,
 				PtMatrixAccessibilityContributionCalculator.create(
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.accessibility.run;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.contrib.accessibility.AccessibilityCalculator;
+import org.matsim.contrib.accessibility.Modes4Accessibility;
+import org.matsim.contrib.accessibility.gis.GridUtils;
+import org.matsim.contrib.accessibility.interfaces.FacilityDataExchangeInterface;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+
+public class AccessibilityCalculatorTest {
+
+	/**
+	 * The origin nodes are distributed to the threads, so the accessibilities must not depend on the number of threads.
+	 */
+	@Test
+	public void testComputeAccessibilities_SameResultsWithSeveralThreads() {
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> singleThreaded = computeAccessibilities(1);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> multiThreaded = computeAccessibilities(4);
+
+		Assert.assertFalse(singleThreaded.isEmpty());
+		Assert.assertEquals(singleThreaded.keySet(), multiThreaded.keySet());
+		for (Map.Entry<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> entry : singleThreaded.entrySet()) {
+			Assert.assertEquals("wrong number of modes for measuring point " + entry.getKey(), 4, entry.getValue().size());
+			Assert.assertEquals("different accessibilities for measuring point " + entry.getKey(), entry.getValue(), multiThreaded.get(entry.getKey()));
+		}
+	}
+
+	private static Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> computeAccessibilities(final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		((MutableScenario) scenario).setNetwork(CreateTestNetwork.createTestNetwork());
+
+		ActivityFacilities opportunities = scenario.getActivityFacilities();
+		int i = 0;
+		for (double x = 50.; x < 200.; x += 40.) {
+			for (double y = 10.; y < 200.; y += 60.) {
+				opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(
+						Id.create("opportunity" + i++, ActivityFacility.class), new Coord(x, y)));
+			}
+		}
+
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, new FreeSpeedTravelTime());
+		Map<String, TravelDisutilityFactory> travelDisutilityFactories = new HashMap<>();
+		travelDisutilityFactories.put(TransportMode.car, new OnlyTimeDependentTravelDisutilityFactory());
+
+		AccessibilityCalculator calculator = new AccessibilityCalculator(travelTimes, travelDisutilityFactories, scenario);
+		calculator.setMeasuringPoints(GridUtils.createGridLayerByGridSizeByBoundingBoxV2(0., 0., 200., 200., 25.));
+		for (Modes4Accessibility mode : new Modes4Accessibility[] {Modes4Accessibility.freeSpeed, Modes4Accessibility.car,
+				Modes4Accessibility.walk, Modes4Accessibility.bike}) {
+			calculator.setComputingAccessibilityForMode(mode, true);
+		}
+
+		final Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> results = new HashMap<>();
+		calculator.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, Map<Modes4Accessibility, Double> accessibilities) {
+				results.put(measurePoint.getId(), new HashMap<>(accessibilities));
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+		calculator.computeAccessibilities(8. * 3600., opportunities);
+		return results;
+	}
+
+}
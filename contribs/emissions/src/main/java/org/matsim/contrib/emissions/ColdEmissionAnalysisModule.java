@@ -21,8 +21,9 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
@@ -69,6 +70,9 @@ public class ColdEmissionAnalysisModule {
 	
 	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
 	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
+
+	// emission factors looked up from the tables once per vehicle description, parking time and distance, see VehicleTypeFactors
+	private final Map<String, VehicleTypeFactors> vehicleTypeFactors = new ConcurrentHashMap<>();
 	
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
@@ -125,53 +129,48 @@ public class ColdEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Map<ColdPollutant, Double> coldEmissions = new HashMap<>();
 		if(vehicle.getType().getDescription() == null){
 			throw new RuntimeException("Vehicle type description for vehicle " + vehicle + "is missing. " +
 					"Please make sure that requirements for emission vehicles in "
 					+ EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleDescription2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " + 
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+		VehicleTypeFactors factors = this.vehicleTypeFactors.get(vehicleDescription);
+		if (factors == null) {
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleDescription2VehicleInformationTuple(vehicleDescription);
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " + 
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			factors = new VehicleTypeFactors(vehicleInformationTuple);
+			this.vehicleTypeFactors.put(vehicleDescription, factors);
 		}
-        if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
+
+		Map<ColdPollutant, Double> coldEmissions = new EnumMap<>(ColdPollutant.class);
+        if(factors.vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
 			for (ColdPollutant cp : ColdPollutant.values()){
 				coldEmissions.put( cp, 0.0 );
 			}
 		} else {
-			coldEmissions = getColdPollutantDoubleMap(vehicle.getId(), parkingDuration, vehicleInformationTuple, distance_km);
+			calculateColdEmissions(vehicle.getId(), parkingDuration, factors, distance_km, coldEmissions);
 		}
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			coldEmissions = rescaleColdEmissions(coldEmissions);
+			rescaleColdEmissions(coldEmissions);
 		}
 		Event coldEmissionEvent = new ColdEmissionEvent(eventTime, coldEmissionEventLinkId, vehicle.getId(), coldEmissions);
 		this.eventsManager.processEvent(coldEmissionEvent);
 	}
 
-	private Map<ColdPollutant, Double> rescaleColdEmissions(Map<ColdPollutant, Double> coldEmissions) {
-		Map<ColdPollutant, Double> rescaledColdEmissions = new HashMap<>();
-		
-		for(ColdPollutant wp : coldEmissions.keySet()){
-			Double orgValue = coldEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledColdEmissions.put(wp, rescaledValue);
+	private void rescaleColdEmissions(Map<ColdPollutant, Double> coldEmissions) {
+		for(Map.Entry<ColdPollutant, Double> entry : coldEmissions.entrySet()){
+			entry.setValue(emissionEfficiencyFactor * entry.getValue());
 		}
-		return rescaledColdEmissions;
 	}
 
-    private Map<ColdPollutant, Double> getColdPollutantDoubleMap(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km) {
-        Map<ColdPollutant, Double> coldEmissionsOfEvent = new HashMap<>();
-
-        HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
-
-        if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+    private void calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, VehicleTypeFactors vehicleTypeFactors, int distance_km, Map<ColdPollutant, Double> coldEmissionsOfEvent) {
+        if(vehicleTypeFactors.vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
             if(vehInfoWarnHDVCnt < maxWarnCnt) {
                 vehInfoWarnHDVCnt++;
                 logger.warn("HBEFA 3.1 does not provide cold start emission factors for " +
@@ -179,33 +178,56 @@ public class ColdEmissionAnalysisModule {
                         ". Setting vehicle category to " + HbefaVehicleCategory.PASSENGER_CAR + "...");
                 if(vehInfoWarnHDVCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
             }
-        } else{
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
         }
 
-
         int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
         if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-        key.setHbefaParkingTime(parkingDuration_h);
+        ColdEmissionFactors factors1 = getColdEmissionFactors(vehicleTypeFactors, parkingDuration_h, 1);
+        ColdEmissionFactors factors2 = distance_km == 1 ? null : getColdEmissionFactors(vehicleTypeFactors, parkingDuration_h, 2);
 
         for (ColdPollutant coldPollutant : ColdPollutant.values()) {
             double generatedEmissions;
             if (distance_km == 1) {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, vehicleTypeFactors, factors1, coldPollutant);
             } else {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 2, key, coldPollutant) - getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, vehicleTypeFactors, factors2, coldPollutant) - getTableEmissions(vehicleId, vehicleTypeFactors, factors1, coldPollutant);
             }
             coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
         }
-        return coldEmissionsOfEvent;
     }
 
-    private double getTableEmissions(Id<Vehicle> vehicleId, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey key, ColdPollutant coldPollutant) {
-        key.setHbefaDistance(distance_km);
-        double generatedEmissions;
+    private double getTableEmissions(Id<Vehicle> vehicleId, VehicleTypeFactors vehicleTypeFactors, ColdEmissionFactors factors, ColdPollutant coldPollutant) {
+        if(factors.fromAverageTable[coldPollutant.ordinal()] && this.detailedHbefaColdTable != null){
+            if(vehAttributesNotSpecifiedCnt < maxWarnCnt) {
+                vehAttributesNotSpecifiedCnt++;
+                logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " +
+                        "`" + vehicleTypeFactors.vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+                if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
+            }
+        }
+        return factors.coldEmissionFactors[coldPollutant.ordinal()];
+    }
+
+    private ColdEmissionFactors getColdEmissionFactors(VehicleTypeFactors vehicleTypeFactors, int parkingDuration_h, int distance_km) {
+        ColdEmissionFactors factors = vehicleTypeFactors.factors[parkingDuration_h][distance_km];
+        if (factors == null) {
+            factors = lookUpColdEmissionFactors(vehicleTypeFactors.vehicleInformationTuple, parkingDuration_h, distance_km);
+            vehicleTypeFactors.factors[parkingDuration_h][distance_km] = factors;
+        }
+        return factors;
+    }
 
-        key.setHbefaComponent(coldPollutant);
+    /**
+     * Looks up the factors of all cold pollutants for one vehicle type, parking time and distance. This is done only once per
+     * combination, since building the keys and hashing them is far more expensive than the emission calculation itself.
+     */
+    private ColdEmissionFactors lookUpColdEmissionFactors(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int parkingDuration_h, int distance_km) {
+        HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+        // HBEFA 3.1 does not provide cold start emission factors for heavy goods vehicles, see warning above
+        key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+        key.setHbefaParkingTime(parkingDuration_h);
+        key.setHbefaDistance(distance_km);
 
         if(this.detailedHbefaColdTable != null){ // check if detailed emission factors file is set in config
             HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
@@ -213,23 +235,26 @@ public class ColdEmissionAnalysisModule {
             hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
             hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
             key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+        }
 
-            if(this.detailedHbefaColdTable.containsKey(key)){
-                generatedEmissions = this.detailedHbefaColdTable.get(key).getColdEmissionFactor();
-            } else {
-                generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
-
-                if(vehAttributesNotSpecifiedCnt < maxWarnCnt) {
-                    vehAttributesNotSpecifiedCnt++;
-                    logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " +
-                            "`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
-                    if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
+        double[] coldEmissionFactors = new double[ColdPollutant.values().length];
+        boolean[] fromAverageTable = new boolean[ColdPollutant.values().length];
+        for (ColdPollutant coldPollutant : ColdPollutant.values()) {
+            key.setHbefaComponent(coldPollutant);
+            HbefaColdEmissionFactor factor = null;
+            if(this.detailedHbefaColdTable != null){
+                factor = this.detailedHbefaColdTable.get(key);
+            }
+            if(factor == null){
+                fromAverageTable[coldPollutant.ordinal()] = true;
+                factor = this.avgHbefaColdTable == null ? null : this.avgHbefaColdTable.get(key);
+                if(factor == null){
+                    throw new RuntimeException("No cold emission factor found for `" + key + "'. Aborting...");
                 }
             }
-        } else {
-            generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
+            coldEmissionFactors[coldPollutant.ordinal()] = factor.getColdEmissionFactor();
         }
-        return generatedEmissions;
+        return new ColdEmissionFactors(coldEmissionFactors, fromAverageTable);
     }
 
     private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleDescription2VehicleInformationTuple(String vehicleDescription) {
@@ -258,4 +283,31 @@ public class ColdEmissionAnalysisModule {
 		return vehicleInformationTuple;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * The vehicle information parsed from one vehicle description, together with its emission factors per parking time
+	 * (in hours, 1 to 13) and distance (in km, 1 or 2).
+	 */
+	private static final class VehicleTypeFactors {
+		final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		// filled on first use
+		final ColdEmissionFactors[][] factors = new ColdEmissionFactors[14][3];
+
+		VehicleTypeFactors(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.vehicleInformationTuple = vehicleInformationTuple;
+		}
+	}
+
+	/**
+	 * The cold emission factors of one vehicle type, parking time and distance, indexed by the ordinal of the {@link ColdPollutant}.
+	 */
+	private static final class ColdEmissionFactors {
+		final double[] coldEmissionFactors;
+		final boolean[] fromAverageTable;
+
+		ColdEmissionFactors(double[] coldEmissionFactors, boolean[] fromAverageTable) {
+			this.coldEmissionFactors = coldEmissionFactors;
+			this.fromAverageTable = fromAverageTable;
+		}
+	}
+
+}
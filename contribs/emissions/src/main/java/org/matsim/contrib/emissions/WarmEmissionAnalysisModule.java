@@ -21,8 +21,10 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -55,6 +57,11 @@ public class WarmEmissionAnalysisModule {
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable;
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
 
+	// the road types of the mapping, sorted; the position of a road type is its index into the compiled factors below
+	private final int[] roadTypes;
+	// emission factors looked up from the tables once per vehicle description and road type, see VehicleTypeFactors
+	private final Map<String, VehicleTypeFactors> vehicleTypeFactors = new ConcurrentHashMap<>();
+
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
 	private final EmissionsConfigGroup ecg;
@@ -120,6 +127,13 @@ public class WarmEmissionAnalysisModule {
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 		this.ecg = parameterObject.ecg;
+
+		this.roadTypes = new int[this.roadTypeMapping.size()];
+		int i = 0;
+		for (Integer roadType : this.roadTypeMapping.keySet()) {
+			this.roadTypes[i++] = roadType;
+		}
+		Arrays.sort(this.roadTypes);
 	}
 
 	public void reset() {
@@ -155,7 +169,6 @@ public class WarmEmissionAnalysisModule {
 			}
 		}
 
-		Map<WarmPollutant, Double> warmEmissions = new HashMap<>();
 		if(vehicle == null ||
 				(vehicle.getType() == null && vehicle.getType().getDescription() == null) // if both are null together; no vehicle type information.
 				) {
@@ -166,126 +179,88 @@ public class WarmEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " + 
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+		VehicleTypeFactors factors = this.vehicleTypeFactors.get(vehicleDescription);
+		if (factors == null) {
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " + 
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			factors = new VehicleTypeFactors(vehicleInformationTuple, this.roadTypes.length);
+			this.vehicleTypeFactors.put(vehicleDescription, factors);
 		}
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
+
+		Map<WarmPollutant, Double> warmEmissions = new EnumMap<>(WarmPollutant.class);
+		if(factors.vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
 			for (WarmPollutant warmPollutant : WarmPollutant.values()) {
 				warmEmissions.put( warmPollutant, 0.0 );
 			}
 		} else {
-			warmEmissions = calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformationTuple);
+			calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, factors, warmEmissions);
 		}
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			warmEmissions = rescaleWarmEmissions(warmEmissions);
+			rescaleWarmEmissions(warmEmissions);
 		}
 		return warmEmissions;
 	}
 	
-	private Map<WarmPollutant, Double> rescaleWarmEmissions(Map<WarmPollutant, Double> warmEmissions) {
-		Map<WarmPollutant, Double> rescaledWarmEmissions = new HashMap<>();
-		
-		for(WarmPollutant wp : warmEmissions.keySet()){
-			Double orgValue = warmEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledWarmEmissions.put(wp, rescaledValue);
+	private void rescaleWarmEmissions(Map<WarmPollutant, Double> warmEmissions) {
+		for(Map.Entry<WarmPollutant, Double> entry : warmEmissions.entrySet()){
+			entry.setValue(emissionEfficiencyFactor * entry.getValue());
 		}
-		return rescaledWarmEmissions;
 	}
 
-	private Map<WarmPollutant, Double> calculateWarmEmissions(
+	private void calculateWarmEmissions(
 			Id<Vehicle> vehicleId,
 			double travelTime,
 			int roadType,
 			double freeVelocity,
 			double linkLength,
-			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
-
-		Map<WarmPollutant, Double> warmEmissionsOfEvent = new HashMap<>();
-
-		String hbefaRoadTypeName = this.roadTypeMapping.get(roadType);
-
-		HbefaWarmEmissionFactorKey keyFreeFlow = new HbefaWarmEmissionFactorKey();
-		HbefaWarmEmissionFactorKey keyStopAndGo = new HbefaWarmEmissionFactorKey();
+			VehicleTypeFactors vehicleTypeFactors,
+			Map<WarmPollutant, Double> warmEmissionsOfEvent) {
 
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-		} else{
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+		int roadTypeIndex = Arrays.binarySearch(this.roadTypes, roadType);
+		if (roadTypeIndex < 0) {
+			throw new RuntimeException("Road type " + roadType + " is not contained in the road type mapping. Aborting...");
 		}
-		keyFreeFlow.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyStopAndGo.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyFreeFlow.setHbefaTrafficSituation(HbefaTrafficSituation.FREEFLOW);
-		keyStopAndGo.setHbefaTrafficSituation(HbefaTrafficSituation.STOPANDGO);
-
-		if(this.detailedHbefaWarmTable != null){ // check if detailed emission factors file is set in config
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			keyFreeFlow.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-			keyStopAndGo.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+		WarmEmissionFactors factors = vehicleTypeFactors.factorsPerRoadType[roadTypeIndex];
+		if (factors == null) {
+			factors = lookUpWarmEmissionFactors(this.roadTypeMapping.get(roadType), vehicleTypeFactors.vehicleInformationTuple);
+			vehicleTypeFactors.factorsPerRoadType[roadTypeIndex] = factors;
 		}
-		
+
 		double linkLength_km = linkLength / 1000;
 		double travelTime_h = travelTime / 3600;
 		double freeFlowSpeed_kmh = freeVelocity * 3.6;
 		double averageSpeed_kmh = linkLength_km / travelTime_h;
 		
-		double freeFlowSpeedFromTable_kmh;
-		double stopGoSpeedFromTable_kmh;
-		double efFreeFlow_gpkm;
-		double efStopGo_gpkm;
+		if(averageSpeed_kmh <= 0.0){
+			throw new RuntimeException("Average speed has been calculated to 0.0 or a negative value. Aborting...");
+		}
+		if ((averageSpeed_kmh - freeFlowSpeed_kmh) > 1.0){
+			throw new RuntimeException("Average speed has been calculated to be greater than free flow speed; this might produce negative warm emissions. Aborting...");
+		}
 
 		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
+			int p = warmPollutant.ordinal();
 			double generatedEmissions;
 
-			keyFreeFlow.setHbefaComponent(warmPollutant);
-			keyStopAndGo.setHbefaComponent(warmPollutant);
-			
-			if(this.detailedHbefaWarmTable != null){
-				if(this.detailedHbefaWarmTable.get(keyFreeFlow) != null && this.detailedHbefaWarmTable.get(keyStopAndGo) != null){
-					stopGoSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.detailedHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.detailedHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyFreeFlow).getSpeed();
-
-				} else {
-					vehAttributesNotSpecifiedCnt++;
-					stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
-
-                    int maxWarnCnt = 3;
-                    if(vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
-						logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " + 
-								"`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
-						if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
-					}
-//					vehAttributesNotSpecified.add(personId);
+			if (factors.fromAverageTable[p] && this.detailedHbefaWarmTable != null) {
+				vehAttributesNotSpecifiedCnt++;
+				int maxWarnCnt = 3;
+				if(vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
+					logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " + 
+							"`" + vehicleTypeFactors.vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+					if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
 				}
-			} else {
-				stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-				efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-				efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-				freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
-//				vehAttributesNotSpecified.add(personId);
-			}
-			
-			if(averageSpeed_kmh <= 0.0){
-				throw new RuntimeException("Average speed has been calculated to 0.0 or a negative value. Aborting...");
-			}
-			if ((averageSpeed_kmh - freeFlowSpeed_kmh) > 1.0){
-				throw new RuntimeException("Average speed has been calculated to be greater than free flow speed; this might produce negative warm emissions. Aborting...");
 			}
+			double stopGoSpeedFromTable_kmh = factors.stopGoSpeeds_kmh[p];
+			double efFreeFlow_gpkm = factors.freeFlowFactors_gpkm[p];
+			double efStopGo_gpkm = factors.stopGoFactors_gpkm[p];
+
 			/* NOTE: the following comparision does not make sense since HBEFA assumes free flow speeds to be different from speed limits.
 			 * For instance, for RUR/MW/80/Freeflow HBEFA assumes a free flow speed of 82.80 kmh.
 			 * benjamin, amit 01'2014
@@ -315,8 +290,70 @@ public class WarmEmissionAnalysisModule {
 			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
 		}
 		emissionEventCounter++;
-//		vehicleIdSet.add(personId);
-		return warmEmissionsOfEvent;
+	}
+
+	/**
+	 * Looks up the factors of all warm pollutants for one vehicle type on one HBEFA road category. This is done only once per
+	 * vehicle description and road type, since building the keys and hashing them is far more expensive than the emission
+	 * calculation itself.
+	 */
+	private WarmEmissionFactors lookUpWarmEmissionFactors(
+			String hbefaRoadTypeName,
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+
+		HbefaWarmEmissionFactorKey keyFreeFlow = new HbefaWarmEmissionFactorKey();
+		HbefaWarmEmissionFactorKey keyStopAndGo = new HbefaWarmEmissionFactorKey();
+
+		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
+			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
+			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
+		} else{
+			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+		}
+		keyFreeFlow.setHbefaRoadCategory(hbefaRoadTypeName);
+		keyStopAndGo.setHbefaRoadCategory(hbefaRoadTypeName);
+		keyFreeFlow.setHbefaTrafficSituation(HbefaTrafficSituation.FREEFLOW);
+		keyStopAndGo.setHbefaTrafficSituation(HbefaTrafficSituation.STOPANDGO);
+
+		if(this.detailedHbefaWarmTable != null){ // check if detailed emission factors file is set in config
+			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+			keyFreeFlow.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+			keyStopAndGo.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+		}
+
+		int numberOfPollutants = WarmPollutant.values().length;
+		double[] stopGoSpeeds_kmh = new double[numberOfPollutants];
+		double[] freeFlowFactors_gpkm = new double[numberOfPollutants];
+		double[] stopGoFactors_gpkm = new double[numberOfPollutants];
+		boolean[] fromAverageTable = new boolean[numberOfPollutants];
+
+		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
+			keyFreeFlow.setHbefaComponent(warmPollutant);
+			keyStopAndGo.setHbefaComponent(warmPollutant);
+
+			HbefaWarmEmissionFactor freeFlow = null;
+			HbefaWarmEmissionFactor stopAndGo = null;
+			if(this.detailedHbefaWarmTable != null){
+				freeFlow = this.detailedHbefaWarmTable.get(keyFreeFlow);
+				stopAndGo = this.detailedHbefaWarmTable.get(keyStopAndGo);
+			}
+			if(freeFlow == null || stopAndGo == null){
+				fromAverageTable[warmPollutant.ordinal()] = true;
+				freeFlow = this.avgHbefaWarmTable == null ? null : this.avgHbefaWarmTable.get(keyFreeFlow);
+				stopAndGo = this.avgHbefaWarmTable == null ? null : this.avgHbefaWarmTable.get(keyStopAndGo);
+				if(freeFlow == null || stopAndGo == null){
+					throw new RuntimeException("No warm emission factors found for `" + keyFreeFlow + "' and `" + keyStopAndGo + "'. Aborting...");
+				}
+			}
+			stopGoSpeeds_kmh[warmPollutant.ordinal()] = stopAndGo.getSpeed();
+			freeFlowFactors_gpkm[warmPollutant.ordinal()] = freeFlow.getWarmEmissionFactor();
+			stopGoFactors_gpkm[warmPollutant.ordinal()] = stopAndGo.getWarmEmissionFactor();
+		}
+		return new WarmEmissionFactors(stopGoSpeeds_kmh, freeFlowFactors_gpkm, stopGoFactors_gpkm, fromAverageTable);
 	}
 
 	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleTypeId2VehicleInformationTuple(String vehicleDescription) {
@@ -373,4 +410,35 @@ public class WarmEmissionAnalysisModule {
 		return emissionEventCounter;
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * The vehicle information parsed from one vehicle description, together with its emission factors per road type.
+	 */
+	private static final class VehicleTypeFactors {
+		final Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
+		// indexed like roadTypes; filled on first use
+		final WarmEmissionFactors[] factorsPerRoadType;
+
+		VehicleTypeFactors(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int numberOfRoadTypes) {
+			this.vehicleInformationTuple = vehicleInformationTuple;
+			this.factorsPerRoadType = new WarmEmissionFactors[numberOfRoadTypes];
+		}
+	}
+
+	/**
+	 * The warm emission factors of one vehicle type on one road type, indexed by the ordinal of the {@link WarmPollutant}.
+	 */
+	private static final class WarmEmissionFactors {
+		final double[] stopGoSpeeds_kmh;
+		final double[] freeFlowFactors_gpkm;
+		final double[] stopGoFactors_gpkm;
+		final boolean[] fromAverageTable;
+
+		WarmEmissionFactors(double[] stopGoSpeeds_kmh, double[] freeFlowFactors_gpkm, double[] stopGoFactors_gpkm, boolean[] fromAverageTable) {
+			this.stopGoSpeeds_kmh = stopGoSpeeds_kmh;
+			this.freeFlowFactors_gpkm = freeFlowFactors_gpkm;
+			this.stopGoFactors_gpkm = stopGoFactors_gpkm;
+			this.fromAverageTable = fromAverageTable;
+		}
+	}
+
+}
@@ -59,6 +59,8 @@ import org.matsim.vehicles.VehicleUtils;
 public class TestColdEmissionAnalysisModule {
 
     private ColdEmissionAnalysisModule ceam;
+    private Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
+    private Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
 	
 	private final String passengercar= "PASSENGER_CAR";
     private final Double startTime = 0.0;
@@ -242,9 +244,61 @@ public class TestColdEmissionAnalysisModule {
 		
 	}
 	
+	@Test
+	public void calculateColdEmissionsAndThrowEventTest_cachedEmissionFactors() {
+
+		/*
+		 * the emission factors are looked up once per vehicle type and then reused;
+		 * the emissions must be the same as when looking up the tables directly,
+		 * no matter which vehicle types have been seen before
+		 */
+
+		setUp();
+
+		// second case: corresponding entry in detailed table
+		Vehicle detailedVehicle = VehicleUtils.getFactory().createVehicle(Id.create("vehicle detailed", Vehicle.class),
+				VehicleUtils.getFactory().createVehicleType(Id.create(passengercar +";"+ pcpetrol14 +";"+ petrol4S +";"+ leq14l, VehicleType.class)));
+		// first case: no entry in detailed table -> fall back to average table
+		Vehicle averageVehicle = VehicleUtils.getFactory().createVehicle(Id.create("vehicle avg", Vehicle.class),
+				VehicleUtils.getFactory().createVehicleType(Id.create(passengercar +";"+ pcpetrol +";"+ petrol +";"+ none, VehicleType.class)));
+
+		// same vehicle type twice, then a different one, then the first one again
+		assertCachedEqualsTableEmissions(detailedVehicle, pcpetrol14, petrol4S, leq14l, detailedAverageFactor);
+		assertCachedEqualsTableEmissions(detailedVehicle, pcpetrol14, petrol4S, leq14l, detailedAverageFactor);
+		assertCachedEqualsTableEmissions(averageVehicle, pcpetrol, petrol, none, petrolFactor);
+		assertCachedEqualsTableEmissions(averageVehicle, pcpetrol, petrol, none, petrolFactor);
+		assertCachedEqualsTableEmissions(detailedVehicle, pcpetrol14, petrol4S, leq14l, detailedAverageFactor);
+	}
+
+	private void assertCachedEqualsTableEmissions(Vehicle vehicle, String technology, String sizeClass, String concept, double expectedFactor) {
+		HbefaVehicleAttributes vehAtt = new HbefaVehicleAttributes();
+		vehAtt.setHbefaTechnology(technology);
+		vehAtt.setHbefaSizeClass(sizeClass);
+		vehAtt.setHbefaEmConcept(concept);
+
+		double tableEmissions = 0.;
+		for (ColdPollutant cp : ColdPollutant.values()) {
+			HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+			key.setHbefaDistance(tableAccDistance);
+			key.setHbefaParkingTime(tableParkingDuration);
+			key.setHbefaVehicleAttributes(vehAtt);
+			key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			key.setHbefaComponent(cp);
+			HbefaColdEmissionFactor factor = detailedHbefaColdTable.containsKey(key) ? detailedHbefaColdTable.get(key) : avgHbefaColdTable.get(key);
+			tableEmissions += factor.getColdEmissionFactor();
+		}
+		Assert.assertEquals(numberOfColdEmissions*expectedFactor, tableEmissions, MatsimTestUtils.EPSILON);
+
+		HandlerToTestEmissionAnalysisModules.reset();
+		ceam.calculateColdEmissionsAndThrowEvent(Id.create("link id", Link.class), vehicle, startTime, parkingDuration, tableAccDistance);
+		String message = "The expected emissions for vehicle type '" + vehicle.getType().getId() + "' are " +
+				tableEmissions + " but were " + HandlerToTestEmissionAnalysisModules.getSum();
+		Assert.assertEquals(message, tableEmissions, HandlerToTestEmissionAnalysisModules.getSum(), MatsimTestUtils.EPSILON);
+	}
+
 	private void setUp() {
-        Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable = new HashMap<>();
-        Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable = new HashMap<>();
+        avgHbefaColdTable = new HashMap<>();
+        detailedHbefaColdTable = new HashMap<>();
 		
 		fillAverageTable(avgHbefaColdTable);
 		fillDetailedTable(detailedHbefaColdTable);
@@ -780,6 +780,72 @@ public class TestWarmEmissionAnalysisModule {
 		
 	}
 	
+	@Test
+	public void testCheckVehicleInfoAndCalculateWarmEmissions_cachedEmissionFactors(){
+		//-- set up tables, event handler, parameters, module
+		setUp();
+
+		// the emission factors are looked up once per vehicle type and then reused; the emissions must be the same
+		// as when looking up the tables directly, no matter which vehicle types have been seen before
+		VehiclesFactory vehFac = VehicleUtils.getFactory();
+		// case 1 - data in both tables -> use detailed
+		Id<VehicleType> petrolVehicleTypeId = Id.create(passengercar+ ";"+petrolTechnology+";"+petrolSizeClass+";"+petrolConcept, VehicleType.class);
+		Vehicle petrolVehicle = vehFac.createVehicle(Id.create("veh petrol", Vehicle.class), vehFac.createVehicleType(petrolVehicleTypeId));
+		// case 3 - stop go entry in both tables, free flow entry in average table -> use average
+		Id<VehicleType> dieselVehicleTypeId = Id.create(passengercar +";"+ dieselTechnology+ ";"+ dieselSizeClass+";"+dieselConcept, VehicleType.class);
+		Vehicle dieselVehicle = vehFac.createVehicle(Id.create("veh diesel", Vehicle.class), vehFac.createVehicleType(dieselVehicleTypeId));
+
+		// same vehicle type twice, then a different one, then the first one again
+		assertCachedEqualsTableEmissions(petrolVehicle, petrolTechnology, petrolSizeClass, petrolConcept, petrolSpeedFf, petrolSpeedSg, detailedPetrolFactorFf);
+		assertCachedEqualsTableEmissions(petrolVehicle, petrolTechnology, petrolSizeClass, petrolConcept, petrolSpeedFf, petrolSpeedSg, detailedPetrolFactorFf);
+		assertCachedEqualsTableEmissions(dieselVehicle, dieselTechnology, dieselSizeClass, dieselConcept, dieselFreeVelocity, dieselSgVelocity, avgDieselFactorFf);
+		assertCachedEqualsTableEmissions(dieselVehicle, dieselTechnology, dieselSizeClass, dieselConcept, dieselFreeVelocity, dieselSgVelocity, avgDieselFactorFf);
+		assertCachedEqualsTableEmissions(petrolVehicle, petrolTechnology, petrolSizeClass, petrolConcept, petrolSpeedFf, petrolSpeedSg, detailedPetrolFactorFf);
+	}
+
+	private void assertCachedEqualsTableEmissions(Vehicle vehicle, String technology, String sizeClass, String concept,
+			double freeFlowSpeed_kmh, double stopGoSpeed_kmh, double expectedFreeFlowFactor) {
+		HbefaVehicleAttributes vehAtt = new HbefaVehicleAttributes();
+		vehAtt.setHbefaTechnology(technology);
+		vehAtt.setHbefaSizeClass(sizeClass);
+		vehAtt.setHbefaEmConcept(concept);
+		double linkLength = 1000.;
+
+		// sub case avg speed = free flow speed
+		warmEmissions = weam.checkVehicleInfoAndCalculateWarmEmissions(vehicle, roadType, freeFlowSpeed_kmh/3.6, linkLength, linkLength/freeFlowSpeed_kmh*3.6);
+		for (WarmPollutant wp : WarmPollutant.values()) {
+			double tableFactor = lookUpWarmEmissionFactor(vehAtt, trafficSituationff, wp);
+			Assert.assertEquals(tableFactor*linkLength/1000., warmEmissions.get(wp), MatsimTestUtils.EPSILON);
+		}
+		Assert.assertEquals(expectedFreeFlowFactor*linkLength/1000., warmEmissions.get(WarmPollutant.NO2), MatsimTestUtils.EPSILON);
+
+		// sub case avg speed = stop go speed
+		warmEmissions = weam.checkVehicleInfoAndCalculateWarmEmissions(vehicle, roadType, freeFlowSpeed_kmh/3.6, linkLength, linkLength/stopGoSpeed_kmh*3.6);
+		for (WarmPollutant wp : WarmPollutant.values()) {
+			double tableFactor = lookUpWarmEmissionFactor(vehAtt, trafficSituationsg, wp);
+			Assert.assertEquals(tableFactor*linkLength/1000., warmEmissions.get(wp), MatsimTestUtils.EPSILON);
+		}
+		warmEmissions.clear();
+	}
+
+	private double lookUpWarmEmissionFactor(HbefaVehicleAttributes vehAtt, HbefaTrafficSituation trafficSituation, WarmPollutant wp) {
+		// the module uses the average table if either the free flow or the stop go entry is missing in the detailed table
+		boolean detailed = detailedHbefaWarmTable.containsKey(createWarmKey(vehAtt, trafficSituationff, wp))
+				&& detailedHbefaWarmTable.containsKey(createWarmKey(vehAtt, trafficSituationsg, wp));
+		HbefaWarmEmissionFactorKey key = createWarmKey(vehAtt, trafficSituation, wp);
+		return (detailed ? detailedHbefaWarmTable : avgHbefaWarmTable).get(key).getWarmEmissionFactor();
+	}
+
+	private HbefaWarmEmissionFactorKey createWarmKey(HbefaVehicleAttributes vehAtt, HbefaTrafficSituation trafficSituation, WarmPollutant wp) {
+		HbefaWarmEmissionFactorKey key = new HbefaWarmEmissionFactorKey();
+		key.setHbefaComponent(wp);
+		key.setHbefaRoadCategory(hbefaRoadCategory);
+		key.setHbefaTrafficSituation(trafficSituation);
+		key.setHbefaVehicleAttributes(vehAtt);
+		key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+		return key;
+	}
+
 	private void setUp() {
 		roadTypeMapping = new HashMap<>();
 		avgHbefaWarmTable = new HashMap<>();
@@ -68,10 +68,11 @@ public class NoiseContext {
 	// time interval specific information
 	
 	private double currentTimeBinEndTime;
-	private final Map<Id<Link>, NoiseLink> noiseLinks;
+	private Map<Id<Link>, NoiseLink> noiseLinks;
 	private double eventTime = Double.MIN_VALUE;
 
 	private final Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints;
+	private ReceiverPointLinkMatrix receiverPointLinkMatrix;
 	
 	// ############################################
 	
@@ -101,12 +102,9 @@ public class NoiseContext {
 	// for routing purposes
 	public final void storeTimeInterval() {
 		
-		Map<Id<Link>, NoiseLink> noiseLinksThisTimeBinCopy = new HashMap<>();
-		noiseLinksThisTimeBinCopy.putAll(this.noiseLinks);
-		
-		double currentTimeIntervalCopy = this.currentTimeBinEndTime;
-		
-		this.timeInterval2linkId2noiseLinks.put(currentTimeIntervalCopy, noiseLinksThisTimeBinCopy);
+		// the noise links of this time bin are not modified anymore, thus they are handed over instead of copied
+		this.timeInterval2linkId2noiseLinks.put(this.currentTimeBinEndTime, this.noiseLinks);
+		this.noiseLinks = new HashMap<Id<Link>, NoiseLink>();
 	}
 	
 	private void checkConsistency() {
@@ -301,6 +299,8 @@ public class NoiseContext {
 			
 			this.noiseReceiverPoints.put(nrp.getId(), nrp);
 		}
+		
+		this.receiverPointLinkMatrix = new ReceiverPointLinkMatrix(scenario.getNetwork(), this.noiseReceiverPoints.values());
 	}
 	
 	private void setLinksMinMax() {
@@ -469,6 +469,10 @@ public class NoiseContext {
 		this.currentTimeBinEndTime = currentTimeBinEndTime;
 	}
 
+	public final ReceiverPointLinkMatrix getReceiverPointLinkMatrix() {
+		return receiverPointLinkMatrix;
+	}
+
 	public final Map<Id<Link>, NoiseLink> getNoiseLinks() {
 		return noiseLinks;
 	}
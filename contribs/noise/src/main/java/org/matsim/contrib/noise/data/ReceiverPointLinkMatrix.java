@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * The relevant links of all receiver points as sparse matrix in compressed sparse row format: row <code>r</code> contains the
+ * entries <code>getRowStart(r)</code> (inclusive) to <code>getRowStart(r + 1)</code> (exclusive), each entry referring to a link index and
+ * holding the distance and angle correction of this receiver point / link relation.
+ * <p></p>
+ * The relations are fixed once the receiver points are set up, thus the matrix is built only once, and the time-specific
+ * immissions can be stored in primitive arrays along the entries of this matrix.
+ */
+public final class ReceiverPointLinkMatrix {
+
+	private final NoiseReceiverPoint[] receiverPoints;
+	private final List<Id<Link>> linkIds;
+
+	private final int[] rowStarts;
+	private final int[] linkIndices;
+	private final double[] distanceCorrections;
+	private final double[] angleCorrections;
+
+	ReceiverPointLinkMatrix(Network network, Collection<NoiseReceiverPoint> noiseReceiverPoints) {
+
+		this.linkIds = new ArrayList<>(network.getLinks().keySet());
+		Map<Id<Link>, Integer> linkId2index = new HashMap<>();
+		for (int i = 0; i < this.linkIds.size(); i++) {
+			linkId2index.put(this.linkIds.get(i), i);
+		}
+
+		this.receiverPoints = noiseReceiverPoints.toArray(new NoiseReceiverPoint[noiseReceiverPoints.size()]);
+
+		int numberOfEntries = 0;
+		for (NoiseReceiverPoint rp : this.receiverPoints) {
+			numberOfEntries += rp.getLinkId2distanceCorrection().size();
+		}
+
+		this.rowStarts = new int[this.receiverPoints.length + 1];
+		this.linkIndices = new int[numberOfEntries];
+		this.distanceCorrections = new double[numberOfEntries];
+		this.angleCorrections = new double[numberOfEntries];
+
+		int entry = 0;
+		for (int r = 0; r < this.receiverPoints.length; r++) {
+			NoiseReceiverPoint rp = this.receiverPoints[r];
+			this.rowStarts[r] = entry;
+			for (Map.Entry<Id<Link>, Double> linkId2distanceCorrection : rp.getLinkId2distanceCorrection().entrySet()) {
+				this.linkIndices[entry] = linkId2index.get(linkId2distanceCorrection.getKey());
+				this.distanceCorrections[entry] = linkId2distanceCorrection.getValue();
+				this.angleCorrections[entry] = rp.getLinkId2angleCorrection().get(linkId2distanceCorrection.getKey());
+				entry++;
+			}
+		}
+		this.rowStarts[this.receiverPoints.length] = entry;
+	}
+
+	public int getNumberOfReceiverPoints() {
+		return this.receiverPoints.length;
+	}
+
+	public NoiseReceiverPoint getReceiverPoint(int row) {
+		return this.receiverPoints[row];
+	}
+
+	public int getNumberOfLinks() {
+		return this.linkIds.size();
+	}
+
+	public Id<Link> getLinkId(int linkIndex) {
+		return this.linkIds.get(linkIndex);
+	}
+
+	public int getNumberOfEntries() {
+		return this.linkIndices.length;
+	}
+
+	public int getRowStart(int row) {
+		return this.rowStarts[row];
+	}
+
+	public int getLinkIndex(int entry) {
+		return this.linkIndices[entry];
+	}
+
+	public double getDistanceCorrection(int entry) {
+		return this.distanceCorrections[entry];
+	}
+
+	public double getAngleCorrection(int entry) {
+		return this.angleCorrections[entry];
+	}
+
+}
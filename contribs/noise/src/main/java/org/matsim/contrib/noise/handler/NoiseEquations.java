@@ -92,7 +92,29 @@ public class NoiseEquations {
 		}
 		return resultingNoiseImmission;
 	}
-	
+
+	/**
+	 * Same as {@link #calculateResultingNoiseImmission(Collection)} for the isolated immissions <code>from</code> (inclusive) to <code>to</code> (exclusive).
+	 */
+	public static double calculateResultingNoiseImmission (double[] immissions, int from, int to){
+
+		double resultingNoiseImmission = 0.;
+
+		if (to > from) {
+			double sumTmp = 0.;
+			for (int i = from; i < to; i++) {
+				if (immissions[i] > 0.) {
+					sumTmp = sumTmp + (Math.pow(10, (0.1 * immissions[i])));
+				}
+			}
+			resultingNoiseImmission = 10 * Math.log10(sumTmp);
+			if (resultingNoiseImmission < 0) {
+				resultingNoiseImmission = 0.;
+			}
+		}
+		return resultingNoiseImmission;
+	}
+
 	public static double calculateLCar(double vCar) {
 		
 		double lCar = 27.7 + (10 * Math.log10(1.0 + Math.pow(0.02 * vCar, 3.0)));
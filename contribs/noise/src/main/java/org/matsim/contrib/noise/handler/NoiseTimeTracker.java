@@ -23,10 +23,13 @@
 package org.matsim.contrib.noise.handler;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -42,7 +45,7 @@ import org.matsim.contrib.noise.data.NoiseContext;
 import org.matsim.contrib.noise.data.NoiseLink;
 import org.matsim.contrib.noise.data.NoiseReceiverPoint;
 import org.matsim.contrib.noise.data.PersonActivityInfo;
-import org.matsim.contrib.noise.data.ReceiverPoint;
+import org.matsim.contrib.noise.data.ReceiverPointLinkMatrix;
 import org.matsim.contrib.noise.events.NoiseEventAffected;
 import org.matsim.contrib.noise.events.NoiseEventCaused;
 import org.matsim.core.api.experimental.events.EventsManager;
@@ -77,11 +80,41 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	
 	private boolean useCompression = false ;
 	
+	// time-specific information along the links (emissions) and along the entries (immissions) of the receiver point link matrix
+	private final boolean[] tunnelLinks;
+	private final NoiseLink[] noiseLinks;
+	private final double[] emissions;
+	private final double[] emissionsPlusOneCar;
+	private final double[] emissionsPlusOneHgv;
+	private final double[] isolatedImmissions;
+	private final double[] isolatedImmissionsPlusOneCar;
+	private final double[] isolatedImmissionsPlusOneHgv;
+	private double[] marginalDamageCostsCar;
+	private double[] marginalDamageCostsHgv;
+	
+	// the threads processing the receiver points; created in the first time bin of an iteration and shut down after its last time bin
+	private ExecutorService executor;
+	
 	public NoiseTimeTracker(NoiseContext noiseContext, EventsManager events, String outputDirectory) {
 		this.noiseContext = noiseContext;
 		this.outputDirectoryBasic = outputDirectory;
 		this.outputDirectory = outputDirectory;
 		this.events = events;	
+		
+		ReceiverPointLinkMatrix matrix = noiseContext.getReceiverPointLinkMatrix();
+		this.tunnelLinks = new boolean[matrix.getNumberOfLinks()];
+		if (noiseContext.getNoiseParams().getTunnelLinkIDsSet() != null) {
+			for (int linkIndex = 0; linkIndex < matrix.getNumberOfLinks(); linkIndex++) {
+				this.tunnelLinks[linkIndex] = noiseContext.getNoiseParams().getTunnelLinkIDsSet().contains(matrix.getLinkId(linkIndex));
+			}
+		}
+		this.noiseLinks = new NoiseLink[matrix.getNumberOfLinks()];
+		this.emissions = new double[matrix.getNumberOfLinks()];
+		this.emissionsPlusOneCar = new double[matrix.getNumberOfLinks()];
+		this.emissionsPlusOneHgv = new double[matrix.getNumberOfLinks()];
+		this.isolatedImmissions = new double[matrix.getNumberOfEntries()];
+		this.isolatedImmissionsPlusOneCar = new double[matrix.getNumberOfEntries()];
+		this.isolatedImmissionsPlusOneHgv = new double[matrix.getNumberOfEntries()];
 	}
 	
 	int cWarn1 = 0;
@@ -131,6 +164,8 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		
 		this.iteration = iteration;
 		
+		shutdownExecutor(); // in case the previous iteration was not completed
+		
 		this.totalCausedNoiseCost = 0.;
 		this.totalAffectedNoiseCost = 0.;
 		this.noiseEventsCaused.clear();
@@ -141,7 +176,6 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		this.noiseContext.setCurrentTimeBinEndTime(this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setAffectedAgentUnits(0.);
 			rp.getPersonId2actInfos().clear();
@@ -156,7 +190,6 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		this.noiseContext.getNoiseLinks().clear();
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setAffectedAgentUnits(0.);
 			rp.setDamageCosts(0.);
@@ -382,39 +415,24 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateCostSharesPerLinkPerTimeInterval() {
 		
-		Map<Id<ReceiverPoint>, Map<Id<Link>, Double>> rpId2linkId2costShare = new HashMap<Id<ReceiverPoint>, Map<Id<Link>,Double>>();
-
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-										
-			Map<Id<Link>,Double> linkId2costShare = new HashMap<Id<Link>, Double>();
+		ReceiverPointLinkMatrix matrix = this.noiseContext.getReceiverPointLinkMatrix();
+		
+		// summing up the link-based costs
+		for (int row = 0; row < matrix.getNumberOfReceiverPoints(); row++) {
+			NoiseReceiverPoint rp = matrix.getReceiverPoint(row);
 							
 			if (rp.getDamageCosts() != 0.) {
-				for (Id<Link> linkId : rp.getLinkId2IsolatedImmission().keySet()) {
+				for (int entry = matrix.getRowStart(row); entry < matrix.getRowStart(row + 1); entry++) {
 										
-					double noiseImmission = rp.getLinkId2IsolatedImmission().get(linkId);
-					double costs = 0.;
+					double noiseImmission = this.isolatedImmissions[entry];
 						
 					if (!(noiseImmission == 0.)) {
 						double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
-						costs = costShare * rp.getDamageCosts();	
+						double costs = costShare * rp.getDamageCosts();
+						
+						NoiseLink noiseLink = this.noiseLinks[matrix.getLinkIndex(entry)];
+						noiseLink.setDamageCost(noiseLink.getDamageCost() + costs);
 					}
-					linkId2costShare.put(linkId, costs);
-				}
-			}
-			
-			rpId2linkId2costShare.put(rp.getId(), linkId2costShare);
-		}
-		
-		// summing up the link-based costs
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getDamageCosts() != 0.) {
-				
-				for (Id<Link> linkId : this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().keySet()) {
-					if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-						double sum = this.noiseContext.getNoiseLinks().get(linkId).getDamageCost() + rpId2linkId2costShare.get(rp.getId()).get(linkId);
-						this.noiseContext.getNoiseLinks().get(linkId).setDamageCost(sum);
-					}		
 				}
 			}
 		}
@@ -514,49 +532,73 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 * Noise allocation approach: MarginalCost
 	 */
 	private void calculateMarginalDamageCost() {
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
+		
+		final ReceiverPointLinkMatrix matrix = this.noiseContext.getReceiverPointLinkMatrix();
+		if (this.marginalDamageCostsCar == null) {
+			this.marginalDamageCostsCar = new double[matrix.getNumberOfEntries()];
+			this.marginalDamageCostsHgv = new double[matrix.getNumberOfEntries()];
+		}
+		
+		processRowsInParallel(matrix.getNumberOfReceiverPoints(), new RowProcessor() {
+			@Override
+			public void processRow(int row) {
+				calculateMarginalDamageCost(matrix, row);
+			}
+		});
+		
+		// summing up the link-based costs, in the order of the receiver points
+		for (int row = 0; row < matrix.getNumberOfReceiverPoints(); row++) {
+			if (matrix.getReceiverPoint(row).getAffectedAgentUnits() != 0.) {
+				for (int entry = matrix.getRowStart(row); entry < matrix.getRowStart(row + 1); entry++) {
+					NoiseLink noiseLink = this.noiseLinks[matrix.getLinkIndex(entry)];
+					noiseLink.setMarginalDamageCostPerCar(noiseLink.getMarginalDamageCostPerCar() + this.marginalDamageCostsCar[entry]);
+					noiseLink.setMarginalDamageCostPerHgv(noiseLink.getMarginalDamageCostPerHgv() + this.marginalDamageCostsHgv[entry]);
+				}
+			}
+		}
+	}
+	
+	private void calculateMarginalDamageCost(ReceiverPointLinkMatrix matrix, int row) {
+		NoiseReceiverPoint rp = matrix.getReceiverPoint(row);
 
-			if (rp.getAffectedAgentUnits() != 0.) {
-				for (Id<Link> thisLink : rp.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), rp.getLinkId2IsolatedImmission().get(thisLink), rp.getLinkId2IsolatedImmissionPlusOneCar().get(thisLink));
-					double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), rp.getLinkId2IsolatedImmission().get(thisLink), rp.getLinkId2IsolatedImmissionPlusOneHGV().get(thisLink));
-					
-					double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostCarThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
-							marginalDamageCostCarThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
-							log.warn("Setting the marginal damage cost per car to 0.");
-							marginalDamageCostCarThisLink = 0.;
-						}
+		if (rp.getAffectedAgentUnits() != 0.) {
+			for (int entry = matrix.getRowStart(row); entry < matrix.getRowStart(row + 1); entry++) {
+				Id<Link> thisLink = matrix.getLinkId(matrix.getLinkIndex(entry));
+									
+				double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), this.isolatedImmissions[entry], this.isolatedImmissionsPlusOneCar[entry]);
+				double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), this.isolatedImmissions[entry], this.isolatedImmissionsPlusOneHgv[entry]);
+				
+				double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+				double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+				
+				if (marginalDamageCostCarThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
+						marginalDamageCostCarThisLink = 0.;
+					} else {
+						log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
+						log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
+						log.warn("Setting the marginal damage cost per car to 0.");
+						marginalDamageCostCarThisLink = 0.;
 					}
-					
-					double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostHGVThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
-							marginalDamageCostHGVThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
-							log.warn("Setting the marginal damage cost per HGV to 0.");
-							marginalDamageCostHGVThisLink = 0.;
-						}
+				}
+				
+				double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+				double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+				
+				if (marginalDamageCostHGVThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
+						marginalDamageCostHGVThisLink = 0.;
+					} else {
+						log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
+						log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
+						log.warn("Setting the marginal damage cost per HGV to 0.");
+						marginalDamageCostHGVThisLink = 0.;
 					}
-					
-					double marginalDamageCostCarSum = this.noiseContext.getNoiseLinks().get(thisLink).getMarginalDamageCostPerCar() + marginalDamageCostCarThisLink;
-					this.noiseContext.getNoiseLinks().get(thisLink).setMarginalDamageCostPerCar(marginalDamageCostCarSum);
-					
-					double marginalDamageCostHGVSum = this.noiseContext.getNoiseLinks().get(thisLink).getMarginalDamageCostPerHgv() + marginalDamageCostHGVThisLink;
-					this.noiseContext.getNoiseLinks().get(thisLink).setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
-				}			
-			}	
+				}
+				
+				this.marginalDamageCostsCar[entry] = marginalDamageCostCarThisLink;
+				this.marginalDamageCostsHgv[entry] = marginalDamageCostHGVThisLink;
+			}			
 		}
 	}
 
@@ -647,82 +689,118 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 
 	/*
 	 * Immission
+	 * 
+	 * The isolated immissions are the emission vector of the links multiplied with the sparse receiver point link matrix
+	 * (in dB, i.e. emission plus distance and angle correction). The receiver points are processed in parallel.
 	 */
 	private void calculateNoiseImmission() {
 		
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-					
-			Map<Id<Link>, Double> linkId2isolatedImmission = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>();
-			
-			for(Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-				if (this.noiseContext.getNoiseParams().getTunnelLinkIDsSet().contains(linkId)) {
-					linkId2isolatedImmission.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, 0.);
-								 			
-			 	} else {
-				
-			 		double noiseImmission = 0.;
-			 		double noiseImmissionPlusOneCar = 0.;
-			 		double noiseImmissionPlusOneHGV = 0.;
-		 		
-			 		if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmission() == 0.)) {
-							noiseImmission = this.noiseContext.getNoiseLinks().get(linkId).getEmission()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
-							
-							if (noiseImmission < 0.) {
-								noiseImmission = 0.;
-							}
-						}
-						
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneCar() == 0.)) {
-							noiseImmissionPlusOneCar = this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneCar()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
-							
-							if (noiseImmissionPlusOneCar < 0.) {
-								noiseImmissionPlusOneCar = 0.;
-							}
-						}
-						
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneHGV() == 0.)) {
-							noiseImmissionPlusOneHGV = this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneHGV()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
-							
-							if (noiseImmissionPlusOneHGV < 0.) {
-								noiseImmissionPlusOneHGV = 0.;
+		final ReceiverPointLinkMatrix matrix = this.noiseContext.getReceiverPointLinkMatrix();
+		
+		processRowsInParallel(matrix.getNumberOfReceiverPoints(), new RowProcessor() {
+			@Override
+			public void processRow(int row) {
+				calculateNoiseImmission(matrix, row);
+			}
+		});
+	}
+	
+	private void calculateNoiseImmission(ReceiverPointLinkMatrix matrix, int row) {
+		
+		int rowStart = matrix.getRowStart(row);
+		int rowEnd = matrix.getRowStart(row + 1);
+		
+		for (int entry = rowStart; entry < rowEnd; entry++) {
+			int linkIndex = matrix.getLinkIndex(entry);
+			double distanceCorrection = matrix.getDistanceCorrection(entry);
+			double angleCorrection = matrix.getAngleCorrection(entry);
+			
+			double noiseImmission = calculateIsolatedImmission(this.emissions[linkIndex], distanceCorrection, angleCorrection);
+			double noiseImmissionPlusOneCar = calculateIsolatedImmission(this.emissionsPlusOneCar[linkIndex], distanceCorrection, angleCorrection);
+			double noiseImmissionPlusOneHGV = calculateIsolatedImmission(this.emissionsPlusOneHgv[linkIndex], distanceCorrection, angleCorrection);
+	 		
+	 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
+				throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
+			}
+	 		
+			this.isolatedImmissions[entry] = noiseImmission;
+			this.isolatedImmissionsPlusOneCar[entry] = noiseImmissionPlusOneCar;
+			this.isolatedImmissionsPlusOneHgv[entry] = noiseImmissionPlusOneHGV;
+		}
+		
+		double finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(this.isolatedImmissions, rowStart, rowEnd);
+		matrix.getReceiverPoint(row).setFinalImmission(finalNoiseImmission);
+	}
+	
+	private static double calculateIsolatedImmission(double emission, double distanceCorrection, double angleCorrection) {
+		double noiseImmission = 0.;
+		if (!(emission == 0.)) {
+			noiseImmission = emission + distanceCorrection + angleCorrection;
+			if (noiseImmission < 0.) {
+				noiseImmission = 0.;
+			}
+		}
+		return noiseImmission;
+	}
+	
+	private interface RowProcessor {
+		void processRow(int row);
+	}
+	
+	/*
+	 * Hands out blocks of receiver points (rows of the receiver point link matrix) to the threads. Each row is written by exactly one thread.
+	 */
+	private void processRowsInParallel(final int numberOfRows, final RowProcessor rowProcessor) {
+		
+		final int blockSize = 256;
+		final int numberOfBlocks = (numberOfRows + blockSize - 1) / blockSize;
+		int numberOfThreads = this.noiseContext.getScenario().getConfig().global().getNumberOfThreads();
+		
+		if (numberOfThreads <= 1 || numberOfBlocks <= 1) {
+			for (int row = 0; row < numberOfRows; row++) {
+				rowProcessor.processRow(row);
+			}
+			return;
+		}
+		
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(numberOfThreads);
+		}
+		
+		final AtomicInteger nextBlock = new AtomicInteger(0);
+		int numberOfTasks = Math.min(numberOfThreads, numberOfBlocks);
+		try {
+			List<Future<?>> futures = new ArrayList<>(numberOfTasks);
+			for (int i = 0; i < numberOfTasks; i++) {
+				futures.add(this.executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						int block;
+						while ((block = nextBlock.getAndIncrement()) < numberOfBlocks) {
+							int end = Math.min(numberOfRows, (block + 1) * blockSize);
+							for (int row = block * blockSize; row < end; row++) {
+								rowProcessor.processRow(row);
 							}
 						}
-
-					}
-			 		
-			 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
-						throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
 					}
-			 		
-					linkId2isolatedImmission.put(linkId, noiseImmission);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, noiseImmissionPlusOneCar);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, noiseImmissionPlusOneHGV);
-			 	}
+				}));
 			}
-			
-			double finalNoiseImmission = 0.;
-			if (!linkId2isolatedImmission.isEmpty()) {
-				finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(linkId2isolatedImmission.values());
+			for (Future<?> future : futures) {
+				future.get();
 			}
-			
-			rp.setFinalImmission(finalNoiseImmission);
-			rp.setLinkId2IsolatedImmission(linkId2isolatedImmission);
-			rp.setLinkId2IsolatedImmissionPlusOneCar(linkId2isolatedImmissionPlusOneCar);
-			rp.setLinkId2IsolatedImmissionPlusOneHGV(linkId2isolatedImmissionPlusOneHGV);
+		} catch (InterruptedException e) {
+			shutdownExecutor();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			shutdownExecutor();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	private void shutdownExecutor() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
 		}
 	}
 	
@@ -730,8 +808,11 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 * Emission
 	 */
 	private void calculateNoiseEmission() {
+		
+		ReceiverPointLinkMatrix matrix = this.noiseContext.getReceiverPointLinkMatrix();
 				
-		for (Id<Link> linkId : this.noiseContext.getScenario().getNetwork().getLinks().keySet()) {
+		for (int linkIndex = 0; linkIndex < matrix.getNumberOfLinks(); linkIndex++) {
+			Id<Link> linkId = matrix.getLinkId(linkIndex);
 			
 			Tuple<Double, Double> vCarVHdv = getV(linkId);
 			double vCar = vCarVHdv.getFirst();
@@ -792,18 +873,26 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 				log.warn("vCar: " + vCar + " - vHGV: " + vHdv + " - p: " + p + " - n_car: " + n_car + " - n_hgv: " + n_hgv + " - n: " + n + " - pPlusOneCar: " + pPlusOneCar + " - pPlusOneHgv: " + pPlusOneHgv + " - noise emission: " + noiseEmission + " - noise emission plus one car: " + noiseEmissionPlusOneCar + " - noise emission plus one hgv: " + noiseEmissionPlusOneHgv + ". This should not happen. Aborting..."); 
 			}
 			
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-				this.noiseContext.getNoiseLinks().get(linkId).setEmission(noiseEmission);
-				this.noiseContext.getNoiseLinks().get(linkId).setEmissionPlusOneCar(noiseEmissionPlusOneCar);
-				this.noiseContext.getNoiseLinks().get(linkId).setEmissionPlusOneHGV(noiseEmissionPlusOneHgv);
-
-			} else {
-				NoiseLink noiseLink = new NoiseLink(linkId);
-				noiseLink.setEmission(noiseEmission);
-				noiseLink.setEmissionPlusOneCar(noiseEmissionPlusOneCar);
-				noiseLink.setEmissionPlusOneHGV(noiseEmissionPlusOneHgv);
+			NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId);
+			if (noiseLink == null) {
+				noiseLink = new NoiseLink(linkId);
 				this.noiseContext.getNoiseLinks().put(linkId, noiseLink );
 			}
+			noiseLink.setEmission(noiseEmission);
+			noiseLink.setEmissionPlusOneCar(noiseEmissionPlusOneCar);
+			noiseLink.setEmissionPlusOneHGV(noiseEmissionPlusOneHgv);
+			this.noiseLinks[linkIndex] = noiseLink;
+			
+			if (this.tunnelLinks[linkIndex]) {
+				// no immissions from tunnel links
+				this.emissions[linkIndex] = 0.;
+				this.emissionsPlusOneCar[linkIndex] = 0.;
+				this.emissionsPlusOneHgv[linkIndex] = 0.;
+			} else {
+				this.emissions[linkIndex] = noiseEmission;
+				this.emissionsPlusOneCar[linkIndex] = noiseEmissionPlusOneCar;
+				this.emissionsPlusOneHgv[linkIndex] = noiseEmissionPlusOneHgv;
+			}
 		}
 	}
 	
@@ -874,6 +963,7 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		while (this.noiseContext.getCurrentTimeBinEndTime() <= 30 * 3600.) {
 			processTimeBin();			
 		}
+		shutdownExecutor();
 	}
 
 	public List<NoiseEventCaused> getNoiseEventsCaused() {
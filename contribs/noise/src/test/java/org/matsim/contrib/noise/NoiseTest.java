@@ -25,6 +25,7 @@ package org.matsim.contrib.noise;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -1147,6 +1148,101 @@ public class NoiseTest {
 		}
 	 }
 	
+	// same scenario as 2a, but with many receiver points and several threads
+	// tests the immissions (computed from the receiver point link matrix) against the sum over the relevant links of each receiver point, for all time bins
+	@Test
+	public final void test2d(){
+		
+		// start a simple MATSim run with a single iteration
+		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
+		Controler controler = new Controler(configFile);
+		controler.getConfig().controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists );
+		controler.run();
+		
+		// run the noise analysis for the final iteration (offline)
+		
+		String runDirectory = controler.getConfig().controler().getOutputDirectory() + "/";
+
+		Config config = ConfigUtils.createConfig(new NoiseConfigGroup());
+		config.network().setInputFile(runDirectory + "output_network.xml.gz");
+		config.plans().setInputFile(runDirectory + "output_plans.xml.gz");
+		config.controler().setOutputDirectory(runDirectory);
+		config.controler().setLastIteration(controler.getConfig().controler().getLastIteration());
+		config.global().setNumberOfThreads(4);
+		
+		NoiseConfigGroup noiseParameters = (NoiseConfigGroup) config.getModule("noise");
+		noiseParameters.setReceiverPointGap(20.);
+		
+		String[] consideredActivities = {"home", "work"};
+		noiseParameters.setConsideredActivitiesForDamageCalculationArray(consideredActivities);
+		
+		noiseParameters.setScaleFactor(1.);
+		noiseParameters.setUseActualSpeedLevel(false);
+		noiseParameters.setAllowForSpeedsOutsideTheValidRange(true);
+		
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		
+		NoiseOfflineCalculation noiseCalculation = new NoiseOfflineCalculation(scenario, runDirectory);
+		noiseCalculation.run();
+		
+		Assert.assertTrue("too few receiver points to process them in parallel", noiseCalculation.getNoiseContext().getReceiverPoints().size() > 1000);
+		
+		String separator = ";";
+		boolean nonZeroImmission = false;
+		
+		for (double endTime = 3600.; endTime <= 30 * 3600.; endTime = endTime + 3600.) {
+			
+			Map<Id<Link>, Double> emissionsPerLink = new HashMap<Id<Link>, Double>();
+			Map<Id<ReceiverPoint>, Double> immissionPerReceiverPointId = new HashMap<Id<ReceiverPoint>, Double>();
+			
+			try {
+				BufferedReader br = IOUtils.getBufferedReader(runDirectory + "analysis_it.0/emissions/emission_" + Double.toString(endTime) + ".csv");
+				List<String> keys = Arrays.asList(br.readLine().split(separator));
+				int idxLinkId = keys.indexOf("Link Id");
+				int idxNoiseEmission = keys.indexOf("Noise Emission " + Time.writeTime(endTime, Time.TIMEFORMAT_HHMMSS));
+				String line;
+				while ((line = br.readLine()) != null) {
+					String[] values = line.split(separator);
+					emissionsPerLink.put(Id.create(values[idxLinkId], Link.class), Double.parseDouble(values[idxNoiseEmission]));
+				}
+				br.close();
+				
+				br = IOUtils.getBufferedReader(runDirectory + "analysis_it.0/immissions/immission_" + Double.toString(endTime) + ".csv");
+				keys = Arrays.asList(br.readLine().split(separator));
+				int idxReceiverPointId = keys.indexOf("Receiver Point Id");
+				int idxImmission = keys.indexOf("Immission " + Time.writeTime(endTime, Time.TIMEFORMAT_HHMMSS));
+				while ((line = br.readLine()) != null) {
+					String[] values = line.split(separator);
+					immissionPerReceiverPointId.put(Id.create(values[idxReceiverPointId], ReceiverPoint.class), Double.parseDouble(values[idxImmission]));
+				}
+				br.close();
+				
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			
+			for (NoiseReceiverPoint rp : noiseCalculation.getNoiseContext().getReceiverPoints().values()) {
+				
+				List<Double> isolatedImmissions = new ArrayList<Double>();
+				
+				for (Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
+					double noiseImmission = 0.;
+					if (emissionsPerLink.get(linkId) > 0.) {
+						noiseImmission = emissionsPerLink.get(linkId) + rp.getLinkId2distanceCorrection().get(linkId) + rp.getLinkId2angleCorrection().get(linkId);
+						if (noiseImmission < 0.) noiseImmission = 0.;
+					}
+					isolatedImmissions.add(noiseImmission);
+				}
+				
+				double expectedImmission = NoiseEquations.calculateResultingNoiseImmission(isolatedImmissions);
+				Assert.assertEquals("Wrong amount of immission at receiver point " + rp.getId() + " in time bin " + endTime + "!", expectedImmission, immissionPerReceiverPointId.get(rp.getId()), MatsimTestUtils.EPSILON);
+				if (expectedImmission > 0.) nonZeroImmission = true;
+			}
+		}
+		
+		Assert.assertTrue("no immissions at all", nonZeroImmission);
+	}
+	
 	// tests the static methods within class "noiseEquations"
 	@Test
 	public final void test3(){
@@ -160,9 +160,16 @@ public class CalcLinkStats {
 	}
 
 	public void writeFile(final String filename) {
+		writeFile(filename, 1);
+	}
+
+	/**
+	 * Same as {@link #writeFile(String)}, but a gzip-compressed file is compressed with the given number of threads.
+	 */
+	public void writeFile(final String filename, final int numberOfCompressionThreads) {
 		BufferedWriter out = null;
 		try {
-			out = IOUtils.getBufferedWriter(filename);
+			out = IOUtils.getBufferedWriter(filename, IOUtils.CHARSET_UTF8, false, numberOfCompressionThreads);
 
 			// write header
 			out.write("LINK\tORIG_ID\tFROM\tTO\tLENGTH\tFREESPEED\tCAPACITY");
@@ -252,12 +259,20 @@ public class CalcLinkStats {
 	}
 
 	public void readFile(final String filename) {
+		readFile(filename, 1);
+	}
+
+	/**
+	 * Same as {@link #readFile(String)}, but a gzip-compressed file written in blocks is decompressed with the
+	 * given number of threads.
+	 */
+	public void readFile(final String filename, final int numberOfCompressionThreads) {
 		// start with a clean, empty data structure
 		reset();
 
 		BufferedReader reader = null;
 		try {
-			reader = IOUtils.getBufferedReader(filename);
+			reader = IOUtils.getBufferedReader(filename, IOUtils.CHARSET_UTF8, numberOfCompressionThreads);
 
 			// read header
 			String header = reader.readLine();
@@ -21,6 +21,7 @@ package org.matsim.analysis;
 
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.LinkStatsConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
@@ -41,6 +42,7 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 
 	@Inject private LinkStatsConfigGroup linkStatsConfigGroup;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
+	@Inject private GlobalConfigGroup globalConfigGroup;
 	@Inject private CalcLinkStats linkStats;
 	@Inject private VolumesAnalyzer volumes;
 	@Inject private OutputDirectoryHierarchy controlerIO;
@@ -58,7 +60,8 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 		}
 
 		if (createLinkStatsInIteration(iteration)) {
-			linkStats.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS));
+			linkStats.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS),
+					this.globalConfigGroup.getNumberOfCompressionThreads());
 			this.doReset = true;
 		}
 	}
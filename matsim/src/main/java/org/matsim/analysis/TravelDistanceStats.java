@@ -158,12 +158,20 @@ public class TravelDistanceStats {
 		this.statsCalculators = null;
 		this.threads = null;
 
-		log.info("-- average of the average leg distance per plan (executed plans only): " + (sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted));
+		addIteration(iteration, sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted);
+	}
+
+	/**
+	 * Adds the statistics of an iteration of which the average leg distance per plan was already calculated,
+	 * e.g. from the experienced legs without keeping the experienced plans.
+	 */
+	/*package*/ void addIteration(int iteration, double avgPlanLegTravelDistanceExecuted) {
+		log.info("-- average of the average leg distance per plan (executed plans only): " + avgPlanLegTravelDistanceExecuted);
 		log.info("(TravelDistanceStats takes an average over all legs where the simulation reports travelled distances. These are car legs, pt legs,");
 		log.info("(and teleported legs whose route contains a distance.)");
 
 		try {
-			this.out.write(iteration + "\t" + (sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted) + "\t" + "\n");
+			this.out.write(iteration + "\t" + avgPlanLegTravelDistanceExecuted + "\t" + "\n");
 			this.out.flush();
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -171,7 +179,7 @@ public class TravelDistanceStats {
 
 		if (this.history != null) {
 			int index = iteration - controlerConfigGroup.getFirstIteration();
-			this.history[index] = (sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted);
+			this.history[index] = avgPlanLegTravelDistanceExecuted;
 
 			if (iteration != controlerConfigGroup.getFirstIteration()) {
 				// create chart when data of more than one iteration is available.
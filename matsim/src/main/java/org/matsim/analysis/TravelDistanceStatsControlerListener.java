@@ -1,15 +1,26 @@
 package org.matsim.analysis;
 
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.scoring.EventsToLegs;
 import org.matsim.core.scoring.ExperiencedPlansService;
+import org.matsim.core.scoring.PersonExperiencedLeg;
+import org.matsim.core.utils.collections.IdMap;
 
 import javax.inject.Inject;
+import java.util.Map;
 
-class TravelDistanceStatsControlerListener implements IterationEndsListener, ShutdownListener {
+class TravelDistanceStatsControlerListener implements IterationStartsListener, IterationEndsListener, ShutdownListener {
 
 	@Inject
 	private ExperiencedPlansService experiencedPlansService;
@@ -17,13 +28,76 @@ class TravelDistanceStatsControlerListener implements IterationEndsListener, Shu
 	@Inject
 	private TravelDistanceStats travelDistanceStats;
 
+	@Inject
+	private Population population;
+
+	/**
+	 * Only used if the experienced plans are streamed, and thus not available at the end of the iteration.
+	 */
+	private LegDistanceCollector legDistanceCollector = null;
+
+	@Inject
+	void setUpStreaming(PlanCalcScoreConfigGroup planCalcScoreConfigGroup, EventsToLegs eventsToLegs) {
+		if (planCalcScoreConfigGroup.isStreamingExperiencedPlans()) {
+			this.legDistanceCollector = new LegDistanceCollector();
+			eventsToLegs.addLegHandler(this.legDistanceCollector);
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		if (this.legDistanceCollector != null) {
+			this.legDistanceCollector.reset();
+		}
+	}
+
 	@Override
 	public void notifyIterationEnds(IterationEndsEvent event) {
-		travelDistanceStats.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans());
+		if (this.legDistanceCollector != null) {
+			travelDistanceStats.addIteration(event.getIteration(), this.legDistanceCollector.getAvgPlanLegTravelDistance());
+		} else {
+			travelDistanceStats.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans());
+		}
 	}
 
 	@Override
 	public void notifyShutdown(ShutdownEvent event) {
 		travelDistanceStats.close();
 	}
+
+	/**
+	 * Sums up the leg distances per person while the legs are experienced, so that the same average as from the
+	 * experienced plans is obtained.
+	 */
+	private class LegDistanceCollector implements EventsToLegs.LegHandler {
+
+		private final Map<Id<Person>, double[]> distanceAndLegCount = new IdMap<>(Person.class);
+
+		@Override
+		synchronized public void handleLeg(PersonExperiencedLeg o) {
+			Leg leg = o.getLeg();
+			if (leg.getRoute() == null || Double.isNaN(leg.getRoute().getDistance()) || !population.getPersons().containsKey(o.getAgentId())) {
+				return;
+			}
+			double[] values = this.distanceAndLegCount.get(o.getAgentId());
+			if (values == null) {
+				values = new double[2];
+				this.distanceAndLegCount.put(o.getAgentId(), values);
+			}
+			values[0] += leg.getRoute().getDistance();
+			values[1]++;
+		}
+
+		synchronized void reset() {
+			this.distanceAndLegCount.clear();
+		}
+
+		synchronized double getAvgPlanLegTravelDistance() {
+			double sumAvgPlanLegTravelDistance = 0.0;
+			for (double[] values : this.distanceAndLegCount.values()) {
+				sumAvgPlanLegTravelDistance += values[0] / values[1];
+			}
+			return sumAvgPlanLegTravelDistance / population.getPersons().size();
+		}
+	}
 }
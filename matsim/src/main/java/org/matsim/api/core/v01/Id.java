@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -39,7 +40,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache<?>> cache = new ConcurrentHashMap<Class<?>, IdCache<?>>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -54,23 +55,81 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 	
 	/**
-	 * This method supports a cache where ids are stored and re-used per type.   
+	 * This method supports a cache where ids are stored and re-used per type.
+	 * Every newly created id gets the next free {@link #index()} of its type.
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
-		Id<?> id = map.get(key);
+		IdCache<T> idCache = getCache(type);
+		Id<T> id = idCache.ids.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			synchronized (idCache) {
+				id = idCache.ids.get(key);
+				if (id == null) {
+					id = idCache.add(new IdImpl<T>(key, idCache.size));
+				}
+			}
 		}
 		
-		return (Id<T>) id;
+		return id;
 	}
-	
+
+	/**
+	 * @return the already existing id of the given type with the given key, or <code>null</code> if no
+	 * such id was created so far.
+	 */
+	public static <T> Id<T> get(final String key, final Class<T> type) {
+		IdCache<T> idCache = (IdCache<T>) cache.get(type);
+		return idCache == null ? null : idCache.get(key);
+	}
+
+	/**
+	 * @return the id of the given type with the given {@link #index()}.
+	 * @throws IndexOutOfBoundsException if no id with this index was created so far.
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache<T> idCache = (IdCache<T>) cache.get(type);
+		Id<T> id = idCache == null ? null : idCache.get(index);
+		if (id == null) {
+			throw new IndexOutOfBoundsException("There is no id of type " + type.getName() + " with index " + index);
+		}
+		return id;
+	}
+
+	/**
+	 * @return the number of ids of the given type created so far, i.e. an upper bound (exclusive) for
+	 * the {@link #index()} of all ids of this type.
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		IdCache<?> idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.size;
+	}
+
+	/**
+	 * @return all ids of the given type, including the ones created later on. Code looking up many ids of one type by
+	 * key or by {@link #index()} (e.g. {@link org.matsim.core.utils.collections.IdMap}) can keep this instead of
+	 * resolving the type on every access.
+	 */
+	public static <T> IdCache<T> getCache(final Class<T> type) {
+		IdCache<T> idCache = (IdCache<T>) cache.get(type);
+		if (idCache == null) {
+			synchronized (cache) {
+				idCache = (IdCache<T>) cache.get(type);
+				if (idCache == null) {
+					idCache = new IdCache<T>();
+					cache.put(type, idCache);
+				}
+			}
+		}
+		return idCache;
+	}
+
+	/**
+	 * @return a dense, non-negative index of this id, unique among all ids of the same type. Ids are
+	 * numbered in the order they are created, starting at 0, so the index can be used to store data
+	 * per id in arrays (see e.g. {@link org.matsim.core.utils.collections.IdMap}).
+	 */
+	public abstract int index();
+
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -111,9 +170,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -127,6 +193,54 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * All ids of one type, accessible both by key and by index.
+	 */
+	public static final class IdCache<T> {
+		private final Map<String, Id<T>> ids = new ConcurrentHashMap<String, Id<T>>();
+		private volatile Id<?>[] byIndex = new Id<?>[1024];
+		private volatile int size = 0;
+
+		private IdCache() {
+		}
+
+		/**
+		 * @return the id with the given key, or <code>null</code> if no such id was created so far.
+		 */
+		public Id<T> get(final String key) {
+			return this.ids.get(key);
+		}
+
+		/**
+		 * @return the id with the given {@link Id#index()}, or <code>null</code> if no such id was created so far.
+		 */
+		public Id<T> get(final int index) {
+			// read the size first, the array is published before the size is incremented
+			if (index < 0 || index >= this.size) {
+				return null;
+			}
+			return (Id<T>) this.byIndex[index];
+		}
+
+		/**
+		 * @return the number of ids created so far, i.e. an upper bound (exclusive) for their {@link Id#index()}.
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		private Id<T> add(final Id<T> id) {
+			// must be called while holding the lock on this cache
+			if (this.size == this.byIndex.length) {
+				this.byIndex = Arrays.copyOf(this.byIndex, 2 * this.byIndex.length);
+			}
+			this.byIndex[this.size] = id;
+			this.size++;
+			this.ids.put(id.toString(), id);
+			return id;
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
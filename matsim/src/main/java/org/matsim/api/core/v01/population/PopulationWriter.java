@@ -38,6 +38,7 @@ public final class PopulationWriter implements MatsimWriter {
 	private final Population population;
 	private final Network network;
 	private final Map<Class<?>,AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private int numberOfCompressionThreads = 1;
 
 	public PopulationWriter(
 			final CoordinateTransformation transformation,
@@ -70,6 +71,13 @@ public final class PopulationWriter implements MatsimWriter {
 		this.attributeConverters.putAll( converters );
 	}
 
+	/**
+	 * Sets the number of threads used to compress gzip-compressed files. Default is 1.
+	 */
+	public void setNumberOfCompressionThreads( final int numberOfCompressionThreads ) {
+		this.numberOfCompressionThreads = numberOfCompressionThreads;
+	}
+
 	/**
 	 * Writes the population in the most current format (currently population_v6.dtd).
 	 */
@@ -84,7 +92,10 @@ public final class PopulationWriter implements MatsimWriter {
 	 * @param filename
 	 */
 	public void writeV4(final String filename) {
-		new org.matsim.core.population.io.PopulationWriter(transformation , this.population, this.network).writeV4(filename);
+		final org.matsim.core.population.io.PopulationWriter writer =
+				new org.matsim.core.population.io.PopulationWriter(transformation , this.population, this.network);
+		writer.setNumberOfCompressionThreads( numberOfCompressionThreads );
+		writer.writeV4(filename);
 	}
 
 	/**
@@ -93,7 +104,10 @@ public final class PopulationWriter implements MatsimWriter {
 	 * @param filename
 	 */
 	public void writeV5(final String filename) {
-		new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network).writeV5(filename);
+		final org.matsim.core.population.io.PopulationWriter writer =
+				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
+		writer.setNumberOfCompressionThreads( numberOfCompressionThreads );
+		writer.writeV5(filename);
 	}
 
 	/**
@@ -105,6 +119,7 @@ public final class PopulationWriter implements MatsimWriter {
 		final org.matsim.core.population.io.PopulationWriter writer =
 				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
 		writer.putAttributeConverters( attributeConverters );
+		writer.setNumberOfCompressionThreads( numberOfCompressionThreads );
 		writer.writeV6(filename);
 	}
 }
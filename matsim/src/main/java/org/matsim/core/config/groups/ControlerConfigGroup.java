@@ -38,9 +38,9 @@ import org.matsim.core.utils.misc.StringUtils;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, ContractionHierarchies}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, binary}
 
 	public static final String GROUP_NAME = "controler";
 
@@ -48,6 +48,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_CACHE_DIRECTORY = "landmarksCacheDirectory";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
@@ -68,6 +69,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
+	private String landmarksCacheDirectory = null;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -92,9 +94,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + " or " +
+				RoutingAlgorithmType.ContractionHierarchies + ". " + RoutingAlgorithmType.ContractionHierarchies + " needs a travel disutility that does not depend on the person, i.e. routingRandomness = 0.");
+		map.put(LANDMARKS_CACHE_DIRECTORY, "Default=null; directory in which " + RoutingAlgorithmType.AStarLandmarks + " and " + RoutingAlgorithmType.FastAStarLandmarks +
+				" store the pre-processed landmarks, so that later runs on the same network with the same travel disutility do not need to compute them again.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: txt, xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml, binary."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
@@ -164,6 +169,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_CACHE_DIRECTORY )
+	public String getLandmarksCacheDirectory() {
+		return this.landmarksCacheDirectory;
+	}
+
+	@StringSetter( LANDMARKS_CACHE_DIRECTORY )
+	public void setLandmarksCacheDirectory(final String landmarksCacheDirectory) {
+		this.landmarksCacheDirectory = landmarksCacheDirectory;
+	}
+
 	@StringGetter( RUNID )
 	public String getRunId() {
 		return this.runId;
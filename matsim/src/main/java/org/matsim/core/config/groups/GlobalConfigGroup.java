@@ -37,10 +37,16 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String REPLANNING_LOAD_BALANCING = "replanningLoadBalancing";
+	private static final String NUMBER_OF_COMPRESSION_THREADS = "numberOfCompressionThreads";
+
+	public enum ReplanningLoadBalancing { roundRobin, workStealing }
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private ReplanningLoadBalancing replanningLoadBalancing = ReplanningLoadBalancing.roundRobin;
+	private int numberOfCompressionThreads = 1;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -48,6 +54,13 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(REPLANNING_LOAD_BALANCING, "How plans are distributed to the threads of multi-threaded replanning modules. "
+				+ ReplanningLoadBalancing.roundRobin + ": every thread gets the same number of plans; reproducible. "
+				+ ReplanningLoadBalancing.workStealing + ": idle threads take over plans from busy ones, which is faster if some plans "
+				+ "take much longer to handle than others (e.g. pt routing), but results are not reproducible if modules use random numbers.");
+		map.put(NUMBER_OF_COMPRESSION_THREADS, "Number of threads used to compress the gzip-compressed events, plans and linkstats files written by the controler. "
+				+ "With more than one thread, the files are compressed in independent blocks (BGZF format); they are still "
+				+ "standard gzip files, but slightly larger.");
 		return map ;
 	}
 
@@ -81,4 +94,22 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 
+	@StringGetter( REPLANNING_LOAD_BALANCING )
+	public ReplanningLoadBalancing getReplanningLoadBalancing() {
+		return this.replanningLoadBalancing;
+	}
+	@StringSetter( REPLANNING_LOAD_BALANCING )
+	public void setReplanningLoadBalancing(final ReplanningLoadBalancing replanningLoadBalancing) {
+		this.replanningLoadBalancing = replanningLoadBalancing;
+	}
+
+	@StringGetter( NUMBER_OF_COMPRESSION_THREADS )
+	public int getNumberOfCompressionThreads() {
+		return this.numberOfCompressionThreads;
+	}
+	@StringSetter( NUMBER_OF_COMPRESSION_THREADS )
+	public void setNumberOfCompressionThreads(final int numberOfCompressionThreads) {
+		this.numberOfCompressionThreads = numberOfCompressionThreads;
+	}
+
 }
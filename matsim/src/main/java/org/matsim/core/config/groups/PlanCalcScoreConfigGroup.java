@@ -59,6 +59,10 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String STREAMING_EXPERIENCED_PLANS = "streamingExperiencedPlans";
+
+	private static final String NUMBER_OF_SCORING_THREADS = "numberOfScoringThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney" ;
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch" ;
@@ -313,6 +317,12 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		map.put(UTL_OF_LINE_SWITCH, "[utils] utility of switching a line (= transfer penalty).  Normally negative") ;
 		map.put(MARGINAL_UTL_OF_MONEY, "[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money)." ) ;
 		map.put(WRITE_EXPERIENCED_PLANS, "write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(STREAMING_EXPERIENCED_PLANS, "if true, experienced plans are only recorded in the iterations in which they are written, and are "
+				+ "written and released person by person.  They are then not available to other modules, so this cannot be combined with memorizing "
+				+ "the experienced plans.  Default: false.");
+		map.put(NUMBER_OF_SCORING_THREADS, "number of threads computing the scores, the persons are distributed to the threads by their id. "
+				+ "0 (default) scores in the thread delivering the events.  Use more threads only if the scoring functions of different persons "
+				+ "do not share state which is not thread-safe.");
 
 		return map;
 	}
@@ -541,6 +551,22 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public boolean isStreamingExperiencedPlans() {
+		return delegate.isStreamingExperiencedPlans();
+	}
+
+	public void setStreamingExperiencedPlans(boolean streamingExperiencedPlans) {
+		delegate.setStreamingExperiencedPlans(streamingExperiencedPlans);
+	}
+
+	public int getNumberOfScoringThreads() {
+		return delegate.getNumberOfScoringThreads();
+	}
+
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		delegate.setNumberOfScoringThreads(numberOfScoringThreads);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		return getScoringParameters( null ).getMarginalUtlOfWaiting_utils_hr();
 	}
@@ -1192,6 +1218,10 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private boolean streamingExperiencedPlans = false;
+
+		private int numberOfScoringThreads = 0;
+
 		private Double fractionOfIterationsToStartScoreMSA = null ;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1265,6 +1295,28 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter( STREAMING_EXPERIENCED_PLANS )
+		public boolean isStreamingExperiencedPlans() {
+			return streamingExperiencedPlans;
+		}
+
+		@StringSetter( STREAMING_EXPERIENCED_PLANS )
+		public void setStreamingExperiencedPlans(boolean streamingExperiencedPlans) {
+			testForLocked() ;
+			this.streamingExperiencedPlans = streamingExperiencedPlans;
+		}
+
+		@StringGetter( NUMBER_OF_SCORING_THREADS )
+		public int getNumberOfScoringThreads() {
+			return numberOfScoringThreads;
+		}
+
+		@StringSetter( NUMBER_OF_SCORING_THREADS )
+		public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+			testForLocked() ;
+			this.numberOfScoringThreads = numberOfScoringThreads;
+		}
+
 	}
 
 }
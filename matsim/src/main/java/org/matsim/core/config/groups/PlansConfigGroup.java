@@ -87,6 +87,11 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
 		"activityStartTime. default=false") ;
 
+		comments.put(PLAN_STORAGE, "Defines how the activities and legs of plans are stored in memory. " + PlanStorage.objects
+				+ ": one object per activity, leg and route. " + PlanStorage.compact + ": in primitive arrays, the objects are only "
+				+ "created when a plan is accessed, and are compacted again after each iteration. Saves a lot of memory with "
+				+ "many agents and plans, at the cost of some time.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -178,6 +183,20 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	// ---
+
+	public static enum PlanStorage { objects, compact }
+	private static final String PLAN_STORAGE = "planStorage";
+	private PlanStorage planStorage = PlanStorage.objects;
+	@StringGetter(PLAN_STORAGE)
+	public PlanStorage getPlanStorage() {
+		return this.planStorage;
+	}
+	@StringSetter(PLAN_STORAGE)
+	public void setPlanStorage(final PlanStorage planStorage) {
+		this.planStorage = planStorage;
+	}
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
@@ -236,6 +236,21 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NetsimPartitioning np : NetsimPartitioning.values() ) {
+				stb.append(" ").append(np.toString());
+			}
+			map.put(NETSIM_PARTITIONING, "How the nodes and links are distributed to the runners of the netsim engine.  "
+					+ NetsimPartitioning.roundRobin + ": one node after the other (default).  "
+					+ NetsimPartitioning.spatial + ": spatially compact partitions of approximately equal size.  Together with the thread pool, "
+					+ "the network is split into more partitions than threads, and the partitions that were slowest in the last time step "
+					+ "are started first.  Options:" + stb ) ;
+		}
+		map.put(AGENDA_TYPE, "The data structure in which the activity and teleportation engines keep the agents until their activity ends "
+				+ "or they arrive.  " + AgendaType.priorityQueue + ": a priority queue, where rescheduling an activity end (within-day "
+				+ "replanning) needs a linear search (default).  " + AgendaType.calendarQueue + ": one bucket per second of simulation "
+				+ "time, so that adding, removing and rescheduling agents takes constant time.  Agents leave in the same order in both cases.") ;
 		map.put(FAST_CAPACITY_UPDATE, "normally, the qsim accumulates fractional flows up to one flow unit in every time step.  If this switch is set to true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer."
 				+ "Will probably become the default eventually.") ;
@@ -485,6 +500,30 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	private static final String NETSIM_PARTITIONING = "netsimPartitioning" ;
+	public static enum NetsimPartitioning { roundRobin, spatial } ;
+	private NetsimPartitioning netsimPartitioning = NetsimPartitioning.roundRobin ;
+	@StringGetter(NETSIM_PARTITIONING)
+	public NetsimPartitioning getNetsimPartitioning() {
+		return this.netsimPartitioning ;
+	}
+	@StringSetter(NETSIM_PARTITIONING)
+	public void setNetsimPartitioning( NetsimPartitioning val ) {
+		this.netsimPartitioning = val ;
+	}
+
+	private static final String AGENDA_TYPE = "agendaType" ;
+	public static enum AgendaType { priorityQueue, calendarQueue } ;
+	private AgendaType agendaType = AgendaType.priorityQueue ;
+	@StringGetter(AGENDA_TYPE)
+	public AgendaType getAgendaType() {
+		return this.agendaType ;
+	}
+	@StringSetter(AGENDA_TYPE)
+	public void setAgendaType( AgendaType val ) {
+		this.agendaType = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
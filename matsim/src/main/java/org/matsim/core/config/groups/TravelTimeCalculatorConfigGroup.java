@@ -34,7 +34,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 
-	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap}
+	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorFlatArray}
 	
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
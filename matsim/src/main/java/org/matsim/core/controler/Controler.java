@@ -68,6 +68,7 @@ public final class Controler implements ControlerI, MatsimServices {
 
 	public static final String DIRECTORY_ITERS = "ITERS";
 	public static final String FILENAME_EVENTS_XML = "events.xml.gz";
+	public static final String FILENAME_EVENTS_BINARY = "events.bin";
 	public static final String FILENAME_LINKSTATS = "linkstats.txt.gz";
 	public static final String FILENAME_TRAVELDISTANCESTATS = "traveldistancestats";
 	public static final String FILENAME_POPULATION = "output_plans.xml.gz";
@@ -25,6 +25,7 @@ package org.matsim.core.controler;
 import org.matsim.analysis.*;
 import org.matsim.core.events.EventsManagerModule;
 import org.matsim.core.mobsim.DefaultMobsimModule;
+import org.matsim.core.population.PlansCompactionModule;
 import org.matsim.core.population.VspPlansCleanerModule;
 import org.matsim.core.replanning.StrategyManagerModule;
 import org.matsim.core.router.TripRouterModule;
@@ -56,6 +57,7 @@ public class ControlerDefaultsModule extends AbstractModule {
         install(new CountsModule());
         install(new PtCountsModule());
         install(new VspPlansCleanerModule());
+        install(new PlansCompactionModule());
         install(new SnapshotWritersModule());
 
     	/* Comment by kai (mz thinks it is not helpful): The framework eventually calls the above method, which calls the include 
@@ -274,6 +274,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		if ( inputCRS == null ) {
 			final PopulationWriter writer = new PopulationWriter(population, network);
 			writer.putAttributeConverters( attributeConverters );
+			writer.setNumberOfCompressionThreads( config.global().getNumberOfCompressionThreads() );
 			writer.write(controlerIO.getOutputFilename(Controler.FILENAME_POPULATION));
 		}
 		else {
@@ -286,6 +287,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 			final PopulationWriter writer = new PopulationWriter(transformation , population, network);
 			writer.putAttributeConverters( attributeConverters );
+			writer.setNumberOfCompressionThreads( config.global().getNumberOfCompressionThreads() );
 			writer.write(controlerIO.getOutputFilename(Controler.FILENAME_POPULATION));
 
 		}
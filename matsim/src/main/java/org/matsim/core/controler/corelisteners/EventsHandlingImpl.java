@@ -28,6 +28,7 @@ import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.AfterMobsimEvent;
@@ -39,6 +40,7 @@ import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.events.algorithms.EventWriterXML;
 
 import com.google.inject.Inject;
@@ -61,16 +63,20 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 
 	private int writeMoreUntilIteration;
 
+	private final int numberOfCompressionThreads;
+
 	@Inject
 	EventsHandlingImpl(
 			final EventsManager eventsManager,
 			final ControlerConfigGroup config,
+			final GlobalConfigGroup globalConfig,
 			final OutputDirectoryHierarchy controlerIO) {
 		this.eventsManager = eventsManager;
 		this.writeEventsInterval = config.getWriteEventsInterval();
 		this.eventsFileFormats = config.getEventsFileFormats();
 		this.controlerIO = controlerIO;
 		this.writeMoreUntilIteration = config.getWriteEventsUntilIteration() ;
+		this.numberOfCompressionThreads = globalConfig.getNumberOfCompressionThreads();
 	}
 
 	@Override
@@ -84,7 +90,11 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 				switch (format) {
 				case xml:
 					this.eventWriters.add(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(), 
-							Controler.FILENAME_EVENTS_XML)));
+							Controler.FILENAME_EVENTS_XML), this.numberOfCompressionThreads));
+					break;
+				case binary:
+					this.eventWriters.add(new EventWriterBinary(controlerIO.getIterationFilename(event.getIteration(),
+							Controler.FILENAME_EVENTS_BINARY)));
 					break;
 				default:
 					log.warn("Unknown events file format specified: " + format.toString() + ".");
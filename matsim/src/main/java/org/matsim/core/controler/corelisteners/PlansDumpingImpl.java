@@ -77,7 +77,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String internalCRS = config.global().getCoordinateSystem();
 
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+				PopulationWriter writer = new PopulationWriter(population, network);
+				writer.setNumberOfCompressionThreads(config.global().getNumberOfCompressionThreads());
+				writer.write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -87,7 +89,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+				PopulationWriter writer = new PopulationWriter(transformation, population, network);
+				writer.setNumberOfCompressionThreads(config.global().getNumberOfCompressionThreads());
+				writer.write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
 			}
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
@@ -73,9 +73,14 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
+ * <li>(optional) add an appropriate line in getDispatchType() and callHandler()
+ * for speeding up execution!</li>
  * </ol>
+ * The handlers of each event class are collected when handlers are added or
+ * removed, and cached per event class. How a
+ * handler is called is decided once per handled event class: the event classes
+ * covered by callHandler() call the handler interface directly, all others
+ * use reflection.
  *
  * @author dstrippgen
  * @author mrieser
@@ -84,14 +89,42 @@ public class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
-	static private class HandlerData {
+	/* how the handlers of an event class are called, see getDispatchType() */
+	private static final int REFLECTION = 0;
+	private static final int LINK_LEAVE_EVENT = 1;
+	private static final int LINK_ENTER_EVENT = 2;
+	private static final int VEHICLE_ENTERS_TRAFFIC_EVENT = 3;
+	private static final int PERSON_ARRIVAL_EVENT = 4;
+	private static final int PERSON_DEPARTURE_EVENT = 5;
+	private static final int ACTIVITY_END_EVENT = 6;
+	private static final int ACTIVITY_START_EVENT = 7;
+	private static final int TRANSIT_DRIVER_STARTS_EVENT = 8;
+	private static final int PERSON_STUCK_EVENT = 9;
+	private static final int PERSON_MONEY_EVENT = 10;
+	private static final int AGENT_WAITING_FOR_PT_EVENT = 11;
+	private static final int PERSON_ENTERS_VEHICLE_EVENT = 12;
+	private static final int PERSON_LEAVES_VEHICLE_EVENT = 13;
+	private static final int VEHICLE_DEPARTS_AT_FACILITY_EVENT = 14;
+	private static final int VEHICLE_ARRIVES_AT_FACILITY_EVENT = 15;
+	private static final int BASIC_EVENT = 16;
 
+	static private class HandlerData {
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
 		protected Method method;
+		protected int dispatchType;
 		protected HandlerData(final Class<?> eventklass, final Method method) {
 			this.eventklass = eventklass;
 			this.method = method;
+			this.dispatchType = getDispatchType(eventklass);
+			if (this.dispatchType == REFLECTION) {
+				try {
+					// skips the access checks per call; handler interfaces are not necessarily public
+					this.method.setAccessible(true);
+				} catch (SecurityException e) {
+					log.warn("cannot make " + method + " accessible, will check the access on every call.");
+				}
+			}
 		}
 		protected void removeHandler(final EventHandler handler) {
 			this.handlerList.remove(handler);
@@ -101,11 +134,13 @@ public class EventsManagerImpl implements EventsManager {
 	static private class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
+		protected final int dispatchType;
 		protected final Method method;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final int dispatchType, final Method method) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
+			this.dispatchType = dispatchType;
 			this.method = method;
 		}
 	}
@@ -138,7 +173,7 @@ public class EventsManagerImpl implements EventsManager {
 
 
 	@Override
-	public void addHandler (final EventHandler handler) {
+	public synchronized void addHandler (final EventHandler handler) {
 		Set<Class<?>> addedHandlers = new HashSet<Class<?>>();
 		Class<?> test = handler.getClass();
 		log.info("adding Event-Handler: " + test.getName());
@@ -152,17 +187,17 @@ public class EventsManagerImpl implements EventsManager {
 			}
 			test = test.getSuperclass();
 		}
-		this.cacheHandlers.clear();
+		rebuildHandlerCache();
 		log.info("");
 	}
 
 	@Override
-	public void removeHandler(final EventHandler handler) {
+	public synchronized void removeHandler(final EventHandler handler) {
 		log.info("removing Event-Handler: " + handler.getClass().getName());
 		for (HandlerData handlerList : this.handlerData) {
 			handlerList.removeHandler(handler);
 		}
-		this.cacheHandlers.clear();
+		rebuildHandlerCache();
 	}
 
 	@Override
@@ -219,36 +254,46 @@ public class EventsManagerImpl implements EventsManager {
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				}
+				callHandler(info, event);
 			}
 		}
 	}
 
 	private HandlerInfo[] getHandlersForClass(final Class<?> eventClass) {
-		Class<?> klass = eventClass;
 		HandlerInfo[] cache = this.cacheHandlers.get(eventClass);
 		if (cache != null) {
 			return cache;
 		}
+		cache = collectHandlers(eventClass);
+		this.cacheHandlers.put(eventClass, cache);
+		return cache;
+	}
 
+	/**
+	 * Collects the handlers again for all event classes that were seen so far or have handlers registered.
+	 */
+	private void rebuildHandlerCache() {
+		Set<Class<?>> eventClasses = new HashSet<Class<?>>(this.cacheHandlers.keySet());
+		for (HandlerData dat : this.handlerData) {
+			// handlers for interfaces or Object are only collected once a concrete event class is processed
+			if (Event.class.isAssignableFrom(dat.eventklass) && !dat.eventklass.isInterface()) {
+				eventClasses.add(dat.eventklass);
+			}
+		}
+		for (Class<?> eventClass : eventClasses) {
+			this.cacheHandlers.put(eventClass, collectHandlers(eventClass));
+		}
+	}
+
+	private HandlerInfo[] collectHandlers(final Class<?> eventClass) {
+		Class<?> klass = eventClass;
 		ArrayList<HandlerInfo> info = new ArrayList<HandlerInfo>();
 		// first search in class-hierarchy
 		while (klass != Object.class) {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, dat.dispatchType, dat.method));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -258,14 +303,11 @@ public class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, dat.dispatchType, dat.method));
 				}
 			}
 		}
-
-		cache = info.toArray(new HandlerInfo[info.size()]);
-		this.cacheHandlers.put(eventClass, cache);
-		return cache;
+		return info.toArray(new HandlerInfo[info.size()]);
 	}
 
 	private Set<Class<?>> getAllInterfaces(final Class<?> klass) {
@@ -285,57 +327,114 @@ public class EventsManagerImpl implements EventsManager {
 	}
 
 	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
+	private static int getDispatchType(final Class<?> klass) {
 		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
+			return LINK_LEAVE_EVENT;
 		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
+			return LINK_ENTER_EVENT;
 		} else if (klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
+			return VEHICLE_ENTERS_TRAFFIC_EVENT;
 		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
+			return PERSON_ARRIVAL_EVENT;
 		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
+			return PERSON_DEPARTURE_EVENT;
 		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
+			return ACTIVITY_END_EVENT;
 		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
+			return ACTIVITY_START_EVENT;
 		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
+			return TRANSIT_DRIVER_STARTS_EVENT;
 		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
+			return PERSON_STUCK_EVENT;
 		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
+			return PERSON_MONEY_EVENT;
 		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
+			return AGENT_WAITING_FOR_PT_EVENT;
 		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
+			return PERSON_ENTERS_VEHICLE_EVENT;
 		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
+			return PERSON_LEAVES_VEHICLE_EVENT;
 		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
+			return VEHICLE_DEPARTS_AT_FACILITY_EVENT;
 		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
+			return VEHICLE_ARRIVES_AT_FACILITY_EVENT;
 		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
+			return BASIC_EVENT;
+		}
+		return REFLECTION;
+	}
+
+	private static void callHandler(final HandlerInfo info, final Event event) {
+		final EventHandler handler = info.eventHandler;
+		switch (info.dispatchType) {
+		case LINK_LEAVE_EVENT:
+			((LinkLeaveEventHandler) handler).handleEvent((LinkLeaveEvent) event);
+			break;
+		case LINK_ENTER_EVENT:
+			((LinkEnterEventHandler) handler).handleEvent((LinkEnterEvent) event);
+			break;
+		case VEHICLE_ENTERS_TRAFFIC_EVENT:
+			((VehicleEntersTrafficEventHandler) handler).handleEvent((VehicleEntersTrafficEvent) event);
+			break;
+		case PERSON_ARRIVAL_EVENT:
+			((PersonArrivalEventHandler) handler).handleEvent((PersonArrivalEvent) event);
+			break;
+		case PERSON_DEPARTURE_EVENT:
+			((PersonDepartureEventHandler) handler).handleEvent((PersonDepartureEvent) event);
+			break;
+		case ACTIVITY_END_EVENT:
+			((ActivityEndEventHandler) handler).handleEvent((ActivityEndEvent) event);
+			break;
+		case ACTIVITY_START_EVENT:
+			((ActivityStartEventHandler) handler).handleEvent((ActivityStartEvent) event);
+			break;
+		case TRANSIT_DRIVER_STARTS_EVENT:
+			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) event);
+			break;
+		case PERSON_STUCK_EVENT:
+			((PersonStuckEventHandler) handler).handleEvent((PersonStuckEvent) event);
+			break;
+		case PERSON_MONEY_EVENT:
+			((PersonMoneyEventHandler) handler).handleEvent((PersonMoneyEvent) event);
+			break;
+		case AGENT_WAITING_FOR_PT_EVENT:
+			((AgentWaitingForPtEventHandler) handler).handleEvent((AgentWaitingForPtEvent) event);
+			break;
+		case PERSON_ENTERS_VEHICLE_EVENT:
+			((PersonEntersVehicleEventHandler) handler).handleEvent((PersonEntersVehicleEvent) event);
+			break;
+		case PERSON_LEAVES_VEHICLE_EVENT:
+			((PersonLeavesVehicleEventHandler) handler).handleEvent((PersonLeavesVehicleEvent) event);
+			break;
+		case VEHICLE_DEPARTS_AT_FACILITY_EVENT:
+			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) event);
+			break;
+		case VEHICLE_ARRIVES_AT_FACILITY_EVENT:
+			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) event);
+			break;
+		case BASIC_EVENT:
+			((BasicEventHandler) handler).handleEvent(event);
+			break;
+		default:
+			callHandlerReflectively(info, event);
+		}
+	}
+
+	/**
+	 * Calls the handler methods of event classes without a direct call in callHandler(). The module targets
+	 * Java 7, so neither lambdas nor a bytecode library are available to generate a direct call for them; after
+	 * a few calls, the JVM replaces the reflective call by a generated accessor anyway.
+	 */
+	private static void callHandlerReflectively(final HandlerInfo info, final Event event) {
+		try {
+			info.method.invoke(info.eventHandler, event);
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
 		}
-		return false;
 	}
 
 	public void printEventHandlers() {
@@ -0,0 +1,385 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.
+ * <p></p>
+ * The file is memory-mapped in windows of {@link #WINDOW_SIZE} bytes, so arbitrarily large files can be read
+ * without loading them into memory. Strings (event types, attribute names and Ids) are only decoded once when
+ * they are added to the dictionary or the id tables; afterwards the events are created from these entries, so reading
+ * a file does not create new strings per event (except for inlined values like positions or distances).
+ * The typed events (see {@link EventWriterBinary#TAG_TYPED_EVENT}) are created directly from their fields. For the
+ * other events, the same event types as with {@link EventsReaderXMLv1} are created, unknown event types are passed on
+ * as {@link org.matsim.api.core.v01.events.GenericEvent} or to the registered {@link CustomEventMapper}.
+ */
+public class EventsReaderBinary implements MatsimReader {
+
+	/*package*/ static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** the classes of the ids, indexed by the id types of {@link EventWriterBinary} */
+	private static final Class<?>[] ID_CLASSES = {Link.class, Person.class, Vehicle.class, ActivityFacility.class};
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 eventsCreator;
+	private final int windowSize;
+
+	private FileChannel channel;
+	private long fileSize;
+	private long windowStart;
+	private MappedByteBuffer buffer;
+
+	private String[] dictionary = new String[1024];
+	private int dictionarySize = 0;
+	private final Id<?>[][] ids = new Id<?>[ID_CLASSES.length][1024];
+	private final int[] idsSizes = new int[ID_CLASSES.length];
+	private final List<Schema> schemas = new ArrayList<>();
+	private long lastFullSecond = 0;
+	private byte[] stringBytes = new byte[256];
+
+	public EventsReaderBinary(final EventsManager events) {
+		this(events, WINDOW_SIZE);
+	}
+
+	/*package*/ EventsReaderBinary(final EventsManager events, final int windowSize) {
+		this.events = events;
+		this.eventsCreator = new EventsReaderXMLv1(events);
+		this.windowSize = windowSize;
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.eventsCreator.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * @return <code>true</code> if the given file starts with the header written by {@link EventWriterBinary}.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+			if (file.length() < magic.length) {
+				return false;
+			}
+			file.readFully(magic);
+			return Arrays.equals(magic, EventWriterBinary.MAGIC);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			this.channel = file.getChannel();
+			this.fileSize = this.channel.size();
+			this.windowStart = 0;
+			this.buffer = null;
+			clearDictionary();
+			this.schemas.clear();
+			this.lastFullSecond = 0;
+
+			ensure(EventWriterBinary.MAGIC.length + 4);
+			byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+			this.buffer.get(magic);
+			if (!Arrays.equals(magic, EventWriterBinary.MAGIC)) {
+				throw new IllegalArgumentException(filename + " is not a binary events file.");
+			}
+			int version = this.buffer.getInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + filename);
+			}
+			readRecords();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.channel = null;
+			this.buffer = null;
+		}
+	}
+
+	private void readRecords() throws IOException {
+		while (true) {
+			if (position() == this.fileSize) {
+				throw new RuntimeException("Unexpected end of binary events file; it was probably not closed correctly.");
+			}
+			ensure(1);
+			byte tag = this.buffer.get();
+			switch (tag) {
+			case EventWriterBinary.TAG_END:
+				return;
+			case EventWriterBinary.TAG_STRING:
+				addToDictionary(readString());
+				break;
+			case EventWriterBinary.TAG_SCHEMA:
+				readSchema();
+				break;
+			case EventWriterBinary.TAG_EVENT:
+				readEvent();
+				break;
+			case EventWriterBinary.TAG_ID:
+				readId();
+				break;
+			case EventWriterBinary.TAG_TYPED_EVENT:
+				readTypedEvent();
+				break;
+			case EventWriterBinary.TAG_CLEAR_DICTIONARY:
+				clearDictionary();
+				break;
+			default:
+				throw new RuntimeException("Unknown record tag " + tag + " at position " + (position() - 1));
+			}
+		}
+	}
+
+	private void readSchema() throws IOException {
+		String eventType = this.dictionary[(int) readVarLong()];
+		int nAttributes = (int) readVarLong();
+		AttributesImpl atts = new AttributesImpl();
+		for (int i = 0; i < nAttributes; i++) {
+			String key = this.dictionary[(int) readVarLong()];
+			atts.addAttribute("", key, key, "CDATA", null);
+		}
+		this.schemas.add(new Schema(eventType, atts));
+	}
+
+	private void readEvent() throws IOException {
+		Schema schema = this.schemas.get((int) readVarLong());
+		double time = readTime();
+		AttributesImpl atts = schema.attributes;
+		for (int i = 0, n = atts.getLength(); i < n; i++) {
+			long ref = readVarLong();
+			if (ref == EventWriterBinary.VALUE_INLINE) {
+				atts.setValue(i, readString());
+			} else if (ref == EventWriterBinary.VALUE_NULL) {
+				atts.setValue(i, null);
+			} else {
+				atts.setValue(i, this.dictionary[(int) (ref - EventWriterBinary.VALUE_FIRST_DICTIONARY_INDEX)]);
+			}
+		}
+		this.eventsCreator.processEvent(time, schema.eventType, atts);
+	}
+
+	private void readId() throws IOException {
+		ensure(1);
+		int idType = this.buffer.get();
+		if (idType < 0 || idType >= ID_CLASSES.length) {
+			throw new RuntimeException("Unknown id type " + idType + " at position " + (position() - 1));
+		}
+		addId(idType, Id.create(readString(), ID_CLASSES[idType]));
+	}
+
+	private void addId(final int idType, final Id<?> id) {
+		Id<?>[] table = this.ids[idType];
+		if (this.idsSizes[idType] == table.length) {
+			table = Arrays.copyOf(table, 2 * table.length);
+			this.ids[idType] = table;
+		}
+		table[this.idsSizes[idType]++] = id;
+	}
+
+	private void readTypedEvent() throws IOException {
+		ensure(1);
+		int eventType = this.buffer.get();
+		double time = readTime();
+		switch (eventType) {
+		case EventWriterBinary.EVENT_LINK_ENTER:
+			this.events.processEvent(new LinkEnterEvent(time, readId(EventWriterBinary.ID_VEHICLE, Vehicle.class),
+					readId(EventWriterBinary.ID_LINK, Link.class)));
+			break;
+		case EventWriterBinary.EVENT_LINK_LEAVE:
+			this.events.processEvent(new LinkLeaveEvent(time, readId(EventWriterBinary.ID_VEHICLE, Vehicle.class),
+					readId(EventWriterBinary.ID_LINK, Link.class)));
+			break;
+		case EventWriterBinary.EVENT_VEHICLE_ENTERS_TRAFFIC:
+			this.events.processEvent(new VehicleEntersTrafficEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_LINK, Link.class), readId(EventWriterBinary.ID_VEHICLE, Vehicle.class),
+					readStringRef(), readDouble()));
+			break;
+		case EventWriterBinary.EVENT_VEHICLE_LEAVES_TRAFFIC:
+			this.events.processEvent(new VehicleLeavesTrafficEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_LINK, Link.class), readId(EventWriterBinary.ID_VEHICLE, Vehicle.class),
+					readStringRef(), readDouble()));
+			break;
+		case EventWriterBinary.EVENT_PERSON_DEPARTURE:
+			this.events.processEvent(new PersonDepartureEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_LINK, Link.class), readStringRef()));
+			break;
+		case EventWriterBinary.EVENT_PERSON_ARRIVAL:
+			this.events.processEvent(new PersonArrivalEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_LINK, Link.class), readStringRef()));
+			break;
+		case EventWriterBinary.EVENT_ACTIVITY_START:
+			this.events.processEvent(new ActivityStartEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_LINK, Link.class), readId(EventWriterBinary.ID_FACILITY, ActivityFacility.class),
+					readStringRef()));
+			break;
+		case EventWriterBinary.EVENT_ACTIVITY_END:
+			this.events.processEvent(new ActivityEndEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_LINK, Link.class), readId(EventWriterBinary.ID_FACILITY, ActivityFacility.class),
+					readStringRef()));
+			break;
+		case EventWriterBinary.EVENT_PERSON_ENTERS_VEHICLE:
+			this.events.processEvent(new PersonEntersVehicleEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_VEHICLE, Vehicle.class)));
+			break;
+		case EventWriterBinary.EVENT_PERSON_LEAVES_VEHICLE:
+			this.events.processEvent(new PersonLeavesVehicleEvent(time, readId(EventWriterBinary.ID_PERSON, Person.class),
+					readId(EventWriterBinary.ID_VEHICLE, Vehicle.class)));
+			break;
+		default:
+			throw new RuntimeException("Unknown event type " + eventType + " at position " + (position() - 1));
+		}
+	}
+
+	/**
+	 * Reads a reference into the id table of the given type. The arguments of the event constructors are evaluated
+	 * from left to right, so the fields are read in the order they were written.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Id<T> readId(final int idType, final Class<T> type) throws IOException {
+		int ref = (int) readVarLong();
+		return ref == 0 ? null : (Id<T>) this.ids[idType][ref - 1];
+	}
+
+	private String readStringRef() throws IOException {
+		int ref = (int) readVarLong();
+		return ref == 0 ? null : this.dictionary[ref - 1];
+	}
+
+	private double readDouble() throws IOException {
+		ensure(8);
+		return this.buffer.getDouble();
+	}
+
+	private void clearDictionary() {
+		Arrays.fill(this.dictionary, 0, this.dictionarySize, null);
+		this.dictionarySize = 0;
+		for (int i = 0; i < this.ids.length; i++) {
+			Arrays.fill(this.ids[i], 0, this.idsSizes[i], null);
+			this.idsSizes[i] = 0;
+		}
+	}
+
+	private double readTime() throws IOException {
+		long value = readVarLong();
+		if ((value & 1) == 0) {
+			long encodedDelta = value >>> 1;
+			this.lastFullSecond += (encodedDelta >>> 1) ^ -(encodedDelta & 1);
+			return this.lastFullSecond;
+		}
+		return readDouble();
+	}
+
+	private String readString() throws IOException {
+		int length = (int) readVarLong();
+		if (length > this.stringBytes.length) {
+			this.stringBytes = new byte[Math.max(length, 2 * this.stringBytes.length)];
+		}
+		ensure(length);
+		this.buffer.get(this.stringBytes, 0, length);
+		return new String(this.stringBytes, 0, length, UTF8);
+	}
+
+	private void addToDictionary(final String value) {
+		if (this.dictionarySize == this.dictionary.length) {
+			this.dictionary = Arrays.copyOf(this.dictionary, 2 * this.dictionary.length);
+		}
+		this.dictionary[this.dictionarySize++] = value;
+	}
+
+	private long readVarLong() throws IOException {
+		ensure((int) Math.min(10, this.fileSize - position()));
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private long position() {
+		return this.buffer == null ? this.windowStart : this.windowStart + this.buffer.position();
+	}
+
+	/**
+	 * Makes sure that at least <code>bytes</code> bytes can be read from the current buffer, mapping
+	 * the next window of the file if required.
+	 */
+	private void ensure(final int bytes) throws IOException {
+		if (this.buffer != null && this.buffer.remaining() >= bytes) {
+			return;
+		}
+		long start = position();
+		long size = Math.min(this.fileSize - start, Math.max(this.windowSize, bytes));
+		if (size < bytes) {
+			throw new RuntimeException("Unexpected end of binary events file at position " + start);
+		}
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		this.windowStart = start;
+	}
+
+	private static class Schema {
+		final String eventType;
+		final AttributesImpl attributes;
+
+		Schema(final String eventType, final AttributesImpl attributes) {
+			this.eventType = eventType;
+			this.attributes = attributes;
+		}
+	}
+
+}
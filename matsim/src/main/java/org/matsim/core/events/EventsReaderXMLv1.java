@@ -103,7 +103,15 @@ public class EventsReaderXMLv1 extends MatsimXmlParser {
 	private void startEvent(final Attributes atts) {
 		double time = Double.parseDouble(atts.getValue("time"));
 		String eventType = atts.getValue("type");
+		processEvent(time, eventType, atts);
+	}
 
+	/**
+	 * Creates the typed event (or a {@link GenericEvent} for unknown types) from the given attributes and passes it on
+	 * to the events manager. Attributes named "time" or "type" are ignored, so other readers (e.g.
+	 * {@link EventsReaderBinary}) can use this without having to encode time and type as strings.
+	 */
+	/*package*/ void processEvent(final double time, final String eventType, final Attributes atts) {
 		// === material related to wait2link below here ===
 		if (LinkLeaveEvent.EVENT_TYPE.equals(eventType)) {
 			this.events.processEvent(new LinkLeaveEvent(time, 
@@ -61,6 +61,8 @@ public class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(".bin") || EventsReaderBinary.isBinaryEventsFile(filename)) {
+			new EventsReaderBinary(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -30,12 +30,13 @@ import org.matsim.core.gbl.Gbl;
 import javax.inject.Inject;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -44,6 +45,11 @@ import java.util.concurrent.atomic.AtomicReference;
  * When a Time Step of the QSim ends, all Events that have been created
  * in that Time Step are processed before the simulation can go on.
  * This is necessary e.g. when using Within-day Replanning.
+ * <p></p>
+ * While in parallel mode, every producing thread (e.g. the threads of the QNetsimEngine) writes its
+ * events into its own buffer, so producers do not compete for a shared queue. The buffers are merged
+ * in the order the events were created when the time step ends, and the merged events are handed over
+ * to the events processing threads as one array.
  * 
  * @author cdobler
  */
@@ -65,6 +71,13 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	private AtomicLong counter;
 	private AtomicReference<Throwable> hadException = new AtomicReference<>();
 
+	/*
+	 * One buffer per thread that creates events. Re-created in initProcessing() so that
+	 * buffers of threads from the previous iteration (e.g. the netsim threads) do not pile up.
+	 */
+	private ThreadLocal<EventsBuffer> producerBuffer;
+	private List<EventsBuffer> producerBuffers;
+
 	@Inject
 	SimStepParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
 		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
@@ -93,13 +106,70 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	@Override
 	public void processEvent(final Event event) {
-		this.counter.incrementAndGet();
+		long sequenceNumber = this.counter.incrementAndGet();
 		
 		if (parallelMode) {
-			runnables[0].processEvent(event);
+			this.producerBuffer.get().add(sequenceNumber, event);
 		} else delegate.processEvent(event);
 	}
 
+	/*
+	 * Hands the buffered events over to the first events processing thread. Must only be called while 
+	 * no other thread creates events for this time step, i.e. from afterSimStep(...), from the 
+	 * ProcessedEventsChecker (when all events processing threads are waiting at the barrier) or from 
+	 * finishProcessing().
+	 */
+	private void flushProducerBuffers() {
+		Event[] events = mergeProducerBuffers();
+		if (events != null) this.runnables[0].processEvents(events);
+	}
+
+	/*
+	 * Merges the events of all producer buffers in the order of their sequence numbers and clears the buffers.
+	 */
+	private Event[] mergeProducerBuffers() {
+		EventsBuffer[] buffers = this.producerBuffers.toArray(new EventsBuffer[0]);
+		int[] sizes = new int[buffers.length];
+		int numEvents = 0;
+		long minSequenceNumber = Long.MAX_VALUE;
+		long maxSequenceNumber = Long.MIN_VALUE;
+		for (int b = 0; b < buffers.length; b++) {
+			EventsBuffer buffer = buffers[b];
+			synchronized (buffer) {
+				sizes[b] = buffer.size;
+				if (buffer.size == 0) continue;
+				numEvents += buffer.size;
+				minSequenceNumber = Math.min(minSequenceNumber, buffer.sequenceNumbers[0]);
+				maxSequenceNumber = Math.max(maxSequenceNumber, buffer.sequenceNumbers[buffer.size - 1]);
+			}
+		}
+		if (numEvents == 0) return null;
+
+		/*
+		 * The sequence numbers are (nearly) contiguous, so every event can be put directly to its final
+		 * position instead of sorting. Gaps come from events that were not buffered, e.g. because they
+		 * were created before initProcessing() was called.
+		 */
+		Event[] events = new Event[(int) (maxSequenceNumber - minSequenceNumber + 1)];
+		for (int b = 0; b < buffers.length; b++) {
+			EventsBuffer buffer = buffers[b];
+			synchronized (buffer) {
+				for (int i = 0; i < sizes[b]; i++) {
+					events[(int) (buffer.sequenceNumbers[i] - minSequenceNumber)] = buffer.events[i];
+				}
+				buffer.removeFirst(sizes[b]);
+			}
+		}
+		if (events.length != numEvents) {
+			int pos = 0;
+			for (Event event : events) {
+				if (event != null) events[pos++] = event;
+			}
+			events = Arrays.copyOf(events, pos);
+		}
+		return events;
+	}
+
 	@Override
 	public void addHandler(final EventHandler handler) {
 		delegate.addHandler(handler);
@@ -126,10 +196,21 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		delegate.initProcessing();
 		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
 
-		Queue<Event>[] eventsQueuesArray = new Queue[this.numOfThreads];
-		List<Queue<Event>> eventsQueues = new ArrayList<Queue<Event>>();
+		this.producerBuffers = new CopyOnWriteArrayList<>();
+		final List<EventsBuffer> buffers = this.producerBuffers;
+		this.producerBuffer = new ThreadLocal<EventsBuffer>() {
+			@Override
+			protected EventsBuffer initialValue() {
+				EventsBuffer buffer = new EventsBuffer();
+				buffers.add(buffer);
+				return buffer;
+			}
+		};
+
+		Queue<Event[]>[] eventsQueuesArray = new Queue[this.numOfThreads];
+		List<Queue<Event[]>> eventsQueues = new ArrayList<Queue<Event[]>>();
 		for (int i = 0; i < numOfThreads; i++) {
-			Queue<Event> eventsQueue = new LinkedBlockingQueue<>();
+			Queue<Event[]> eventsQueue = new LinkedBlockingQueue<>();
 			eventsQueues.add(eventsQueue);
 			eventsQueuesArray[i] = eventsQueue;
 		}
@@ -143,7 +224,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		 * Create a ProcessedEventsChecker that checks whether all Events of
 		 * a time step have been processed.
 		 */
-		processedEventsChecker = new ProcessedEventsChecker(this, eventsQueuesArray);
+		processedEventsChecker = new ProcessedEventsChecker(this, eventsQueuesArray, this.producerBuffers);
 		
 		/*
 		 *  Create a Barrier that the threads use to synchronize.
@@ -191,21 +272,33 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		Throwable throwable = this.hadException.get();
 		if (throwable == null) {
 			try {
-				this.processEvent(new LastEventOfIteration(Double.POSITIVE_INFINITY));
+				this.flushProducerBuffers();
+				this.runnables[0].processEvents(new Event[] { new LastEventOfIteration(Double.POSITIVE_INFINITY) });
 				iterationEndBarrier.await();
 			} catch (InterruptedException | BrokenBarrierException e) {
 				this.hadException.set(e);
 			}
         }
 		
-		delegate.finishProcessing();
-		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
-		
 		/*
 		 * After the simulation Events are processed in
 		 * the Main Thread.
 		 */
 		this.parallelMode = false;
+		
+		/*
+		 * EventHandlers might have created events while the last events were processed. All
+		 * events processing threads have stopped, so we process them in the Main Thread.
+		 */
+		if (throwable == null && this.hadException.get() == null) {
+			Event[] remainingEvents = mergeProducerBuffers();
+			if (remainingEvents != null) {
+				for (Event event : remainingEvents) delegate.processEvent(event);
+			}
+		}
+		
+		delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
 
 		if (throwable != null) {
 			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
@@ -227,7 +320,8 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		try {
 			Gbl.assertNotNull( this.processedEventsChecker );
 			this.processedEventsChecker.setTime(time);
-			this.processEvent(new LastEventOfSimStep(time));
+			this.flushProducerBuffers();
+			this.runnables[0].processEvents(new Event[] { new LastEventOfSimStep(time) });
 			simStepEndBarrier.await();
 		} catch (InterruptedException | BrokenBarrierException e) {
 			throw new RuntimeException(e);
@@ -241,13 +335,13 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		private final CyclicBarrier waitForEmptyQueuesBarrier;
 		private final CyclicBarrier simStepEndBarrier;
 		private final CyclicBarrier iterationEndBarrier;
-		private final Queue<Event> eventsQueue;
-		private final Queue<Event> nextEventsQueue;
+		private final Queue<Event[]> eventsQueue;
+		private final Queue<Event[]> nextEventsQueue;
 		private double lastEventTime = 0.0;
 
 		public ProcessEventsRunnable(EventsManager eventsManager, ProcessedEventsChecker processedEventsChecker, 
 				CyclicBarrier waitForEmptyQueuesBarrier,CyclicBarrier simStepEndBarrier,
-				CyclicBarrier iterationEndBarrier, Queue<Event> eventsQueue, Queue<Event> nextEventsQueue) {
+				CyclicBarrier iterationEndBarrier, Queue<Event[]> eventsQueue, Queue<Event[]> nextEventsQueue) {
 			this.eventsManager = eventsManager;
 			this.processedEventsChecker = processedEventsChecker;
 			this.waitForEmptyQueuesBarrier = waitForEmptyQueuesBarrier;
@@ -270,25 +364,21 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 				 */
 				lastEventTime = 0.0;
 				while (true) {
-					Event event = ((LinkedBlockingQueue<Event>) eventsQueue).take();
+					Event[] events = ((LinkedBlockingQueue<Event[]>) eventsQueue).take();
 					
 					/*
-					 * Check whether the events are ordered chronologically.
+					 * Hand the events over to the next events processing thread, if this is not the last thread.
+					 * 
+					 * The markers (LastEventOfSimStep, LastEventOfIteration) are always handed over as arrays
+					 * of their own, so the whole array can be forwarded at once.
 					 */
-					if (event.getTime() < this.lastEventTime) {
-						throw new RuntimeException("Events in the queue are not ordered chronologically. " +
-								"This should never happen. Is the SimTimeStepParallelEventsManager registered " +
-								"as a MobsimAfterSimStepListener?");
-					} else this.lastEventTime = event.getTime();
+					if (nextEventsQueue != null) {
+						nextEventsQueue.add(events);
+					}
 					
-					if (event instanceof LastEventOfSimStep) {
-						/*
-						 * Send the event to the next events processing thread, if this is not the last thread.
-						 */
-						if (nextEventsQueue != null) {
-							nextEventsQueue.add(event);
-						}
-						
+					if (events.length == 1 && events[0] instanceof LastEventOfSimStep) {
+						checkChronologicalOrder(events[0]);
+
 						/*
 						 * At the moment, this thread's queue is empty. However, one of the other threads
 						 * could create additional events for this time step. Therefore we have to wait
@@ -305,28 +395,19 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 						simStepEndBarrier.await();
 						continue;
 					} 
-					else {
-						/*
-						 * Handing the event over to the next events processing thread.
-						 * 
-						 * This could be added to the next EventHandlers queue here or in 
-						 * the processEvent(...) method. Doing it here might be a bit faster
-						 * since it is not done in the main thread.
-						 */
-						if (nextEventsQueue != null) {
-							nextEventsQueue.add(event);
-						}
-						
-						/*
-						 * If it is the last Event of the iteration, break the while loop
-						 * and end the parallel events processing.
-						 * TODO: Check whether still some events could be left in the queues...
-						 */
-						if (event instanceof LastEventOfIteration) {
-							break;
-						}
+					
+					/*
+					 * If it is the last Event of the iteration, break the while loop
+					 * and end the parallel events processing.
+					 */
+					if (events.length == 1 && events[0] instanceof LastEventOfIteration) {
+						break;
+					}
+					
+					for (Event event : events) {
+						checkChronologicalOrder(event);
+						eventsManager.processEvent(event);
 					}
-					eventsManager.processEvent(event);
 				}
 				iterationEndBarrier.await();
 			} catch (InterruptedException | BrokenBarrierException e) {
@@ -335,22 +416,33 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
             Gbl.printCurrentThreadCpuTime();
 		}
 
-		public void processEvent(Event event) {
-			this.eventsQueue.add(event);
+		private void checkChronologicalOrder(Event event) {
+			if (event.getTime() < this.lastEventTime) {
+				throw new RuntimeException("Events in the queue are not ordered chronologically. " +
+						"This should never happen. Is the SimTimeStepParallelEventsManager registered " +
+						"as a MobsimAfterSimStepListener?");
+			} else this.lastEventTime = event.getTime();
+		}
+
+		public void processEvents(Event[] events) {
+			this.eventsQueue.add(events);
 		}
 		
 	}	// ProcessEventsRunnable
 	
 	private static class ProcessedEventsChecker implements Runnable {
 
-		private final EventsManager evenentsManger;
-		private final Queue<Event>[] eventQueues;
+		private final SimStepParallelEventsManagerImpl evenentsManger;
+		private final Queue<Event[]>[] eventQueues;
+		private final List<EventsBuffer> producerBuffers;
 		private boolean allEventsProcessed;
 		private double time;
 		
-		public ProcessedEventsChecker(EventsManager evenentsManger, Queue<Event>[] eventQueues) {
+		public ProcessedEventsChecker(SimStepParallelEventsManagerImpl evenentsManger, Queue<Event[]>[] eventQueues, 
+				List<EventsBuffer> producerBuffers) {
 			this.evenentsManger = evenentsManger;
 			this.eventQueues = eventQueues;
+			this.producerBuffers = producerBuffers;
 			
 			this.allEventsProcessed = true;
 		}
@@ -365,7 +457,21 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		
 		@Override
 		public void run() {
-			for (Queue<Event> eventsQueue : eventQueues) {
+			/*
+			 * Events created by EventHandlers are collected in the buffers of the events
+			 * processing threads. All of them are waiting at the barrier right now, so the
+			 * buffers can be flushed safely.
+			 */
+			for (EventsBuffer buffer : producerBuffers) {
+				if (buffer.size() > 0) {
+					allEventsProcessed = false;
+					evenentsManger.flushProducerBuffers();
+					evenentsManger.runnables[0].processEvents(new Event[] { new LastEventOfSimStep(time) });
+					return;
+				}
+			}
+			
+			for (Queue<Event[]> eventsQueue : eventQueues) {
 				/*
 				 * Some EventHandlers might have created additional Events [1] which 
 				 * could be located in the list AFTER the LastEventOfSimStep, meaning 
@@ -384,7 +490,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 				 */
 				if (eventsQueue.size() > 0) {
 					allEventsProcessed = false;
-					evenentsManger.processEvent(new LastEventOfSimStep(time));
+					evenentsManger.runnables[0].processEvents(new Event[] { new LastEventOfSimStep(time) });
 					return;
 				}
 			}
@@ -395,6 +501,48 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		
 	}	// ProcessedEventsChecker
 	
+	/**
+	 * Growable buffer for the events created by a single thread. The arrays are kept when the
+	 * buffer is flushed, so in steady state no memory is allocated when events are added.
+	 */
+	private static class EventsBuffer {
+
+		private Event[] events = new Event[256];
+		private long[] sequenceNumbers = new long[256];
+		private int size = 0;
+
+		/*
+		 * Synchronized only to be on the safe side when an unexpected thread creates events while
+		 * the buffers are flushed. Normally, the lock is only taken by the owning thread and is not contended.
+		 */
+		synchronized void add(long sequenceNumber, Event event) {
+			if (this.size == this.events.length) {
+				this.events = Arrays.copyOf(this.events, this.size * 2);
+				this.sequenceNumbers = Arrays.copyOf(this.sequenceNumbers, this.size * 2);
+			}
+			this.events[this.size] = event;
+			this.sequenceNumbers[this.size] = sequenceNumber;
+			this.size++;
+		}
+
+		synchronized int size() {
+			return this.size;
+		}
+
+		/*
+		 * Removes the first n events. Normally, these are all events in the buffer.
+		 */
+		/*package*/ void removeFirst(int n) {
+			int remaining = this.size - n;
+			if (remaining > 0) {
+				System.arraycopy(this.events, n, this.events, 0, remaining);
+				System.arraycopy(this.sequenceNumbers, n, this.sequenceNumbers, 0, remaining);
+			}
+			Arrays.fill(this.events, remaining, this.size, null);
+			this.size = remaining;
+		}
+	}
+
 	/**
 	 * @author mrieser
 	 */
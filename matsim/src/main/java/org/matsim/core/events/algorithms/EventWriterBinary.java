@@ -0,0 +1,536 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format which can be read back with
+ * {@link org.matsim.core.events.EventsReaderBinary} (or {@link org.matsim.core.events.MatsimEventsReader}).
+ * <p></p>
+ * The file is not compressed, so that it can be memory-mapped when reading. After a header
+ * (the 8 bytes {@link #MAGIC} followed by a 4 byte {@link #VERSION}), the file consists of records,
+ * each starting with a tag byte:
+ * <ul>
+ * <li>{@link #TAG_STRING}: length (varint) and UTF-8 bytes of a string, which is appended to the string
+ * dictionary. All event types, attribute names and most attribute values (i.e. all the Ids) are only
+ * written once and later referenced by their index in the dictionary.</li>
+ * <li>{@link #TAG_SCHEMA}: the layout of an event type, i.e. the dictionary index of the event type
+ * followed by the number and dictionary indices of its attribute names. It is appended to the schema table.</li>
+ * <li>{@link #TAG_EVENT}: an event, consisting of the index of its schema, its time and one value per
+ * attribute of the schema.</li>
+ * <li>{@link #TAG_ID}: an id type ({@link #ID_LINK}, {@link #ID_PERSON}, {@link #ID_VEHICLE} or {@link #ID_FACILITY})
+ * and the length (varint) and UTF-8 bytes of an id, which is appended to the id table of this type.</li>
+ * <li>{@link #TAG_TYPED_EVENT}: an event of one of the frequent event types of the mobsim (see {@link #EVENT_LINK_ENTER}
+ * and the following constants), consisting of the event type constant, its time and its fields in the order
+ * of the constructor of the event. Ids are written as varint <code>index+1</code> into the id table of their type,
+ * strings (modes and activity types) as varint <code>index+1</code> into the dictionary, <code>0</code> stands for
+ * <code>null</code> in both cases. Positions on links are written as the 8 bytes of the double. So these events
+ * neither need {@link Event#getAttributes()} when writing nor parsing of their attributes when reading.</li>
+ * <li>{@link #TAG_CLEAR_DICTIONARY}: empties the string dictionary and the id tables. Written whenever they would
+ * grow beyond {@link #MAX_DICTIONARY_SIZE} entries, so neither the writer nor the reader keep all distinct strings
+ * of a large file in memory. The schemas stay valid.</li>
+ * <li>{@link #TAG_END}: marks the end of the file.</li>
+ * </ul>
+ * Times are written as zig-zag encoded varint, either as the delta (shifted left by one bit) to the previous
+ * full-second time if the time is a full second, or as <code>1</code> followed by the 8 bytes of the double.
+ * Attribute values of events written with a schema are written as varint <code>index+2</code> into the dictionary,
+ * as <code>0</code> followed by an inline string for values which are unlikely to repeat (e.g. non-integral numbers),
+ * or as <code>1</code> for <code>null</code>. Subclasses of the typed event types are written with a schema as well.
+ * <p></p>
+ * The events are written in the order they are handled, so reading the file reproduces the original
+ * event stream.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = {'M', 'A', 'T', 'S', 'I', 'M', 'E', 'V'};
+	public static final int VERSION = 3;
+
+	public static final byte TAG_END = 0;
+	public static final byte TAG_STRING = 1;
+	public static final byte TAG_SCHEMA = 2;
+	public static final byte TAG_EVENT = 3;
+	public static final byte TAG_CLEAR_DICTIONARY = 4;
+	public static final byte TAG_ID = 5;
+	public static final byte TAG_TYPED_EVENT = 6;
+
+	public static final int ID_LINK = 0;
+	public static final int ID_PERSON = 1;
+	public static final int ID_VEHICLE = 2;
+	public static final int ID_FACILITY = 3;
+
+	/** vehicle, link */
+	public static final int EVENT_LINK_ENTER = 0;
+	/** vehicle, link */
+	public static final int EVENT_LINK_LEAVE = 1;
+	/** driver, link, vehicle, network mode, relative position on link */
+	public static final int EVENT_VEHICLE_ENTERS_TRAFFIC = 2;
+	/** driver, link, vehicle, network mode, relative position on link */
+	public static final int EVENT_VEHICLE_LEAVES_TRAFFIC = 3;
+	/** person, link, leg mode */
+	public static final int EVENT_PERSON_DEPARTURE = 4;
+	/** person, link, leg mode */
+	public static final int EVENT_PERSON_ARRIVAL = 5;
+	/** person, link, facility, activity type */
+	public static final int EVENT_ACTIVITY_START = 6;
+	/** person, link, facility, activity type */
+	public static final int EVENT_ACTIVITY_END = 7;
+	/** person, vehicle */
+	public static final int EVENT_PERSON_ENTERS_VEHICLE = 8;
+	/** person, vehicle */
+	public static final int EVENT_PERSON_LEAVES_VEHICLE = 9;
+
+	public static final int VALUE_INLINE = 0;
+	public static final int VALUE_NULL = 1;
+	public static final int VALUE_FIRST_DICTIONARY_INDEX = 2;
+
+	public static final int MAX_DICTIONARY_SIZE = 1 << 20;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String ATTRIBUTE_TIME = "time";
+	private static final String ATTRIBUTE_TYPE = "type";
+
+	private final OutputStream out;
+	private final int maxDictionarySize;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final IdTable[] idTables = {new IdTable(), new IdTable(), new IdTable(), new IdTable()};
+	private int idCount = 0;
+	private final Map<String, List<Schema>> schemasByType = new HashMap<>();
+	private int schemaCount = 0;
+	private long lastFullSecond = 0;
+
+	private final List<String> keys = new ArrayList<>();
+	private final List<String> values = new ArrayList<>();
+
+	public EventWriterBinary(final String outfilename) {
+		this(outfilename, MAX_DICTIONARY_SIZE);
+	}
+
+	/**
+	 * @param maxDictionarySize the number of strings after which the dictionary is cleared.
+	 */
+	public EventWriterBinary(final String outfilename, final int maxDictionarySize) {
+		this.maxDictionarySize = maxDictionarySize;
+		try {
+			this.out = new BufferedOutputStream(new FileOutputStream(outfilename), 1 << 16);
+			this.out.write(MAGIC);
+			writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			this.out.write(TAG_END);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		try {
+			if (!writeTypedEvent(event)) {
+				writeEventWithSchema(event);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the event is not of one of the typed event types.
+	 */
+	private boolean writeTypedEvent(final Event event) throws IOException {
+		Class<?> eventClass = event.getClass();
+		if (eventClass != LinkEnterEvent.class && eventClass != LinkLeaveEvent.class
+				&& eventClass != VehicleEntersTrafficEvent.class && eventClass != VehicleLeavesTrafficEvent.class
+				&& eventClass != PersonDepartureEvent.class && eventClass != PersonArrivalEvent.class
+				&& eventClass != ActivityStartEvent.class && eventClass != ActivityEndEvent.class
+				&& eventClass != PersonEntersVehicleEvent.class && eventClass != PersonLeavesVehicleEvent.class) {
+			return false;
+		}
+		// a typed event adds at most three ids and a string to the dictionary and the id tables
+		if (this.dictionary.size() + this.idCount + 4 > this.maxDictionarySize) {
+			clearDictionary();
+		}
+		// ids and strings must be known before the event record referencing them
+		if (eventClass == LinkEnterEvent.class) {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			int vehicle = getOrAddId(e.getVehicleId(), ID_VEHICLE);
+			int link = getOrAddId(e.getLinkId(), ID_LINK);
+			startTypedEvent(EVENT_LINK_ENTER, e.getTime());
+			writeVarLong(vehicle);
+			writeVarLong(link);
+		} else if (eventClass == LinkLeaveEvent.class) {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			int vehicle = getOrAddId(e.getVehicleId(), ID_VEHICLE);
+			int link = getOrAddId(e.getLinkId(), ID_LINK);
+			startTypedEvent(EVENT_LINK_LEAVE, e.getTime());
+			writeVarLong(vehicle);
+			writeVarLong(link);
+		} else if (eventClass == VehicleEntersTrafficEvent.class) {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			writeVehicleTrafficEvent(EVENT_VEHICLE_ENTERS_TRAFFIC, e.getTime(), e.getPersonId(), e.getLinkId(), e.getVehicleId(),
+					e.getNetworkMode(), e.getRelativePositionOnLink());
+		} else if (eventClass == VehicleLeavesTrafficEvent.class) {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			writeVehicleTrafficEvent(EVENT_VEHICLE_LEAVES_TRAFFIC, e.getTime(), e.getPersonId(), e.getLinkId(), e.getVehicleId(),
+					e.getNetworkMode(), e.getRelativePositionOnLink());
+		} else if (eventClass == PersonDepartureEvent.class) {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			writeLegEvent(EVENT_PERSON_DEPARTURE, e.getTime(), e.getPersonId(), e.getLinkId(), e.getLegMode());
+		} else if (eventClass == PersonArrivalEvent.class) {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			writeLegEvent(EVENT_PERSON_ARRIVAL, e.getTime(), e.getPersonId(), e.getLinkId(), e.getLegMode());
+		} else if (eventClass == ActivityStartEvent.class) {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			writeActivityEvent(EVENT_ACTIVITY_START, e.getTime(), e.getPersonId(), e.getLinkId(), e.getFacilityId(), e.getActType());
+		} else if (eventClass == ActivityEndEvent.class) {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			writeActivityEvent(EVENT_ACTIVITY_END, e.getTime(), e.getPersonId(), e.getLinkId(), e.getFacilityId(), e.getActType());
+		} else if (eventClass == PersonEntersVehicleEvent.class) {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			writePersonVehicleEvent(EVENT_PERSON_ENTERS_VEHICLE, e.getTime(), e.getPersonId(), e.getVehicleId());
+		} else {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			writePersonVehicleEvent(EVENT_PERSON_LEAVES_VEHICLE, e.getTime(), e.getPersonId(), e.getVehicleId());
+		}
+		return true;
+	}
+
+	private void writeVehicleTrafficEvent(final int eventType, final double time, final Id<?> driverId, final Id<?> linkId,
+			final Id<?> vehicleId, final String networkMode, final double relativePositionOnLink) throws IOException {
+		int driver = getOrAddId(driverId, ID_PERSON);
+		int link = getOrAddId(linkId, ID_LINK);
+		int vehicle = getOrAddId(vehicleId, ID_VEHICLE);
+		int mode = getOrAddStringRef(networkMode);
+		startTypedEvent(eventType, time);
+		writeVarLong(driver);
+		writeVarLong(link);
+		writeVarLong(vehicle);
+		writeVarLong(mode);
+		writeDouble(relativePositionOnLink);
+	}
+
+	private void writeLegEvent(final int eventType, final double time, final Id<?> personId, final Id<?> linkId,
+			final String legMode) throws IOException {
+		int person = getOrAddId(personId, ID_PERSON);
+		int link = getOrAddId(linkId, ID_LINK);
+		int mode = getOrAddStringRef(legMode);
+		startTypedEvent(eventType, time);
+		writeVarLong(person);
+		writeVarLong(link);
+		writeVarLong(mode);
+	}
+
+	private void writeActivityEvent(final int eventType, final double time, final Id<?> personId, final Id<?> linkId,
+			final Id<?> facilityId, final String actType) throws IOException {
+		int person = getOrAddId(personId, ID_PERSON);
+		int link = getOrAddId(linkId, ID_LINK);
+		int facility = getOrAddId(facilityId, ID_FACILITY);
+		int type = getOrAddStringRef(actType);
+		startTypedEvent(eventType, time);
+		writeVarLong(person);
+		writeVarLong(link);
+		writeVarLong(facility);
+		writeVarLong(type);
+	}
+
+	private void writePersonVehicleEvent(final int eventType, final double time, final Id<?> personId, final Id<?> vehicleId) throws IOException {
+		int person = getOrAddId(personId, ID_PERSON);
+		int vehicle = getOrAddId(vehicleId, ID_VEHICLE);
+		startTypedEvent(eventType, time);
+		writeVarLong(person);
+		writeVarLong(vehicle);
+	}
+
+	private void startTypedEvent(final int eventType, final double time) throws IOException {
+		this.out.write(TAG_TYPED_EVENT);
+		this.out.write(eventType);
+		writeTime(time);
+	}
+
+	/**
+	 * @return the index+1 of the id in the id table of the given type, or <code>0</code> for <code>null</code>.
+	 */
+	private int getOrAddId(final Id<?> id, final int idType) throws IOException {
+		if (id == null) {
+			return 0;
+		}
+		IdTable table = this.idTables[idType];
+		int ref = table.getRef(id);
+		if (ref == 0) {
+			ref = table.add(id);
+			this.idCount++;
+			this.out.write(TAG_ID);
+			this.out.write(idType);
+			writeString(id.toString());
+		}
+		return ref;
+	}
+
+	/**
+	 * @return the index+1 of the string in the dictionary, or <code>0</code> for <code>null</code>.
+	 */
+	private int getOrAddStringRef(final String value) throws IOException {
+		return value == null ? 0 : getOrAddToDictionary(value) + 1;
+	}
+
+	private void clearDictionary() throws IOException {
+		this.out.write(TAG_CLEAR_DICTIONARY);
+		this.dictionary.clear();
+		for (IdTable table : this.idTables) {
+			table.clear();
+		}
+		this.idCount = 0;
+	}
+
+	private void writeEventWithSchema(final Event event) throws IOException {
+		this.keys.clear();
+		this.values.clear();
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			String key = entry.getKey();
+			if (ATTRIBUTE_TIME.equals(key) || ATTRIBUTE_TYPE.equals(key)) {
+				continue;
+			}
+			this.keys.add(key);
+			this.values.add(entry.getValue());
+		}
+		// an event adds at most its type, attribute names and values to the dictionary
+		if (this.dictionary.size() + this.idCount + 1 + this.keys.size() + this.values.size() > this.maxDictionarySize) {
+			clearDictionary();
+		}
+
+		Schema schema = getOrCreateSchema(event.getEventType(), this.keys);
+
+		// dictionary entries must be known before the event record referencing them
+		for (String value : this.values) {
+			if (value != null && !isInlined(value) && !this.dictionary.containsKey(value)) {
+				addToDictionary(value);
+			}
+		}
+
+		this.out.write(TAG_EVENT);
+		writeVarLong(schema.index);
+		writeTime(event.getTime());
+		for (String value : this.values) {
+			if (value == null) {
+				writeVarLong(VALUE_NULL);
+			} else if (isInlined(value)) {
+				writeVarLong(VALUE_INLINE);
+				writeString(value);
+			} else {
+				writeVarLong(this.dictionary.get(value).intValue() + VALUE_FIRST_DICTIONARY_INDEX);
+			}
+		}
+	}
+
+	private Schema getOrCreateSchema(final String eventType, final List<String> attributeNames) throws IOException {
+		List<Schema> candidates = this.schemasByType.get(eventType);
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
+			this.schemasByType.put(eventType, candidates);
+		}
+		for (Schema schema : candidates) {
+			if (schema.keys.equals(attributeNames)) {
+				return schema;
+			}
+		}
+		int typeIndex = getOrAddToDictionary(eventType);
+		int[] keyIndices = new int[attributeNames.size()];
+		for (int i = 0; i < keyIndices.length; i++) {
+			keyIndices[i] = getOrAddToDictionary(attributeNames.get(i));
+		}
+		this.out.write(TAG_SCHEMA);
+		writeVarLong(typeIndex);
+		writeVarLong(keyIndices.length);
+		for (int keyIndex : keyIndices) {
+			writeVarLong(keyIndex);
+		}
+		Schema schema = new Schema(this.schemaCount++, new ArrayList<>(attributeNames));
+		candidates.add(schema);
+		return schema;
+	}
+
+	private int getOrAddToDictionary(final String value) throws IOException {
+		Integer index = this.dictionary.get(value);
+		if (index == null) {
+			return addToDictionary(value);
+		}
+		return index.intValue();
+	}
+
+	private int addToDictionary(final String value) throws IOException {
+		int index = this.dictionary.size();
+		this.dictionary.put(value, index);
+		this.out.write(TAG_STRING);
+		writeString(value);
+		return index;
+	}
+
+	/**
+	 * Values looking like non-integral numbers (positions, distances, amounts, ...) are rarely repeated,
+	 * so they are written inline instead of filling up the dictionary.
+	 */
+	private static boolean isInlined(final String value) {
+		int len = value.length();
+		if (len == 0) {
+			return false;
+		}
+		boolean hasSeparator = false;
+		for (int i = 0; i < len; i++) {
+			char ch = value.charAt(i);
+			if (ch == '.' || ch == 'E') {
+				hasSeparator = true;
+			} else if ((ch < '0' || ch > '9') && ch != '-') {
+				return false;
+			}
+		}
+		return hasSeparator;
+	}
+
+	private void writeTime(final double time) throws IOException {
+		long fullSecond = (long) time;
+		if (fullSecond == time && Math.abs(fullSecond) < (1L << 52)) {
+			writeVarLong(zigZag(fullSecond - this.lastFullSecond) << 1);
+			this.lastFullSecond = fullSecond;
+		} else {
+			writeVarLong(1);
+			writeDouble(time);
+		}
+	}
+
+	private void writeDouble(final double value) throws IOException {
+		long bits = Double.doubleToLongBits(value);
+		writeInt((int) (bits >>> 32));
+		writeInt((int) bits);
+	}
+
+	private void writeString(final String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarLong(bytes.length);
+		this.out.write(bytes);
+	}
+
+	private void writeInt(final int value) throws IOException {
+		this.out.write(value >>> 24);
+		this.out.write(value >>> 16);
+		this.out.write(value >>> 8);
+		this.out.write(value);
+	}
+
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			this.out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		this.out.write((int) value);
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static class Schema {
+		final int index;
+		final List<String> keys;
+
+		Schema(final int index, final List<String> keys) {
+			this.index = index;
+			this.keys = keys;
+		}
+	}
+
+	/**
+	 * The ids of one type written so far. They are found by their {@link Id#index()} instead of a hash lookup. As
+	 * an id may have been created for another type than it is used for (e.g. passed on through an unchecked cast), the
+	 * found id is compared to the given one, and in case of a collision the id is simply written again.
+	 */
+	private static class IdTable {
+		private int[] refsByIndex = new int[1024];
+		private Id<?>[] ids = new Id<?>[1024];
+		private int size = 0;
+
+		int getRef(final Id<?> id) {
+			int index = id.index();
+			if (index < this.refsByIndex.length) {
+				int ref = this.refsByIndex[index];
+				if (ref != 0 && this.ids[ref - 1] == id) {
+					return ref;
+				}
+			}
+			return 0;
+		}
+
+		int add(final Id<?> id) {
+			int index = id.index();
+			if (index >= this.refsByIndex.length) {
+				this.refsByIndex = Arrays.copyOf(this.refsByIndex, Math.max(index + 1, 2 * this.refsByIndex.length));
+			}
+			if (this.size == this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, 2 * this.ids.length);
+			}
+			this.ids[this.size++] = id;
+			this.refsByIndex[index] = this.size;
+			return this.size;
+		}
+
+		void clear() {
+			Arrays.fill(this.refsByIndex, 0);
+			Arrays.fill(this.ids, 0, this.size, null);
+			this.size = 0;
+		}
+	}
+
+}
@@ -35,7 +35,15 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	private final BufferedWriter out;
 
 	public EventWriterXML(final String outfilename) {
-		this.out = IOUtils.getBufferedWriter(outfilename);
+		this(outfilename, 1);
+	}
+
+	/**
+	 * @param numberOfCompressionThreads the number of threads to compress the file if its name ends with ".gz",
+	 * see {@link IOUtils#getBufferedWriter(String, java.nio.charset.Charset, boolean, int)}.
+	 */
+	public EventWriterXML(final String outfilename, final int numberOfCompressionThreads) {
+		this.out = IOUtils.getBufferedWriter(outfilename, IOUtils.CHARSET_UTF8, false, numberOfCompressionThreads);
 		try {
 			this.out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
 		} catch (IOException e) {
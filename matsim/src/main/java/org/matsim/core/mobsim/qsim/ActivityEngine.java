@@ -19,20 +19,18 @@
 
 package org.matsim.core.mobsim.qsim;
 
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
-
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.AgendaType;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.misc.Time;
 
 import javax.inject.Inject;
@@ -43,15 +41,27 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	private AgentCounter agentCounter;
 
 	@Inject
+	public ActivityEngine(EventsManager eventsManager, Config config) {
+		this.eventsManager = eventsManager;
+		this.activityEndsList = AgentAgenda.create(config.qsim().getAgendaType(), true);
+	}
+
+	/**
+	 * Uses the default agenda, see {@link org.matsim.core.config.groups.QSimConfigGroup#getAgendaType()}.
+	 */
 	public ActivityEngine(EventsManager eventsManager) {
 		this.eventsManager = eventsManager;
+		this.activityEndsList = AgentAgenda.create(AgendaType.priorityQueue, true);
 	}
 
 	public ActivityEngine(EventsManager eventsManager, AgentCounter agentCounter) {
 		this.eventsManager = eventsManager;
 		this.agentCounter = agentCounter;
+		this.activityEndsList = AgentAgenda.create(AgendaType.priorityQueue, true);
 	}
 
+	private InternalInterface internalInterface;
+	
 	/**
 	 * Agents cannot be added directly to the activityEndsList since that would
 	 * not be thread-safe when within-day replanning is used. There, an agent's
@@ -60,43 +70,10 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	 * rescheduleActivityEnd(...). However, if another agent is added to the list
 	 * in the mean time, it might be inserted at the wrong position.
 	 * cdobler, apr'12
+	 * <p></p>
+	 * The agenda thus keeps the activity end time the agent had when it was added.
 	 */
-	private static class AgentEntry {
-		public AgentEntry(MobsimAgent agent, double activityEndTime) {
-			this.agent = agent;
-			this.activityEndTime = activityEndTime;
-		}
-		final MobsimAgent agent;
-		final double activityEndTime;
-	}
-
-	private InternalInterface internalInterface;
-	
-	/**
-	 * This list needs to be a "blocking" queue since this is needed for
-	 * thread-safety in the parallel qsim. cdobler, oct'10
-	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, new Comparator<AgentEntry>() {
-
-		@Override
-		public int compare(AgentEntry arg0, AgentEntry arg1) {
-			int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
-			if (cmp == 0) {
-				// Both depart at the same time -> let the one with the larger id be first (=smaller)
-				//
-				// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-				// to say that the agent with the larger ID should be "smaller" one in the comparison.
-				// In practice, it seems
-				// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-				// It is unclear why this convention is supposed to be helpful.
-				// kai & dominik, jul'12
-				//
-				return arg1.agent.getId().compareTo(arg0.agent.getId());
-			}
-			return cmp;
-		}
-
-	});
+	private final AgentAgenda activityEndsList;
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
@@ -109,26 +86,22 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
-				unregisterAgentAtActivityLocation(agent);
-				agent.endActivityAndComputeNextState(time);
-				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
-			}
+		MobsimAgent agent;
+		while ((agent = activityEndsList.pollDue(time)) != null) {
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
 		}
 	}
 
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
-			if (entry.activityEndTime!=Double.POSITIVE_INFINITY && entry.activityEndTime!=Time.UNDEFINED_TIME) {
+		for (Tuple<Double, MobsimAgent> entry : activityEndsList.getEntries()) {
+			if (entry.getFirst()!=Double.POSITIVE_INFINITY && entry.getFirst()!=Time.UNDEFINED_TIME) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
 				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
-				eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+				eventsManager.processEvent(new PersonStuckEvent(now, entry.getSecond().getId(), null, null));
 			}
 		}
 		activityEndsList.clear();
@@ -163,7 +136,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			activityEndsList.add(new AgentEntry(agent, agent.getActivityEndTime()));
+			activityEndsList.add(agent.getActivityEndTime(), agent);
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -189,16 +162,16 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	 */
 	void rescheduleActivityEnd(final MobsimAgent agent) {
 		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		boolean wasInQueue = activityEndsList.remove(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
-		if (oldEntry == null) {
+		if (!wasInQueue) {
 			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				activityEndsList.add(newActivityEndTime, agent);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -213,20 +186,8 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
-		}
-	}
-
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
-			}
+			activityEndsList.add(newActivityEndTime, agent);
 		}
-		return null;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
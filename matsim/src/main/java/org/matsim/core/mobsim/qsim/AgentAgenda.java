@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AgentAgenda.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.core.config.groups.QSimConfigGroup.AgendaType;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.collections.Tuple;
+
+/**
+ * The agents of the {@link ActivityEngine} and the {@link TeleportationEngine}, each with the time
+ * at which it leaves the engine. Agents with the same time leave in the order of their ids, the one
+ * with the larger id first.
+ * <p></p>
+ * The time is stored together with the agent when it is added, since the agent may report a different
+ * time later on (within-day replanning).
+ */
+/*package*/ abstract class AgentAgenda {
+
+	/*package*/ static final Comparator<Tuple<Double, MobsimAgent>> COMPARATOR = new Comparator<Tuple<Double, MobsimAgent>>() {
+		@Override
+		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
+			int cmp = Double.compare(o1.getFirst(), o2.getFirst());
+			if (cmp == 0) {
+				// Both depart at the same time -> let the one with the larger id be first (=smaller)
+				//
+				// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+				// to say that the agent with the larger ID should be "smaller" one in the comparison.
+				// In practice, it seems
+				// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+				// It is unclear why this convention is supposed to be helpful.
+				// kai & dominik, jul'12
+				//
+				return o2.getSecond().getId().compareTo(o1.getSecond().getId());
+			}
+			return cmp;
+		}
+	};
+
+	/**
+	 * @param threadSafe whether agents may be added and removed concurrently, as in the parallel qsim
+	 */
+	/*package*/ static AgentAgenda create(final AgendaType type, final boolean threadSafe) {
+		switch (type) {
+		case priorityQueue:
+			return new PriorityQueueAgentAgenda(threadSafe);
+		case calendarQueue:
+			return new CalendarQueueAgentAgenda();
+		default:
+			throw new RuntimeException("unknown agenda type: " + type);
+		}
+	}
+
+	/*package*/ abstract void add(double time, MobsimAgent agent);
+
+	/**
+	 * @return whether the agent was in the agenda
+	 */
+	/*package*/ abstract boolean remove(MobsimAgent agent);
+
+	/**
+	 * @return the next agent with a time not after <code>now</code>, removed from the agenda, or
+	 * <code>null</code> if there is none
+	 */
+	/*package*/ abstract MobsimAgent pollDue(double now);
+
+	/**
+	 * @return all agents in the agenda, together with their times
+	 */
+	/*package*/ abstract List<Tuple<Double, MobsimAgent>> getEntries();
+
+	/*package*/ abstract void clear();
+
+}
@@ -0,0 +1,246 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueAgentAgenda.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.collections.Tuple;
+
+/**
+ * {@link AgentAgenda} organized as a calendar queue: a ring of buckets, one per second of simulation
+ * time, covering the next {@value #NUMBER_OF_BUCKETS} seconds. Agents further in the future are kept
+ * in an overflow queue until the ring reaches them. Only the bucket of the current second is sorted,
+ * so adding an agent takes constant time. Removed agents are only marked as such and skipped later,
+ * so that removing and rescheduling agents takes constant time as well.
+ * <p></p>
+ * Agents with a time before the current bucket are put into the current bucket, so they are due
+ * immediately, in the same order as in a priority queue.
+ * <p></p>
+ * All methods are synchronized, so the agenda may be used by the parallel qsim.
+ */
+/*package*/ final class CalendarQueueAgentAgenda extends AgentAgenda {
+
+	/*package*/ static final int NUMBER_OF_BUCKETS = 1 << 17;
+	private static final int BUCKET_MASK = NUMBER_OF_BUCKETS - 1;
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			int cmp = Double.compare(o1.time, o2.time);
+			if (cmp == 0) {
+				return o2.agent.getId().compareTo(o1.agent.getId());
+			}
+			return cmp;
+		}
+	};
+
+	private static final class Entry {
+		final double time;
+		final MobsimAgent agent;
+		boolean removed = false;
+		boolean inOverflow = false;
+
+		Entry(final double time, final MobsimAgent agent) {
+			this.time = time;
+			this.agent = agent;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private final ArrayList<Entry>[] buckets = new ArrayList[NUMBER_OF_BUCKETS];
+	private final PriorityQueue<Entry> overflow = new PriorityQueue<>(100, ENTRY_COMPARATOR);
+	private final Map<MobsimAgent, Entry> entriesByAgent = new IdentityHashMap<>();
+
+	/** The second of the current bucket. The ring covers the seconds [currentSecond, currentSecond + NUMBER_OF_BUCKETS). */
+	private long currentSecond = 0;
+	/** The entries of the current bucket before this index were already polled. */
+	private int currentHead = 0;
+	private boolean currentSorted = false;
+	private int numberOfEntriesInRing = 0;
+	private int numberOfEntries = 0;
+
+	@Override
+	/*package*/ synchronized void add(final double time, final MobsimAgent agent) {
+		Entry entry = new Entry(time, agent);
+		this.entriesByAgent.put(agent, entry);
+		this.numberOfEntries++;
+		if (toSecond(time) >= this.currentSecond + NUMBER_OF_BUCKETS) {
+			entry.inOverflow = true;
+			this.overflow.add(entry);
+		} else {
+			addToRing(entry);
+		}
+	}
+
+	@Override
+	/*package*/ synchronized boolean remove(final MobsimAgent agent) {
+		Entry entry = this.entriesByAgent.remove(agent);
+		if (entry == null) {
+			return false;
+		}
+		markRemoved(entry);
+		return true;
+	}
+
+	@Override
+	/*package*/ synchronized MobsimAgent pollDue(final double now) {
+		while (this.numberOfEntries > 0) {
+			ArrayList<Entry> bucket = this.buckets[bucketIndex(this.currentSecond)];
+			if (bucket != null && this.currentHead < bucket.size()) {
+				if (!this.currentSorted) {
+					Collections.sort(bucket.subList(this.currentHead, bucket.size()), ENTRY_COMPARATOR);
+					this.currentSorted = true;
+				}
+				Entry entry = bucket.get(this.currentHead);
+				if (entry.removed) {
+					bucket.set(this.currentHead++, null);
+					continue;
+				}
+				if (entry.time > now) {
+					return null;
+				}
+				bucket.set(this.currentHead++, null);
+				if (this.entriesByAgent.get(entry.agent) == entry) {
+					this.entriesByAgent.remove(entry.agent);
+				}
+				markRemoved(entry);
+				return entry.agent;
+			}
+
+			// the current bucket is exhausted
+			if (bucket != null) {
+				bucket.clear();
+			}
+			this.currentHead = 0;
+			this.currentSorted = false;
+			long nowSecond = toSecond(now);
+			if (this.currentSecond >= nowSecond) {
+				return null;
+			}
+			if (this.numberOfEntriesInRing == 0) {
+				// skip the empty buckets
+				this.currentSecond = Math.min(nowSecond, toSecond(peekOverflow().time));
+			} else {
+				this.currentSecond++;
+			}
+			moveFromOverflowToRing();
+		}
+		return null;
+	}
+
+	@Override
+	/*package*/ synchronized List<Tuple<Double, MobsimAgent>> getEntries() {
+		List<Entry> entries = new ArrayList<>(this.numberOfEntries);
+		for (ArrayList<Entry> bucket : this.buckets) {
+			if (bucket != null) {
+				for (Entry entry : bucket) {
+					if (entry != null && !entry.removed) {
+						entries.add(entry);
+					}
+				}
+			}
+		}
+		for (Entry entry : this.overflow) {
+			if (!entry.removed) {
+				entries.add(entry);
+			}
+		}
+		Collections.sort(entries, ENTRY_COMPARATOR);
+		List<Tuple<Double, MobsimAgent>> result = new ArrayList<>(entries.size());
+		for (Entry entry : entries) {
+			result.add(new Tuple<>(entry.time, entry.agent));
+		}
+		return result;
+	}
+
+	@Override
+	/*package*/ synchronized void clear() {
+		for (ArrayList<Entry> bucket : this.buckets) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+		this.overflow.clear();
+		this.entriesByAgent.clear();
+		this.currentHead = 0;
+		this.currentSorted = false;
+		this.numberOfEntriesInRing = 0;
+		this.numberOfEntries = 0;
+	}
+
+	private void addToRing(final Entry entry) {
+		long second = Math.max(toSecond(entry.time), this.currentSecond);
+		int index = bucketIndex(second);
+		ArrayList<Entry> bucket = this.buckets[index];
+		if (bucket == null) {
+			bucket = new ArrayList<>(4);
+			this.buckets[index] = bucket;
+		}
+		bucket.add(entry);
+		if (second == this.currentSecond) {
+			this.currentSorted = false;
+		}
+		this.numberOfEntriesInRing++;
+	}
+
+	private void markRemoved(final Entry entry) {
+		entry.removed = true;
+		this.numberOfEntries--;
+		if (!entry.inOverflow) {
+			this.numberOfEntriesInRing--;
+		}
+	}
+
+	private Entry peekOverflow() {
+		Entry entry = this.overflow.peek();
+		while (entry != null && entry.removed) {
+			this.overflow.poll();
+			entry = this.overflow.peek();
+		}
+		return entry;
+	}
+
+	private void moveFromOverflowToRing() {
+		Entry entry = peekOverflow();
+		while (entry != null && toSecond(entry.time) < this.currentSecond + NUMBER_OF_BUCKETS) {
+			this.overflow.poll();
+			entry.inOverflow = false;
+			addToRing(entry);
+			entry = peekOverflow();
+		}
+	}
+
+	private static long toSecond(final double time) {
+		return (long) Math.floor(time);
+	}
+
+	private static int bucketIndex(final long second) {
+		return (int) (second & BUCKET_MASK);
+	}
+
+}
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PriorityQueueAgentAgenda.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.collections.Tuple;
+
+/**
+ * {@link AgentAgenda} backed by a priority queue. Removing an agent needs a linear search.
+ */
+/*package*/ final class PriorityQueueAgentAgenda extends AgentAgenda {
+
+	private final Queue<Tuple<Double, MobsimAgent>> queue;
+
+	/*package*/ PriorityQueueAgentAgenda(final boolean threadSafe) {
+		if (threadSafe) {
+			/*
+			 * This needs to be a "blocking" queue since this is needed for
+			 * thread-safety in the parallel qsim. cdobler, oct'10
+			 */
+			this.queue = new PriorityBlockingQueue<>(500, COMPARATOR);
+		} else {
+			this.queue = new PriorityQueue<>(30, COMPARATOR);
+		}
+	}
+
+	@Override
+	/*package*/ void add(final double time, final MobsimAgent agent) {
+		this.queue.add(new Tuple<>(time, agent));
+	}
+
+	@Override
+	/*package*/ boolean remove(final MobsimAgent agent) {
+		Iterator<Tuple<Double, MobsimAgent>> iterator = this.queue.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getSecond() == agent) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	/*package*/ MobsimAgent pollDue(final double now) {
+		Tuple<Double, MobsimAgent> entry = this.queue.peek();
+		if (entry != null && entry.getFirst() <= now) {
+			return this.queue.poll().getSecond();
+		}
+		return null;
+	}
+
+	@Override
+	/*package*/ List<Tuple<Double, MobsimAgent>> getEntries() {
+		return new ArrayList<>(this.queue);
+	}
+
+	@Override
+	/*package*/ void clear() {
+		this.queue.clear();
+	}
+
+}
@@ -31,18 +31,7 @@ public final class TeleportationEngine implements DepartureHandler, MobsimEngine
 VisData {
 	private static final Logger log = Logger.getLogger( TeleportationEngine.class ) ;
 	
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
-
-		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond().getId().compareTo(o1.getSecond().getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
-		}
-	});
+	private final AgentAgenda teleportationList;
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -56,6 +45,7 @@ VisData {
 		this.eventsManager = eventsManager;
 		
 		withTravelTimeCheck = scenario.getConfig().qsim().isUsingTravelTimeCheckInTeleportation() ;
+		teleportationList = AgentAgenda.create(scenario.getConfig().qsim().getAgendaType(), false);
 	}
 
 	@Override
@@ -75,7 +65,7 @@ VisData {
 		}
     	
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		this.teleportationList.add(arrivalTime, agent);
 		
 		// === below here is only visualization, no dynamics ===
 		Id<Person> agentId = agent.getId();
@@ -106,21 +96,15 @@ VisData {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		while (teleportationList.peek() != null) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
-						.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
-			} else {
-				break;
-			}
+		MobsimAgent personAgent;
+		while ((personAgent = teleportationList.pollDue(now)) != null) {
+			personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
+					.getDestinationLinkId());
+			double distance = personAgent.getExpectedTravelDistance();
+			this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
+			personAgent.endLegAndComputeNextState(now);
+			this.teleportationData.remove(personAgent.getId());
+			internalInterface.arrangeNextAgentState(personAgent);
 		}
 	}
 
@@ -132,7 +116,7 @@ VisData {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
+		for (Tuple<Double, MobsimAgent> entry : teleportationList.getEntries()) {
 			MobsimAgent agent = entry.getSecond();
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
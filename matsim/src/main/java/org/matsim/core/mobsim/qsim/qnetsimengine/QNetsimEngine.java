@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -42,11 +43,13 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
@@ -129,6 +132,30 @@ public class QNetsimEngine implements MobsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final NetsimPartitioning partitioning;
+
+	/*
+	 * With spatial partitioning and the thread pool, the network is split into more partitions than there are threads.  A thread
+	 * that is done with its partition then takes the next one from the pool's queue, which balances the load between the threads.
+	 */
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	private List<QNetsimEngineRunner> scheduledEngines;
+
+	private final Comparator<QNetsimEngineRunner> slowestNodesFirst = new Comparator<QNetsimEngineRunner>() {
+		@Override
+		public int compare(QNetsimEngineRunner o1, QNetsimEngineRunner o2) {
+			return Long.compare(o2.getLastMoveNodesTime(), o1.getLastMoveNodesTime());
+		}
+	};
+
+	private final Comparator<QNetsimEngineRunner> slowestLinksFirst = new Comparator<QNetsimEngineRunner>() {
+		@Override
+		public int compare(QNetsimEngineRunner o1, QNetsimEngineRunner o2) {
+			return Long.compare(o2.getLastMoveLinksTime(), o1.getLastMoveLinksTime());
+		}
+	};
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -150,6 +177,7 @@ public class QNetsimEngine implements MobsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.partitioning = qsimConfigGroup.getNetsimPartitioning();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -326,13 +354,20 @@ public class QNetsimEngine implements MobsimEngine {
 				for (QNetsimEngineRunner engine : this.engines) {
 					engine.setMovingNodes(true);
 				}
-				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
+				if (this.scheduledEngines != this.engines) {
+					// longest processing time first, based on the run times measured in the previous time step
+					Collections.sort(this.scheduledEngines, this.slowestNodesFirst);
+				}
+				for (Future<Boolean> future : pool.invokeAll(this.scheduledEngines)) {
 					future.get();
 				}
 				for (QNetsimEngineRunner engine : this.engines) {
 					engine.setMovingNodes(false);
 				}
-				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
+				if (this.scheduledEngines != this.engines) {
+					Collections.sort(this.scheduledEngines, this.slowestLinksFirst);
+				}
+				for (Future<Boolean> future : pool.invokeAll(this.scheduledEngines)) {
 					future.get();
 				}
 			} catch (InterruptedException e) {
@@ -436,6 +471,9 @@ public class QNetsimEngine implements MobsimEngine {
 			// The number of runners should be larger than the number of threads, yes,
 			// but see MATSIM-404 - Simulation result still depends on the number of runners.
 //			numOfRunners *= 10 ;
+			if (this.partitioning == NetsimPartitioning.spatial) {
+				numOfRunners *= PARTITIONS_PER_THREAD;
+			}
 			this.pool = Executors.newFixedThreadPool(
 					this.numOfThreads,
 					new NamedThreadFactory());
@@ -456,6 +494,12 @@ public class QNetsimEngine implements MobsimEngine {
 			this.engines.add(engine);
 		}
 
+		if (this.usingThreadpool && this.partitioning == NetsimPartitioning.spatial) {
+			this.scheduledEngines = new ArrayList<>(this.engines);
+		} else {
+			this.scheduledEngines = this.engines;
+		}
+
 		/*
 		 *  Assign every Link and Node to an Activator. By doing so, the
 		 *  activateNode(...) and activateLink(...) methods in this class
@@ -475,9 +519,19 @@ public class QNetsimEngine implements MobsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
+		List<QNode> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		int[] partitions = null;
+		if (this.partitioning == NetsimPartitioning.spatial) {
+			List<Node> nodesToPartition = new ArrayList<>(qNodes.size());
+			for (QNode node : qNodes) {
+				nodesToPartition.add(node.getNode());
+			}
+			partitions = SpatialNetworkPartitioner.partition(nodesToPartition, this.numOfRunners);
+		}
+
 		int roundRobin = 0;
-		for (QNode node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		for (QNode node : qNodes) {
+			int i = partitions == null ? roundRobin % this.numOfRunners : partitions[roundRobin];
 			node.setNetElementActivationRegistry(this.engines.get(i));
 			nodes[i]++;
 
@@ -76,6 +76,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Run times of the last node and link phase when used with the thread pool.  The QNetsimEngine uses them to start the 
+	 * slowest runners first.
+	 */
+	private long lastMoveNodesTime = 0;
+	private long lastMoveLinksTime = 0;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -116,10 +123,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
+		long start = System.nanoTime();
 		if (this.movingNodes) {
 			moveNodes();
+			this.lastMoveNodesTime = System.nanoTime() - start;
 		} else {
 			moveLinks();
+			this.lastMoveLinksTime = System.nanoTime() - start;
 		}
 		return true ;
 	}
@@ -232,4 +242,12 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/*package*/ long getLastMoveNodesTime() {
+		return this.lastMoveNodesTime;
+	}
+
+	/*package*/ long getLastMoveLinksTime() {
+		return this.lastMoveLinksTime;
+	}
 }
\ No newline at end of file
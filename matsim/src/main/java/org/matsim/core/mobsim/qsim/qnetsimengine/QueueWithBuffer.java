@@ -19,10 +19,11 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 
 import org.apache.log4j.Logger;
@@ -153,7 +154,9 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	private double usedBufferStorageCapacity = 0.0 ;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>();
+	/** Holes that arrived at the upstream end of the link, kept for re-use so that moving vehicles does not create garbage. */
+	private final Deque<QueueWithBuffer.Hole> unusedHoles = new ArrayDeque<>();
 
 	private double freespeedTravelTime = Double.NaN;
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
@@ -169,7 +172,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer = new ArrayDeque<>() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -433,6 +436,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		while ( this.holes.size()>0 && this.holes.peek().getEarliestLinkExitTime() < now ) {
 			Hole hole = this.holes.poll() ; // ???
 			this.remainingHolesStorageCapacity += hole.getSizeInEquivalents() ;
+			this.unusedHoles.push(hole) ;
 		}
 	}
 	
@@ -509,7 +513,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		}
 
 		if ( context.qsimConfig.getTrafficDynamics()==TrafficDynamics.withHoles ) {
-			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
+			QueueWithBuffer.Hole hole = this.unusedHoles.isEmpty() ? new QueueWithBuffer.Hole() : this.unusedHoles.pop() ;
 			double ttimeOfHoles = length*3600./HOLE_SPEED_KM_H/1000. ;
 			
 //			double offset = this.storageCapacity/this.flowCapacityPerTimeStep ;
@@ -721,6 +725,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		buffer.clear();
 		usedBufferStorageCapacity = 0;
 		
+		unusedHoles.addAll(holes);
 		holes.clear();
 		this.remainingHolesStorageCapacity = this.storageCapacity;
 	}
@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpatialNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Splits the nodes of a network into a given number of spatially compact partitions of
+ * (approximately) equal load, using weighted recursive coordinate bisection.
+ * <p></p>
+ * The load of a node is estimated as one unit for the node itself plus one unit per
+ * out-link, since a {@link QNetsimEngineRunner} handles a node together with its out-links.
+ * Compact partitions mean that fewer links cross partition boundaries, i.e. fewer nodes
+ * are activated from other runners.
+ */
+final class SpatialNetworkPartitioner {
+
+	private SpatialNetworkPartitioner() {
+		// static helper
+	}
+
+	/**
+	 * @return for every node in <code>nodes</code> (same order) the index of the partition it is
+	 * assigned to, in the range <code>[0, numberOfPartitions)</code>.
+	 */
+	static int[] partition(final List<? extends Node> nodes, final int numberOfPartitions) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("number of partitions must be strictly positive, got " + numberOfPartitions);
+		}
+		final int n = nodes.size();
+		final double[] x = new double[n];
+		final double[] y = new double[n];
+		final double[] weight = new double[n];
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			Node node = nodes.get(i);
+			x[i] = node.getCoord().getX();
+			y[i] = node.getCoord().getY();
+			weight[i] = 1.0 + node.getOutLinks().size();
+			order[i] = i;
+		}
+		int[] partitions = new int[n];
+		bisect(order, 0, n, 0, numberOfPartitions, x, y, weight, partitions);
+		return partitions;
+	}
+
+	private static void bisect(final Integer[] order, final int from, final int to, final int firstPartition, final int numberOfPartitions,
+			final double[] x, final double[] y, final double[] weight, final int[] partitions) {
+		if (numberOfPartitions == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				partitions[order[i]] = firstPartition;
+			}
+			return;
+		}
+
+		// split along the longer extent of the bounding box
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0.0;
+		for (int i = from; i < to; i++) {
+			int idx = order[i];
+			minX = Math.min(minX, x[idx]);
+			maxX = Math.max(maxX, x[idx]);
+			minY = Math.min(minY, y[idx]);
+			maxY = Math.max(maxY, y[idx]);
+			totalWeight += weight[idx];
+		}
+		final double[] coords = (maxX - minX >= maxY - minY) ? x : y;
+		final double[] otherCoords = (coords == x) ? y : x;
+		Arrays.sort(order, from, to, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int cmp = Double.compare(coords[o1], coords[o2]);
+				if (cmp == 0) {
+					cmp = Double.compare(otherCoords[o1], otherCoords[o2]);
+				}
+				return cmp != 0 ? cmp : Integer.compare(o1, o2);
+			}
+		});
+
+		// the left half gets the share of the weight corresponding to its share of the partitions
+		final int leftPartitions = numberOfPartitions / 2;
+		final double leftTarget = totalWeight * leftPartitions / numberOfPartitions;
+		double leftWeight = 0.0;
+		int split = from;
+		while (split < to - 1 && leftWeight + weight[order[split]] / 2 < leftTarget) {
+			leftWeight += weight[order[split]];
+			split++;
+		}
+		if (split == from) {
+			split++;
+		}
+
+		bisect(order, from, split, firstPartition, leftPartitions, x, y, weight, partitions);
+		bisect(order, split, to, firstPartition + leftPartitions, numberOfPartitions - leftPartitions, x, y, weight, partitions);
+	}
+
+}
@@ -19,14 +19,18 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
 
 import java.util.AbstractQueue;
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.LinkedList;
 
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 
+/**
+ * First-in-first-out vehicle queue.  It is backed by a circular array that only grows, so adding and removing
+ * vehicles does not create any garbage once the queue has reached its maximum size.
+ */
 public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle>  {
 	
-	private final LinkedList<QVehicle> vehicleQueue = new LinkedList<>();
+	private final ArrayDeque<QVehicle> vehicleQueue = new ArrayDeque<>();
 
 	@Override
 	public boolean offer(QVehicle e) {
@@ -43,6 +47,17 @@ public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements Vehic
 		return vehicleQueue.poll();
 	}
 
+	@Override
+	public boolean remove(Object o) {
+		// (the AbstractCollection implementation would create an iterator; the vehicle is usually the first one)
+		return vehicleQueue.removeFirstOccurrence(o);
+	}
+
+	@Override
+	public void clear() {
+		vehicleQueue.clear();
+	}
+
 	@Override
 	public Iterator<QVehicle> iterator() {
 		return vehicleQueue.iterator();
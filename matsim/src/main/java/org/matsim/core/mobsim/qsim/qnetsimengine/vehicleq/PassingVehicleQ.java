@@ -32,6 +32,17 @@ public final class PassingVehicleQ extends AbstractQueue<QVehicle> implements Ve
 		return delegate.poll();
 	}
 
+	@Override
+	public boolean remove(Object o) {
+		// (the AbstractCollection implementation would create an iterator)
+		return delegate.remove(o);
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+	}
+
 	@Override
 	public void addFirst(QVehicle qveh) {
 		qveh.setEarliestLinkExitTime(Double.NEGATIVE_INFINITY);
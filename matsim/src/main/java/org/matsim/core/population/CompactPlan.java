@@ -0,0 +1,408 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * A plan that can store its activities and legs in a few primitive arrays instead of one object per activity, leg,
+ * coordinate and route. Activity types and modes are encoded as indices into a dictionary, links, facilities and
+ * vehicles by the index of their {@link Id}, and network routes as arrays of link indices.
+ * <p></p>
+ * The plan elements are only created when {@link #getPlanElements()} is called, so code working on plans does not have to
+ * know about this class. They are kept until the plan is compacted again with {@link #compact()}. Code that only reads
+ * the plan elements, like the population writers, can use {@link #getPlanElementsWithoutExpanding()} instead, so
+ * the plan stays compact. Plan elements with
+ * attributes, and routes that are not network routes, are kept as objects. Plans with ids that were created for another
+ * type than they are used for (e.g. passed on through an unchecked cast) are not compacted, since the index of such an id
+ * refers to the ids of the other type.
+ * <p></p>
+ * Note that the activities and legs of a plan are new objects after every compaction.
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private static final int ACTIVITY = 0;
+	private static final int LEG = 1;
+
+	private static final int NO_COORD = 0;
+	private static final int COORD_XY = 1;
+	private static final int COORD_XYZ = 2;
+
+	private static final int NO_ROUTE = 0;
+	private static final int NETWORK_ROUTE = 1;
+	private static final int OTHER_ROUTE = 2;
+
+	private static final int NULL = -1;
+
+	private final RouteFactories routeFactories;
+	private final StringDictionary strings;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Customizable customizableDelegate;
+
+	/** <code>null</code> if the plan is compact */
+	private volatile List<PlanElement> planElements = new ArrayList<>();
+	private int[] ints = null;
+	private double[] doubles = null;
+	private Object[] objects = null;
+
+	/* deliberately package */ CompactPlan(final RouteFactories routeFactories, final StringDictionary strings) {
+		this.routeFactories = routeFactories;
+		this.strings = strings;
+	}
+
+	@Override
+	public final Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public final Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public final List<PlanElement> getPlanElements() {
+		List<PlanElement> elements = this.planElements;
+		if (elements == null) {
+			synchronized (this) {
+				elements = this.planElements;
+				if (elements == null) {
+					elements = expand();
+					this.ints = null;
+					this.doubles = null;
+					this.objects = null;
+					this.planElements = elements;
+				}
+			}
+		}
+		return elements;
+	}
+
+	@Override
+	public final void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public final void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public final Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	/* deliberately package */ boolean isCompact() {
+		return this.planElements == null;
+	}
+
+	/**
+	 * @return the plan elements without storing them in this plan if it is compact. In this case, the returned list
+	 * cannot be modified, and changes to the plan elements are lost.
+	 */
+	/* deliberately package */ synchronized List<PlanElement> getPlanElementsWithoutExpanding() {
+		List<PlanElement> elements = this.planElements;
+		if (elements == null) {
+			return Collections.unmodifiableList(expand());
+		}
+		return elements;
+	}
+
+	/**
+	 * Stores the plan elements in arrays, if they are all of a supported type.
+	 *
+	 * @return <code>true</code> if the plan is compact afterwards.
+	 */
+	/* deliberately package */ synchronized boolean compact() {
+		List<PlanElement> elements = this.planElements;
+		if (elements == null) {
+			return true;
+		}
+		TIntArrayList intList = new TIntArrayList(elements.size() * 6);
+		TDoubleArrayList doubleList = new TDoubleArrayList(elements.size() * 4);
+		List<Object> objectList = new ArrayList<>();
+		Class<?> networkRouteClass = null;
+		for (PlanElement pe : elements) {
+			if (pe instanceof ActivityImpl) {
+				ActivityImpl act = (ActivityImpl) pe;
+				if (!AttributesUtils.isEmpty(act.getAttributes()) || act.getType() == null
+						|| !isIndexed(act.getLinkId(), Link.class) || !isIndexed(act.getFacilityId(), ActivityFacility.class)) {
+					return false;
+				}
+				intList.add(ACTIVITY);
+				intList.add(this.strings.getIndex(act.getType()));
+				intList.add(act.getLinkId() == null ? NULL : act.getLinkId().index());
+				intList.add(act.getFacilityId() == null ? NULL : act.getFacilityId().index());
+				doubleList.add(act.getStartTime());
+				doubleList.add(act.getEndTime());
+				doubleList.add(act.getMaximumDuration());
+				Coord coord = act.getCoord();
+				if (coord == null) {
+					intList.add(NO_COORD);
+				} else {
+					intList.add(coord.hasZ() ? COORD_XYZ : COORD_XY);
+					doubleList.add(coord.getX());
+					doubleList.add(coord.getY());
+					if (coord.hasZ()) {
+						doubleList.add(coord.getZ());
+					}
+				}
+			} else if (pe instanceof LegImpl) {
+				LegImpl leg = (LegImpl) pe;
+				if (!AttributesUtils.isEmpty(leg.getAttributes())) {
+					return false;
+				}
+				intList.add(LEG);
+				intList.add(this.strings.getIndex(leg.getMode()));
+				doubleList.add(leg.getDepartureTime());
+				doubleList.add(leg.getTravelTime());
+				Route route = leg.getRoute();
+				if (route == null) {
+					intList.add(NO_ROUTE);
+					continue;
+				}
+				if (route instanceof NetworkRoute && networkRouteClass == null) {
+					networkRouteClass = this.routeFactories.createRoute(NetworkRoute.class, null, null).getClass();
+				}
+				if (route.getClass() == networkRouteClass) {
+					NetworkRoute networkRoute = (NetworkRoute) route;
+					if (!isIndexed(networkRoute.getStartLinkId(), Link.class) || !isIndexed(networkRoute.getEndLinkId(), Link.class)
+							|| !isIndexed(networkRoute.getVehicleId(), Vehicle.class)) {
+						return false;
+					}
+					intList.add(NETWORK_ROUTE);
+					intList.add(networkRoute.getStartLinkId() == null ? NULL : networkRoute.getStartLinkId().index());
+					intList.add(networkRoute.getEndLinkId() == null ? NULL : networkRoute.getEndLinkId().index());
+					intList.add(networkRoute.getVehicleId() == null ? NULL : networkRoute.getVehicleId().index());
+					List<Id<Link>> linkIds = networkRoute.getLinkIds();
+					intList.add(linkIds.size());
+					for (Id<Link> linkId : linkIds) {
+						if (!isIndexed(linkId, Link.class)) {
+							return false;
+						}
+						intList.add(linkId.index());
+					}
+					doubleList.add(networkRoute.getDistance());
+					doubleList.add(networkRoute.getTravelTime());
+					doubleList.add(networkRoute.getTravelCost());
+				} else {
+					intList.add(OTHER_ROUTE);
+					intList.add(objectList.size());
+					objectList.add(route);
+				}
+			} else {
+				return false;
+			}
+		}
+		this.ints = intList.toArray();
+		this.doubles = doubleList.toArray();
+		this.objects = objectList.isEmpty() ? null : objectList.toArray();
+		this.planElements = null;
+		return true;
+	}
+
+	/**
+	 * Creates a copy of this plan. If this plan is compact, the copy is compact as well, without creating
+	 * the plan elements.
+	 */
+	/* deliberately package */ synchronized CompactPlan createCopy() {
+		CompactPlan copy = new CompactPlan(this.routeFactories, this.strings);
+		if (this.planElements == null) {
+			copy.setScore(this.score);
+			copy.setType(this.type);
+			copy.ints = this.ints.clone();
+			copy.doubles = this.doubles.clone();
+			if (this.objects != null) {
+				copy.objects = new Object[this.objects.length];
+				for (int i = 0; i < this.objects.length; i++) {
+					copy.objects[i] = ((Route) this.objects[i]).clone();
+				}
+			}
+			copy.planElements = null;
+		} else {
+			PopulationUtils.copyFromTo(this, copy);
+		}
+		return copy;
+	}
+
+	private List<PlanElement> expand() {
+		List<PlanElement> elements = new ArrayList<>();
+		int i = 0;
+		int d = 0;
+		while (i < this.ints.length) {
+			if (this.ints[i++] == ACTIVITY) {
+				ActivityImpl act = new ActivityImpl(this.strings.getString(this.ints[i++]));
+				act.setLinkId(getId(this.ints[i++], Link.class));
+				act.setFacilityId(getId(this.ints[i++], ActivityFacility.class));
+				act.setStartTime(this.doubles[d++]);
+				act.setEndTime(this.doubles[d++]);
+				act.setMaximumDuration(this.doubles[d++]);
+				int coordType = this.ints[i++];
+				if (coordType == COORD_XY) {
+					act.setCoord(new Coord(this.doubles[d], this.doubles[d + 1]));
+					d += 2;
+				} else if (coordType == COORD_XYZ) {
+					act.setCoord(new Coord(this.doubles[d], this.doubles[d + 1], this.doubles[d + 2]));
+					d += 3;
+				}
+				elements.add(act);
+			} else {
+				LegImpl leg = new LegImpl(this.strings.getString(this.ints[i++]));
+				leg.setDepartureTime(this.doubles[d++]);
+				leg.setTravelTime(this.doubles[d++]);
+				int routeType = this.ints[i++];
+				if (routeType == NETWORK_ROUTE) {
+					Id<Link> startLinkId = getId(this.ints[i++], Link.class);
+					Id<Link> endLinkId = getId(this.ints[i++], Link.class);
+					Id<Vehicle> vehicleId = getId(this.ints[i++], Vehicle.class);
+					List<Id<Link>> linkIds = new ArrayList<>(this.ints[i]);
+					for (int n = this.ints[i++]; n > 0; n--) {
+						linkIds.add(Id.get(this.ints[i++], Link.class));
+					}
+					NetworkRoute route = this.routeFactories.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+					route.setLinkIds(startLinkId, linkIds, endLinkId);
+					route.setVehicleId(vehicleId);
+					route.setDistance(this.doubles[d++]);
+					route.setTravelTime(this.doubles[d++]);
+					route.setTravelCost(this.doubles[d++]);
+					leg.setRoute(route);
+				} else if (routeType == OTHER_ROUTE) {
+					leg.setRoute((Route) this.objects[this.ints[i++]]);
+				}
+				elements.add(leg);
+			}
+		}
+		return elements;
+	}
+
+	private static <T> Id<T> getId(final int index, final Class<T> type) {
+		return index == NULL ? null : Id.get(index, type);
+	}
+
+	/**
+	 * @return <code>true</code> if the id is <code>null</code> or can be restored from its index, i.e. it was created for the given type.
+	 */
+	private static boolean isIndexed(final Id<?> id, final Class<?> type) {
+		return id == null || (id.index() < Id.getNumberOfIds(type) && Id.get(id.index(), type) == id);
+	}
+
+	@Override
+	public final String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+
+		return "[score=" + scoreString + "]" +
+				"[compact=" + isCompact() + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	/**
+	 * Activity types and modes of all plans created by one population factory. There are usually only a few different ones.
+	 */
+	/* deliberately package */ static final class StringDictionary {
+		private final Map<String, Integer> indices = new ConcurrentHashMap<>();
+		private volatile String[] strings = new String[0];
+
+		int getIndex(final String string) {
+			if (string == null) {
+				return NULL;
+			}
+			Integer index = this.indices.get(string);
+			if (index == null) {
+				synchronized (this) {
+					index = this.indices.get(string);
+					if (index == null) {
+						String[] newStrings = new String[this.strings.length + 1];
+						System.arraycopy(this.strings, 0, newStrings, 0, this.strings.length);
+						newStrings[this.strings.length] = string.intern();
+						index = this.strings.length;
+						this.strings = newStrings;
+						this.indices.put(newStrings[index], index);
+					}
+				}
+			}
+			return index;
+		}
+
+		String getString(final int index) {
+			return index == NULL ? null : this.strings[index];
+		}
+	}
+
+}
@@ -80,8 +80,15 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (oldPlan == null) {
 			return null;
 		}
-		Plan newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
-		PopulationUtils.copyFromTo(oldPlan, newPlan);
+		Plan newPlan;
+		if (oldPlan instanceof CompactPlan) {
+			// keep the storage type, and copy compact plans without creating the plan elements
+			newPlan = ((CompactPlan) oldPlan).createCopy();
+			newPlan.setPerson(oldPlan.getPerson());
+		} else {
+			newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+			PopulationUtils.copyFromTo(oldPlan, newPlan);
+		}
 		this.getPlans().add(newPlan);
 		this.setSelectedPlan(newPlan);
 		return newPlan;
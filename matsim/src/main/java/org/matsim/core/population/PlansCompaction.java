@@ -0,0 +1,59 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlansCompaction.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.StartupListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Compacts the plans after the population was loaded, and at the end of every iteration, i.e. after the plans
+ * were executed and scored. During the next iteration, only the plans that are used by replanning and the mobsim
+ * are expanded again. The population writers read compact plans without expanding them, so writing the plans does
+ * not expand the whole population.
+ */
+/* deliberately package */ class PlansCompaction implements StartupListener, IterationEndsListener {
+
+	private static final Logger log = Logger.getLogger(PlansCompaction.class);
+
+	@Inject private Population population;
+
+	@Override
+	public void notifyStartup(StartupEvent event) {
+		compact();
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		compact();
+	}
+
+	private void compact() {
+		int cnt = PopulationUtils.compactPlans(this.population);
+		log.info(cnt + " plans are stored compactly.");
+	}
+
+}
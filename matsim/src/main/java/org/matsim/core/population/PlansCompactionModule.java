@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * TravelTimeInfoProvider.java
+ * PlansCompactionModule.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,15 +18,16 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.core.population;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.TravelTimeCollector.TravelTimeInfo;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.AbstractModule;
 
-public interface TravelTimeInfoProvider {
-	
-	/*package*/ TravelTimeInfo getTravelTimeData(final Id<Link> linkId);
-	
-	/*package*/ TravelTimeInfo getTravelTimeData(final Link link);
+public class PlansCompactionModule extends AbstractModule {
+	@Override
+	public void install() {
+		if ( getConfig().plans().getPlanStorage() == PlansConfigGroup.PlanStorage.compact ) {
+			addControlerListenerBinding().to(PlansCompaction.class);
+		}
+	}
 }
@@ -39,12 +39,20 @@ import org.matsim.core.population.routes.RouteFactory;
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private final boolean compactPlans;
+	private final CompactPlan.StringDictionary compactPlanStrings;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
-        this.routeFactory = routeFactory;
+        this(routeFactory, false);
     }
 
+	PopulationFactoryImpl(RouteFactories routeFactory, boolean compactPlans) {
+		this.routeFactory = routeFactory;
+		this.compactPlans = compactPlans;
+		this.compactPlanStrings = compactPlans ? new CompactPlan.StringDictionary() : null;
+	}
+
     @Override
 	public Person createPerson(final Id<Person> id) {
         return new PersonImpl(id) ;
@@ -52,6 +60,9 @@ import org.matsim.core.population.routes.RouteFactory;
 
 	@Override
 	public Plan createPlan(){
+		if ( this.compactPlans ) {
+			return new CompactPlan(this.routeFactory, this.compactPlanStrings) ;
+		}
 		return new PlanImpl() ;
 	}
 
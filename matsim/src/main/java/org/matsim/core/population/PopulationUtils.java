@@ -121,7 +121,8 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		boolean compactPlans = plansConfigGroup.getPlanStorage() == PlansConfigGroup.PlanStorage.compact;
+		return new PopulationImpl(new PopulationFactoryImpl(routeFactory, compactPlans));
 	}
 	
 //	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -140,6 +141,37 @@ public final class PopulationUtils {
 //		return new Population(new PopulationFactoryImpl(routeFactory));
 //	}
 
+	/**
+	 * Compacts the plans of the population, if the population was created with
+	 * {@link PlansConfigGroup.PlanStorage#compact}. Plans with plan elements that cannot be compacted are left as they are.
+	 *
+	 * @return the number of compact plans.
+	 */
+	public static int compactPlans( Population population ) {
+		int cnt = 0 ;
+		for ( Person person : population.getPersons().values() ) {
+			for ( Plan plan : person.getPlans() ) {
+				if ( plan instanceof CompactPlan && ((CompactPlan) plan).compact() ) {
+					cnt++ ;
+				}
+			}
+		}
+		return cnt ;
+	}
+
+	/**
+	 * Returns the plan elements of a plan for reading. In contrast to {@link Plan#getPlanElements()}, compact plans
+	 * (see {@link PlansConfigGroup.PlanStorage#compact}) stay compact, so e.g. writing the whole population does not
+	 * expand all plans at the same time. The returned list of a compact plan cannot be modified, and changes to its
+	 * plan elements are lost.
+	 */
+	public static List<PlanElement> getPlanElementsWithoutExpanding( Plan plan ) {
+		if ( plan instanceof CompactPlan ) {
+			return ((CompactPlan) plan).getPlanElementsWithoutExpanding() ;
+		}
+		return plan.getPlanElements() ;
+	}
+
 	public static Leg unmodifiableLeg( Leg leg ) {
 		return new UnmodifiableLeg( leg ) ;
 	}
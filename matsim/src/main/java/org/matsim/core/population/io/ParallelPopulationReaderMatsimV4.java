@@ -199,14 +199,14 @@ import org.xml.sax.helpers.AttributesImpl;
 		}
 	}
 	
-	private static class CollectorScenario implements Scenario {
+	/*package*/ static class CollectorScenario implements Scenario {
 		// yyyy Why is this necessary at all?  Could you please explain your design decisions?  The same instance is passed to all threads, so 
 		// what is the difference to using the underlying population directly?
 		
 		private final Scenario delegate;
-		private final CollectorPopulation population;
+		private final Population population;
 		
-		public CollectorScenario(Scenario scenario, CollectorPopulation population) {
+		public CollectorScenario(Scenario scenario, Population population) {
 			this.delegate = scenario;
 			this.population = population;
 		}
@@ -0,0 +1,331 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV5V6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel reader for the population_v5 and population_v6 formats. The main thread only reads the
+ * file and collects the xml data of each person. The persons are then interpreted by several threads,
+ * each with its own {@link PopulationReaderMatsimV5} or {@link PopulationReaderMatsimV6}. The finished
+ * persons are added to the population by the main thread, in the order of the file.
+ * <p></p>
+ * In contrast to the {@link ParallelPopulationReaderMatsimV4}, this also works with population streaming:
+ * the algorithms of the {@link StreamingPopulationReader} are run by the main thread, on one person after
+ * the other. Only a limited number of persons is read ahead, so the memory consumption stays bounded.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV5V6 extends MatsimXmlParser implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV5V6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+
+	/** The number of persons per thread that may be read ahead of the person added last to the population. */
+	private final static int MAX_PENDING_PERSONS_PER_THREAD = 1000;
+
+	private final static PersonJob END_PROCESSING = new PersonJob(null);
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Scenario scenario;
+	private final boolean v6;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final int numThreads;
+
+	/** reads everything outside of the persons, e.g. the attributes of the population */
+	private final MatsimXmlParser delegate;
+	private final BlockingQueue<PersonJob> queue = new LinkedBlockingQueue<>();
+	private final Queue<PersonJob> pendingJobs = new ArrayDeque<>();
+	private Thread[] threads = null;
+	private List<Tag> currentPersonXmlData = null;
+
+	public ParallelPopulationReaderMatsimV5V6(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario,
+			final boolean v6) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.scenario = scenario;
+		this.v6 = v6;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+		this.delegate = createReader(scenario);
+	}
+
+	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		this.attributeConverters.putAll( converters );
+		if ( this.v6 ) {
+			((PopulationReaderMatsimV6) this.delegate).putAttributeConverters( converters );
+		}
+	}
+
+	private MatsimXmlParser createReader(final Scenario readerScenario) {
+		if ( this.v6 ) {
+			PopulationReaderMatsimV6 reader = new PopulationReaderMatsimV6(this.coordinateTransformation, readerScenario);
+			reader.putAttributeConverters(this.attributeConverters);
+			return reader;
+		}
+		return new PopulationReaderMatsimV5(this.coordinateTransformation, readerScenario);
+	}
+
+	private void initThreads() {
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			PersonCollector collector = new PersonCollector(this.scenario.getPopulation());
+			MatsimXmlParser reader = createReader(new ParallelPopulationReaderMatsimV4.CollectorScenario(this.scenario, collector));
+			Thread thread = new Thread(new Runner(reader, collector, this.queue));
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV5V6.class.getSimpleName() + "." + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.currentPersonXmlData != null) {
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentPersonXmlData.add(new Tag(true, name, new AttributesImpl(atts), null));
+		} else if (PERSON.equals(name)) {
+			if (this.threads == null) {
+				log.info("Start parallel population reading with " + this.numThreads + " threads...");
+				initThreads();
+			}
+			this.currentPersonXmlData = new ArrayList<>();
+			this.currentPersonXmlData.add(new Tag(true, name, new AttributesImpl(atts), null));
+		} else {
+			this.delegate.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.currentPersonXmlData != null) {
+			this.currentPersonXmlData.add(new Tag(false, name, null, content));
+			if (PERSON.equals(name)) {
+				PersonJob job = new PersonJob(this.currentPersonXmlData);
+				this.currentPersonXmlData = null;
+				this.pendingJobs.add(job);
+				this.queue.add(job);
+				addFinishedPersons(false);
+			}
+		} else if (POPULATION.equals(name)) {
+			addFinishedPersons(true);
+			stopThreads();
+			this.delegate.endTag(name, content, context);
+			log.info("Finished parallel population reading...");
+		} else {
+			this.delegate.endTag(name, content, context);
+		}
+	}
+
+	/**
+	 * Adds the finished persons at the head of the pending ones to the population. Waits for the
+	 * head if too many persons are pending, or if <code>all</code> is set.
+	 */
+	private void addFinishedPersons(final boolean all) {
+		PersonJob job;
+		while ((job = this.pendingJobs.peek()) != null) {
+			if (job.done.getCount() > 0 && !all && this.pendingJobs.size() <= MAX_PENDING_PERSONS_PER_THREAD * this.numThreads) {
+				return;
+			}
+			try {
+				job.done.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			this.pendingJobs.poll();
+			if (job.exception != null) {
+				stopThreads();
+				throw new RuntimeException("Exception while reading a person.", job.exception);
+			}
+			this.scenario.getPopulation().addPerson(job.person);
+		}
+	}
+
+	private void stopThreads() {
+		if (this.threads == null) {
+			return;
+		}
+		for (int i = 0; i < this.threads.length; i++) {
+			this.queue.add(END_PROCESSING);
+		}
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.threads = null;
+	}
+
+	private static final class Tag {
+		final boolean isStart;
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final boolean isStart, final String name, final Attributes atts, final String content) {
+			this.isStart = isStart;
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	private static final class PersonJob {
+		final List<Tag> tags;
+		final CountDownLatch done = new CountDownLatch(1);
+		Person person = null;
+		Throwable exception = null;
+
+		PersonJob(final List<Tag> tags) {
+			this.tags = tags;
+		}
+	}
+
+	/**
+	 * Interprets the xml data of the persons taken from the queue, until the end marker is found.
+	 */
+	private static final class Runner implements Runnable {
+		private final MatsimXmlParser reader;
+		private final PersonCollector collector;
+		private final BlockingQueue<PersonJob> queue;
+		private final Stack<String> context = new Stack<>();
+
+		Runner(final MatsimXmlParser reader, final PersonCollector collector, final BlockingQueue<PersonJob> queue) {
+			this.reader = reader;
+			this.collector = collector;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				PersonJob job;
+				try {
+					job = this.queue.take();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				if (job == END_PROCESSING) {
+					return;
+				}
+				try {
+					// replay the tags with the same context as the sequential parser would have
+					this.context.clear();
+					this.context.push(POPULATION);
+					for (Tag tag : job.tags) {
+						if (tag.isStart) {
+							this.reader.startTag(tag.name, tag.atts, this.context);
+							this.context.push(tag.name);
+						} else {
+							this.context.pop();
+							this.reader.endTag(tag.name, tag.content, this.context);
+						}
+					}
+					job.person = this.collector.person;
+				} catch (RuntimeException | Error e) {
+					job.exception = e;
+				} finally {
+					this.collector.person = null;
+					job.done.countDown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The population given to the readers of the threads. It only keeps the person read last.
+	 */
+	private static final class PersonCollector implements Population {
+
+		private final Population population;
+		Person person = null;
+
+		PersonCollector(final Population population) {
+			this.population = population;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.population.getFactory();
+		}
+
+		@Override
+		public ObjectAttributes getPersonAttributes() {
+			return this.population.getPersonAttributes();
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.person = p;
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Person removePerson(final Id<Person> personId) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public org.matsim.utils.objectattributes.attributable.Attributes getAttributes() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+	}
+
+}
@@ -102,18 +102,35 @@ public class PopulationReader extends MatsimXmlParser implements MatsimReader {
 		super.setDoctype(doctype);
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-								coordinateTransformation,
-								this.scenario);
-				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
+				if ( this.scenario.getConfig().global().getNumberOfThreads() > 1 ) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV5V6(
+									coordinateTransformation,
+									this.scenario,
+									true);
+					((ParallelPopulationReaderMatsimV5V6) delegate).putAttributeConverters( attributeConverters );
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+									coordinateTransformation,
+									this.scenario);
+					((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
+				}
 				log.info("using population_v6-reader.");
 				break;
 			case POPULATION_V5:
-				this.delegate =
-						new PopulationReaderMatsimV5(
-								coordinateTransformation,
-								this.scenario);
+				if ( this.scenario.getConfig().global().getNumberOfThreads() > 1 ) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV5V6(
+									coordinateTransformation,
+									this.scenario,
+									false);
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV5(
+									coordinateTransformation,
+									this.scenario);
+				}
 				log.info("using population_v5-reader.");
 				break;
 			case PLANS_V4:
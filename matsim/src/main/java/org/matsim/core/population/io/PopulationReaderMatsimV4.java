@@ -252,7 +252,12 @@ import org.xml.sax.Attributes;
 			throw new NumberFormatException("Attribute 'selected' of Element 'Plan' is neither 'yes' nor 'no'.");
 		}
 		this.routeDescription = null;
-		this.currplan = PersonUtils.createAndAddPlan(this.currperson, selected);
+		// use the factory of the population, as it decides how the plan is stored:
+		this.currplan = this.plans.getFactory().createPlan();
+		this.currperson.addPlan(this.currplan);
+		if (selected) {
+			this.currperson.setSelectedPlan(this.currplan);
+		}
 
 		String scoreString = atts.getValue("score");
 		if (scoreString != null) {
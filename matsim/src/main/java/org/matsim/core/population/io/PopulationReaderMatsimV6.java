@@ -242,7 +242,12 @@ import java.util.Stack;
 					"Attribute 'selected' of Element 'Plan' is neither 'yes' nor 'no'.");
 		}
 		this.routeDescription = null;
-		this.currplan = PersonUtils.createAndAddPlan(this.currperson, selected);
+		// use the factory of the population, as it decides how the plan is stored:
+		this.currplan = this.plans.getFactory().createPlan();
+		this.currperson.addPlan(this.currplan);
+		if (selected) {
+			this.currperson.setSelectedPlan(this.currplan);
+		}
 
 		String scoreString = atts.getValue(ATTR_PLAN_SCORE);
 		if (scoreString != null) {
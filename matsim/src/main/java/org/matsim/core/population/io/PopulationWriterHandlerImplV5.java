@@ -33,6 +33,7 @@ import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.io.MatsimXmlWriter;
 import org.matsim.core.utils.misc.Time;
@@ -72,7 +73,7 @@ import org.matsim.core.utils.misc.Time;
 		for (Plan plan : person.getPlans()) {
 			PopulationWriterHandlerImplV5.startPlan(plan, out);
 			// act/leg
-			for (PlanElement pe : plan.getPlanElements()) {
+			for (PlanElement pe : PopulationUtils.getPlanElementsWithoutExpanding(plan)) {
 				if (pe instanceof Activity) {
 					Activity act = (Activity) pe;
 					this.writeAct(act, out);
@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.io.MatsimXmlWriter;
 import org.matsim.core.utils.misc.Time;
@@ -80,7 +81,7 @@ import java.util.Map;
 		for (Plan plan : person.getPlans()) {
 			PopulationWriterHandlerImplV6.startPlan(plan, out);
 			// act/leg
-			for (PlanElement pe : plan.getPlanElements()) {
+			for (PlanElement pe : PopulationUtils.getPlanElementsWithoutExpanding(plan)) {
 				if (pe instanceof Activity) {
 					Activity act = (Activity) pe;
 					this.writeAct(act, out);
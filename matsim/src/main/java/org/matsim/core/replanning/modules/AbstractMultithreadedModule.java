@@ -24,14 +24,19 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningLoadBalancing;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
-import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * An abstract strategy module for running multiple plan algorithms in parallel.
@@ -40,15 +45,20 @@ import java.util.concurrent.atomic.AtomicReference;
  * Just overwrite getPlanAlgoInstance() to return an instance of your plan
  * algorithm.
  * <p/>
- * <code>initThreads()</code> creates the threads, but does not yet start them.
- * <p/>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
- * <p/>
- * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
- * <p/>
- * While this approach does not lead to optimal performance gains ("slow threads" vs.
+ * The plans are handled by the threads of a thread pool shared by all modules (see {@link ReplanningThreadPool}),
+ * so no threads are created per module and iteration. How the plans are distributed to the threads depends on
+ * the {@link ReplanningLoadBalancing}:
+ * <ul>
+ * <li> {@link ReplanningLoadBalancing#roundRobin roundRobin}: <code>prepareReplanning()</code> creates one plan algorithm
+ * per thread, <code>handlePlan(Plan)</code> distributes the plans equally to them, and <code>finishReplanning()</code>
+ * runs them and waits until all are finished. While this approach does not lead to optimal performance gains ("slow threads" vs.
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
- * started after all to-be-handled plans are added, we can use unsynchronized data structures.
+ * started after all to-be-handled plans are added, we can use unsynchronized data structures.</li>
+ * <li> {@link ReplanningLoadBalancing#workStealing workStealing}: the plans are split into small chunks, and idle threads
+ * steal chunks from busy ones, so a few plans that take long to handle do not delay the whole replanning. Which plan
+ * algorithm instance handles a plan is not deterministic. If {@link #isPlanAlgoInstanceReusable()} returns true, the
+ * plan algorithm instances are kept over the iterations, so e.g. routers do not need to reallocate their data.</li>
+ * </ul>
  * <p/>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
@@ -59,17 +69,17 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final ReplanningLoadBalancing loadBalancing;
 
 	private PlanAlgoThread[] algothreads = null;
-	private Thread[] threads = null;
+	private List<Plan> plans = null;
+	private final ConcurrentLinkedQueue<PlanAlgorithm> idleAlgos = new ConcurrentLinkedQueue<>();
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
+	private Counter counter = null;
 
 	private int count = 0;
 
-	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
-	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
-
 	private ReplanningContext replanningContext;
 
 	static final private Logger log = Logger.getLogger(AbstractMultithreadedModule.class);
@@ -83,11 +93,25 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningLoadBalancing());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, ReplanningLoadBalancing.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final ReplanningLoadBalancing loadBalancing) {
 		this.numOfThreads = numOfThreads;
+		this.loadBalancing = loadBalancing;
+	}
+
+	/**
+	 * Whether the instances returned by {@link #getPlanAlgoInstance()} may be used again in later iterations
+	 * (only with {@link ReplanningLoadBalancing#workStealing}). This is only possible if they do not depend
+	 * on the state of the iteration they were created in, e.g. on the {@link #getReplanningContext() replanning context}.
+	 */
+	protected boolean isPlanAlgoInstanceReusable() {
+		return false;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,6 +129,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+		} else if (this.loadBalancing == ReplanningLoadBalancing.workStealing) {
+			initAlgos();
 		} else {
 			initThreads();
 		}
@@ -117,11 +143,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	@Override
 	public final void handlePlan(final Plan plan) {
-		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+		if (this.directAlgo != null) {
+			this.directAlgo.run(plan);
+		} else if (this.plans != null) {
+			this.plans.add(plan);
 			this.count++;
 		} else {
-			this.directAlgo.run(plan);
+			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			this.count++;
 		}
 	}
 
@@ -138,79 +167,145 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
-
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
-			}
-
-			// wait until each thread is finished
-			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
-			Throwable throwable = this.hadException.get();
-			if (throwable != null) {
-				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+			if (this.plans != null) {
+				runChunks();
+			} else {
+				runThreads();
 			}
 		}
 		// reset
 		this.algothreads = null;
-		this.threads = null;
+		this.plans = null;
+		this.directAlgo = null;
+		this.counter = null;
 		this.replanningContext = null;
 		this.count = 0;
 		
 		this.afterFinishReplanningHook();
 	}
 
+	private void runThreads() {
+		log.info("[" + this.name + "] starting " + this.algothreads.length + " threads, handling " + this.count + " plans");
+		ForkJoinPool pool = ReplanningThreadPool.getPool(this.numOfThreads);
+		List<Future<?>> futures = new ArrayList<>(this.algothreads.length);
+		for (PlanAlgoThread algothread : this.algothreads) {
+			futures.add(pool.submit(algothread));
+		}
+
+		// wait until each thread is finished
+		Throwable throwable = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				log.error("[" + this.name + "] thread died with exception. Will stop after all threads finished.", e.getCause());
+				throwable = e.getCause();
+			}
+		}
+		log.info("[" + this.name + "] all " + this.algothreads.length + " threads finished.");
+		if (throwable != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		}
+	}
+
+	private void runChunks() {
+		log.info("[" + this.name + "] handling " + this.count + " plans with up to " + this.numOfThreads + " threads");
+		int chunkSize = Math.max(1, this.plans.size() / (16 * this.numOfThreads));
+		try {
+			ReplanningThreadPool.getPool(this.numOfThreads).invoke(new PlanChunk(0, this.plans.size(), chunkSize));
+		} catch (RuntimeException e) {
+			// the plan algorithms might be in an inconsistent state
+			this.idleAlgos.clear();
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", e);
+		}
+		log.info("[" + this.name + "] all plans handled.");
+		if (!isPlanAlgoInstanceReusable()) {
+			this.idleAlgos.clear();
+		}
+	}
+
 	private void initThreads() {
-		if (this.threads != null) {
+		if (this.algothreads != null) {
 			throw new RuntimeException("threads are already initialized");
 		}
 
-		this.hadException.set(null);
-		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
 
-		Counter counter = null;
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
 			PlanAlgorithm algo = getPlanAlgoInstance();
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
+				this.counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
-			Thread thread = new Thread(algothread, this.name + "." + i);
-			thread.setUncaughtExceptionHandler(this.exceptionHandler);
-			this.threads[i] = thread;
-			this.algothreads[i] = algothread;
+			this.algothreads[i] = new PlanAlgoThread(algo, this.counter);
 		}
 	}
 
+	/**
+	 * Creates the plan algorithm instances for the threads, unless there are still enough from
+	 * earlier iterations. Creating them here and not in the threads keeps the calls to
+	 * {@link #getPlanAlgoInstance()} single-threaded in the usual case.
+	 */
+	private void initAlgos() {
+		if (this.plans != null) {
+			throw new RuntimeException("threads are already initialized");
+		}
+		this.plans = new ArrayList<>();
+		while (this.idleAlgos.size() < this.numOfThreads) {
+			this.idleAlgos.add(getPlanAlgoInstance());
+		}
+		this.name = this.idleAlgos.peek().getClass().getSimpleName();
+		this.counter = new Counter("[" + this.name + "] handled plan # ");
+	}
+
+	private PlanAlgorithm borrowAlgo() {
+		PlanAlgorithm algo = this.idleAlgos.poll();
+		if (algo == null) {
+			// more threads than expected are active, e.g. compensation threads of the pool
+			synchronized (this) {
+				algo = getPlanAlgoInstance();
+			}
+		}
+		return algo;
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
 
-	private final static class ExceptionHandler implements UncaughtExceptionHandler {
+	/**
+	 * Handles a range of the plans, splitting it until the chunks are small enough.
+	 */
+	private final class PlanChunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
 
-		private final AtomicReference<Throwable> hadException;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
 
-		public ExceptionHandler(final AtomicReference<Throwable> hadException) {
-			this.hadException = hadException;
+		PlanChunk(final int from, final int to, final int chunkSize) {
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
 		}
 
 		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			log.error("Thread " + t.getName() + " died with exception. Will stop after all threads finished.", e);
-			this.hadException.set(e);
+		protected void compute() {
+			if (this.to - this.from > this.chunkSize) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PlanChunk(this.from, middle, this.chunkSize), new PlanChunk(middle, this.to, this.chunkSize));
+				return;
+			}
+			PlanAlgorithm algo = borrowAlgo();
+			for (int i = this.from; i < this.to; i++) {
+				algo.run(AbstractMultithreadedModule.this.plans.get(i));
+				AbstractMultithreadedModule.this.counter.incCounter();
+			}
+			AbstractMultithreadedModule.this.idleAlgos.add(algo);
 		}
-
 	}
 
 	private final static class PlanAlgoThread implements Runnable {
@@ -59,4 +59,13 @@ public class ReRoute extends AbstractMultithreadedModule {
 					facilities);
 	}
 
+	/**
+	 * The trip routers use the travel times and costs of the controler, which are updated in place
+	 * in every iteration, so the routers can be kept.
+	 */
+	@Override
+	protected boolean isPlanAlgoInstanceReusable() {
+		return true;
+	}
+
 }
@@ -0,0 +1,68 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReplanningThreadPool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thread pools used by all {@link AbstractMultithreadedModule}s. Strategy modules are usually
+ * not created by injection, so instead of being owned by the controler, there is one pool per
+ * number of threads, shared by all modules and iterations. The pools use daemon threads, and idle
+ * threads are retired by the pool after a while, so the pools do not need to be shut down.
+ */
+/*package*/ final class ReplanningThreadPool {
+
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+
+	private ReplanningThreadPool() {
+	}
+
+	/*package*/ static synchronized ForkJoinPool getPool(final int numberOfThreads) {
+		ForkJoinPool pool = pools.get(numberOfThreads);
+		if (pool == null) {
+			pool = new ForkJoinPool(numberOfThreads, new WorkerThreadFactory(numberOfThreads), null, false);
+			pools.put(numberOfThreads, pool);
+		}
+		return pool;
+	}
+
+	private static final class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+		private final String prefix;
+		private final AtomicInteger counter = new AtomicInteger(0);
+
+		WorkerThreadFactory(final int numberOfThreads) {
+			this.prefix = "replanning-" + numberOfThreads + ".";
+		}
+
+		@Override
+		public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+			ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {};
+			thread.setName(this.prefix + this.counter.getAndIncrement());
+			return thread;
+		}
+	}
+
+}
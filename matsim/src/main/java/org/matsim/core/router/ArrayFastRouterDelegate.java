@@ -28,35 +28,29 @@ import org.matsim.core.router.util.NodeDataFactory;
 
 /*package*/ class ArrayFastRouterDelegate extends AbstractFastRouterDelegate {
 
-	private final ArrayRoutingNetwork network;
+	/*
+	 * The routing network is shared by the routers of all threads, only the node data belongs to this router.
+	 * It is created when a node is reached for the first time, so routers that only explore a part of the
+	 * network (e.g. A*) only need data for that part.
+	 */
 	private final NodeData[] nodeData;
-	private boolean isInitialized = false;
 	
 	/*package*/ ArrayFastRouterDelegate(final Dijkstra dijkstra, final NodeDataFactory nodeDataFactory,
 			final ArrayRoutingNetwork network) {
 		super(dijkstra, nodeDataFactory);
-		this.network = network;
 		this.nodeData = new NodeData[network.getNodes().size()];
 	}
 
-	@Override
-	public final void initialize() {
-		// lazy initialization
-		if (!isInitialized) {
-			for (Node node : this.network.getNodes().values()) {
-				int index = ((ArrayRoutingNetworkNode) node).getArrayIndex();
-				this.nodeData[index] = nodeDataFactory.createNodeData();
-			}
-			
-			this.isInitialized = true;
-		}
-	}
-	
 	/*
 	 * The NodeData is taken from the array.
 	 */
 	public NodeData getData(final Node n) {
-		ArrayRoutingNetworkNode routingNetworkNode = (ArrayRoutingNetworkNode) n;
-		return this.nodeData[routingNetworkNode.getArrayIndex()];
+		int index = ((ArrayRoutingNetworkNode) n).getArrayIndex();
+		NodeData data = this.nodeData[index];
+		if (data == null) {
+			data = this.nodeDataFactory.createNodeData();
+			this.nodeData[index] = data;
+		}
+		return data;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least-cost path calculator based on contraction hierarchies.
+ * <p></p>
+ * The route is searched in the {@link ContractionHierarchy} of the time bin of the departure
+ * (see {@link PreProcessContractionHierarchies}), which is orders of magnitude faster than a
+ * Dijkstra search on large networks. The travel time and cost of the returned path are then
+ * calculated along the found links with the time-dependent travel time and disutility, so they are
+ * exact for the path. The path itself is optimal for the link costs in the middle of the time bin of
+ * the departure, which is a good approximation as long as the costs change slowly compared to the
+ * bin size.
+ * <p></p>
+ * An instance must not be used by multiple threads concurrently, but all instances created for the
+ * same network should share the pre-processed data. Every instance keeps the hierarchies for its
+ * travel disutility until the pre-processed hierarchies are cleared.
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final PreProcessContractionHierarchies preProcessData;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final ContractionHierarchy.Query query;
+	private final TIntArrayList edges = new TIntArrayList();
+	private final ContractionHierarchy[] hierarchies;
+	private int generation;
+
+	public ContractionHierarchies(final PreProcessContractionHierarchies preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.preProcessData = preProcessData;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.query = new ContractionHierarchy.Query(preProcessData.getNumberOfNodes());
+		this.hierarchies = new ContractionHierarchy[preProcessData.getNumberOfTimeBins()];
+		this.generation = preProcessData.getGeneration();
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.preProcessData.getNodeIndex(fromNode);
+		int to = this.preProcessData.getNodeIndex(toNode);
+		ContractionHierarchy ch = getHierarchy(this.preProcessData.getTimeBin(startTime));
+		double cost = this.query.calcLeastCostPath(ch, from, to, this.edges);
+		if (Double.isInfinite(cost)) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+
+		List<Node> nodes = new ArrayList<>(this.edges.size() + 1);
+		List<Link> links = new ArrayList<>(this.edges.size());
+		nodes.add(fromNode);
+		double time = startTime;
+		double travelCost = 0.0;
+		for (int i = 0; i < this.edges.size(); i++) {
+			Link link = this.preProcessData.getLink(this.edges.get(i));
+			links.add(link);
+			nodes.add(link.getToNode());
+			travelCost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, travelCost);
+	}
+
+	private ContractionHierarchy getHierarchy(final int bin) {
+		int currentGeneration = this.preProcessData.getGeneration();
+		if (currentGeneration != this.generation) {
+			Arrays.fill(this.hierarchies, null);
+			this.generation = currentGeneration;
+		}
+		ContractionHierarchy ch = this.hierarchies[bin];
+		if (ch == null) {
+			ch = this.preProcessData.getHierarchy(bin, this.costFunction);
+			this.hierarchies[bin] = ch;
+		}
+		return ch;
+	}
+
+}
@@ -40,6 +40,9 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(FastDijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchies)) {
+            bind(LeastCostPathCalculatorFactory.class).to(ContractionHierarchiesFactory.class);
+            addControlerListenerBinding().to(ContractionHierarchiesFactory.class);
         }
     }
 
@@ -0,0 +1,309 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
+import org.matsim.core.router.util.RoutingNetwork;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Calculates the travel times and costs of the least-cost paths from one or many
+ * start nodes to many end nodes, all departing at the same time. For every start
+ * node, one time-dependent Dijkstra tree is grown on the shared array routing network
+ * until all end nodes are settled. The trees of different start nodes are calculated
+ * in parallel.
+ * <p></p>
+ * The results are returned as {@link Matrix} backed by primitive arrays, which
+ * is what skims, accessibility computations or dispatching algorithms need, instead of
+ * a {@link org.matsim.core.router.util.LeastCostPathCalculator.Path} per pair.
+ * <p></p>
+ * An instance must not be used by several threads at the same time. The travel time
+ * and travel disutility, however, are shared by the threads of one calculation and
+ * must thus support concurrent calls. The threads are kept between calculations, and end
+ * once they have been idle for a while.
+ */
+public class ManyToManyDijkstra {
+
+	private final RoutingNetwork routingNetwork;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final int numberOfThreads;
+	private final List<TreeSearch> searches = new ArrayList<>();
+	private ThreadPoolExecutor executor = null;
+
+	public ManyToManyDijkstra(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this(network, costFunction, timeFunction, 1);
+	}
+
+	public ManyToManyDijkstra(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final int numberOfThreads) {
+		this.routingNetwork = new ArrayRoutingNetworkFactory(null).getSharedRoutingNetwork(network);
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * @return a matrix with a single row, containing the travel times and costs from the start node to each of the end nodes.
+	 */
+	public Matrix calcOneToMany(final Node fromNode, final List<? extends Node> toNodes, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		return calcManyToMany(Collections.singletonList(fromNode), toNodes, startTime, person, vehicle);
+	}
+
+	/**
+	 * @return a matrix containing in row <code>i</code> and column <code>j</code> the travel time and cost of the least-cost
+	 * path from <code>fromNodes.get(i)</code> to <code>toNodes.get(j)</code>. Unreachable end nodes have infinite
+	 * travel time and cost.
+	 */
+	public Matrix calcManyToMany(final List<? extends Node> fromNodes, final List<? extends Node> toNodes, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		final int[] sources = getArrayIndices(fromNodes);
+		final int[] targets = getArrayIndices(toNodes);
+		final Matrix matrix = new Matrix(sources.length, targets.length);
+
+		int nOfThreads = Math.min(this.numberOfThreads, sources.length);
+		while (this.searches.size() < Math.max(1, nOfThreads)) {
+			this.searches.add(new TreeSearch(this.routingNetwork.getNodes().size()));
+		}
+		final AtomicInteger nextRow = new AtomicInteger(0);
+
+		if (nOfThreads <= 1) {
+			this.searches.get(0).calcRows(sources, targets, startTime, person, vehicle, matrix, nextRow);
+			return matrix;
+		}
+
+		ExecutorService executor = getExecutor();
+		try {
+			List<Future<?>> futures = new ArrayList<>(nOfThreads);
+			for (int i = 0; i < nOfThreads; i++) {
+				final TreeSearch search = this.searches.get(i);
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						search.calcRows(sources, targets, startTime, person, vehicle, matrix, nextRow);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return matrix;
+	}
+
+	private ExecutorService getExecutor() {
+		if (this.executor == null) {
+			this.executor = new ThreadPoolExecutor(this.numberOfThreads, this.numberOfThreads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private int counter = 0;
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread thread = new Thread(r, ManyToManyDijkstra.class.getSimpleName() + "." + this.counter++);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			// so that the threads of an instance that is no longer used do not live forever
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+		return this.executor;
+	}
+
+	private int[] getArrayIndices(final List<? extends Node> nodes) {
+		int[] indices = new int[nodes.size()];
+		for (int i = 0; i < indices.length; i++) {
+			ArrayRoutingNetworkNode node = (ArrayRoutingNetworkNode) this.routingNetwork.getNodes().get(nodes.get(i).getId());
+			if (node == null) {
+				throw new IllegalArgumentException("Node " + nodes.get(i).getId() + " is not part of the network.");
+			}
+			indices[i] = node.getArrayIndex();
+		}
+		return indices;
+	}
+
+	/**
+	 * The search state of one thread. Labels are invalidated by increasing the iteration
+	 * counter instead of resetting the arrays.
+	 */
+	private final class TreeSearch {
+
+		private final ArrayRoutingNetworkNode[] nodes;
+		private final double[] costs;
+		private final double[] times;
+		private final int[] visitedIteration;
+		private final int[] targetIteration;
+		private final BinaryMinHeap<ArrayRoutingNetworkNode> heap;
+		private int iteration = 0;
+
+		TreeSearch(final int nodeCount) {
+			this.nodes = new ArrayRoutingNetworkNode[nodeCount];
+			for (Node node : ManyToManyDijkstra.this.routingNetwork.getNodes().values()) {
+				ArrayRoutingNetworkNode arrayNode = (ArrayRoutingNetworkNode) node;
+				this.nodes[arrayNode.getArrayIndex()] = arrayNode;
+			}
+			this.costs = new double[nodeCount];
+			this.times = new double[nodeCount];
+			this.visitedIteration = new int[nodeCount];
+			this.targetIteration = new int[nodeCount];
+			this.heap = new BinaryMinHeap<>(nodeCount);
+		}
+
+		void calcRows(final int[] sources, final int[] targets, final double startTime, final Person person, final Vehicle vehicle,
+				final Matrix matrix, final AtomicInteger nextRow) {
+			int row;
+			while ((row = nextRow.getAndIncrement()) < sources.length) {
+				calcRow(sources[row], targets, startTime, person, vehicle);
+				int offset = row * targets.length;
+				for (int col = 0; col < targets.length; col++) {
+					int target = targets[col];
+					if (this.visitedIteration[target] == this.iteration) {
+						matrix.travelTimes[offset + col] = this.times[target] - startTime;
+						matrix.travelCosts[offset + col] = this.costs[target];
+					} else {
+						matrix.travelTimes[offset + col] = Double.POSITIVE_INFINITY;
+						matrix.travelCosts[offset + col] = Double.POSITIVE_INFINITY;
+					}
+				}
+			}
+		}
+
+		private void calcRow(final int source, final int[] targets, final double startTime, final Person person, final Vehicle vehicle) {
+			this.iteration++;
+			int remainingTargets = 0;
+			for (int target : targets) {
+				if (this.targetIteration[target] != this.iteration) {
+					this.targetIteration[target] = this.iteration;
+					remainingTargets++;
+				}
+			}
+
+			this.heap.reset();
+			this.visitedIteration[source] = this.iteration;
+			this.costs[source] = 0.0;
+			this.times[source] = startTime;
+			this.heap.add(this.nodes[source], 0.0);
+
+			while (remainingTargets > 0 && !this.heap.isEmpty()) {
+				ArrayRoutingNetworkNode node = this.heap.poll();
+				int index = node.getArrayIndex();
+				if (this.targetIteration[index] == this.iteration) {
+					remainingTargets--;
+				}
+				double currTime = this.times[index];
+				double currCost = this.costs[index];
+				for (RoutingNetworkLink routingLink : node.getOutLinksArray()) {
+					Link link = routingLink.getLink();
+					ArrayRoutingNetworkNode toNode = (ArrayRoutingNetworkNode) routingLink.getToNode();
+					int toIndex = toNode.getArrayIndex();
+					double travelCost = ManyToManyDijkstra.this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+					double totalCost = currCost + travelCost;
+					if (this.visitedIteration[toIndex] != this.iteration || totalCost < this.costs[toIndex]) {
+						double travelTime = ManyToManyDijkstra.this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle);
+						this.visitedIteration[toIndex] = this.iteration;
+						this.costs[toIndex] = totalCost;
+						this.times[toIndex] = currTime + travelTime;
+						this.heap.decreaseKey(toNode, totalCost);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Travel times and costs between start nodes (rows) and end nodes (columns), stored row by row in primitive arrays.
+	 */
+	public static final class Matrix {
+
+		private final int rowCount;
+		private final int columnCount;
+		private final double[] travelTimes;
+		private final double[] travelCosts;
+
+		/*package*/ Matrix(final int rowCount, final int columnCount) {
+			long size = (long) rowCount * columnCount;
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("A matrix with " + rowCount + " rows and " + columnCount + " columns has "
+						+ size + " entries, but at most " + Integer.MAX_VALUE + " are supported. Split the start nodes into several calculations.");
+			}
+			this.rowCount = rowCount;
+			this.columnCount = columnCount;
+			this.travelTimes = new double[(int) size];
+			this.travelCosts = new double[(int) size];
+		}
+
+		public int getRowCount() {
+			return this.rowCount;
+		}
+
+		public int getColumnCount() {
+			return this.columnCount;
+		}
+
+		public double getTravelTime(final int row, final int column) {
+			return this.travelTimes[row * this.columnCount + column];
+		}
+
+		public double getTravelCost(final int row, final int column) {
+			return this.travelCosts[row * this.columnCount + column];
+		}
+
+		/**
+		 * @return the travel times, row by row. The array is not copied.
+		 */
+		public double[] getTravelTimes() {
+			return this.travelTimes;
+		}
+
+		/**
+		 * @return the travel costs, row by row. The array is not copied.
+		 */
+		public double[] getTravelCosts() {
+			return this.travelCosts;
+		}
+	}
+
+}
@@ -20,8 +20,10 @@
 
 package org.matsim.core.router.util;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -31,10 +33,23 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.network.LinkFactory;
 import org.matsim.core.network.NetworkChangeEvent;
 
+/**
+ * Creates {@link ArrayRoutingNetwork}s. Once created, a routing network is not modified anymore by the
+ * routers, so a single instance can be used by all routers of all threads. Use {@link #getSharedRoutingNetwork(Network)}
+ * to get such a shared instance instead of creating a copy of the network for every router.
+ */
 public class ArrayRoutingNetworkFactory extends AbstractRoutingNetworkFactory {
 	
 	private final static Logger log = Logger.getLogger(ArrayRoutingNetworkFactory.class);
 	
+	/*
+	 * The routing networks that are in use, per network and pre-processed data (which is null for routers without
+	 * pre-processing). Neither the networks nor the routing networks are kept alive by the cache: the network is a weak key, 
+	 * and the routing network is only weakly referenced, as it references the network itself. So a routing network is
+	 * shared as long as at least one router uses it.
+	 */
+	private final static Map<Network, Map<PreProcessDijkstra, WeakReference<ArrayRoutingNetwork>>> sharedRoutingNetworks = new WeakHashMap<>();
+	
 	private int nodeArrayIndexCounter;
 	private int linkArrayIndexCounter;
 	
@@ -42,8 +57,32 @@ public class ArrayRoutingNetworkFactory extends AbstractRoutingNetworkFactory {
 		super(preProcessData);
 	}
 	
+	/**
+	 * @return the routing network for the network and the pre-processed data of this factory that is already
+	 * used by other routers, or a new one if there is none.
+	 */
+	public ArrayRoutingNetwork getSharedRoutingNetwork(Network network) {
+		synchronized (sharedRoutingNetworks) {
+			Map<PreProcessDijkstra, WeakReference<ArrayRoutingNetwork>> routingNetworks = sharedRoutingNetworks.get(network);
+			if (routingNetworks == null) {
+				routingNetworks = new WeakHashMap<>();
+				sharedRoutingNetworks.put(network, routingNetworks);
+			}
+			WeakReference<ArrayRoutingNetwork> reference = routingNetworks.get(this.preProcessData);
+			ArrayRoutingNetwork routingNetwork = reference == null ? null : reference.get();
+			if (routingNetwork == null) {
+				routingNetwork = createRoutingNetwork(network);
+				routingNetworks.put(this.preProcessData, new WeakReference<>(routingNetwork));
+			}
+			return routingNetwork;
+		}
+	}
+	
+	/*
+	 * Synchronized as the array indices are counted in the factory. 
+	 */
 	@Override
-	public ArrayRoutingNetwork createRoutingNetwork(Network network) {
+	public synchronized ArrayRoutingNetwork createRoutingNetwork(Network network) {
 		this.nodeArrayIndexCounter = 0;
 		this.linkArrayIndexCounter = 0;
 		
@@ -0,0 +1,80 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.ContractionHierarchies;
+
+/**
+ * Creates {@link ContractionHierarchies} routers. The pre-processed data is shared by all routers
+ * for the same network. Within it, a hierarchy is shared by all routers whose travel disutilities
+ * result in the same link weights, see {@link PreProcessContractionHierarchies}. The hierarchies are
+ * rebuilt after the start of each iteration, as the travel times usually changed.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final int timeBinSize;
+	private final int numberOfTimeBins;
+	private final Map<Network, PreProcessContractionHierarchies> preProcessData = new IdentityHashMap<>();
+
+	@Inject
+	public ContractionHierarchiesFactory() {
+		this(PreProcessContractionHierarchies.DEFAULT_TIME_BIN_SIZE, PreProcessContractionHierarchies.DEFAULT_NUMBER_OF_TIME_BINS);
+	}
+
+	public ContractionHierarchiesFactory(final int timeBinSize, final int numberOfTimeBins) {
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = numberOfTimeBins;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessContractionHierarchies data;
+		synchronized (this.preProcessData) {
+			// only indexes nodes and links; the hierarchies are built later, per time bin, by the routers that need them
+			data = this.preProcessData.get(network);
+			if (data == null) {
+				data = new PreProcessContractionHierarchies(network, this.timeBinSize, this.numberOfTimeBins);
+				this.preProcessData.put(network, data);
+			}
+		}
+		return new ContractionHierarchies(data, travelCosts, travelTimes);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		synchronized (this.preProcessData) {
+			for (PreProcessContractionHierarchies data : this.preProcessData.values()) {
+				data.clearHierarchies();
+			}
+		}
+	}
+
+}
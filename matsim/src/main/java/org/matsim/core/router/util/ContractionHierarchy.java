@@ -0,0 +1,499 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.Arrays;
+
+/**
+ * A contraction hierarchy for one static edge weighting of a graph. The graph is given as
+ * arrays of edges between nodes <code>0..nodeCount-1</code>; the edge index is used to identify
+ * the original edges in the paths returned by {@link Query}.
+ * <p></p>
+ * The nodes are contracted one after the other, in the order of their importance (estimated by the
+ * edge difference and the number of already contracted neighbours). Whenever the contraction of a
+ * node would destroy a shortest path between two of its neighbours, a shortcut edge is inserted.
+ * Queries are bidirectional Dijkstra searches that only follow edges to more important nodes, so they
+ * settle only a tiny fraction of the nodes settled by a plain Dijkstra.
+ * <p></p>
+ * Instances are immutable after construction and can be shared between threads; each thread needs
+ * its own {@link Query}.
+ */
+public final class ContractionHierarchy {
+
+	/** Maximum number of nodes settled by a witness search during the contraction. */
+	private static final int WITNESS_SEARCH_SETTLE_LIMIT = 500;
+
+	private final int nodeCount;
+
+	/* all edges, i.e. the original edges and the shortcuts */
+	private final int[] edgeFrom;
+	private final int[] edgeTo;
+	/** the index of the original edge, or <code>-1</code> for shortcuts */
+	private final int[] edgeOriginal;
+	/** the two edges a shortcut replaces */
+	private final int[] edgeChild1;
+	private final int[] edgeChild2;
+
+	/* upward graph, as used by the forward search: edges from a node to more important nodes */
+	private final int[] upStart;
+	private final int[] upEdges;
+	private final double[] upWeights;
+
+	/* downward graph, as used by the backward search: edges from more important nodes to a node */
+	private final int[] downStart;
+	private final int[] downEdges;
+	private final double[] downWeights;
+
+	/**
+	 * Builds the contraction hierarchy.
+	 *
+	 * @param nodeCount the number of nodes
+	 * @param from the from node of each edge
+	 * @param to the to node of each edge
+	 * @param weights the weight of each edge; must not be negative. Edges with infinite weight are ignored.
+	 */
+	public ContractionHierarchy(final int nodeCount, final int[] from, final int[] to, final double[] weights) {
+		this.nodeCount = nodeCount;
+		Contractor contractor = new Contractor(nodeCount, from, to, weights);
+		int[] rank = contractor.contract();
+
+		int edgeCount = contractor.edgeFrom.size();
+		this.edgeFrom = contractor.edgeFrom.toArray();
+		this.edgeTo = contractor.edgeTo.toArray();
+		this.edgeOriginal = contractor.edgeOriginal.toArray();
+		this.edgeChild1 = contractor.edgeChild1.toArray();
+		this.edgeChild2 = contractor.edgeChild2.toArray();
+		double[] edgeWeight = contractor.edgeWeight.toArray();
+
+		// every edge is either part of the upward graph (of its from node) or the downward graph (of its to node)
+		this.upStart = new int[nodeCount + 1];
+		this.downStart = new int[nodeCount + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			if (rank[this.edgeFrom[e]] < rank[this.edgeTo[e]]) {
+				this.upStart[this.edgeFrom[e] + 1]++;
+			} else {
+				this.downStart[this.edgeTo[e] + 1]++;
+			}
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			this.upStart[n + 1] += this.upStart[n];
+			this.downStart[n + 1] += this.downStart[n];
+		}
+		this.upEdges = new int[this.upStart[nodeCount]];
+		this.upWeights = new double[this.upEdges.length];
+		this.downEdges = new int[this.downStart[nodeCount]];
+		this.downWeights = new double[this.downEdges.length];
+		int[] upPos = Arrays.copyOf(this.upStart, nodeCount);
+		int[] downPos = Arrays.copyOf(this.downStart, nodeCount);
+		for (int e = 0; e < edgeCount; e++) {
+			if (rank[this.edgeFrom[e]] < rank[this.edgeTo[e]]) {
+				int pos = upPos[this.edgeFrom[e]]++;
+				this.upEdges[pos] = e;
+				this.upWeights[pos] = edgeWeight[e];
+			} else {
+				int pos = downPos[this.edgeTo[e]]++;
+				this.downEdges[pos] = e;
+				this.downWeights[pos] = edgeWeight[e];
+			}
+		}
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * Least-cost path queries on a {@link ContractionHierarchy}. Keeps the search state between
+	 * queries, so it must not be used by multiple threads concurrently.
+	 */
+	public static final class Query {
+
+		private final double[] forwardCost;
+		private final double[] backwardCost;
+		private final int[] forwardEdge;
+		private final int[] backwardEdge;
+		private final IndexedMinHeap forwardHeap;
+		private final IndexedMinHeap backwardHeap;
+		private final TIntArrayList touched = new TIntArrayList();
+		private final TIntArrayList forwardPart = new TIntArrayList();
+		private final TIntArrayList stack = new TIntArrayList();
+
+		public Query(final int nodeCount) {
+			this.forwardCost = new double[nodeCount];
+			this.backwardCost = new double[nodeCount];
+			this.forwardEdge = new int[nodeCount];
+			this.backwardEdge = new int[nodeCount];
+			Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+			this.forwardHeap = new IndexedMinHeap(nodeCount);
+			this.backwardHeap = new IndexedMinHeap(nodeCount);
+		}
+
+		/**
+		 * Calculates the least-cost path between two nodes.
+		 *
+		 * @param ch the hierarchy to search in
+		 * @param fromNode the start node
+		 * @param toNode the end node
+		 * @param edges filled with the indices of the original edges along the path, in order
+		 * @return the cost of the path, or {@link Double#POSITIVE_INFINITY} if no path exists
+		 */
+		public double calcLeastCostPath(final ContractionHierarchy ch, final int fromNode, final int toNode, final TIntArrayList edges) {
+			edges.resetQuick();
+			if (fromNode == toNode) {
+				return 0.0;
+			}
+			setForward(fromNode, 0.0, -1);
+			setBackward(toNode, 0.0, -1);
+			this.forwardHeap.update(fromNode, 0.0);
+			this.backwardHeap.update(toNode, 0.0);
+
+			double best = Double.POSITIVE_INFINITY;
+			int meetingNode = -1;
+			while (true) {
+				boolean forward = !this.forwardHeap.isEmpty() && this.forwardHeap.peekKey() < best;
+				boolean backward = !this.backwardHeap.isEmpty() && this.backwardHeap.peekKey() < best;
+				if (!forward && !backward) {
+					break;
+				}
+				if (forward && backward) {
+					// expand the direction with the smaller tentative cost
+					forward = this.forwardHeap.peekKey() <= this.backwardHeap.peekKey();
+				}
+				if (forward) {
+					int node = this.forwardHeap.poll();
+					double cost = this.forwardCost[node];
+					for (int i = ch.upStart[node]; i < ch.upStart[node + 1]; i++) {
+						int e = ch.upEdges[i];
+						int next = ch.edgeTo[e];
+						double nextCost = cost + ch.upWeights[i];
+						if (nextCost < this.forwardCost[next]) {
+							setForward(next, nextCost, e);
+							this.forwardHeap.update(next, nextCost);
+							double total = nextCost + this.backwardCost[next];
+							if (total < best) {
+								best = total;
+								meetingNode = next;
+							}
+						}
+					}
+				} else {
+					int node = this.backwardHeap.poll();
+					double cost = this.backwardCost[node];
+					for (int i = ch.downStart[node]; i < ch.downStart[node + 1]; i++) {
+						int e = ch.downEdges[i];
+						int next = ch.edgeFrom[e];
+						double nextCost = cost + ch.downWeights[i];
+						if (nextCost < this.backwardCost[next]) {
+							setBackward(next, nextCost, e);
+							this.backwardHeap.update(next, nextCost);
+							double total = nextCost + this.forwardCost[next];
+							if (total < best) {
+								best = total;
+								meetingNode = next;
+							}
+						}
+					}
+				}
+			}
+
+			if (meetingNode >= 0) {
+				// from the meeting node back to the start node ...
+				this.forwardPart.resetQuick();
+				for (int node = meetingNode; this.forwardEdge[node] >= 0; node = ch.edgeFrom[this.forwardEdge[node]]) {
+					this.forwardPart.add(this.forwardEdge[node]);
+				}
+				for (int i = this.forwardPart.size() - 1; i >= 0; i--) {
+					unpack(ch, this.forwardPart.get(i), edges);
+				}
+				// ... and from the meeting node to the end node
+				for (int node = meetingNode; this.backwardEdge[node] >= 0; node = ch.edgeTo[this.backwardEdge[node]]) {
+					unpack(ch, this.backwardEdge[node], edges);
+				}
+			}
+			reset();
+			return best;
+		}
+
+		private void setForward(final int node, final double cost, final int edge) {
+			if (this.forwardCost[node] == Double.POSITIVE_INFINITY && this.backwardCost[node] == Double.POSITIVE_INFINITY) {
+				this.touched.add(node);
+			}
+			this.forwardCost[node] = cost;
+			this.forwardEdge[node] = edge;
+		}
+
+		private void setBackward(final int node, final double cost, final int edge) {
+			if (this.forwardCost[node] == Double.POSITIVE_INFINITY && this.backwardCost[node] == Double.POSITIVE_INFINITY) {
+				this.touched.add(node);
+			}
+			this.backwardCost[node] = cost;
+			this.backwardEdge[node] = edge;
+		}
+
+		private void reset() {
+			for (int i = 0; i < this.touched.size(); i++) {
+				int node = this.touched.get(i);
+				this.forwardCost[node] = Double.POSITIVE_INFINITY;
+				this.backwardCost[node] = Double.POSITIVE_INFINITY;
+			}
+			this.touched.resetQuick();
+			this.forwardHeap.clear();
+			this.backwardHeap.clear();
+		}
+
+		/**
+		 * Replaces shortcuts recursively by the original edges they consist of.
+		 */
+		private void unpack(final ContractionHierarchy ch, final int edge, final TIntArrayList edges) {
+			this.stack.resetQuick();
+			this.stack.add(edge);
+			while (!this.stack.isEmpty()) {
+				int e = this.stack.removeAt(this.stack.size() - 1);
+				if (ch.edgeOriginal[e] >= 0) {
+					edges.add(ch.edgeOriginal[e]);
+				} else {
+					this.stack.add(ch.edgeChild2[e]);
+					this.stack.add(ch.edgeChild1[e]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The state needed during the contraction of the nodes.
+	 */
+	private static final class Contractor {
+
+		private final int nodeCount;
+		final TIntArrayList edgeFrom = new TIntArrayList();
+		final TIntArrayList edgeTo = new TIntArrayList();
+		final TDoubleArrayList edgeWeight = new TDoubleArrayList();
+		final TIntArrayList edgeOriginal = new TIntArrayList();
+		final TIntArrayList edgeChild1 = new TIntArrayList();
+		final TIntArrayList edgeChild2 = new TIntArrayList();
+
+		/* edges between not yet contracted nodes */
+		private final TIntArrayList[] outEdges;
+		private final TIntArrayList[] inEdges;
+		private final boolean[] contracted;
+		private final int[] contractedNeighbours;
+
+		/* witness search */
+		private final double[] witnessCost;
+		private final TIntArrayList witnessTouched = new TIntArrayList();
+		private final IndexedMinHeap witnessHeap;
+
+		Contractor(final int nodeCount, final int[] from, final int[] to, final double[] weights) {
+			this.nodeCount = nodeCount;
+			this.outEdges = new TIntArrayList[nodeCount];
+			this.inEdges = new TIntArrayList[nodeCount];
+			for (int n = 0; n < nodeCount; n++) {
+				this.outEdges[n] = new TIntArrayList(4);
+				this.inEdges[n] = new TIntArrayList(4);
+			}
+			this.contracted = new boolean[nodeCount];
+			this.contractedNeighbours = new int[nodeCount];
+			this.witnessCost = new double[nodeCount];
+			Arrays.fill(this.witnessCost, Double.POSITIVE_INFINITY);
+			this.witnessHeap = new IndexedMinHeap(nodeCount);
+
+			for (int i = 0; i < from.length; i++) {
+				if (from[i] == to[i] || Double.isInfinite(weights[i])) {
+					continue; // loops and unusable edges are never part of a least-cost path
+				}
+				if (weights[i] < 0.0) {
+					throw new IllegalArgumentException("Edge " + i + " has a negative weight: " + weights[i]);
+				}
+				// of parallel edges, only the cheapest one is kept
+				int existing = findEdge(from[i], to[i]);
+				if (existing < 0) {
+					addEdge(from[i], to[i], weights[i], i, -1, -1);
+				} else if (weights[i] < this.edgeWeight.get(existing)) {
+					this.edgeWeight.set(existing, weights[i]);
+					this.edgeOriginal.set(existing, i);
+				}
+			}
+		}
+
+		/**
+		 * Contracts all nodes.
+		 *
+		 * @return the rank of each node in the hierarchy
+		 */
+		int[] contract() {
+			IndexedMinHeap queue = new IndexedMinHeap(this.nodeCount);
+			for (int n = 0; n < this.nodeCount; n++) {
+				queue.update(n, priority(n));
+			}
+			int[] rank = new int[this.nodeCount];
+			int nextRank = 0;
+			while (!queue.isEmpty()) {
+				int node = queue.poll();
+				// lazy update: the priority might have changed since the node was inserted
+				double priority = priority(node);
+				if (!queue.isEmpty() && priority > queue.peekKey()) {
+					queue.update(node, priority);
+					continue;
+				}
+				contractNode(node, true);
+				rank[node] = nextRank++;
+			}
+			return rank;
+		}
+
+		private double priority(final int node) {
+			int shortcuts = contractNode(node, false);
+			int removedEdges = this.inEdges[node].size() + this.outEdges[node].size();
+			return 2 * (shortcuts - removedEdges) + this.contractedNeighbours[node];
+		}
+
+		/**
+		 * Contracts the node, or only counts the shortcuts that would be needed if <code>contract</code> is false.
+		 */
+		private int contractNode(final int node, final boolean contract) {
+			TIntArrayList in = this.inEdges[node];
+			TIntArrayList out = this.outEdges[node];
+			int shortcuts = 0;
+			for (int i = 0; i < in.size(); i++) {
+				int inEdge = in.get(i);
+				int source = this.edgeFrom.get(inEdge);
+				double inWeight = this.edgeWeight.get(inEdge);
+				double maxCost = 0.0;
+				for (int j = 0; j < out.size(); j++) {
+					int outEdge = out.get(j);
+					if (this.edgeTo.get(outEdge) != source) {
+						maxCost = Math.max(maxCost, inWeight + this.edgeWeight.get(outEdge));
+					}
+				}
+				witnessSearch(source, node, maxCost);
+				for (int j = 0; j < out.size(); j++) {
+					int outEdge = out.get(j);
+					int target = this.edgeTo.get(outEdge);
+					if (target == source) {
+						continue;
+					}
+					double cost = inWeight + this.edgeWeight.get(outEdge);
+					if (this.witnessCost[target] > cost) {
+						shortcuts++;
+						if (contract) {
+							int existing = findEdge(source, target);
+							if (existing >= 0 && this.edgeWeight.get(existing) <= cost) {
+								continue;
+							}
+							if (existing >= 0) {
+								this.outEdges[source].remove(existing);
+								this.inEdges[target].remove(existing);
+							}
+							addEdge(source, target, cost, -1, inEdge, outEdge);
+						}
+					}
+				}
+				resetWitnessSearch();
+			}
+			if (contract) {
+				this.contracted[node] = true;
+				for (int i = 0; i < in.size(); i++) {
+					int source = this.edgeFrom.get(in.get(i));
+					this.outEdges[source].remove(in.get(i));
+					this.contractedNeighbours[source]++;
+				}
+				for (int j = 0; j < out.size(); j++) {
+					int target = this.edgeTo.get(out.get(j));
+					this.inEdges[target].remove(out.get(j));
+					this.contractedNeighbours[target]++;
+				}
+				in.clear(0);
+				out.clear(0);
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Limited Dijkstra search from <code>source</code>, avoiding <code>ignoredNode</code>, to find
+		 * paths that make shortcuts unnecessary.
+		 */
+		private void witnessSearch(final int source, final int ignoredNode, final double maxCost) {
+			this.witnessCost[source] = 0.0;
+			this.witnessTouched.add(source);
+			this.witnessHeap.update(source, 0.0);
+			int settled = 0;
+			while (!this.witnessHeap.isEmpty() && settled < WITNESS_SEARCH_SETTLE_LIMIT) {
+				if (this.witnessHeap.peekKey() > maxCost) {
+					break;
+				}
+				int node = this.witnessHeap.poll();
+				settled++;
+				double cost = this.witnessCost[node];
+				TIntArrayList out = this.outEdges[node];
+				for (int i = 0; i < out.size(); i++) {
+					int e = out.get(i);
+					int next = this.edgeTo.get(e);
+					if (next == ignoredNode) {
+						continue;
+					}
+					double nextCost = cost + this.edgeWeight.get(e);
+					if (nextCost < this.witnessCost[next]) {
+						if (this.witnessCost[next] == Double.POSITIVE_INFINITY) {
+							this.witnessTouched.add(next);
+						}
+						this.witnessCost[next] = nextCost;
+						this.witnessHeap.update(next, nextCost);
+					}
+				}
+			}
+		}
+
+		private void resetWitnessSearch() {
+			for (int i = 0; i < this.witnessTouched.size(); i++) {
+				this.witnessCost[this.witnessTouched.get(i)] = Double.POSITIVE_INFINITY;
+			}
+			this.witnessTouched.resetQuick();
+			this.witnessHeap.clear();
+		}
+
+		private int findEdge(final int from, final int to) {
+			TIntArrayList out = this.outEdges[from];
+			for (int i = 0; i < out.size(); i++) {
+				if (this.edgeTo.get(out.get(i)) == to) {
+					return out.get(i);
+				}
+			}
+			return -1;
+		}
+
+		private void addEdge(final int from, final int to, final double weight, final int original, final int child1, final int child2) {
+			int e = this.edgeFrom.size();
+			this.edgeFrom.add(from);
+			this.edgeTo.add(to);
+			this.edgeWeight.add(weight);
+			this.edgeOriginal.add(original);
+			this.edgeChild1.add(child1);
+			this.edgeChild2.add(child2);
+			this.outEdges[from].add(e);
+			this.inEdges[to].add(e);
+		}
+	}
+
+}
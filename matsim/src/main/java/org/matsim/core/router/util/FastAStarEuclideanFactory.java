@@ -26,8 +26,8 @@ import org.matsim.core.router.FastAStarEuclidean;
 import org.matsim.core.router.FastRouterDelegateFactory;
 import org.matsim.core.router.FastRouterType;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author cdobler
@@ -35,7 +35,7 @@ import java.util.Map;
 public class FastAStarEuclideanFactory implements LeastCostPathCalculatorFactory {
 
 	private final PreProcessEuclidean preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
+	private final ArrayRoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks;
 
 	public FastAStarEuclideanFactory(Network network, final TravelDisutility fsttc) {
@@ -47,7 +47,7 @@ public class FastAStarEuclideanFactory implements LeastCostPathCalculatorFactory
 		this.preProcessData = new PreProcessEuclidean(fsttc);
 		this.preProcessData.run(network);
 
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
+		this.routingNetworks = new ConcurrentHashMap<Network, RoutingNetwork>();
 		
 		switch (fastRouterType) {
 		case ARRAY:
@@ -67,7 +67,7 @@ public class FastAStarEuclideanFactory implements LeastCostPathCalculatorFactory
 	
 		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
 		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+			routingNetwork = this.routingNetworkFactory.getSharedRoutingNetwork(network);
 			this.routingNetworks.put(network, routingNetwork);
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
@@ -31,8 +31,8 @@ import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author cdobler
@@ -41,25 +41,28 @@ import java.util.Map;
 public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 
 	private final PreProcessLandmarks preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
+	private final ArrayRoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks;
 
 	@Inject
 	FastAStarLandmarksFactory(Network network, Config config, Map<String,TravelTime> travelTime, Map<String,TravelDisutilityFactory> fsttc) {
 		//TODO: No guarantee that these are the same travel times for which the router is later requested.
-		this(network, fsttc.get(TransportMode.car).createTravelDisutility(travelTime.get(TransportMode.car)), FastRouterType.ARRAY);
+		this(network, fsttc.get(TransportMode.car).createTravelDisutility(travelTime.get(TransportMode.car)), FastRouterType.ARRAY,
+				config.global().getNumberOfThreads(), config.controler().getLandmarksCacheDirectory());
 	}
 
 	public FastAStarLandmarksFactory(Network network, final TravelDisutility fsttc) {
-		this(network, fsttc, FastRouterType.ARRAY);
+		this(network, fsttc, FastRouterType.ARRAY, 8, null);
 	}
 
 	private FastAStarLandmarksFactory(Network network, final TravelDisutility fsttc,
-			FastRouterType fastRouterType) {
+			FastRouterType fastRouterType, final int numberOfThreads, final String cacheDirectory) {
 		this.preProcessData = new PreProcessLandmarks(fsttc);
+		this.preProcessData.setNumberOfThreads(numberOfThreads);
+		this.preProcessData.setCacheDirectory(cacheDirectory);
 		this.preProcessData.run(network);
 		
-		this.routingNetworks = new HashMap<>();
+		this.routingNetworks = new ConcurrentHashMap<>();
 		
 		switch (fastRouterType) {
 		case ARRAY:
@@ -79,7 +82,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 		
 		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
 		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+			routingNetwork = this.routingNetworkFactory.getSharedRoutingNetwork(network);
 			this.routingNetworks.put(network, routingNetwork);
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
@@ -28,14 +28,14 @@ import org.matsim.core.router.FastRouterType;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	
 	private final PreProcessDijkstra preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
+	private final ArrayRoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks;
 
 	@Inject
@@ -50,7 +50,7 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	private FastDijkstraFactory(final PreProcessDijkstra preProcessData, FastRouterType fastRouterType) {
 		this.preProcessData = preProcessData;
 		
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
+		this.routingNetworks = new ConcurrentHashMap<Network, RoutingNetwork>();
 		
 		switch (fastRouterType) {
 		case ARRAY:
@@ -69,7 +69,7 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 			
 		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
 		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+			routingNetwork = this.routingNetworkFactory.getSharedRoutingNetwork(network);
 			this.routingNetworks.put(network, routingNetwork);
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
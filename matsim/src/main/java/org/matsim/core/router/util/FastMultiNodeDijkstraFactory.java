@@ -20,8 +20,8 @@
 
 package org.matsim.core.router.util;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.ArrayFastRouterDelegateFactory;
@@ -32,7 +32,7 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 	
 	private final boolean searchAllEndNodes;
 	private final PreProcessDijkstra preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
+	private final ArrayRoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks;
 	
 	public FastMultiNodeDijkstraFactory() {
@@ -47,7 +47,7 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 		this.preProcessData = preProcessData;
 		this.searchAllEndNodes = searchAllEndNodes;
 		
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
+		this.routingNetworks = new ConcurrentHashMap<Network, RoutingNetwork>();
 		this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
 	}
 
@@ -57,7 +57,7 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
 		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+			routingNetwork = this.routingNetworkFactory.getSharedRoutingNetwork(network);
 			this.routingNetworks.put(network, routingNetwork);
 		}
 		
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node indices with decrease- and increase-key.
+ */
+/*package*/ final class IndexedMinHeap {
+
+	private final int[] heap;
+	private final int[] position;
+	private final double[] keys;
+	private int size = 0;
+
+	IndexedMinHeap(final int capacity) {
+		this.heap = new int[capacity];
+		this.position = new int[capacity];
+		this.keys = new double[capacity];
+		Arrays.fill(this.position, -1);
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	double peekKey() {
+		return this.keys[this.heap[0]];
+	}
+
+	int poll() {
+		int top = this.heap[0];
+		this.position[top] = -1;
+		this.size--;
+		if (this.size > 0) {
+			this.heap[0] = this.heap[this.size];
+			this.position[this.heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Inserts the node, or changes its key if it is already contained.
+	 */
+	void update(final int node, final double key) {
+		int pos = this.position[node];
+		if (pos < 0) {
+			pos = this.size++;
+			this.heap[pos] = node;
+			this.position[node] = pos;
+			this.keys[node] = key;
+			siftUp(pos);
+		} else {
+			double oldKey = this.keys[node];
+			this.keys[node] = key;
+			if (key < oldKey) {
+				siftUp(pos);
+			} else {
+				siftDown(pos);
+			}
+		}
+	}
+
+	void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.position[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	private void siftUp(int pos) {
+		int node = this.heap[pos];
+		double key = this.keys[node];
+		while (pos > 0) {
+			int parent = (pos - 1) >> 1;
+			int parentNode = this.heap[parent];
+			if (this.keys[parentNode] <= key) {
+				break;
+			}
+			this.heap[pos] = parentNode;
+			this.position[parentNode] = pos;
+			pos = parent;
+		}
+		this.heap[pos] = node;
+		this.position[node] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int node = this.heap[pos];
+		double key = this.keys[node];
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+				child++;
+			}
+			int childNode = this.heap[child];
+			if (key <= this.keys[childNode]) {
+				break;
+			}
+			this.heap[pos] = childNode;
+			this.position[childNode] = pos;
+			pos = child;
+		}
+		this.heap[pos] = node;
+		this.position[node] = pos;
+	}
+}
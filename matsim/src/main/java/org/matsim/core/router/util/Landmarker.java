@@ -28,4 +28,11 @@ import java.util.Collection;
  */
 public interface Landmarker {
 	Node[] identifyLandmarks( int nLandmarks, Network network );
+
+	/**
+	 * @return a string describing all parameters of this landmarker that influence the choice of the landmarks,
+	 * used by {@link PreProcessLandmarks} to find cached landmarks, or <code>null</code> if the landmarks
+	 * chosen by this landmarker must not be cached.
+	 */
+	String getCacheKey();
 }
@@ -39,4 +39,9 @@ public class PieSlicesLandmarker implements Landmarker {
 		delegate.run( network );
 		return delegate.getLandmarks();
 	}
+
+	@Override
+	public String getCacheKey() {
+		return travelZone.getX() + "," + travelZone.getY() + "," + travelZone.getWidth() + "," + travelZone.getHeight();
+	}
 }
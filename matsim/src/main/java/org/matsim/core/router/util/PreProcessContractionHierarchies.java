@@ -0,0 +1,196 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Pre-processes a network for the {@link org.matsim.core.router.ContractionHierarchies} router.
+ * <p></p>
+ * Contraction hierarchies need static edge weights, so the day is split into time bins and one
+ * {@link ContractionHierarchy} is built per time bin and travel disutility, using the travel disutility
+ * of each link at the middle of the bin. The hierarchies are built lazily, when the first route starting
+ * in a time bin is requested. Departures after the last time bin use the hierarchy of the last bin.
+ * <p></p>
+ * A hierarchy is only shared by travel disutilities that result in exactly the same link weights in its
+ * time bin, so routers with different disutilities (e.g. of different modes, or with different marginal
+ * utilities) never get paths for the wrong costs. Hierarchies of different time bins are built concurrently.
+ * <p></p>
+ * The travel disutility is evaluated without person and vehicle, so it must not depend on them.
+ * Especially, the randomizing travel disutility (<code>routingRandomness</code> in the
+ * <code>planCalcScore</code> config group) must be switched off.
+ */
+public class PreProcessContractionHierarchies {
+
+	private static final Logger log = Logger.getLogger(PreProcessContractionHierarchies.class);
+
+	public static final int DEFAULT_TIME_BIN_SIZE = 3600;
+	public static final int DEFAULT_NUMBER_OF_TIME_BINS = 30;
+
+	private final int timeBinSize;
+	private final Node[] nodes;
+	private final Link[] links;
+	private final int[] nodeByIdIndex;
+	private final int[] linkFrom;
+	private final int[] linkTo;
+	/** per time bin, the hierarchies built so far with the link weights they were built for. Also used as lock for the bin. */
+	private final List<List<WeightedHierarchy>> hierarchies;
+	private volatile int generation = 0;
+
+	public PreProcessContractionHierarchies(final Network network) {
+		this(network, DEFAULT_TIME_BIN_SIZE, DEFAULT_NUMBER_OF_TIME_BINS);
+	}
+
+	public PreProcessContractionHierarchies(final Network network, final int timeBinSize, final int numberOfTimeBins) {
+		this.timeBinSize = timeBinSize;
+		this.hierarchies = new ArrayList<>(numberOfTimeBins);
+		for (int bin = 0; bin < numberOfTimeBins; bin++) {
+			this.hierarchies.add(new ArrayList<WeightedHierarchy>(1));
+		}
+
+		this.nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		int maxIdIndex = -1;
+		for (Node node : this.nodes) {
+			maxIdIndex = Math.max(maxIdIndex, node.getId().index());
+		}
+		this.nodeByIdIndex = new int[maxIdIndex + 1];
+		Arrays.fill(this.nodeByIdIndex, -1);
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodeByIdIndex[this.nodes[i].getId().index()] = i;
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.linkFrom = new int[this.links.length];
+		this.linkTo = new int[this.links.length];
+		for (int i = 0; i < this.links.length; i++) {
+			this.linkFrom[i] = getNodeIndex(this.links[i].getFromNode());
+			this.linkTo[i] = getNodeIndex(this.links[i].getToNode());
+		}
+	}
+
+	/**
+	 * @return the dense index of the node, as used in the {@link ContractionHierarchy}s
+	 */
+	public int getNodeIndex(final Node node) {
+		int index = node.getId().index();
+		int nodeIndex = index < this.nodeByIdIndex.length ? this.nodeByIdIndex[index] : -1;
+		if (nodeIndex < 0 || this.nodes[nodeIndex] != node) {
+			throw new IllegalArgumentException("Node " + node.getId() + " is not part of the pre-processed network.");
+		}
+		return nodeIndex;
+	}
+
+	public int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	public int getNumberOfTimeBins() {
+		return this.hierarchies.size();
+	}
+
+	/**
+	 * @return the time bin of the hierarchy to be used for departures at the given time
+	 */
+	public int getTimeBin(final double time) {
+		return Math.min(Math.max(0, (int) (time / this.timeBinSize)), this.hierarchies.size() - 1);
+	}
+
+	/**
+	 * @return a number that changes whenever the hierarchies are cleared, so that hierarchies obtained
+	 * before must no longer be used.
+	 */
+	public int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return the link with the given edge index of the {@link ContractionHierarchy}s
+	 */
+	public Link getLink(final int edgeIndex) {
+		return this.links[edgeIndex];
+	}
+
+	/**
+	 * Evaluates the link weights of the travel disutility in the given time bin, and returns the hierarchy
+	 * built for these weights. It is built if no hierarchy exists for them yet. The result should thus be
+	 * kept by the caller until the hierarchies are cleared, see {@link #getGeneration()}.
+	 */
+	public ContractionHierarchy getHierarchy(final int bin, final TravelDisutility travelCosts) {
+		double[] weights = calcWeights(bin, travelCosts);
+		List<WeightedHierarchy> binHierarchies = this.hierarchies.get(bin);
+		synchronized (binHierarchies) {
+			for (WeightedHierarchy wh : binHierarchies) {
+				if (Arrays.equals(wh.weights, weights)) {
+					return wh.hierarchy;
+				}
+			}
+			long start = System.currentTimeMillis();
+			ContractionHierarchy ch = new ContractionHierarchy(this.nodes.length, this.linkFrom, this.linkTo, weights);
+			log.info("built contraction hierarchy for time bin " + bin + " in " + (System.currentTimeMillis() - start) + " ms.");
+			binHierarchies.add(new WeightedHierarchy(weights, ch));
+			return ch;
+		}
+	}
+
+	/**
+	 * Drops all hierarchies, e.g. after the travel disutilities changed. They are built again when needed.
+	 */
+	public void clearHierarchies() {
+		for (List<WeightedHierarchy> binHierarchies : this.hierarchies) {
+			synchronized (binHierarchies) {
+				binHierarchies.clear();
+			}
+		}
+		this.generation++;
+	}
+
+	private double[] calcWeights(final int bin, final TravelDisutility travelCosts) {
+		double time = bin * this.timeBinSize + this.timeBinSize / 2.0;
+		double[] weights = new double[this.links.length];
+		for (int i = 0; i < this.links.length; i++) {
+			try {
+				weights[i] = travelCosts.getLinkTravelDisutility(this.links[i], time, null, null);
+			} catch (RuntimeException e) {
+				throw new RuntimeException("Contraction hierarchies need a travel disutility that does not depend on the person. "
+						+ "Set routingRandomness in the planCalcScore config group to 0.", e);
+			}
+		}
+		return weights;
+	}
+
+	private static final class WeightedHierarchy {
+		private final double[] weights;
+		private final ContractionHierarchy hierarchy;
+
+		WeightedHierarchy(final double[] weights, final ContractionHierarchy hierarchy) {
+			this.weights = weights;
+			this.hierarchy = hierarchy;
+		}
+	}
+
+}
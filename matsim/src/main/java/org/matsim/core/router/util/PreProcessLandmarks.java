@@ -24,12 +24,24 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,11 +52,21 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <p></p>
+ * If a cache directory is set, the landmarks and the distances to and from them are
+ * stored there in a binary file, named after a hash of the network, of the minimal
+ * travel disutility of each link and of the landmarker configuration (see {@link Landmarker#getCacheKey()}).
+ * Later runs on the same network with the same cost function parameters load that file
+ * instead of computing the distances again.
+ * As only the minimal travel disutilities are used, changed travel times do not
+ * invalidate the cache.
  *
  * @author lnicolas
  */
 public class PreProcessLandmarks extends PreProcessEuclidean {
 
+	private static final int CACHE_FILE_VERSION = 1;
+
 	private final int landmarkCount;
 
 	private final Landmarker landmarker;
@@ -53,6 +75,8 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -82,6 +106,16 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public void setNumberOfThreads(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 	}
+
+	/**
+	 * Sets the directory in which the landmark distances are cached between runs.
+	 * Default is <code>null</code>, which disables the cache.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
 	
 	/**
 	 * @param costFunction
@@ -108,45 +142,80 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	@Override
 	public void run(final Network network) {
 		super.run(network);
-		
-		log.info("Putting landmarks on network...");
-		long now = System.currentTimeMillis();
-		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
-		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
-		}
-		
-		int nOfThreads = this.numberOfThreads;
-		if (nOfThreads > this.landmarks.length) {
-			nOfThreads = this.landmarks.length;
-		}
-		if (nOfThreads < 2) {
-			nOfThreads = 2; // always use at least two threads
+		LandmarksGraph graph = new LandmarksGraph(network, this.costFunction);
+		double[][] fromLandmark = null;
+		double[][] toLandmark = null;
+
+		File cacheFile = null;
+		if (this.cacheDirectory != null && this.landmarker.getCacheKey() == null) {
+			log.info("The landmarks of " + this.landmarker.getClass().getName() + " cannot be cached, not using the cache directory.");
+		} else if (this.cacheDirectory != null) {
+			cacheFile = new File(this.cacheDirectory, "landmarks_" + calcCacheKey(graph) + ".bin");
+			if (cacheFile.exists()) {
+				log.info("Reading landmarks from " + cacheFile);
+				try {
+					double[][][] distances = readCache(cacheFile, graph);
+					fromLandmark = distances[0];
+					toLandmark = distances[1];
+				} catch (IOException e) {
+					log.warn("Could not read landmarks cache file " + cacheFile + ", recalculating the landmarks.", e);
+				}
+			}
 		}
- 		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
 
-		
-		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
-		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
-		}
-		executor.shutdown();
-		while (!executor.isTerminated()) {
-			log.info("wait for landmarks Calculator to finish...");
-			try {
-				executor.awaitTermination(10, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
+		if (fromLandmark == null) {
+			log.info("Putting landmarks on network...");
+			long now = System.currentTimeMillis();
+			this.landmarks = this.landmarker.identifyLandmarks( this.landmarkCount , network );
+			log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+			int nOfThreads = this.numberOfThreads;
+			if (nOfThreads > this.landmarks.length) {
+				nOfThreads = this.landmarks.length;
+			}
+			if (nOfThreads < 2) {
+				nOfThreads = 2; // always use at least two threads
+			}
+			log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
+			now = System.currentTimeMillis();
+
+			fromLandmark = new double[this.landmarks.length][];
+			toLandmark = new double[this.landmarks.length][];
+			ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+			for (int i = 0; i < this.landmarks.length; i++) {
+				executor.execute(new Calculator(i, graph.getIndex(this.landmarks[i]), graph, fromLandmark, toLandmark));
+			}
+			executor.shutdown();
+			while (!executor.isTerminated()) {
+				log.info("wait for landmarks Calculator to finish...");
+				try {
+					executor.awaitTermination(10, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+			if (cacheFile != null) {
+				log.info("Writing landmarks to " + cacheFile);
+				try {
+					writeCache(cacheFile, graph, fromLandmark, toLandmark);
+				} catch (IOException e) {
+					log.warn("Could not write landmarks cache file " + cacheFile, e);
+				}
 			}
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
+		log.info("Initializing landmarks data");
+		for (int n = 0; n < graph.nodes.length; n++) {
+			LandmarksData r = new LandmarksData(this.landmarkCount);
+			for (int i = 0; i < this.landmarks.length; i++) {
+				r.setFromLandmarkTravelTime(i, fromLandmark[i][n]);
+				r.setToLandmarkTravelTime(i, toLandmark[i][n]);
+			}
 			r.updateMinMaxTravelTimes();
+			this.nodeData.put(graph.nodes[n], r);
 		}
 
 		for (Node node : network.getNodes().values()) {
@@ -157,81 +226,221 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 				}
 			}
 		}
+	}
+
+	/**
+	 * @return a hash over the nodes, the links and their minimal travel disutility, and the landmark settings.
+	 */
+	private String calcCacheKey(final LandmarksGraph graph) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+			out.writeInt(CACHE_FILE_VERSION);
+			out.writeInt(this.landmarkCount);
+			out.writeUTF(this.landmarker.getClass().getName());
+			out.writeUTF(this.landmarker.getCacheKey());
+			out.writeInt(graph.nodes.length);
+			for (Node node : graph.nodes) {
+				out.writeUTF(node.getId().toString());
+				out.writeDouble(node.getCoord().getX());
+				out.writeDouble(node.getCoord().getY());
+			}
+			for (int n = 0; n < graph.nodes.length; n++) {
+				for (int e = graph.outStart[n]; e < graph.outStart[n + 1]; e++) {
+					out.writeInt(graph.outNode[e]);
+					out.writeDouble(graph.outCost[e]);
+				}
+				out.writeInt(-1);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return new BigInteger(1, digest.digest()).toString(16);
+	}
 
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	private double[][][] readCache(final File cacheFile, final LandmarksGraph graph) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_FILE_VERSION) {
+				throw new IOException("unsupported file version");
+			}
+			int nodeCount = in.readInt();
+			if (nodeCount != graph.nodes.length) {
+				throw new IOException("file contains " + nodeCount + " nodes, but the network has " + graph.nodes.length);
+			}
+			int cachedLandmarkCount = in.readInt();
+			if (cachedLandmarkCount < 0 || cachedLandmarkCount > this.landmarkCount) {
+				throw new IOException("file contains " + cachedLandmarkCount + " landmarks, but at most " + this.landmarkCount + " are expected");
+			}
+			Node[] cachedLandmarks = new Node[cachedLandmarkCount];
+			for (int i = 0; i < cachedLandmarks.length; i++) {
+				int index = in.readInt();
+				if (index < 0 || index >= graph.nodes.length) {
+					throw new IOException("invalid landmark node index " + index);
+				}
+				cachedLandmarks[i] = graph.nodes[index];
+			}
+			double[][] fromLandmark = new double[cachedLandmarks.length][nodeCount];
+			double[][] toLandmark = new double[cachedLandmarks.length][nodeCount];
+			for (int i = 0; i < cachedLandmarks.length; i++) {
+				for (int n = 0; n < nodeCount; n++) {
+					fromLandmark[i][n] = in.readDouble();
+				}
+				for (int n = 0; n < nodeCount; n++) {
+					toLandmark[i][n] = in.readDouble();
+				}
+			}
+			this.landmarks = cachedLandmarks;
+			return new double[][][] { fromLandmark, toLandmark };
+		}
+	}
+
+	private void writeCache(final File cacheFile, final LandmarksGraph graph, final double[][] fromLandmark, final double[][] toLandmark) throws IOException {
+		File dir = cacheFile.getParentFile();
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("cannot create directory " + dir);
+		}
+		// write to a temporary file first, so concurrent runs never see a partially written cache
+		File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+			out.writeInt(CACHE_FILE_VERSION);
+			out.writeInt(graph.nodes.length);
+			out.writeInt(this.landmarks.length);
+			for (Node landmark : this.landmarks) {
+				out.writeInt(graph.getIndex(landmark));
+			}
+			for (int i = 0; i < this.landmarks.length; i++) {
+				for (double d : fromLandmark[i]) {
+					out.writeDouble(d);
+				}
+				for (double d : toLandmark[i]) {
+					out.writeDouble(d);
+				}
+			}
+		}
+		if (!tmpFile.renameTo(cacheFile)) {
+			tmpFile.delete();
+			if (!cacheFile.exists()) {
+				throw new IOException("cannot rename " + tmpFile + " to " + cacheFile);
+			}
+		}
+	}
+
+	/**
+	 * The network in adjacency arrays, with the minimal travel disutility of each link, so that the
+	 * calculators neither need map lookups nor call the cost function once per landmark.
+	 */
+	private static final class LandmarksGraph {
+
+		private final Node[] nodes;
+		private final Map<Node, Integer> nodeIndices;
+		private final int[] outStart;
+		private final int[] outNode;
+		private final double[] outCost;
+		private final int[] inStart;
+		private final int[] inNode;
+		private final double[] inCost;
+
+		LandmarksGraph(final Network network, final TravelDisutility costFunction) {
+			this.nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+			this.nodeIndices = new HashMap<>(this.nodes.length * 2);
+			for (int n = 0; n < this.nodes.length; n++) {
+				this.nodeIndices.put(this.nodes[n], n);
+			}
+			int linkCount = network.getLinks().size();
+			this.outStart = new int[this.nodes.length + 1];
+			this.outNode = new int[linkCount];
+			this.outCost = new double[linkCount];
+			this.inStart = new int[this.nodes.length + 1];
+			this.inNode = new int[linkCount];
+			this.inCost = new double[linkCount];
+			for (Link link : network.getLinks().values()) {
+				this.outStart[getIndex(link.getFromNode()) + 1]++;
+				this.inStart[getIndex(link.getToNode()) + 1]++;
+			}
+			for (int n = 0; n < this.nodes.length; n++) {
+				this.outStart[n + 1] += this.outStart[n];
+				this.inStart[n + 1] += this.inStart[n];
+			}
+			int[] outPos = Arrays.copyOf(this.outStart, this.nodes.length);
+			int[] inPos = Arrays.copyOf(this.inStart, this.nodes.length);
+			for (int n = 0; n < this.nodes.length; n++) {
+				for (Link link : this.nodes[n].getOutLinks().values()) {
+					int to = getIndex(link.getToNode());
+					double cost = costFunction.getLinkMinimumTravelDisutility(link);
+					int e = outPos[n]++;
+					this.outNode[e] = to;
+					this.outCost[e] = cost;
+					e = inPos[to]++;
+					this.inNode[e] = n;
+					this.inCost[e] = cost;
+				}
+			}
+		}
+
+		int getIndex(final Node node) {
+			return this.nodeIndices.get(node);
+		}
 	}
 
 	private static class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int landmark;
+		private final LandmarksGraph graph;
+		private final double[][] fromLandmark;
+		private final double[][] toLandmark;
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int landmark, final LandmarksGraph graph, final double[][] fromLandmark, final double[][] toLandmark) {
 			this.landmarkIdx = landmarkIdx;
 			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+			this.graph = graph;
+			this.fromLandmark = fromLandmark;
+			this.toLandmark = toLandmark;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
-		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
-			}
+			IndexedMinHeap pendingNodes = new IndexedMinHeap(this.graph.nodes.length);
+			this.fromLandmark[this.landmarkIdx] = expand(pendingNodes, this.graph.outStart, this.graph.outNode, this.graph.outCost);
+			this.toLandmark[this.landmarkIdx] = expand(pendingNodes, this.graph.inStart, this.graph.inNode, this.graph.inCost);
 		}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
+		private double[] expand(final IndexedMinHeap pendingNodes, final int[] start, final int[] adjacentNode, final double[] cost) {
+			double[] travelTimes = new double[this.graph.nodes.length];
+			Arrays.fill(travelTimes, Double.POSITIVE_INFINITY);
+			travelTimes[this.landmark] = 0.0;
+			pendingNodes.update(this.landmark, 0.0);
 			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+				int node = pendingNodes.poll();
+				double travTime = travelTimes[node];
+				for (int e = start[node]; e < start[node + 1]; e++) {
+					int n = adjacentNode[e];
+					double totalTravelTime = travTime + cost[e];
+					if (travelTimes[n] > totalTravelTime) {
+						travelTimes[n] = totalTravelTime;
+						pendingNodes.update(n, totalTravelTime);
 					}
 				}
 			}
+			return travelTimes;
 		}
 	
 	}
 
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	}
+
 	public Node[] getLandmarks() {
 		return this.landmarks.clone();
 	}
@@ -307,66 +516,4 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 	}
 
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
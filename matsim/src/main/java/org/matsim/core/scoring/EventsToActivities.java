@@ -21,7 +21,6 @@
  package org.matsim.core.scoring;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +36,7 @@ import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.collections.IdMap;
 
 import javax.inject.Inject;
 
@@ -59,7 +59,7 @@ public class EventsToActivities implements ActivityStartEventHandler, ActivityEn
 	    void handleActivity(PersonExperiencedActivity activity);
 	}
 
-    private Map<Id<Person>, Activity> activities = new HashMap<>();
+    private Map<Id<Person>, Activity> activities = new IdMap<>(Person.class);
     private List<ActivityHandler> activityHandlers = new ArrayList<>();
 
     public EventsToActivities() {
@@ -7,6 +7,13 @@ public class ExperiencedPlansModule extends AbstractModule {
 	@Override
 	public void install() {
 		install(new ExperiencedPlanElementsModule());
-		bind(ExperiencedPlansService.class).to(ExperiencedPlansServiceImpl.class).asEagerSingleton();
+		if (getConfig().planCalcScore().isStreamingExperiencedPlans()) {
+			if (getConfig().planCalcScore().isMemorizingExperiencedPlans()) {
+				throw new RuntimeException("Experienced plans cannot be memorized if they are streamed.");
+			}
+			bind(ExperiencedPlansService.class).to(StreamingExperiencedPlansServiceImpl.class).asEagerSingleton();
+		} else {
+			bind(ExperiencedPlansService.class).to(ExperiencedPlansServiceImpl.class).asEagerSingleton();
+		}
 	}
 }
@@ -9,16 +9,18 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 
 import javax.inject.Inject;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 class NewScoreAssignerImpl implements NewScoreAssigner {
 
 	static private final Logger log = Logger.getLogger(NewScoreAssignerImpl.class);
 
-	private Map<Plan,Integer> msaContributions = new HashMap<>() ;
+	private Map<Plan,Integer> msaContributions = new ConcurrentHashMap<>() ;
 	private Integer scoreMSAstartsAtIteration;
 	private final double learningRate;
+	private final int numberOfThreads;
 	private double scoreSum = 0.0;
 	private long scoreCount = 0;
 
@@ -30,12 +32,53 @@ class NewScoreAssignerImpl implements NewScoreAssigner {
 					* planCalcScoreConfigGroup.getFractionOfIterationsToStartScoreMSA() + controlerConfigGroup.getFirstIteration());
 		}
 		learningRate = planCalcScoreConfigGroup.getLearningRate();
+		numberOfThreads = planCalcScoreConfigGroup.getNumberOfScoringThreads();
 	}
 
-	public void assignNewScores(int iteration, ScoringFunctionsForPopulation scoringFunctionsForPopulation, Population population) {
+	public void assignNewScores(int iteration, final ScoringFunctionsForPopulation scoringFunctionsForPopulation, Population population) {
 		log.info("it: " + iteration + " msaStart: " + this.scoreMSAstartsAtIteration );
 
-		for (Person person : population.getPersons().values()) {
+		final Person[] persons = population.getPersons().values().toArray(new Person[population.getPersons().size()]);
+		if (this.numberOfThreads <= 1) {
+			assignNewScores(iteration, scoringFunctionsForPopulation, persons, 0, persons.length);
+			return;
+		}
+
+		// the persons are independent of each other, so they can simply be split into ranges
+		final int iter = iteration;
+		final AtomicReference<Throwable> exception = new AtomicReference<>();
+		Thread[] threads = new Thread[this.numberOfThreads];
+		for (int i = 0; i < threads.length; i++) {
+			final int from = (int) ((long) persons.length * i / threads.length);
+			final int to = (int) ((long) persons.length * (i + 1) / threads.length);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						assignNewScores(iter, scoringFunctionsForPopulation, persons, from, to);
+					} catch (RuntimeException | Error e) {
+						exception.compareAndSet(null, e);
+					}
+				}
+			}, "NewScoreAssigner." + i);
+			threads[i].start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		if (exception.get() != null) {
+			throw new RuntimeException("Exception while assigning new scores.", exception.get());
+		}
+	}
+
+	private void assignNewScores(int iteration, ScoringFunctionsForPopulation scoringFunctionsForPopulation, Person[] persons, int from, int to) {
+		double sum = 0.0;
+		for (int i = from; i < to; i++) {
+			Person person = persons[i];
 			ScoringFunction sf = scoringFunctionsForPopulation.getScoringFunctionForAgent(person.getId());
 			double score = sf.getScore();
 			Plan plan = person.getSelectedPlan();
@@ -95,8 +138,11 @@ class NewScoreAssignerImpl implements NewScoreAssigner {
 				}
 			}
 
-			this.scoreSum += score;
-			this.scoreCount++;
+			sum += score;
+		}
+		synchronized (this) {
+			this.scoreSum += sum;
+			this.scoreCount += to - from;
 		}
 	}
 
@@ -62,12 +62,9 @@ final class PlansScoringImpl implements PlansScoring, ScoringListener, Iteration
 
 	@Override
 	public void notifyIterationEnds(final IterationEndsEvent event) {
-		if(planCalcScoreConfigGroup.isWriteExperiencedPlans()) {
-			final int writePlansInterval = controlerConfigGroup.getWritePlansInterval();
-			if (writePlansInterval > 0 && event.getIteration() % writePlansInterval == 0) {
-				this.experiencedPlansService.writeExperiencedPlans(controlerIO.getIterationFilename(event.getIteration(), "experienced_plans.xml.gz"));
-				this.scoringFunctionsForPopulation.writePartialScores(controlerIO.getIterationFilename(event.getIteration(), "experienced_plans_scores.txt.gz"));
-			}
+		if (isWritingExperiencedPlans(event.getIteration(), this.planCalcScoreConfigGroup, this.controlerConfigGroup)) {
+			this.experiencedPlansService.writeExperiencedPlans(controlerIO.getIterationFilename(event.getIteration(), "experienced_plans.xml.gz"));
+			this.scoringFunctionsForPopulation.writePartialScores(controlerIO.getIterationFilename(event.getIteration(), "experienced_plans_scores.txt.gz"));
 		}
 		if (planCalcScoreConfigGroup.isMemorizingExperiencedPlans() ) {
 			for ( Person person : this.population.getPersons().values() ) {
@@ -81,4 +78,13 @@ final class PlansScoringImpl implements PlansScoring, ScoringListener, Iteration
 		}
 	}
 
+	/**
+	 * @return <code>true</code> if the experienced plans are written at the end of the given iteration.
+	 */
+	/*package*/ static boolean isWritingExperiencedPlans(final int iteration, final PlanCalcScoreConfigGroup planCalcScoreConfigGroup,
+			final ControlerConfigGroup controlerConfigGroup) {
+		final int writePlansInterval = controlerConfigGroup.getWritePlansInterval();
+		return planCalcScoreConfigGroup.isWriteExperiencedPlans() && writePlansInterval > 0 && iteration % writePlansInterval == 0;
+	}
+
 }
@@ -33,25 +33,36 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.io.IOUtils;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * If {@link PlanCalcScoreConfigGroup#getNumberOfScoringThreads()} is larger than 0, the persons are distributed
+ * to that many scoring threads by the index of their id. Events, legs and activities are then only queued by the
+ * thread delivering the events, and the scoring functions are called in the scoring thread of the person, so the
+ * events of every person are still handled in the order they were delivered. The scoring threads also finish the
+ * scoring functions at the end of the iteration.
  * 
  * @author michaz
  *
@@ -74,13 +85,25 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	 *
 	 * cdobler, nov'15
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 
-	@Inject
+	private final int numberOfScoringThreads;
+	private ScoringThread[] scoringThreads = null;
+	/* markers sent to the scoring threads */
+	private static final List<Object> FINISH = new ArrayList<>(0);
+	private static final List<Object> ABORT = new ArrayList<>(0);
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  PlansConfigGroup plansConfigGroup, Network network, Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, plansConfigGroup, new PlanCalcScoreConfigGroup(), network, population, scoringFunctionFactory);
+	}
+
+	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  PlansConfigGroup plansConfigGroup, PlanCalcScoreConfigGroup planCalcScoreConfigGroup, Network network, Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this.numberOfScoringThreads = planCalcScoreConfigGroup.getNumberOfScoringThreads();
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -97,11 +120,28 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	}
 
 	private void init() {
+		if (this.scoringThreads != null) {
+			// the last iteration was not finished, e.g. because of an exception
+			stopScoringThreads(ABORT);
+		}
+		this.exception.set(null);
 		for (Person person : population.getPersons().values()) {
 			ScoringFunction data = scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 		}
+		if (this.numberOfScoringThreads > 0) {
+			this.scoringThreads = new ScoringThread[this.numberOfScoringThreads];
+			for (int i = 0; i < this.numberOfScoringThreads; i++) {
+				this.scoringThreads[i] = new ScoringThread("ScoringThread." + i);
+			}
+			for (Id<Person> personId : this.partialScores.keySet()) {
+				getScoringThread(personId).personIds.add(personId);
+			}
+			for (ScoringThread thread : this.scoringThreads) {
+				thread.start();
+			}
+		}
 	}
 
 	@Override
@@ -112,21 +152,53 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-				} else {
-					scoringFunction.handleEvent(o);
+			Id<Person> personId = ((HasPersonId) o).getPersonId();
+			if (this.scoringThreads != null) {
+				if (getScoringFunctionForAgent(personId) != null) {
+					getScoringThread(personId).add(o);
 				}
+			} else {
+				processEvent(o);
 			}
 		}
 	}
 
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		if (this.scoringThreads != null) {
+			if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+				getScoringThread(o.getAgentId()).add(o);
+			}
+		} else {
+			processLeg(o);
+		}
+	}
+
+	@Override
+	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		if (this.scoringThreads != null) {
+			if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+				getScoringThread(o.getAgentId()).add(o);
+			}
+		} else {
+			processActivity(o);
+		}
+	}
+
+	private void processEvent(Event o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+			} else {
+				scoringFunction.handleEvent(o);
+			}
+		}
+	}
+
+	private void processLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -137,8 +209,7 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		}
 	}
 
-	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	private void processActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -149,6 +220,10 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		}
 	}
 
+	private ScoringThread getScoringThread(final Id<Person> personId) {
+		return this.scoringThreads[personId.index() % this.scoringThreads.length];
+	}
+
 	/**
 	 * Returns the scoring function for the specified agent. If the agent
 	 * already has a scoring function, that one is returned. If the agent does
@@ -164,6 +239,10 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	}
 
 	public void finishScoringFunctions() {
+		if (this.scoringThreads != null) {
+			// the scoring threads finish the scoring functions of their persons
+			stopScoringThreads(FINISH);
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = exception.get();
 		if (throwable != null) {
@@ -173,6 +252,9 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.numberOfScoringThreads > 0) {
+			return;
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -181,6 +263,21 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		}
 	}
 
+	private synchronized void stopScoringThreads(final List<Object> marker) {
+		for (ScoringThread thread : this.scoringThreads) {
+			thread.flush();
+			thread.queue.add(marker);
+		}
+		try {
+			for (ScoringThread thread : this.scoringThreads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.scoringThreads = null;
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
@@ -201,4 +298,87 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	public void reset(int iteration) {
 
 	}
+
+	/**
+	 * Calls the scoring functions of a part of the population. The events, legs and activities are
+	 * collected in batches before they are handed over, to keep the synchronization overhead low.
+	 */
+	private final class ScoringThread extends Thread {
+
+		private static final int BATCH_SIZE = 256;
+
+		final List<Id<Person>> personIds = new ArrayList<>();
+		final BlockingQueue<List<Object>> queue = new LinkedBlockingQueue<>();
+		private List<Object> batch = new ArrayList<>(BATCH_SIZE);
+
+		ScoringThread(final String name) {
+			super(name);
+			setDaemon(true);
+		}
+
+		/* called by the thread delivering the events */
+		void add(final Object o) {
+			this.batch.add(o);
+			if (this.batch.size() == BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (!this.batch.isEmpty()) {
+				this.queue.add(this.batch);
+				this.batch = new ArrayList<>(BATCH_SIZE);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					List<Object> objects = this.queue.take();
+					if (objects == FINISH) {
+						finishScoringFunctions();
+						return;
+					}
+					if (objects == ABORT) {
+						return;
+					}
+					if (exception.get() != null) {
+						continue; // just wait for the end
+					}
+					try {
+						for (Object o : objects) {
+							if (o instanceof Event) {
+								processEvent((Event) o);
+							} else if (o instanceof PersonExperiencedLeg) {
+								processLeg((PersonExperiencedLeg) o);
+							} else {
+								processActivity((PersonExperiencedActivity) o);
+							}
+						}
+					} catch (RuntimeException | Error e) {
+						log.error("Exception in scoring thread " + getName() + ", will be rethrown at the end of the iteration.", e);
+						exception.compareAndSet(null, e);
+					}
+				}
+			} catch (InterruptedException e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+
+		private void finishScoringFunctions() {
+			if (exception.get() != null) {
+				return;
+			}
+			try {
+				for (Id<Person> personId : this.personIds) {
+					ScoringFunction sf = getScoringFunctionForAgent(personId);
+					sf.finish();
+					partialScores.get(personId).add(sf.getScore());
+				}
+			} catch (RuntimeException | Error e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package org.matsim.core.scoring;
+
+import com.google.inject.Inject;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.*;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.StreamingPopulationWriter;
+import org.matsim.core.utils.collections.IdMap;
+
+import java.util.Map;
+
+/**
+ * Variant of {@link ExperiencedPlansServiceImpl} which does not keep the experienced plans of the whole population
+ * on the heap. Activities and legs are only recorded in iterations in which the experienced plans are written. The
+ * plans of these iterations are still buffered until the end of the iteration, as the last activities are only known
+ * after the mobsim and the scores only after scoring. When writing, the persons are streamed to the file one by one,
+ * and every plan is released as soon as it is written, without building a copy of the population.
+ * <p></p>
+ * Scoring does not depend on this service, it gets the activities and legs directly from {@link EventsToActivities}
+ * and {@link EventsToLegs}.
+ */
+final class StreamingExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+
+	private final static Logger log = Logger.getLogger(StreamingExperiencedPlansServiceImpl.class);
+
+	@Inject(optional = true) private ScoringFunctionsForPopulation scoringFunctionsForPopulation;
+
+	private final Population population;
+	private final Map<Id<Person>, Plan> agentRecords = new IdMap<>(Person.class);
+	private boolean recording = false;
+
+	@Inject
+	StreamingExperiencedPlansServiceImpl(ControlerListenerManager controlerListenerManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+			final PlanCalcScoreConfigGroup planCalcScoreConfigGroup, final ControlerConfigGroup controlerConfigGroup, Population population) {
+		this.population = population;
+		controlerListenerManager.addControlerListener(new IterationStartsListener() {
+			@Override
+			public void notifyIterationStarts(IterationStartsEvent event) {
+				synchronized (StreamingExperiencedPlansServiceImpl.this) {
+					agentRecords.clear();
+					recording = PlansScoringImpl.isWritingExperiencedPlans(event.getIteration(), planCalcScoreConfigGroup, controlerConfigGroup);
+				}
+			}
+		});
+		eventsToActivities.addActivityHandler(this);
+		eventsToLegs.addLegHandler(this);
+	}
+
+	@Override
+	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		Plan plan = getPlan(o.getAgentId());
+		if (plan != null) {
+			plan.addLeg(o.getLeg());
+		}
+	}
+
+	@Override
+	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		Plan plan = getPlan(o.getAgentId());
+		if (plan != null) {
+			plan.addActivity(o.getActivity());
+		}
+	}
+
+	private Plan getPlan(Id<Person> agentId) {
+		if (!this.recording) {
+			return null;
+		}
+		Plan plan = this.agentRecords.get(agentId);
+		if (plan == null && this.population.getPersons().containsKey(agentId)) {
+			plan = PopulationUtils.createPlan();
+			this.agentRecords.put(agentId, plan);
+		}
+		return plan;
+	}
+
+	@Override
+	synchronized public void writeExperiencedPlans(String iterationFilename) {
+		StreamingPopulationWriter writer = new StreamingPopulationWriter(this.population);
+		writer.startStreaming(iterationFilename);
+		for (Id<Person> personId : this.population.getPersons().keySet()) {
+			Plan plan = this.agentRecords.remove(personId);
+			if (plan == null) {
+				plan = PopulationUtils.createPlan();
+			}
+			Person person = PopulationUtils.getFactory().createPerson(personId);
+			if (scoringFunctionsForPopulation != null) {
+				plan.setScore(scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore());
+				if (plan.getScore().isNaN()) {
+					log.warn("score is NaN; plan:" + plan.toString());
+				}
+			}
+			person.addPlan(plan);
+			writer.writePerson(person);
+		}
+		writer.closeStreaming();
+		this.agentRecords.clear();
+		this.recording = false;
+	}
+
+	@Override
+	public Map<Id<Person>, Plan> getExperiencedPlans() {
+		throw new UnsupportedOperationException("Experienced plans are not kept in memory if they are streamed. Set "
+				+ PlanCalcScoreConfigGroup.GROUP_NAME + ".streamingExperiencedPlans to false to get them.");
+	}
+
+}
@@ -53,7 +53,7 @@ public abstract class AbstractTravelTimeAggregator {
 		//here is the right place to handle StuckEvents (just overwrite this method)
 	}
 
-	protected double getTravelTime(final TravelTimeData travelTimeRole, final double time) {
+	protected double getTravelTime(final ReadOnlyTravelTimeData travelTimeRole, final double time) {
 		return this.travelTimeGetter.getTravelTime(travelTimeRole, time);
 	}
 
@@ -34,7 +34,7 @@ public class AveragingTravelTimeGetter implements TravelTimeGetter {
 	}
 	
 	@Override
-	public double getTravelTime(TravelTimeData travelTimeData, double time) {
+	public double getTravelTime(ReadOnlyTravelTimeData travelTimeData, double time) {
 		final int timeSlot = travelTimeAggregator.getTimeSlotIndex(time);
 		return travelTimeData.getTravelTime(timeSlot, time);
 	}
@@ -39,7 +39,7 @@ public class LinearInterpolatingTravelTimeGetter implements TravelTimeGetter {
 	}
 	
 	@Override
-	public double getTravelTime(TravelTimeData travelTimeData, double time) {
+	public double getTravelTime(ReadOnlyTravelTimeData travelTimeData, double time) {
 		final int timeSlot = travelTimeAggregator.getTimeSlotIndex(time);
 		
 		// if time is in the first half of the first slot we do not interpolate
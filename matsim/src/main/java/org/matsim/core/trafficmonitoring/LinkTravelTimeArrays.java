@@ -0,0 +1,337 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkTravelTimeArrays.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Array based storage of link travel times for the {@link TravelTimeCalculator}, used if
+ * {@link org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType#TravelTimeCalculatorFlatArray}
+ * is configured.
+ * <p></p>
+ * Every link of the network gets a row, which is found via the {@link Id#index()} of the link id, so no hash lookups
+ * are needed. Travel times are accumulated per thread delivering events (with the usual events managers this
+ * is a single thread), so accumulating never needs synchronization. Readers do not access the accumulators,
+ * but an immutable {@link Snapshot} with the (consolidated) travel times of all links in one flat
+ * <code>double[links*bins]</code> array. A new snapshot is created by {@link #publish()}, which is called after the
+ * mobsim. Publishing folds the per-thread accumulators into one merged accumulator and forgets them, so the threads
+ * delivering events in the next mobsim (the parallel events managers start new ones in every iteration) register
+ * new accumulators instead of leaving the old ones behind.
+ * <p></p>
+ * While the mobsim runs (between {@link #startCollecting()} and {@link #publish()}), the accumulators are written by
+ * the threads delivering events, so reads only return the travel times of the last published snapshot, or the free
+ * speed travel times if there is none. Outside of the mobsim, e.g. if events are read from a file for
+ * post-processing, a read after new data was added publishes a new snapshot first. This must not happen while
+ * events are still being handled by another thread.
+ */
+final class LinkTravelTimeArrays {
+
+	private final Link[] links;
+	private final int[] rowByIdIndex;
+	private final int numSlots;
+	private final int timeSlice;
+
+	private final List<Accumulator> accumulators = new CopyOnWriteArrayList<>();
+	private volatile ThreadLocal<Accumulator> threadAccumulator = createThreadAccumulator();
+	/** the data of all accumulators folded in by {@link #publish()} since the last {@link #reset()} */
+	private final Accumulator merged;
+
+	private volatile Snapshot snapshot = null;
+	private volatile boolean modifiedSinceSnapshot = false;
+	private volatile boolean collecting = false;
+
+	/*package*/ LinkTravelTimeArrays(final Network network, final int numSlots, final int timeSlice) {
+		this.numSlots = numSlots;
+		this.timeSlice = timeSlice;
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.merged = new Accumulator(this.links, numSlots);
+		int maxIdIndex = -1;
+		for (Link link : this.links) {
+			maxIdIndex = Math.max(maxIdIndex, link.getId().index());
+		}
+		this.rowByIdIndex = new int[maxIdIndex + 1];
+		Arrays.fill(this.rowByIdIndex, -1);
+		for (int row = 0; row < this.links.length; row++) {
+			this.rowByIdIndex[this.links[row].getId().index()] = row;
+		}
+	}
+
+	/*package*/ void addTravelTime(final AbstractTravelTimeAggregator aggregator, final Id<Link> linkId,
+			final double enterTime, final double leaveTime) {
+		aggregator.addTravelTime(getAccumulatorRow(linkId), enterTime, leaveTime);
+		markModified();
+	}
+
+	/*package*/ void addStuckEventTravelTime(final AbstractTravelTimeAggregator aggregator, final Id<Link> linkId,
+			final double enterTime, final double stuckEventTime) {
+		aggregator.addStuckEventTravelTime(getAccumulatorRow(linkId), enterTime, stuckEventTime);
+		markModified();
+	}
+
+	/*package*/ double getTravelTime(final AbstractTravelTimeAggregator aggregator, final Id<Link> linkId, final double time) {
+		int row = getRow(linkId);
+		Snapshot s = this.snapshot;
+		if (!this.collecting && (s == null || this.modifiedSinceSnapshot)) {
+			s = publishIfModified();
+		}
+		if (s == null) {
+			Link link = this.links[row];
+			return link.getLength() / link.getFreespeed(time);
+		}
+		return aggregator.getTravelTime(s.rows[row], time);
+	}
+
+	/**
+	 * Marks the start of the mobsim. Until the next {@link #publish()}, reads no longer merge the data of the
+	 * accumulators, as these are written concurrently.
+	 */
+	/*package*/ void startCollecting() {
+		this.collecting = true;
+	}
+
+	/*package*/ synchronized void reset() {
+		this.merged.resetTravelTimes();
+		forgetAccumulators();
+		this.snapshot = null;
+	}
+
+	/**
+	 * Folds the data of all accumulators into the merged accumulator and creates a new snapshot from it.
+	 */
+	/*package*/ synchronized void publish() {
+		this.modifiedSinceSnapshot = false;
+		for (Accumulator accumulator : this.accumulators) {
+			this.merged.addAll(accumulator);
+		}
+		forgetAccumulators();
+		this.snapshot = createSnapshot();
+		this.collecting = false;
+	}
+
+	/*package*/ int getAccumulatorCount() { // for tests
+		return this.accumulators.size();
+	}
+
+	/**
+	 * Drops the accumulators of all threads. The thread local is replaced, so threads that deliver events again
+	 * register a new accumulator, and the old one can be garbage collected together with its thread.
+	 */
+	private void forgetAccumulators() {
+		this.threadAccumulator = createThreadAccumulator();
+		this.accumulators.clear();
+	}
+
+	private ThreadLocal<Accumulator> createThreadAccumulator() {
+		return new ThreadLocal<Accumulator>() {
+			@Override
+			protected Accumulator initialValue() {
+				Accumulator accumulator = new Accumulator(LinkTravelTimeArrays.this.links, LinkTravelTimeArrays.this.numSlots);
+				LinkTravelTimeArrays.this.accumulators.add(accumulator);
+				return accumulator;
+			}
+		};
+	}
+
+	private synchronized Snapshot publishIfModified() {
+		if (this.snapshot == null || this.modifiedSinceSnapshot) {
+			publish();
+		}
+		return this.snapshot;
+	}
+
+	private void markModified() {
+		if (!this.modifiedSinceSnapshot) {
+			this.modifiedSinceSnapshot = true;
+		}
+	}
+
+	private Accumulator getAccumulatorRow(final Id<Link> linkId) {
+		Accumulator accumulator = this.threadAccumulator.get();
+		accumulator.row = getRow(linkId);
+		return accumulator;
+	}
+
+	private int getRow(final Id<Link> linkId) {
+		int index = linkId.index();
+		int row = index < this.rowByIdIndex.length ? this.rowByIdIndex[index] : -1;
+		if (row < 0 || this.links[row].getId() != linkId) {
+			// might be an id of another type with the same key
+			Id<Link> typedId = Id.get(linkId.toString(), Link.class);
+			row = (typedId == null || typedId.index() >= this.rowByIdIndex.length) ? -1 : this.rowByIdIndex[typedId.index()];
+			if (row < 0) {
+				throw new IllegalArgumentException("Link " + linkId + " is not part of the network.");
+			}
+		}
+		return row;
+	}
+
+	private Snapshot createSnapshot() {
+		final double[] travelTimes = new double[this.links.length * this.numSlots];
+		final SnapshotRow[] rows = new SnapshotRow[this.links.length];
+		for (int row = 0; row < this.links.length; row++) {
+			final int offset = row * this.numSlots;
+			consolidateRow(row, travelTimes, offset);
+			rows[row] = new SnapshotRow(travelTimes, offset, this.links[row]);
+		}
+		return new Snapshot(rows);
+	}
+
+	/**
+	 * Averages the accumulated travel times of one row and makes sure that the travel time in a time bin cannot be smaller
+	 * than the travel time in the bin before minus the bin size (see {@link TravelTimeCalculator} for details).
+	 * Bins without data are marked with a negative value and return the free speed travel time.
+	 */
+	private void consolidateRow(final int row, final double[] travelTimes, final int offset) {
+		final Link link = this.links[row];
+		final double[] rowSums = this.merged.sums[row];
+		final int[] rowCounts = this.merged.counts[row];
+		double prevTravelTime = 0.0;
+		for (int slot = 0; slot < this.numSlots; slot++) {
+			double travelTime = (rowCounts == null || rowCounts[slot] == 0) ? -1.0 : rowSums[slot] / rowCounts[slot];
+			double effectiveTravelTime = travelTime >= 0.0 ? travelTime : link.getLength() / link.getFreespeed(slot * this.timeSlice);
+			if (slot > 0) {
+				double minTravelTime = prevTravelTime - this.timeSlice;
+				if (effectiveTravelTime < minTravelTime) {
+					travelTime = minTravelTime;
+					effectiveTravelTime = minTravelTime;
+				}
+			}
+			travelTimes[offset + slot] = travelTime;
+			prevTravelTime = effectiveTravelTime;
+		}
+	}
+
+	private static final class Snapshot {
+		final SnapshotRow[] rows;
+
+		Snapshot(final SnapshotRow[] rows) {
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * Read-only view on the travel times of one link in a snapshot.
+	 */
+	private static final class SnapshotRow implements ReadOnlyTravelTimeData {
+		private final double[] travelTimes;
+		private final int offset;
+		private final Link link;
+
+		SnapshotRow(final double[] travelTimes, final int offset, final Link link) {
+			this.travelTimes = travelTimes;
+			this.offset = offset;
+			this.link = link;
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			double ttime = this.travelTimes[this.offset + timeSlot];
+			if (ttime >= 0.0) return ttime; // negative values mark bins without data
+			return this.link.getLength() / this.link.getFreespeed(now);
+		}
+	}
+
+	/**
+	 * The travel time sums and counts collected by one thread. The rows are only allocated for links
+	 * with traffic. The aggregators write into and read from the row selected by {@link #row}; reads only see the data
+	 * of this accumulator.
+	 */
+	private static final class Accumulator implements TravelTimeData {
+		final double[][] sums;
+		final int[][] counts;
+		private final Link[] links;
+		private final int numSlots;
+		int row = -1;
+
+		Accumulator(final Link[] links, final int numSlots) {
+			this.sums = new double[links.length][];
+			this.counts = new int[links.length][];
+			this.links = links;
+			this.numSlots = numSlots;
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			allocateRow();
+			this.sums[this.row][timeSlot] += traveltime;
+			this.counts[this.row][timeSlot]++;
+		}
+
+		private void allocateRow() {
+			if (this.counts[this.row] == null) {
+				this.sums[this.row] = new double[this.numSlots];
+				this.counts[this.row] = new int[this.numSlots];
+			}
+		}
+
+		/**
+		 * Adds the sums and counts of another accumulator to the ones of this accumulator.
+		 */
+		void addAll(final Accumulator other) {
+			for (int i = 0; i < other.counts.length; i++) {
+				if (other.counts[i] != null) {
+					this.row = i;
+					allocateRow();
+					double[] rowSums = this.sums[i];
+					int[] rowCounts = this.counts[i];
+					for (int slot = 0; slot < this.numSlots; slot++) {
+						rowSums[slot] += other.sums[i][slot];
+						rowCounts[slot] += other.counts[i][slot];
+					}
+				}
+			}
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			for (int i = 0; i < this.counts.length; i++) {
+				if (this.counts[i] != null) {
+					Arrays.fill(this.sums[i], 0.0);
+					Arrays.fill(this.counts[i], 0);
+				}
+			}
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			allocateRow();
+			this.sums[this.row][timeSlot] = traveltime;
+			this.counts[this.row][timeSlot] = 1;
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			int[] rowCounts = this.counts[this.row];
+			if (rowCounts != null && rowCounts[timeSlot] > 0) {
+				return this.sums[this.row][timeSlot] / rowCounts[timeSlot];
+			}
+			Link link = this.links[this.row];
+			return link.getLength() / link.getFreespeed(now);
+		}
+	}
+
+}
@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * MapBasedDataContainerProvider.java
+ * ReadOnlyTravelTimeData.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,32 +18,17 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.core.trafficmonitoring;
 
-import java.util.Map;
+/**
+ * The part of {@link TravelTimeData} that is needed to read travel times, e.g. by a {@link TravelTimeGetter}.
+ * Allows to hand out travel times that cannot be modified.
+ */
+public interface ReadOnlyTravelTimeData {
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.TravelTimeCollector.TravelTimeInfo;
+	/**
+	 * @see TravelTimeData#getTravelTime(int, double)
+	 */
+	public double getTravelTime(final int timeSlot, final double now);
 
-public class MapBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
-
-	private final Map<Id<Link>, TravelTimeInfo> linkData;
-	
-	public MapBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData) {
-		this.linkData = linkData;
-	}
-	
-	@Override 
-	public TravelTimeInfo getTravelTimeData(final Id<Link> linkId) {
-		TravelTimeInfo data = this.linkData.get(linkId);
-		return data;
-	}
-		
-	@Override
-	public TravelTimeInfo getTravelTimeData(Link link) {
-		Id<Link> linkId = link.getId();
-		return this.getTravelTimeData(linkId);
-	}
-	
-}
\ No newline at end of file
+}
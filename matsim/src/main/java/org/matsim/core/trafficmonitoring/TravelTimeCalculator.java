@@ -19,7 +19,6 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,9 +43,15 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.core.utils.collections.IdMap;
+import org.matsim.core.utils.collections.IdSet;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 
@@ -60,14 +65,17 @@ import org.matsim.vehicles.Vehicle;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. With the calculator type <code>TravelTimeCalculatorFlatArray</code>,
+ * the link travel times of all links are stored in flat arrays instead (see {@link LinkTravelTimeArrays}), and
+ * the travel times are read from a snapshot that is created after the mobsim. During the mobsim, this snapshot
+ * still contains the travel times of the previous publication (free speed travel times after a reset).
  * 
  * @author dgrether
  * @author mrieser
  */
 public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEventHandler, 
 	VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, 
-	VehicleAbortsEventHandler {
+	VehicleAbortsEventHandler, BeforeMobsimListener, AfterMobsimListener {
 
 	private static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
 			"agent is not known the turning move travel time cannot be calculated!";
@@ -97,6 +105,8 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private TravelTimeDataFactory ttDataFactory = null;
 
+	private LinkTravelTimeArrays linkTravelTimeArrays = null;
+
 	public static TravelTimeCalculator create(Network network, TravelTimeCalculatorConfigGroup group) {
 		TravelTimeCalculator calculator = new TravelTimeCalculator(network, group);
 		configure(calculator, group, network);
@@ -112,6 +122,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorFlatArray:
+				calculator.useLinkTravelTimeArrays(network);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -189,11 +202,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterEvents = new IdMap<>(Vehicle.class);
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
@@ -220,7 +233,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
 			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			if (oldEvent != null && this.linkTravelTimeArrays != null) {
+				this.linkTravelTimeArrays.addTravelTime(this.aggregator, e.getLinkId(), oldEvent.getTime(), e.getTime());
+			} else if (oldEvent != null) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
 				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
 				data.needsConsolidation = true;
@@ -260,7 +275,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
 		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
+		if (e != null && this.linkTravelTimeArrays != null) {
+			this.linkTravelTimeArrays.addStuckEventTravelTime(this.aggregator, e.getLinkId(), e.getTime(), event.getTime());
+		} else if (e != null) {
 			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
 			data.needsConsolidation = true;
 			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
@@ -284,6 +301,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	}
 	
 	public double getLinkTravelTime(final Id<Link> linkId, final double time) {
+		if (this.linkTravelTimeArrays != null) {
+			return this.linkTravelTimeArrays.getTravelTime(this.aggregator, linkId, time);
+		}
 		if (this.calculateLinkTravelTimes) {
 			DataContainer data = this.dataContainerProvider.getTravelTimeData(linkId, true);
 			if (data.needsConsolidation) {
@@ -309,6 +329,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void reset(int iteration) {
+		if (this.linkTravelTimeArrays != null) {
+			this.linkTravelTimeArrays.reset();
+		}
 		if (this.calculateLinkTravelTimes) {
 			for (DataContainer data : this.linkData.values()){
 				data.ttData.resetTravelTimes();
@@ -325,6 +348,47 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		this.vehiclesToIgnore.clear();
 	}
 
+	/**
+	 * Tells the link travel time arrays that events are now handled concurrently to reads, so the travel times are
+	 * only merged after the mobsim. Only has an effect if the link travel times are stored in arrays.
+	 */
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		if (this.linkTravelTimeArrays != null) {
+			this.linkTravelTimeArrays.startCollecting();
+		}
+	}
+
+	/**
+	 * Merges the link travel times collected during the mobsim, so the routers in the following
+	 * replanning find them ready. Only has an effect if the link travel times are stored in arrays.
+	 */
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		if (this.linkTravelTimeArrays != null) {
+			this.linkTravelTimeArrays.publish();
+		}
+	}
+
+	/**
+	 * Stores the link travel times in flat arrays indexed by link instead of {@link TravelTimeData} objects per link,
+	 * see {@link LinkTravelTimeArrays}. The travel time data factory is not used in this case. Must be called before
+	 * any events are handled.
+	 */
+	/*package*/ void useLinkTravelTimeArrays(final Network network) {
+		if (!this.calculateLinkTravelTimes) {
+			return;
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			throw new RuntimeException("Storing the travel times in arrays is not available together with link to link travel times.");
+		}
+		this.linkTravelTimeArrays = new LinkTravelTimeArrays(network, this.numSlots, this.timeSlice);
+	}
+
+	/*package*/ LinkTravelTimeArrays getLinkTravelTimeArrays() { // for tests
+		return this.linkTravelTimeArrays;
+	}
+
 	public void setTravelTimeDataFactory(final TravelTimeDataFactory factory) {
 		this.ttDataFactory = factory;
 	}
@@ -53,6 +53,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
         if (getConfig().travelTimeCalculator().getSeparateModes()) {
             for (final String mode : CollectionUtils.stringToSet(getConfig().travelTimeCalculator().getAnalyzedModes())) {
                 bind(TravelTimeCalculator.class).annotatedWith(Names.named(mode)).toProvider(new SingleModeTravelTimeCalculatorProvider(mode)).in(Singleton.class);
+                if (getConfig().travelTimeCalculator().getTravelTimeCalculatorType() == TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorFlatArray) {
+                    addControlerListenerBinding().to(Key.get(TravelTimeCalculator.class, Names.named(mode)));
+                }
                 addTravelTimeBinding(mode).toProvider(new Provider<TravelTime>() {
                     @Inject Injector injector;
                     @Override
@@ -63,6 +66,10 @@ public class TravelTimeCalculatorModule extends AbstractModule {
             }
         } else {
             bind(TravelTimeCalculator.class).in(Singleton.class);
+            if (getConfig().travelTimeCalculator().getTravelTimeCalculatorType() == TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorFlatArray) {
+                // publishes the travel times collected during the mobsim
+                addControlerListenerBinding().to(TravelTimeCalculator.class);
+            }
             if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
                 for (String mode : CollectionUtils.stringToSet(getConfig().travelTimeCalculator().getAnalyzedModes())) {
                     addTravelTimeBinding(mode).toProvider(ObservedLinkTravelTimes.class);
@@ -20,7 +20,7 @@
 
 package org.matsim.core.trafficmonitoring;
 
-public interface TravelTimeData {
+public interface TravelTimeData extends ReadOnlyTravelTimeData {
 
 	public abstract void resetTravelTimes();
 	
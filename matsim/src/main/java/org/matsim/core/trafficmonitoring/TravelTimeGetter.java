@@ -24,5 +24,5 @@ interface TravelTimeGetter {
 
 	public void setTravelTimeAggregator(AbstractTravelTimeAggregator travelTimeAggregator);
 	
-	public double getTravelTime(TravelTimeData travelTimeData, double time);
+	public double getTravelTime(ReadOnlyTravelTimeData travelTimeData, double time);
 }
@@ -0,0 +1,276 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Map with {@link Id}s as keys, backed by an array indexed by {@link Id#index()}. Lookups are plain
+ * array accesses and there is no per-entry overhead, which makes this map considerably faster and
+ * smaller than a {@link java.util.HashMap} if a substantial fraction of all ids of a type is stored
+ * (e.g. data per link or per person).
+ * <p></p>
+ * The entries are iterated in the order of the ids' indices, i.e. in the order the ids were created.
+ * As ids of different types are equal if they have the same key, keys of another id type are resolved
+ * by their key, so the map behaves like a {@link java.util.HashMap} also in such cases. Only putting
+ * a key of another type for which no id of our type exists fails, as it has no index to store it at.
+ * <p></p>
+ * This class is not thread-safe.
+ *
+ * @param <T> the type of the ids used as keys
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final Object NULL = new Object();
+
+	private final Class<T> idClass;
+	private final Id.IdCache<T> ids;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.ids = Id.getCache(idClass);
+		this.data = new Object[Math.max(initialCapacity, 1)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		int index = indexOf(key);
+		return index >= 0 && index < this.data.length && this.data[index] != null;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return unmask(this.data[index]);
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = indexOf(key);
+		if (index < 0) {
+			throw new IllegalArgumentException("There is no id of type " + this.idClass.getName() + " with key " + key + ".");
+		}
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, this.data.length + (this.data.length >> 1)));
+		}
+		Object old = this.data[index];
+		this.data[index] = value == null ? NULL : value;
+		if (old == null) {
+			this.size++;
+			this.modCount++;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return removeIndex(index);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new AbstractSet<Map.Entry<Id<T>, V>>() {
+			@Override
+			public Iterator<Map.Entry<Id<T>, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return IdMap.this.size;
+			}
+
+			@Override
+			public void clear() {
+				IdMap.this.clear();
+			}
+		};
+	}
+
+	private V removeIndex(final int index) {
+		Object old = this.data[index];
+		if (old != null) {
+			this.data[index] = null;
+			this.size--;
+			this.modCount++;
+		}
+		return unmask(old);
+	}
+
+	/**
+	 * @return the index of the given key in the index space of our id type, or <code>-1</code> if there
+	 * is no id of our type with the key.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) key;
+		int index = id.index();
+		if (this.ids.get(index) == id) {
+			return index;
+		}
+		Id<T> typedId = this.ids.get(id.toString());
+		return typedId == null ? -1 : typedId.index();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V unmask(final Object value) {
+		return value == NULL ? null : (V) value;
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+
+		private int next = -1;
+		private int current = -1;
+		private int expectedModCount = IdMap.this.modCount;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			do {
+				this.next++;
+			} while (this.next < IdMap.this.data.length && IdMap.this.data[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			return new Entry(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeIndex(this.current);
+			this.current = -1;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private class Entry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+
+		Entry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return IdMap.this.ids.get(this.index);
+		}
+
+		@Override
+		public V getValue() {
+			return unmask(IdMap.this.data[this.index]);
+		}
+
+		@Override
+		public V setValue(final V value) {
+			V old = getValue();
+			IdMap.this.data[this.index] = value == null ? NULL : value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			V value = getValue();
+			return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			V value = getValue();
+			return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Set of {@link Id}s, backed by a bit set indexed by {@link Id#index()}. Uses one bit per id of the type,
+ * so it is much smaller and faster than a {@link java.util.HashSet} if more than a small fraction of
+ * all ids of a type is stored.
+ * <p></p>
+ * The ids are iterated in the order of their indices. See {@link IdMap} for how ids of other types
+ * are handled. This class is not thread-safe.
+ *
+ * @param <T> the type of the ids
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private final Id.IdCache<T> ids;
+	private final BitSet bits;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.idClass = idClass;
+		this.ids = Id.getCache(idClass);
+		this.bits = new BitSet(Math.max(64, this.ids.size()));
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && this.bits.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = indexOf(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("There is no id of type " + this.idClass.getName() + " with key " + id + ".");
+		}
+		if (this.bits.get(index)) {
+			return false;
+		}
+		this.bits.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		if (index < 0 || !this.bits.get(index)) {
+			return false;
+		}
+		this.bits.clear(index);
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.bits.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+			private int next = IdSet.this.bits.nextSetBit(0);
+			private int current = -1;
+			private int expectedModCount = IdSet.this.modCount;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = IdSet.this.bits.nextSetBit(this.next + 1);
+				return IdSet.this.ids.get(this.current);
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0) {
+					throw new IllegalStateException();
+				}
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				IdSet.this.bits.clear(this.current);
+				IdSet.this.size--;
+				IdSet.this.modCount++;
+				this.expectedModCount = IdSet.this.modCount;
+				this.current = -1;
+			}
+		};
+	}
+
+	private int indexOf(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		int index = id.index();
+		if (this.ids.get(index) == id) {
+			return index;
+		}
+		Id<T> typedId = this.ids.get(id.toString());
+		return typedId == null ? -1 : typedId.index();
+	}
+
+}
@@ -0,0 +1,582 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KDTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import gnu.trove.list.array.TDoubleArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A static, packed alternative to the {@link QuadTree} for data assigned to geometric points.
+ * <p></p>
+ * All points are given when the tree is created and cannot be changed later on. They are stored in
+ * a balanced kd-tree that is laid out implicitly in flat arrays: the median of each range of the
+ * arrays splits the range alternately along the x and the y axis. This needs much less memory than
+ * the {@link QuadTree} and the queries hardly create any intermediate objects, which makes them
+ * considerably faster for the many queries done during scenario preparation. Unlike the
+ * {@link QuadTree}, the tree does not need to know the bounds of the points in advance.
+ * <p></p>
+ * The queries have the same semantics as the ones of the {@link QuadTree}. In addition, the tree
+ * offers a k-nearest-neighbor query and a batch query for the closest objects of many locations,
+ * which can be run by several threads. All queries may be run concurrently.
+ *
+ * @param <T> The type of data to be stored in the tree.
+ */
+public final class KDTree<T> {
+
+	/**
+	 * Runs the batch queries of all trees; created when it is needed for the first time.
+	 */
+	private static ForkJoinPool pool = null;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final Object[] values;
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+
+	/**
+	 * Creates a tree containing the given values at the given coordinates.
+	 */
+	public KDTree(final double[] xs, final double[] ys, final List<? extends T> values) {
+		if (xs.length != ys.length || xs.length != values.size()) {
+			throw new IllegalArgumentException("the number of x-coordinates (" + xs.length + "), y-coordinates (" + ys.length
+					+ ") and values (" + values.size() + ") must be the same.");
+		}
+		this.xs = Arrays.copyOf(xs, xs.length);
+		this.ys = Arrays.copyOf(ys, ys.length);
+		this.values = values.toArray();
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < xs.length; i++) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		build(0, this.xs.length, true);
+	}
+
+	/**
+	 * Creates a tree containing all entries of the given {@link QuadTree}.
+	 */
+	public KDTree(final QuadTree<T> quadTree) {
+		this(new Collector<T>(quadTree));
+	}
+
+	private KDTree(final Collector<T> collector) {
+		this(collector.xs.toArray(), collector.ys.toArray(), collector.values);
+	}
+
+	/**
+	 * Gets the object closest to x/y
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @return the object found closest to x/y, or <code>null</code> if the tree is empty
+	 */
+	public T getClosest(final double x, final double y) {
+		Search search = new Search(1);
+		nearest(0, this.xs.length, true, x, y, search);
+		return search.size == 0 ? null : value(search.indices[0]);
+	}
+
+	/**
+	 * Gets the objects closest to many locations. The locations are distributed to as many threads
+	 * as there are processors.
+	 *
+	 * @return the object found closest to (xs[i], ys[i]) at index i
+	 */
+	public List<T> getClosest(final double[] xs, final double[] ys) {
+		return getClosest(xs, ys, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Gets the objects closest to many locations, split into (at most) the given number of parts which
+	 * are run in a fork/join pool shared by all trees.
+	 *
+	 * @return the object found closest to (xs[i], ys[i]) at index i
+	 */
+	public List<T> getClosest(final double[] xs, final double[] ys, final int numberOfThreads) {
+		if (xs.length != ys.length) {
+			throw new IllegalArgumentException("the number of x-coordinates (" + xs.length + ") and y-coordinates (" + ys.length + ") must be the same.");
+		}
+		final Object[] result = new Object[xs.length];
+		int threads = Math.max(1, Math.min(numberOfThreads, xs.length / 1000));
+		if (threads == 1) {
+			getClosest(xs, ys, result, 0, xs.length);
+		} else {
+			// the queries are independent of each other, so they can simply be split into ranges
+			int partSize = (xs.length + threads - 1) / threads;
+			getPool().invoke(new ClosestTask(xs, ys, result, 0, xs.length, partSize));
+		}
+		@SuppressWarnings("unchecked")
+		List<T> list = (List<T>) Arrays.asList(result);
+		return list;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return pool;
+	}
+
+	/**
+	 * Halves its range of locations until it is not larger than the part size.
+	 */
+	private final class ClosestTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] xs;
+		private final double[] ys;
+		private final Object[] result;
+		private final int from;
+		private final int to;
+		private final int partSize;
+
+		ClosestTask(final double[] xs, final double[] ys, final Object[] result, final int from, final int to, final int partSize) {
+			this.xs = xs;
+			this.ys = ys;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+			this.partSize = partSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.partSize) {
+				getClosest(this.xs, this.ys, this.result, this.from, this.to);
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new ClosestTask(this.xs, this.ys, this.result, this.from, middle, this.partSize),
+						new ClosestTask(this.xs, this.ys, this.result, middle, this.to, this.partSize));
+			}
+		}
+	}
+
+	private void getClosest(final double[] xs, final double[] ys, final Object[] result, final int from, final int to) {
+		Search search = new Search(1);
+		for (int i = from; i < to; i++) {
+			search.size = 0;
+			nearest(0, this.xs.length, true, xs[i], ys[i], search);
+			result[i] = search.size == 0 ? null : this.values[search.indices[0]];
+		}
+	}
+
+	/**
+	 * Gets the k objects closest to x/y.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the number of objects to return
+	 * @return the k objects closest to x/y (or all objects, if there are less than k), the closest first
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		if (k <= 0 || this.xs.length == 0) {
+			return Collections.emptyList();
+		}
+		Search search = new Search(Math.min(k, this.xs.length));
+		nearest(0, this.xs.length, true, x, y, search);
+		List<T> result = new ArrayList<>(search.size);
+		for (int i = search.size - 1; i >= 0; i--) {
+			result.add(null);
+		}
+		// the search is a max-heap, so the farthest object is removed first
+		for (int i = result.size() - 1; i >= 0; i--) {
+			result.set(i, value(search.indices[0]));
+			search.removeFarthest();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @return the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		return getRing(x, y, 0.0, distance);
+	}
+
+	/**
+	 * Gets all objects within a linear ring (including borders).
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param r_min inner ring radius
+	 * @param r_max outer rind radius
+	 * @return objects within the ring
+	 */
+	public Collection<T> getRing(final double x, final double y, final double r_min, final double r_max) {
+		List<T> result = new ArrayList<>();
+		ring(0, this.xs.length, true, x, y, r_min, r_max, result);
+		return result;
+	}
+
+	/**
+	 * Gets all objects within an elliptical region.
+	 *
+	 * @param x1 first focus, longitude
+	 * @param y1 first focus, latitude
+	 * @param x2 second focus, longitude
+	 * @param y2 second focus, latitude
+	 * @param distance the maximal sum of the distances between an object and the two foci
+	 * @return the objects found in the elliptical region
+	 * @throws IllegalArgumentException if the distance is shorter than the distance between the foci
+	 */
+	public Collection<T> getElliptical(final double x1, final double y1, final double x2, final double y2, final double distance) {
+		if ( Math.pow( distance , 2 ) < Math.pow( (x1 - x2), 2 ) + Math.pow( (y1 - y2) , 2 ) ) {
+			throw new IllegalArgumentException( "wrong ellipse specification: distance must be greater than distance between foci."
+					+" x1="+x1
+					+" y1="+y1
+					+" x2="+x2
+					+" y2="+y2
+					+" distance="+distance );
+		}
+		List<T> result = new ArrayList<>();
+		elliptical(0, this.xs.length, true, x1, y1, x2, y2, distance, result);
+		return result;
+	}
+
+	/**
+	 * Gets all objects inside the specified boundary, including the ones on the border, like
+	 * {@link QuadTree#getRectangle(QuadTree.Rect, Collection)}.
+	 *
+	 * @param bounds The bounds of the area of interest.
+	 * @param values1 A collection to store the found objects in.
+	 * @return The objects found within the area.
+	 */
+	public Collection<T> getRectangle(final QuadTree.Rect bounds, final Collection<T> values1) {
+		return getRectangle(bounds.minX, bounds.minY, bounds.maxX, bounds.maxY, values1);
+	}
+
+	/**
+	 * Gets all objects inside the specified area, including the ones on the border.
+	 *
+	 * @param minX The minimum left-right location, longitude
+	 * @param minY The minimum up-down location, latitude
+	 * @param maxX The maximum left-right location, longitude
+	 * @param maxY The maximum up-down location, latitude
+	 * @param values1 A collection to store the found objects in.
+	 * @return The objects found within the area.
+	 */
+	public Collection<T> getRectangle(final double minX, final double minY, final double maxX, final double maxY, final Collection<T> values1) {
+		rectangle(0, this.xs.length, true, minX, minY, maxX, maxY, values1);
+		return values1;
+	}
+
+	/**
+	 * @return all objects of the tree, in no particular order
+	 */
+	public List<T> values() {
+		@SuppressWarnings("unchecked")
+		List<T> list = (List<T>) Collections.unmodifiableList(Arrays.asList(this.values));
+		return list;
+	}
+
+	public int size() {
+		return this.xs.length;
+	}
+
+	/** @return the smallest x coordinate (left-right, longitude, easting) of all points. */
+	public double getMinEasting() {
+		return this.minX;
+	}
+
+	/** @return the largest x coordinate (left-right, longitude, easting) of all points. */
+	public double getMaxEasting() {
+		return this.maxX;
+	}
+
+	/** @return the smallest y coordinate (up-down, latitude, northing) of all points. */
+	public double getMinNorthing() {
+		return this.minY;
+	}
+
+	/** @return the largest y coordinate (up-down, latitude, northing) of all points. */
+	public double getMaxNorthing() {
+		return this.maxY;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T value(final int index) {
+		return (T) this.values[index];
+	}
+
+	// ---------- queries ----------
+	// Each range [lo, hi) of the arrays is split by the point at (lo + hi) / 2: the points before it
+	// have coordinates not larger than the splitting point on the axis of the range, the points after it
+	// coordinates not smaller.
+
+	private void nearest(final int lo, final int hi, final boolean xAxis, final double x, final double y, final Search search) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double dx = x - this.xs[mid];
+		double dy = y - this.ys[mid];
+		search.offer(dx * dx + dy * dy, mid);
+		double diff = xAxis ? dx : dy;
+		if (diff < 0) {
+			nearest(lo, mid, !xAxis, x, y, search);
+			if (diff * diff < search.bound()) {
+				nearest(mid + 1, hi, !xAxis, x, y, search);
+			}
+		} else {
+			nearest(mid + 1, hi, !xAxis, x, y, search);
+			if (diff * diff < search.bound()) {
+				nearest(lo, mid, !xAxis, x, y, search);
+			}
+		}
+	}
+
+	private void ring(final int lo, final int hi, final boolean xAxis, final double x, final double y,
+			final double rMin, final double rMax, final Collection<T> result) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double dx = x - this.xs[mid];
+		double dy = y - this.ys[mid];
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		if (distance <= rMax && distance >= rMin) {
+			result.add(value(mid));
+		}
+		double diff = xAxis ? dx : dy;
+		if (diff <= rMax) {
+			ring(lo, mid, !xAxis, x, y, rMin, rMax, result);
+		}
+		if (diff >= -rMax) {
+			ring(mid + 1, hi, !xAxis, x, y, rMin, rMax, result);
+		}
+	}
+
+	private void elliptical(final int lo, final int hi, final boolean xAxis, final double x1, final double y1,
+			final double x2, final double y2, final double maxDistance, final Collection<T> result) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double dx1 = x1 - this.xs[mid];
+		double dy1 = y1 - this.ys[mid];
+		double dx2 = x2 - this.xs[mid];
+		double dy2 = y2 - this.ys[mid];
+		if (Math.sqrt(dx1 * dx1 + dy1 * dy1) + Math.sqrt(dx2 * dx2 + dy2 * dy2) <= maxDistance) {
+			result.add(value(mid));
+		}
+		// the ellipse lies within the circle around its center with half the distance as radius
+		double diff = xAxis ? (x1 + x2) / 2 - this.xs[mid] : (y1 + y2) / 2 - this.ys[mid];
+		if (diff <= maxDistance / 2) {
+			elliptical(lo, mid, !xAxis, x1, y1, x2, y2, maxDistance, result);
+		}
+		if (diff >= -maxDistance / 2) {
+			elliptical(mid + 1, hi, !xAxis, x1, y1, x2, y2, maxDistance, result);
+		}
+	}
+
+	private void rectangle(final int lo, final int hi, final boolean xAxis, final double minX, final double minY,
+			final double maxX, final double maxY, final Collection<T> result) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double x = this.xs[mid];
+		double y = this.ys[mid];
+		if (x >= minX && y >= minY && x <= maxX && y <= maxY) {
+			result.add(value(mid));
+		}
+		double split = xAxis ? x : y;
+		if ((xAxis ? minX : minY) <= split) {
+			rectangle(lo, mid, !xAxis, minX, minY, maxX, maxY, result);
+		}
+		if ((xAxis ? maxX : maxY) >= split) {
+			rectangle(mid + 1, hi, !xAxis, minX, minY, maxX, maxY, result);
+		}
+	}
+
+	/**
+	 * The k best points found so far, as a max-heap of squared distances.
+	 */
+	private static final class Search {
+		final double[] distances;
+		final int[] indices;
+		int size = 0;
+
+		Search(final int k) {
+			this.distances = new double[k];
+			this.indices = new int[k];
+		}
+
+		double bound() {
+			return this.size < this.distances.length ? Double.POSITIVE_INFINITY : this.distances[0];
+		}
+
+		void offer(final double distance, final int index) {
+			if (this.size < this.distances.length) {
+				int i = this.size++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (this.distances[parent] >= distance) {
+						break;
+					}
+					this.distances[i] = this.distances[parent];
+					this.indices[i] = this.indices[parent];
+					i = parent;
+				}
+				this.distances[i] = distance;
+				this.indices[i] = index;
+			} else if (distance < this.distances[0]) {
+				siftDown(distance, index);
+			}
+		}
+
+		void removeFarthest() {
+			this.size--;
+			if (this.size > 0) {
+				siftDown(this.distances[this.size], this.indices[this.size]);
+			}
+		}
+
+		private void siftDown(final double distance, final int index) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.distances[child + 1] > this.distances[child]) {
+					child++;
+				}
+				if (this.distances[child] <= distance) {
+					break;
+				}
+				this.distances[i] = this.distances[child];
+				this.indices[i] = this.indices[child];
+				i = child;
+			}
+			this.distances[i] = distance;
+			this.indices[i] = index;
+		}
+	}
+
+	// ---------- construction ----------
+
+	private void build(final int lo, final int hi, final boolean xAxis) {
+		if (hi - lo <= 1) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, xAxis ? this.xs : this.ys);
+		build(lo, mid, !xAxis);
+		build(mid + 1, hi, !xAxis);
+	}
+
+	/**
+	 * Partially sorts the range [left, right] such that the element at index k is the one that would
+	 * be there if the range was sorted by the given coordinates.
+	 * <p></p>
+	 * Uses a three-way partition, so points with the same coordinate (e.g. many facilities at the same
+	 * location) end up in the middle part right away instead of making the selection quadratic.
+	 */
+	private void select(int left, int right, final int k, final double[] coords) {
+		while (right > left) {
+			// median of three as pivot
+			double a = coords[left];
+			double b = coords[(left + right) >>> 1];
+			double c = coords[right];
+			double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+			// [left, lt) < pivot, [lt, i) == pivot, (gt, right] > pivot
+			int lt = left;
+			int gt = right;
+			int i = left;
+			while (i <= gt) {
+				double coord = coords[i];
+				if (coord < pivot) {
+					swap(lt++, i++);
+				} else if (coord > pivot) {
+					swap(i, gt--);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				right = lt - 1;
+			} else if (k > gt) {
+				left = gt + 1;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		double tmp = this.xs[i];
+		this.xs[i] = this.xs[j];
+		this.xs[j] = tmp;
+		tmp = this.ys[i];
+		this.ys[i] = this.ys[j];
+		this.ys[j] = tmp;
+		Object o = this.values[i];
+		this.values[i] = this.values[j];
+		this.values[j] = o;
+	}
+
+	/**
+	 * Collects all entries of a {@link QuadTree}, including the ones outside of its bounds.
+	 */
+	private static final class Collector<T> {
+		final TDoubleArrayList xs = new TDoubleArrayList();
+		final TDoubleArrayList ys = new TDoubleArrayList();
+		final List<T> values = new ArrayList<>();
+
+		Collector(final QuadTree<T> quadTree) {
+			QuadTree.Leaf<T> leaf = quadTree.top.firstLeaf();
+			while (leaf != null) {
+				for (T value : leaf.values) {
+					this.xs.add(leaf.x);
+					this.ys.add(leaf.y);
+					this.values.add(value);
+				}
+				leaf = quadTree.top.nextLeaf(leaf);
+			}
+		}
+	}
+
+}
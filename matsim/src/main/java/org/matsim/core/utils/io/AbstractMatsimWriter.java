@@ -46,6 +46,9 @@ public abstract class AbstractMatsimWriter {
 	 * or not). */
 	protected Boolean useCompression = null;
 
+	/** The number of threads used to gzip-compress the output, see {@link IOUtils#getBufferedWriter(String, java.nio.charset.Charset, boolean, int)}. */
+	private int numberOfCompressionThreads = 1;
+
 	/**
 	 * Sets whether the file should be gzip-compressed or not. Must be set before
 	 * the file is opened for writing. If not set explicitly, the usage of
@@ -57,6 +60,16 @@ public abstract class AbstractMatsimWriter {
 		this.useCompression = Boolean.valueOf(useCompression1);
 	}
 
+	/**
+	 * Sets the number of threads used to gzip-compress the file. Must be set before the file is opened for
+	 * writing. Default is 1. Only has an effect if compression is defined by the ending of the filename.
+	 *
+	 * @param numberOfCompressionThreads
+	 */
+	public final void setNumberOfCompressionThreads(final int numberOfCompressionThreads) {
+		this.numberOfCompressionThreads = numberOfCompressionThreads;
+	}
+
 	/**
 	 * Opens the specified file for writing.
 	 *
@@ -66,7 +79,7 @@ public abstract class AbstractMatsimWriter {
 	protected final void openFile(final String filename) throws UncheckedIOException {
 		assertNotAlreadyOpen();
 		if (this.useCompression == null) {
-			this.writer = IOUtils.getBufferedWriter(filename);
+			this.writer = IOUtils.getBufferedWriter(filename, IOUtils.CHARSET_UTF8, false, this.numberOfCompressionThreads);
 		} else {
 			this.writer = IOUtils.getBufferedWriter(filename, this.useCompression.booleanValue());
 		}
@@ -57,6 +57,20 @@ public class IOUtils {
 
 	private final static Logger log = Logger.getLogger(IOUtils.class);
 
+	private static OutputStream createGZIPOutputStream(final OutputStream out, final int numberOfCompressionThreads) throws IOException {
+		if (numberOfCompressionThreads > 1) {
+			return new ParallelGZIPOutputStream(out, numberOfCompressionThreads);
+		}
+		return new GZIPOutputStream(out);
+	}
+
+	private static InputStream createGZIPInputStream(final InputStream in, final int numberOfCompressionThreads) throws IOException {
+		if (numberOfCompressionThreads > 1) {
+			return new ParallelGZIPInputStream(in, numberOfCompressionThreads);
+		}
+		return new GZIPInputStream(in);
+	}
+
 	public static URL getUrlFromFileOrResource(String filename) {
 		if (filename.startsWith("~" + File.separator)) {
 		    filename = System.getProperty("user.home") + filename.substring(1);
@@ -109,6 +123,20 @@ public class IOUtils {
 	 * @author mrieser
 	 */
 	public static BufferedReader getBufferedReader(final String filename, final Charset charset) throws UncheckedIOException {
+		return getBufferedReader(filename, charset, 1);
+	}
+
+	/**
+	 * Same as {@link #getBufferedReader(String, Charset)}, but gzip-compressed files are decompressed with
+	 * the given number of threads if they were written in blocks, see {@link ParallelGZIPInputStream}.
+	 *
+	 * @param filename The file to read, may contain the ending ".gz" to force reading a compressed file.
+	 * @param charset the Charset of the file to read
+	 * @param numberOfCompressionThreads the number of threads to decompress the file.
+	 * @return BufferedReader for the specified file.
+	 * @throws UncheckedIOException
+	 */
+	public static BufferedReader getBufferedReader(final String filename, final Charset charset, final int numberOfCompressionThreads) throws UncheckedIOException {
 		BufferedReader infile = null;
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
@@ -116,17 +144,17 @@ public class IOUtils {
 		try {
 			if (new File(filename).exists()) {
 				if (filename.endsWith(GZ)) {
-					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(new FileInputStream(filename))), charset));
+					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(createGZIPInputStream(new FileInputStream(filename), numberOfCompressionThreads)), charset));
 				} else {
 					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new FileInputStream(filename)), charset));
 				}
 			} else if (new File(filename + GZ).exists()) {
-				infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(new FileInputStream(filename  + GZ))), charset));
+				infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(createGZIPInputStream(new FileInputStream(filename  + GZ), numberOfCompressionThreads)), charset));
 			} else {
 				InputStream stream = IOUtils.class.getClassLoader().getResourceAsStream(filename);
 				if (stream != null) {
 					if (filename.endsWith(GZ)) {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(stream)), charset));
+						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(createGZIPInputStream(stream, numberOfCompressionThreads)), charset));
 						log.info("loading file from classpath: " + filename);
 					} else {
 						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(stream), charset));
@@ -135,7 +163,7 @@ public class IOUtils {
 				} else {
 					stream = IOUtils.class.getClassLoader().getResourceAsStream(filename + GZ);
 					if (stream != null) {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(stream)), charset));
+						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(createGZIPInputStream(stream, numberOfCompressionThreads)), charset));
 						log.info("loading file from classpath: " + filename + GZ);
 					}
 				}
@@ -250,6 +278,24 @@ public class IOUtils {
 	 * @throws UncheckedIOException
 	 */
 	public static BufferedWriter getBufferedWriter(final String filename, final Charset charset, final boolean append) throws UncheckedIOException {
+		return getBufferedWriter(filename, charset, append, 1);
+	}
+
+
+	/**
+	 * Same as {@link #getBufferedWriter(String, Charset, boolean)}, but with more than one thread, gzip-compressed
+	 * files are written in blocks that are compressed in parallel, see {@link ParallelGZIPOutputStream}.
+	 * Such files are standard gzip files, and can be decompressed in parallel again, see
+	 * {@link #getBufferedReader(String, Charset, int)}.
+	 *
+	 * @param filename The filename where to write the data.
+	 * @param charset the encoding to use to write the file.
+	 * @param append <code>true</code> if the file should be opened for appending, instead of overwriting
+	 * @param numberOfCompressionThreads the number of threads to compress the file.
+	 * @return BufferedWriter for the specified file.
+	 * @throws UncheckedIOException
+	 */
+	public static BufferedWriter getBufferedWriter(final String filename, final Charset charset, final boolean append, final int numberOfCompressionThreads) throws UncheckedIOException {
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
@@ -259,7 +305,7 @@ public class IOUtils {
 				if (append && f.exists() && (f.length() > 0)) {
 					throw new IllegalArgumentException("Appending to an existing gzip-compressed file is not supported.");
 				}
-				return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(filename, append)), charset));
+				return new BufferedWriter(new OutputStreamWriter(createGZIPOutputStream(new FileOutputStream(filename, append), numberOfCompressionThreads), charset));
 			}
 			return new BufferedWriter(new OutputStreamWriter(new FileOutputStream (filename, append), charset));
 		} catch (IOException e) {
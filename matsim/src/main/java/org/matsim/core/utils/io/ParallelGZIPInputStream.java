@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPInputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * An input stream that decompresses gzip files in the BGZF format, as written by {@link ParallelGZIPOutputStream},
+ * with several threads. The calling thread only reads the compressed blocks, which are then inflated by
+ * the threads shared by all parallel gzip streams.
+ * <p></p>
+ * Other gzip members cannot be split into blocks without decompressing them. As soon as such a member is found,
+ * e.g. a plain gzip file or plain gzip data appended to a BGZF file, the rest of the data is decompressed by a
+ * {@link GZIPInputStream} in the calling thread.
+ */
+public final class ParallelGZIPInputStream extends InputStream {
+
+	private static final int HEADER_SIZE = ParallelGZIPOutputStream.HEADER_SIZE;
+	private static final int TRAILER_SIZE = ParallelGZIPOutputStream.TRAILER_SIZE;
+	private static final byte[] EMPTY = new byte[0];
+
+	private final PushbackInputStream in;
+	private final int maxPendingBlocks;
+	private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private final byte[] header = new byte[HEADER_SIZE];
+	private boolean endOfBlocks = false;
+	private boolean otherMemberFollows = false;
+	private InputStream fallback = null;
+	private byte[] block = EMPTY;
+	private int blockPos = 0;
+
+	public ParallelGZIPInputStream(final InputStream in, final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.in = new PushbackInputStream(in, HEADER_SIZE);
+		this.maxPendingBlocks = numberOfThreads;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (this.fallback == null) {
+			if (ensureData()) {
+				return this.block[this.blockPos++] & 0xff;
+			}
+			if (this.fallback == null) {
+				return -1;
+			}
+		}
+		return this.fallback.read();
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (this.fallback == null) {
+			if (ensureData()) {
+				int n = Math.min(len, this.block.length - this.blockPos);
+				System.arraycopy(this.block, this.blockPos, b, off, n);
+				this.blockPos += n;
+				return n;
+			}
+			if (this.fallback == null) {
+				return -1;
+			}
+		}
+		return this.fallback.read(b, off, len);
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (this.fallback != null) {
+			return this.fallback.available();
+		}
+		return this.block.length - this.blockPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Future<byte[]> pending : this.pendingBlocks) {
+			pending.cancel(true);
+		}
+		this.pendingBlocks.clear();
+		if (this.fallback != null) {
+			this.fallback.close();
+		} else {
+			this.in.close();
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if there are no more BGZF blocks. In this case, {@link #fallback} is set
+	 * if other gzip members follow.
+	 */
+	private boolean ensureData() throws IOException {
+		while (this.blockPos == this.block.length) {
+			submitBlocks();
+			Future<byte[]> head = this.pendingBlocks.poll();
+			if (head == null) {
+				if (this.otherMemberFollows) {
+					this.fallback = new GZIPInputStream(this.in);
+				}
+				return false;
+			}
+			try {
+				this.block = head.get();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+			this.blockPos = 0;
+		}
+		return true;
+	}
+
+	private void submitBlocks() throws IOException {
+		while (!this.endOfBlocks && this.pendingBlocks.size() < this.maxPendingBlocks) {
+			int n = readFully(this.in, this.header, 0, HEADER_SIZE);
+			if (n == 0) {
+				this.endOfBlocks = true;
+				return;
+			}
+			if (n < HEADER_SIZE || !isBlockHeader(this.header)) {
+				// not a BGZF block, leave it to the GZIPInputStream once the pending blocks are consumed
+				this.in.unread(this.header, 0, n);
+				this.endOfBlocks = true;
+				this.otherMemberFollows = true;
+				return;
+			}
+			int blockSize = ((this.header[16] & 0xff) | ((this.header[17] & 0xff) << 8)) + 1;
+			final byte[] data = new byte[blockSize - HEADER_SIZE];
+			if (readFully(this.in, data, 0, data.length) < data.length) {
+				throw new EOFException("Unexpected end of gzip block.");
+			}
+			this.pendingBlocks.add(ParallelGZIPOutputStream.EXECUTOR.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws IOException {
+					return inflateBlock(data);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * @param data the compressed block without the header, but with the trailer.
+	 */
+	private static byte[] inflateBlock(final byte[] data) throws IOException {
+		int trailerPos = data.length - TRAILER_SIZE;
+		int expectedCrc = readInt(data, trailerPos);
+		int size = readInt(data, trailerPos + 4);
+		byte[] result = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data, 0, trailerPos);
+			int pos = 0;
+			while (pos < size) {
+				int n = inflater.inflate(result, pos, size - pos);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new ZipException("Corrupt gzip block, too little data.");
+				}
+				pos += n;
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(result);
+		if ((int) crc.getValue() != expectedCrc) {
+			throw new ZipException("Corrupt gzip block, wrong CRC.");
+		}
+		return result;
+	}
+
+	private static boolean isBlockHeader(final byte[] h) {
+		return (h[0] & 0xff) == 0x1f && (h[1] & 0xff) == 0x8b && h[2] == 8 && (h[3] & 4) != 0
+				&& h[10] == 6 && h[11] == 0 && h[12] == 'B' && h[13] == 'C' && h[14] == 2 && h[15] == 0;
+	}
+
+	private static int readInt(final byte[] b, final int pos) {
+		return (b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8) | ((b[pos + 2] & 0xff) << 16) | ((b[pos + 3] & 0xff) << 24);
+	}
+
+	/**
+	 * @return the number of bytes read, which is smaller than <code>len</code> only at the end of the stream.
+	 */
+	private static int readFully(final InputStream in, final byte[] b, final int off, final int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int n = in.read(b, off + total, len - total);
+			if (n < 0) {
+				break;
+			}
+			total += n;
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,246 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that compresses the data with several threads. The data is split into blocks that are
+ * compressed independently of each other, each one as a gzip member of its own. The blocks are written
+ * in the BGZF format (as used e.g. by samtools): every gzip header contains the size of the compressed block
+ * in an extra field. The output is still a standard gzip file that can be read by {@link java.util.zip.GZIPInputStream}
+ * or any other gzip tool, but {@link ParallelGZIPInputStream} can also decompress it with several threads.
+ * <p></p>
+ * As with {@link java.util.zip.GZIPOutputStream}, {@link #flush()} does not write the data of the block that is
+ * not yet full, as this would deteriorate the compression. All data is written once the stream is closed.
+ */
+public final class ParallelGZIPOutputStream extends FilterOutputStream {
+
+	/** The maximum number of uncompressed bytes per block, the same as used by samtools. */
+	/*package*/ static final int BLOCK_SIZE = 0xff00;
+	/*package*/ static final int MAX_COMPRESSED_BLOCK_SIZE = 0x10000;
+	/*package*/ static final int HEADER_SIZE = 18;
+	/*package*/ static final int TRAILER_SIZE = 8;
+
+	/**
+	 * The threads that compress and decompress the blocks, shared by all parallel gzip streams. Every stream
+	 * limits the number of blocks it hands over at the same time to its number of threads.
+	 */
+	/*package*/ static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("ParallelGZIP"));
+
+	private final int level;
+	private final int maxPendingBlocks;
+	private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private byte[] buffer = new byte[BLOCK_SIZE];
+	private int bufferPos = 0;
+	private boolean closed = false;
+
+	public ParallelGZIPOutputStream(final OutputStream out, final int numberOfThreads) {
+		this(out, numberOfThreads, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	public ParallelGZIPOutputStream(final OutputStream out, final int numberOfThreads, final int level) {
+		super(out);
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.level = level;
+		this.maxPendingBlocks = numberOfThreads;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		this.buffer[this.bufferPos++] = (byte) b;
+		if (this.bufferPos == BLOCK_SIZE) {
+			submitBlock();
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - this.bufferPos);
+			System.arraycopy(b, off, this.buffer, this.bufferPos, n);
+			this.bufferPos += n;
+			off += n;
+			len -= n;
+			if (this.bufferPos == BLOCK_SIZE) {
+				submitBlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes all blocks that were already handed over to the compressing threads, but not the data
+	 * of the current block.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writePendingBlocks(0);
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (this.bufferPos > 0) {
+				submitBlock();
+			}
+			writePendingBlocks(0);
+			// an empty block marks the end of a BGZF file
+			this.out.write(compressBlock(new byte[0], 0, this.level));
+			this.out.close();
+		} finally {
+			for (Future<byte[]> pending : this.pendingBlocks) {
+				pending.cancel(true);
+			}
+			this.pendingBlocks.clear();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		final byte[] data = this.buffer;
+		final int length = this.bufferPos;
+		final int compressionLevel = this.level;
+		this.pendingBlocks.add(EXECUTOR.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return compressBlock(data, length, compressionLevel);
+			}
+		}));
+		this.buffer = new byte[BLOCK_SIZE];
+		this.bufferPos = 0;
+		writePendingBlocks(this.maxPendingBlocks);
+	}
+
+	/**
+	 * Writes the compressed blocks in the order they were submitted, until at most <code>maxPending</code> are left.
+	 * Blocks that are already compressed are written in any case.
+	 */
+	private void writePendingBlocks(final int maxPending) throws IOException {
+		Future<byte[]> head;
+		while ((head = this.pendingBlocks.peek()) != null && (head.isDone() || this.pendingBlocks.size() > maxPending)) {
+			try {
+				this.out.write(head.get());
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			this.pendingBlocks.poll();
+		}
+	}
+
+	/*package*/ static byte[] compressBlock(final byte[] data, final int length, final int level) {
+		byte[] block = new byte[MAX_COMPRESSED_BLOCK_SIZE];
+		int compressedSize = deflate(data, length, level, block);
+		if (compressedSize < 0) {
+			// the data could not be compressed enough to fit into a block, store it uncompressed
+			compressedSize = deflate(data, length, Deflater.NO_COMPRESSION, block);
+		}
+		int blockSize = HEADER_SIZE + compressedSize + TRAILER_SIZE;
+
+		// gzip header with the extra field "BC" containing the block size - 1
+		block[0] = (byte) 0x1f;
+		block[1] = (byte) 0x8b;
+		block[2] = Deflater.DEFLATED;
+		block[3] = 4; // FEXTRA
+		// 4-7: modification time, 8: extra flags, all 0
+		block[9] = (byte) 0xff; // unknown OS
+		writeShort(block, 10, 6);
+		block[12] = 'B';
+		block[13] = 'C';
+		writeShort(block, 14, 2);
+		writeShort(block, 16, blockSize - 1);
+
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, length);
+		int pos = HEADER_SIZE + compressedSize;
+		writeInt(block, pos, (int) crc.getValue());
+		writeInt(block, pos + 4, length);
+		return Arrays.copyOf(block, blockSize);
+	}
+
+	/**
+	 * @return the number of compressed bytes written after the header, or -1 if they did not fit into the block.
+	 */
+	private static int deflate(final byte[] data, final int length, final int level, final byte[] block) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			int pos = HEADER_SIZE;
+			int end = MAX_COMPRESSED_BLOCK_SIZE - TRAILER_SIZE;
+			while (!deflater.finished()) {
+				if (pos == end) {
+					return -1;
+				}
+				pos += deflater.deflate(block, pos, end - pos);
+			}
+			return pos - HEADER_SIZE;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static void writeShort(final byte[] b, final int pos, final int value) {
+		b[pos] = (byte) value;
+		b[pos + 1] = (byte) (value >>> 8);
+	}
+
+	private static void writeInt(final byte[] b, final int pos, final int value) {
+		writeShort(b, pos, value);
+		writeShort(b, pos + 2, value >>> 16);
+	}
+
+	/*package*/ static final class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private int counter = 0;
+
+		DaemonThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public synchronized Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, this.name + "." + this.counter++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
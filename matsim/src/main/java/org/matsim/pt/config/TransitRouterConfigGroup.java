@@ -27,15 +27,19 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "transitRouter";
 
+	public enum TransitRoutingAlgorithmType {Dijkstra, Raptor}
+
 	/*package*/ static final String SEARCH_RADIUS = "searchRadius";
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTING_ALGORITHM_TYPE = "routingAlgorithmType";
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private TransitRoutingAlgorithmType routingAlgorithmType = TransitRoutingAlgorithmType.Dijkstra;
 
 	public TransitRouterConfigGroup() {
 		super(GROUP_NAME);
@@ -48,6 +52,9 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(EXTENSION_RADIUS, "step size to increase searchRadius if no stops are found");
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
+		comments.put(ROUTING_ALGORITHM_TYPE, "The algorithm used to find transit routes, may have the values: " + TransitRoutingAlgorithmType.Dijkstra + " or " +
+				TransitRoutingAlgorithmType.Raptor + ". " + TransitRoutingAlgorithmType.Raptor + " scans the transit routes instead of searching a " +
+				"graph of all route stops and is usually much faster, especially for large schedules.");
 		return comments;
 	}
 
@@ -94,4 +101,16 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 	public double getAdditionalTransferTime() {
 		return this.additionalTransferTime;
 	}
+
+	@StringSetter( ROUTING_ALGORITHM_TYPE )
+	public void setRoutingAlgorithmType(final TransitRoutingAlgorithmType routingAlgorithmType) {
+		testForLocked() ;
+		this.routingAlgorithmType = routingAlgorithmType;
+	}
+
+	@StringGetter( ROUTING_ALGORITHM_TYPE )
+	public TransitRoutingAlgorithmType getRoutingAlgorithmType() {
+		return this.routingAlgorithmType;
+	}
+
 }
@@ -0,0 +1,287 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.KDTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in the array-based form used by {@link RaptorTransitRouter}. Stops, transit routes,
+ * route stops, departures and the walk transfers between stops are numbered and stored in flat arrays,
+ * references between them are array indices.
+ * <p></p>
+ * The data is not modified once created and can be shared by any number of routers, also by routers
+ * running concurrently. As the {@link TransitRouterNetwork}, it does not reflect later changes of the
+ * transit schedule.
+ *
+ * @see RaptorTransitRouter
+ */
+public final class RaptorData {
+
+	private static final Logger log = Logger.getLogger(RaptorData.class);
+
+	/*package*/ final TransitStopFacility[] stops;
+	/** for every stop, the index of its first route stop in {@link #stopRouteStops}; one more entry than stops */
+	/*package*/ final int[] stopFirstRouteStop;
+	/*package*/ final int[] stopRouteStops;
+	/** for every stop, the index of its first transfer; one more entry than stops */
+	/*package*/ final int[] stopFirstTransfer;
+	/*package*/ final int[] transferStop;
+	/*package*/ final double[] transferDistance;
+
+	/*package*/ final TransitLine[] routeLines;
+	/*package*/ final TransitRoute[] routes;
+	/** for every route, the index of its first route stop; one more entry than routes */
+	/*package*/ final int[] routeFirstRouteStop;
+	/** for every route, the index of its first departure in {@link #departures}; one more entry than routes */
+	/*package*/ final int[] routeFirstDeparture;
+	/** the departure times at the first stop, sorted per route */
+	/*package*/ final double[] departures;
+
+	/*package*/ final int[] routeStopRoute;
+	/*package*/ final int[] routeStopStop;
+	/*package*/ final double[] routeStopArrivalOffset;
+	/*package*/ final double[] routeStopDepartureOffset;
+	/** the beeline distance from the first stop of the route, summed up over all stops in between */
+	/*package*/ final double[] routeStopDistance;
+
+	private final KDTree<Integer> stopsTree;
+
+	private RaptorData(final TransitStopFacility[] stops, final int[] stopFirstRouteStop, final int[] stopRouteStops,
+			final int[] stopFirstTransfer, final int[] transferStop, final double[] transferDistance,
+			final TransitLine[] routeLines, final TransitRoute[] routes, final int[] routeFirstRouteStop,
+			final int[] routeFirstDeparture, final double[] departures, final int[] routeStopRoute,
+			final int[] routeStopStop, final double[] routeStopArrivalOffset, final double[] routeStopDepartureOffset,
+			final double[] routeStopDistance, final KDTree<Integer> stopsTree) {
+		this.stops = stops;
+		this.stopFirstRouteStop = stopFirstRouteStop;
+		this.stopRouteStops = stopRouteStops;
+		this.stopFirstTransfer = stopFirstTransfer;
+		this.transferStop = transferStop;
+		this.transferDistance = transferDistance;
+		this.routeLines = routeLines;
+		this.routes = routes;
+		this.routeFirstRouteStop = routeFirstRouteStop;
+		this.routeFirstDeparture = routeFirstDeparture;
+		this.departures = departures;
+		this.routeStopRoute = routeStopRoute;
+		this.routeStopStop = routeStopStop;
+		this.routeStopArrivalOffset = routeStopArrivalOffset;
+		this.routeStopDepartureOffset = routeStopDepartureOffset;
+		this.routeStopDistance = routeStopDistance;
+		this.stopsTree = stopsTree;
+	}
+
+	/**
+	 * @param maxBeelineWalkConnectionDistance stops closer to each other than this distance are connected by walk transfers,
+	 * as in {@link TransitRouterNetwork#createFromSchedule(TransitSchedule, double)}.
+	 */
+	public static RaptorData createFromSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		log.info("start creating raptor data");
+		Map<TransitStopFacility, Integer> stopIndices = new LinkedHashMap<>();
+		List<TransitLine> routeLines = new ArrayList<>();
+		List<TransitRoute> routes = new ArrayList<>();
+		TIntArrayList routeFirstRouteStop = new TIntArrayList();
+		TIntArrayList routeFirstDeparture = new TIntArrayList();
+		TDoubleArrayList departures = new TDoubleArrayList();
+		TIntArrayList routeStopStop = new TIntArrayList();
+		TDoubleArrayList routeStopArrivalOffset = new TDoubleArrayList();
+		TDoubleArrayList routeStopDepartureOffset = new TDoubleArrayList();
+		TDoubleArrayList routeStopDistance = new TDoubleArrayList();
+
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				routeLines.add(line);
+				routes.add(route);
+				routeFirstRouteStop.add(routeStopStop.size());
+				routeFirstDeparture.add(departures.size());
+				double[] routeDepartures = new double[route.getDepartures().size()];
+				int i = 0;
+				for (Departure departure : route.getDepartures().values()) {
+					routeDepartures[i++] = departure.getDepartureTime();
+				}
+				Arrays.sort(routeDepartures);
+				departures.add(routeDepartures);
+
+				Coord prevCoord = null;
+				double distance = 0.0;
+				for (TransitRouteStop stop : route.getStops()) {
+					TransitStopFacility facility = stop.getStopFacility();
+					Integer stopIndex = stopIndices.get(facility);
+					if (stopIndex == null) {
+						stopIndex = stopIndices.size();
+						stopIndices.put(facility, stopIndex);
+					}
+					if (prevCoord != null) {
+						distance += CoordUtils.calcEuclideanDistance(prevCoord, facility.getCoord());
+					}
+					prevCoord = facility.getCoord();
+					double arrivalOffset = stop.getArrivalOffset();
+					double departureOffset = stop.getDepartureOffset();
+					routeStopStop.add(stopIndex);
+					routeStopArrivalOffset.add(arrivalOffset != Time.UNDEFINED_TIME ? arrivalOffset : departureOffset);
+					routeStopDepartureOffset.add(departureOffset != Time.UNDEFINED_TIME ? departureOffset : arrivalOffset);
+					routeStopDistance.add(distance);
+				}
+			}
+		}
+		routeFirstRouteStop.add(routeStopStop.size());
+		routeFirstDeparture.add(departures.size());
+
+		int nOfStops = stopIndices.size();
+		int nOfRouteStops = routeStopStop.size();
+		TransitStopFacility[] stops = stopIndices.keySet().toArray(new TransitStopFacility[nOfStops]);
+
+		// the route stops per stop, and whether agents can arrive at or depart from a stop at all
+		int[] routeStopRoute = new int[nOfRouteStops];
+		int[] stopFirstRouteStop = new int[nOfStops + 1];
+		boolean[] canArrive = new boolean[nOfStops];
+		boolean[] canDepart = new boolean[nOfStops];
+		for (int r = 0; r < routes.size(); r++) {
+			int first = routeFirstRouteStop.get(r);
+			int last = routeFirstRouteStop.get(r + 1) - 1;
+			for (int rs = first; rs <= last; rs++) {
+				int stop = routeStopStop.get(rs);
+				routeStopRoute[rs] = r;
+				stopFirstRouteStop[stop + 1]++;
+				canArrive[stop] |= rs > first;
+				canDepart[stop] |= rs < last;
+			}
+		}
+		for (int s = 0; s < nOfStops; s++) {
+			stopFirstRouteStop[s + 1] += stopFirstRouteStop[s];
+		}
+		int[] stopRouteStops = new int[nOfRouteStops];
+		int[] fill = Arrays.copyOf(stopFirstRouteStop, nOfStops);
+		for (int rs = 0; rs < nOfRouteStops; rs++) {
+			stopRouteStops[fill[routeStopStop.get(rs)]++] = rs;
+		}
+
+		double[] xs = new double[nOfStops];
+		double[] ys = new double[nOfStops];
+		List<Integer> indices = new ArrayList<>(nOfStops);
+		for (int s = 0; s < nOfStops; s++) {
+			xs[s] = stops[s].getCoord().getX();
+			ys[s] = stops[s].getCoord().getY();
+			indices.add(s);
+		}
+		KDTree<Integer> stopsTree = new KDTree<>(xs, ys, indices);
+
+		// connect all stops with walk transfers if they're located less than maxBeelineWalkConnectionDistance from each other
+		int[] stopFirstTransfer = new int[nOfStops + 1];
+		TIntArrayList transferStop = new TIntArrayList();
+		TDoubleArrayList transferDistance = new TDoubleArrayList();
+		for (int s = 0; s < nOfStops; s++) {
+			stopFirstTransfer[s] = transferStop.size();
+			if (!canArrive[s]) {
+				continue;
+			}
+			for (Integer s2 : stopsTree.getDisk(xs[s], ys[s], maxBeelineWalkConnectionDistance)) {
+				if (s2 != s && canDepart[s2]) {
+					transferStop.add(s2);
+					transferDistance.add(CoordUtils.calcEuclideanDistance(stops[s].getCoord(), stops[s2].getCoord()));
+				}
+			}
+		}
+		stopFirstTransfer[nOfStops] = transferStop.size();
+
+		log.info("raptor data statistics:");
+		log.info(" # stops:       " + nOfStops);
+		log.info(" # routes:      " + routes.size());
+		log.info(" # route stops: " + nOfRouteStops);
+		log.info(" # departures:  " + departures.size());
+		log.info(" # transfers:   " + transferStop.size());
+
+		return new RaptorData(stops, stopFirstRouteStop, stopRouteStops, stopFirstTransfer, transferStop.toArray(),
+				transferDistance.toArray(), routeLines.toArray(new TransitLine[routeLines.size()]),
+				routes.toArray(new TransitRoute[routes.size()]), routeFirstRouteStop.toArray(), routeFirstDeparture.toArray(),
+				departures.toArray(), routeStopRoute, routeStopStop.toArray(), routeStopArrivalOffset.toArray(),
+				routeStopDepartureOffset.toArray(), routeStopDistance.toArray(), stopsTree);
+	}
+
+	public int getNumberOfStops() {
+		return this.stops.length;
+	}
+
+	public int getNumberOfRoutes() {
+		return this.routes.length;
+	}
+
+	/**
+	 * @return the indices of the stops within <code>distance</code> of the coordinate.
+	 */
+	/*package*/ List<Integer> getStopsWithin(final Coord coord, final double distance) {
+		return new ArrayList<>(this.stopsTree.getDisk(coord.getX(), coord.getY(), distance));
+	}
+
+	/**
+	 * @return the index of the stop closest to the coordinate, or -1 if there are no stops.
+	 */
+	/*package*/ int getClosestStop(final Coord coord) {
+		Integer stop = this.stopsTree.getClosest(coord.getX(), coord.getY());
+		return stop == null ? -1 : stop;
+	}
+
+	/**
+	 * @return the departure time of the first trip of the route, at the first stop of the route, that
+	 * departs from the given route stop not before <code>time</code>. If there is no such trip on the day,
+	 * the trips are repeated every 24 hours, like in {@link PreparedTransitSchedule}.
+	 * {@link Double#POSITIVE_INFINITY} if the route has no departures at all.
+	 */
+	/*package*/ double getNextTripDeparture(final int route, final int routeStop, final double time) {
+		int from = this.routeFirstDeparture[route];
+		int to = this.routeFirstDeparture[route + 1];
+		if (from == to) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double earliestDepartureAtTerminus = time - this.routeStopDepartureOffset[routeStop];
+		double day = 0.0;
+		while (true) {
+			int pos = Arrays.binarySearch(this.departures, from, to, earliestDepartureAtTerminus - day);
+			if (pos < 0) {
+				pos = -(pos + 1);
+			}
+			if (pos < to) {
+				return this.departures[pos] + day;
+			}
+			day += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+	}
+
+}
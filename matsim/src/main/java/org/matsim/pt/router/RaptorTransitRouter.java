@@ -0,0 +1,525 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * A transit router based on the RAPTOR algorithm (Delling, Pajor, Werneck: Round-Based Public Transit Routing, 2012).
+ * Instead of searching a graph with one node per route stop like {@link TransitRouterImpl}, it scans the transit
+ * routes round by round: in round <i>k</i>, all stops are found that can be reached earlier than before with
+ * <i>k</i> vehicles. This gives the earliest arrival at every stop for every number of transfers. Of the journeys
+ * reaching the destination, the one with the least disutility is returned, using the same disutility as
+ * {@link TransitRouterNetworkTravelTimeAndDisutility}, and compared against walking the whole way like in
+ * {@link TransitRouterImpl}. The legs have the same structure as the ones of {@link TransitRouterImpl}.
+ * <p></p>
+ * {@link #calcRoutes(Facility, Facility, double, double, Person)} answers range queries (rRAPTOR): it
+ * returns the journeys for all departure times in a time window that are not dominated by a journey
+ * departing later.
+ * <p></p>
+ * The schedule data is held in a {@link RaptorData} that can be shared by many routers. The router itself keeps
+ * the labels of the search and is not thread-safe, so every thread needs its own instance.
+ */
+public final class RaptorTransitRouter implements TransitRouter {
+
+	/*package*/ static final int MAX_TRANSFERS = 10;
+
+	private final TransitRouterConfig config;
+	private final RaptorData data;
+	private final TransitTravelDisutility walkDisutility;
+	private final int nOfStops;
+	private final int maxRounds = MAX_TRANSFERS + 1;
+
+	// labels per round and stop, at index round * nOfStops + stop
+	/** arrival time at the stop with a vehicle in the round */
+	private final double[] arrivalTime;
+	private final int[] arrivalBoardRouteStop;
+	private final int[] arrivalAlightRouteStop;
+	private final double[] arrivalTripDeparture;
+	/** the run of a range query in which the arrival time was set */
+	private final int[] arrivalRun;
+	/** time at which a vehicle can be boarded at the stop after the round, after walking there */
+	private final double[] readyTime;
+	/** the stop from which the agent walked, -1 for the origin */
+	private final int[] readyFromStop;
+	private final TIntArrayList touchedLabels = new TIntArrayList();
+
+	// best labels over all rounds, for pruning
+	private final double[] bestArrivalTime;
+	private final double[] bestReadyTime;
+
+	private final boolean[] stopMarked;
+	private final TIntArrayList markedStops = new TIntArrayList();
+	private final int[] routeQueuedRouteStop;
+	private final TIntArrayList queuedRoutes = new TIntArrayList();
+	private int run = 0;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final TransitSchedule schedule) {
+		this(config, RaptorData.createFromSchedule(schedule, config.getBeelineWalkConnectionDistance()),
+				new TransitRouterNetworkTravelTimeAndDisutility(config, new PreparedTransitSchedule(schedule)));
+	}
+
+	/**
+	 * @param walkDisutility used for the walk times and disutilities from the origin to the stops and from the
+	 * stops to the destination, and for the direct walk.
+	 */
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorData data, final TransitTravelDisutility walkDisutility) {
+		this.config = config;
+		this.data = data;
+		this.walkDisutility = walkDisutility;
+		this.nOfStops = data.getNumberOfStops();
+		int nOfLabels = (this.maxRounds + 1) * this.nOfStops;
+		this.arrivalTime = new double[nOfLabels];
+		this.arrivalBoardRouteStop = new int[nOfLabels];
+		this.arrivalAlightRouteStop = new int[nOfLabels];
+		this.arrivalTripDeparture = new double[nOfLabels];
+		this.arrivalRun = new int[nOfLabels];
+		this.readyTime = new double[nOfLabels];
+		this.readyFromStop = new int[nOfLabels];
+		Arrays.fill(this.arrivalTime, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.readyTime, Double.POSITIVE_INFINITY);
+		this.bestArrivalTime = new double[this.nOfStops];
+		this.bestReadyTime = new double[this.nOfStops];
+		Arrays.fill(this.bestArrivalTime, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.bestReadyTime, Double.POSITIVE_INFINITY);
+		this.stopMarked = new boolean[this.nOfStops];
+		this.routeQueuedRouteStop = new int[data.getNumberOfRoutes()];
+		Arrays.fill(this.routeQueuedRouteStop, -1);
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		List<Integer> accessStops = locateNearestStops(fromCoord);
+		List<Integer> egressStops = locateNearestStops(toCoord);
+		double[] accessTimes = getWalkTimes(person, fromCoord, accessStops, true);
+
+		reset();
+		searchRun(departureTime, accessStops, accessTimes);
+		Journey journey = findLeastCostJourney(person, fromCoord, toCoord, egressStops);
+		reset();
+
+		if (journey == null) {
+			return null;
+		}
+		double directWalkCost = this.walkDisutility.getTravelDisutility(person, fromCoord, toCoord);
+		if (directWalkCost < journey.cost) {
+			return createDirectWalkLegList(person, fromCoord, toCoord, departureTime);
+		}
+		return journey.legs;
+	}
+
+	/**
+	 * Calculates the journeys for all departure times between <code>earliestDepartureTime</code> and
+	 * <code>latestDepartureTime</code>. A journey is only returned if all journeys departing later arrive later.
+	 * For every departure time, the journey with the least disutility is chosen among the ones that arrive earlier
+	 * than all journeys departing later with the same number of transfers.
+	 * Only journeys using transit are returned, walking the whole way is not considered.
+	 *
+	 * @return the legs of the journeys, ordered by their departure time, which is set in the legs.
+	 */
+	public List<List<Leg>> calcRoutes(final Facility<?> fromFacility, final Facility<?> toFacility,
+			final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		List<Integer> accessStops = locateNearestStops(fromCoord);
+		List<Integer> egressStops = locateNearestStops(toCoord);
+		double[] accessTimes = getWalkTimes(person, fromCoord, accessStops, true);
+		double[] departureTimes = collectDepartureTimes(accessStops, accessTimes, earliestDepartureTime, latestDepartureTime);
+
+		List<List<Leg>> result = new ArrayList<>();
+		reset();
+		// the runs go backwards in time, re-using the labels of the later departures (rRAPTOR)
+		for (int i = departureTimes.length - 1; i >= 0; i--) {
+			if (i < departureTimes.length - 1 && departureTimes[i] == departureTimes[i + 1]) {
+				continue;
+			}
+			this.run++;
+			searchRun(departureTimes[i], accessStops, accessTimes);
+			Journey journey = findLeastCostJourney(person, fromCoord, toCoord, egressStops);
+			if (journey != null) {
+				result.add(journey.legs);
+			}
+		}
+		reset();
+		Collections.reverse(result);
+		return result;
+	}
+
+	private List<Integer> locateNearestStops(final Coord coord) {
+		List<Integer> stops = this.data.getStopsWithin(coord, this.config.getSearchRadius());
+		if (stops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			int nearestStop = this.data.getClosestStop(coord);
+			if (nearestStop >= 0) {
+				double distance = CoordUtils.calcEuclideanDistance(coord, this.data.stops[nearestStop].getCoord());
+				stops = this.data.getStopsWithin(coord, distance + this.config.getExtensionRadius());
+			}
+		}
+		return stops;
+	}
+
+	private double[] getWalkTimes(final Person person, final Coord coord, final List<Integer> stops, final boolean toStops) {
+		double[] times = new double[stops.size()];
+		for (int i = 0; i < times.length; i++) {
+			Coord stopCoord = this.data.stops[stops.get(i)].getCoord();
+			times[i] = toStops ? this.walkDisutility.getTravelTime(person, coord, stopCoord)
+					: this.walkDisutility.getTravelTime(person, stopCoord, coord);
+		}
+		return times;
+	}
+
+	/**
+	 * @return the sorted times at which the agent has to leave the origin to catch a vehicle at one of the access stops
+	 * without waiting.
+	 */
+	private double[] collectDepartureTimes(final List<Integer> accessStops, final double[] accessTimes,
+			final double earliestDepartureTime, final double latestDepartureTime) {
+		final double midnight = TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		TDoubleArrayList times = new TDoubleArrayList();
+		for (int i = 0; i < accessStops.size(); i++) {
+			int stop = accessStops.get(i);
+			for (int j = this.data.stopFirstRouteStop[stop]; j < this.data.stopFirstRouteStop[stop + 1]; j++) {
+				int routeStop = this.data.stopRouteStops[j];
+				int route = this.data.routeStopRoute[routeStop];
+				if (routeStop == this.data.routeFirstRouteStop[route + 1] - 1) {
+					continue; // nobody departs at the last stop
+				}
+				for (int d = this.data.routeFirstDeparture[route]; d < this.data.routeFirstDeparture[route + 1]; d++) {
+					double time = this.data.departures[d] + this.data.routeStopDepartureOffset[routeStop] - accessTimes[i];
+					// trips are repeated every 24 hours
+					for (double day = Math.ceil((earliestDepartureTime - time) / midnight) * midnight;
+							time + day <= latestDepartureTime; day += midnight) {
+						times.add(time + day);
+					}
+				}
+			}
+		}
+		double[] result = times.toArray();
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * One RAPTOR search for the given departure time. Labels of earlier runs are kept, so only stops
+	 * that can be reached earlier than with a later departure are updated.
+	 */
+	private void searchRun(final double departureTime, final List<Integer> accessStops, final double[] accessTimes) {
+		for (int i = 0; i < accessStops.size(); i++) {
+			int stop = accessStops.get(i);
+			double time = departureTime + accessTimes[i];
+			if (time < this.bestReadyTime[stop]) {
+				setReadyTime(0, stop, time, -1);
+			}
+		}
+		for (int round = 1; round <= this.maxRounds && !this.markedStops.isEmpty(); round++) {
+			queueRoutes();
+			scanRoutes(round);
+			if (round < this.maxRounds) {
+				transfer(round);
+			}
+		}
+		clearMarkedStops();
+	}
+
+	/**
+	 * Collects all routes serving a marked stop, together with the first marked stop along the route.
+	 */
+	private void queueRoutes() {
+		for (int i = 0; i < this.markedStops.size(); i++) {
+			int stop = this.markedStops.get(i);
+			for (int j = this.data.stopFirstRouteStop[stop]; j < this.data.stopFirstRouteStop[stop + 1]; j++) {
+				int routeStop = this.data.stopRouteStops[j];
+				int route = this.data.routeStopRoute[routeStop];
+				int queued = this.routeQueuedRouteStop[route];
+				if (queued == -1) {
+					this.queuedRoutes.add(route);
+					this.routeQueuedRouteStop[route] = routeStop;
+				} else if (routeStop < queued) {
+					this.routeQueuedRouteStop[route] = routeStop;
+				}
+			}
+		}
+		clearMarkedStops();
+	}
+
+	private void scanRoutes(final int round) {
+		int prevOffset = (round - 1) * this.nOfStops;
+		for (int i = 0; i < this.queuedRoutes.size(); i++) {
+			int route = this.queuedRoutes.get(i);
+			int lastRouteStop = this.data.routeFirstRouteStop[route + 1] - 1;
+			double tripDeparture = Double.POSITIVE_INFINITY;
+			int boardRouteStop = -1;
+			for (int routeStop = this.routeQueuedRouteStop[route]; routeStop <= lastRouteStop; routeStop++) {
+				int stop = this.data.routeStopStop[routeStop];
+				if (boardRouteStop >= 0) {
+					double time = tripDeparture + this.data.routeStopArrivalOffset[routeStop];
+					if (time < this.bestArrivalTime[stop]) {
+						setArrivalTime(round, stop, time, boardRouteStop, routeStop, tripDeparture);
+					}
+				}
+				double ready = this.readyTime[prevOffset + stop];
+				if (routeStop < lastRouteStop && ready < tripDeparture + this.data.routeStopDepartureOffset[routeStop]) {
+					// an earlier trip can be caught here
+					double departure = this.data.getNextTripDeparture(route, routeStop, ready);
+					if (departure < tripDeparture) {
+						tripDeparture = departure;
+						boardRouteStop = routeStop;
+					}
+				}
+			}
+			this.routeQueuedRouteStop[route] = -1;
+		}
+		this.queuedRoutes.resetQuick();
+	}
+
+	private void transfer(final int round) {
+		double additionalTransferTime = this.config.getAdditionalTransferTime();
+		double walkSpeed = this.config.getBeelineWalkSpeed();
+		int offset = round * this.nOfStops;
+		// the stops reached by vehicle are only marked for the transfers, the next round starts at the stops reached by walking
+		int[] arrivalStops = this.markedStops.toArray();
+		clearMarkedStops();
+		for (int stop : arrivalStops) {
+			double arrival = this.arrivalTime[offset + stop];
+			// staying at the stop to change the line
+			double time = arrival + additionalTransferTime;
+			if (time < this.bestReadyTime[stop]) {
+				setReadyTime(round, stop, time, stop);
+			}
+			for (int j = this.data.stopFirstTransfer[stop]; j < this.data.stopFirstTransfer[stop + 1]; j++) {
+				int toStop = this.data.transferStop[j];
+				time = arrival + this.data.transferDistance[j] / walkSpeed + additionalTransferTime;
+				if (time < this.bestReadyTime[toStop]) {
+					setReadyTime(round, toStop, time, stop);
+				}
+			}
+		}
+	}
+
+	private void setArrivalTime(final int round, final int stop, final double time, final int boardRouteStop,
+			final int alightRouteStop, final double tripDeparture) {
+		int index = round * this.nOfStops + stop;
+		if (this.arrivalTime[index] == Double.POSITIVE_INFINITY && this.readyTime[index] == Double.POSITIVE_INFINITY) {
+			this.touchedLabels.add(index);
+		}
+		this.arrivalTime[index] = time;
+		this.arrivalBoardRouteStop[index] = boardRouteStop;
+		this.arrivalAlightRouteStop[index] = alightRouteStop;
+		this.arrivalTripDeparture[index] = tripDeparture;
+		this.arrivalRun[index] = this.run;
+		this.bestArrivalTime[stop] = time;
+		mark(stop);
+	}
+
+	private void setReadyTime(final int round, final int stop, final double time, final int fromStop) {
+		int index = round * this.nOfStops + stop;
+		if (this.arrivalTime[index] == Double.POSITIVE_INFINITY && this.readyTime[index] == Double.POSITIVE_INFINITY) {
+			this.touchedLabels.add(index);
+		}
+		this.readyTime[index] = time;
+		this.readyFromStop[index] = fromStop;
+		this.bestReadyTime[stop] = time;
+		mark(stop);
+	}
+
+	private void mark(final int stop) {
+		if (!this.stopMarked[stop]) {
+			this.stopMarked[stop] = true;
+			this.markedStops.add(stop);
+		}
+	}
+
+	private void clearMarkedStops() {
+		for (int i = 0; i < this.markedStops.size(); i++) {
+			this.stopMarked[this.markedStops.get(i)] = false;
+		}
+		this.markedStops.resetQuick();
+	}
+
+	private void reset() {
+		for (int i = 0; i < this.touchedLabels.size(); i++) {
+			int index = this.touchedLabels.get(i);
+			int stop = index % this.nOfStops;
+			this.arrivalTime[index] = Double.POSITIVE_INFINITY;
+			this.readyTime[index] = Double.POSITIVE_INFINITY;
+			this.bestArrivalTime[stop] = Double.POSITIVE_INFINITY;
+			this.bestReadyTime[stop] = Double.POSITIVE_INFINITY;
+		}
+		this.touchedLabels.resetQuick();
+		this.run = 0;
+	}
+
+	/**
+	 * @return the journey with the least disutility among the ones arriving at an egress stop in the current run,
+	 * or <code>null</code> if the destination cannot be reached.
+	 */
+	private Journey findLeastCostJourney(final Person person, final Coord fromCoord, final Coord toCoord, final List<Integer> egressStops) {
+		Journey best = null;
+		for (int round = 1; round <= this.maxRounds; round++) {
+			int offset = round * this.nOfStops;
+			for (Integer stop : egressStops) {
+				int index = offset + stop;
+				if (this.arrivalTime[index] < Double.POSITIVE_INFINITY && this.arrivalRun[index] == this.run) {
+					Journey journey = createJourney(person, fromCoord, toCoord, round, stop);
+					if (best == null || journey.cost < best.cost) {
+						best = journey;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Follows the labels back from the egress stop to the origin, and creates the legs in the same way
+	 * as {@link TransitRouterImpl}, with the disutility of {@link TransitRouterNetworkTravelTimeAndDisutility}.
+	 */
+	private Journey createJourney(final Person person, final Coord fromCoord, final Coord toCoord, final int lastRound, final int egressStop) {
+		int[] alightIndices = new int[lastRound];
+		int stop = egressStop;
+		for (int round = lastRound; round > 0; round--) {
+			int index = round * this.nOfStops + stop;
+			alightIndices[round - 1] = index;
+			stop = this.readyFromStop[(round - 1) * this.nOfStops + this.data.routeStopStop[this.arrivalBoardRouteStop[index]]];
+		}
+		int accessStopIndex = this.data.routeStopStop[this.arrivalBoardRouteStop[alightIndices[0]]];
+		TransitStopFacility accessStop = this.data.stops[accessStopIndex];
+		double beelineDistanceFactor = this.config.getBeelineDistanceFactor();
+		double accessTime = this.walkDisutility.getTravelTime(person, fromCoord, accessStop.getCoord());
+		double departureTime = this.readyTime[accessStopIndex] - accessTime;
+
+		List<Leg> legs = new ArrayList<>();
+		double time = departureTime;
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		Route walkRoute = new GenericRouteImpl(null, accessStop.getLinkId());
+		walkRoute.setTravelTime(accessTime);
+		walkRoute.setDistance(beelineDistanceFactor * CoordUtils.calcEuclideanDistance(fromCoord, accessStop.getCoord()));
+		leg.setRoute(walkRoute);
+		leg.setDepartureTime(time);
+		leg.setTravelTime(accessTime);
+		legs.add(leg);
+		time += accessTime;
+		double cost = this.walkDisutility.getTravelDisutility(person, fromCoord, accessStop.getCoord());
+
+		TransitStopFacility prevEgressStop = null;
+		for (int index : alightIndices) {
+			int boardRouteStop = this.arrivalBoardRouteStop[index];
+			int alightRouteStop = this.arrivalAlightRouteStop[index];
+			TransitStopFacility boardStop = this.data.stops[this.data.routeStopStop[boardRouteStop]];
+			TransitStopFacility alightStop = this.data.stops[this.data.routeStopStop[alightRouteStop]];
+			if (prevEgressStop != null) {
+				double walkDistance = CoordUtils.calcEuclideanDistance(prevEgressStop.getCoord(), boardStop.getCoord());
+				double walkTime = walkDistance / this.config.getBeelineWalkSpeed();
+				double waitTime = this.config.getAdditionalTransferTime();
+				if (prevEgressStop != boardStop) {
+					leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+					walkRoute = new GenericRouteImpl(prevEgressStop.getLinkId(), boardStop.getLinkId());
+					walkRoute.setTravelTime(walkTime + waitTime);
+					walkRoute.setDistance(beelineDistanceFactor * walkDistance);
+					leg.setRoute(walkRoute);
+					leg.setDepartureTime(time);
+					leg.setTravelTime(walkTime + waitTime);
+					legs.add(leg);
+					time += walkTime + waitTime;
+				}
+				cost += - walkTime * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- walkDistance * this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+						- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+						- this.config.getUtilityOfLineSwitch_utl();
+			}
+			double tripDeparture = this.arrivalTripDeparture[index];
+			double vehicleDepartureTime = tripDeparture + this.data.routeStopDepartureOffset[boardRouteStop];
+			double arrivalTime = tripDeparture + this.data.routeStopArrivalOffset[alightRouteStop];
+			int route = this.data.routeStopRoute[boardRouteStop];
+			leg = PopulationUtils.createLeg(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(boardStop, this.data.routeLines[route], this.data.routes[route], alightStop);
+			ptRoute.setTravelTime(arrivalTime - time);
+			ptRoute.setDistance(beelineDistanceFactor * CoordUtils.calcEuclideanDistance(boardStop.getCoord(), alightStop.getCoord()));
+			leg.setRoute(ptRoute);
+			leg.setDepartureTime(time);
+			leg.setTravelTime(arrivalTime - time);
+			legs.add(leg);
+			double inVehicleDistance = this.data.routeStopDistance[alightRouteStop] - this.data.routeStopDistance[boardRouteStop];
+			cost += - (arrivalTime - vehicleDepartureTime) * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- (vehicleDepartureTime - time) * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- inVehicleDistance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+			time = arrivalTime;
+			prevEgressStop = alightStop;
+		}
+
+		double egressTime = this.walkDisutility.getTravelTime(person, prevEgressStop.getCoord(), toCoord);
+		leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		leg.setDepartureTime(time);
+		leg.setTravelTime(egressTime);
+		legs.add(leg);
+		cost += this.walkDisutility.getTravelDisutility(person, prevEgressStop.getCoord(), toCoord);
+		return new Journey(legs, cost);
+	}
+
+	private List<Leg> createDirectWalkLegList(final Person person, final Coord fromCoord, final Coord toCoord, final double departureTime) {
+		List<Leg> legs = new ArrayList<>();
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double walkTime = this.walkDisutility.getTravelTime(person, fromCoord, toCoord);
+		leg.setDepartureTime(departureTime);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = new GenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	public RaptorData getRaptorData() {
+		return this.data;
+	}
+
+	private static final class Journey {
+		/*package*/ final List<Leg> legs;
+		/*package*/ final double cost;
+
+		/*package*/ Journey(final List<Leg> legs, final double cost) {
+			this.legs = legs;
+			this.cost = cost;
+		}
+	}
+
+}
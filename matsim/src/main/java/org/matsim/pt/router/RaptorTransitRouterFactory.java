@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import org.matsim.core.config.Config;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Creates the {@link RaptorData} once, and provides routers that all share it.
+ */
+@Singleton
+public class RaptorTransitRouterFactory implements Provider<TransitRouter> {
+
+	private final TransitRouterConfig config;
+	private final RaptorData data;
+	private final PreparedTransitSchedule preparedTransitSchedule;
+
+	@Inject
+	RaptorTransitRouterFactory(final TransitSchedule schedule, final Config config) {
+		this(schedule, new TransitRouterConfig(
+				config.planCalcScore(),
+				config.plansCalcRoute(),
+				config.transitRouter(),
+				config.vspExperimental()));
+	}
+
+	public RaptorTransitRouterFactory(final TransitSchedule schedule, final TransitRouterConfig config) {
+		this.config = config;
+		this.data = RaptorData.createFromSchedule(schedule, this.config.getBeelineWalkConnectionDistance());
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
+	}
+
+	@Override
+	public TransitRouter get() {
+		return new RaptorTransitRouter(this.config, this.data, new TransitRouterNetworkTravelTimeAndDisutility(this.config, this.preparedTransitSchedule));
+	}
+
+}
@@ -18,6 +18,10 @@ public class AttributesUtils {
 		}
 	}
 
+	public static boolean isEmpty( Attributes attributes ) {
+		return attributes.size() == 0;
+	}
+
 	/**
 	 * Adds the mappings from "from" to "to". Nothing is done to copy the Object themselves,
 	 * which should be fine for 99.9% of the usecases of Attributes (value objects)
@@ -29,6 +29,8 @@ import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.misc.Time;
+import org.matsim.withinday.replanning.identifiers.LeaveLinkIdentifier;
+import org.matsim.withinday.replanning.identifiers.interfaces.DuringLegAgentSelector;
 import org.matsim.withinday.replanning.parallel.ParallelDuringActivityReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelDuringLegReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelInitialReplanner;
@@ -62,6 +64,7 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private boolean initialReplanning = true;
 	private boolean duringActivityReplanning = true;
 	private boolean duringLegReplanning = true;
+	private boolean asynchronousDuringLegReplanning = false;
 
 	private boolean initialReplanningPerformed = false;
 	
@@ -120,6 +123,33 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		return duringLegReplanning;
 	}
 
+	/**
+	 * If set, the during leg replanning does not stop the mobsim. In every time step, the agents
+	 * that are identified for the next time step are replanned in the background, while the other
+	 * mobsim engines perform the current time step. The replanning is finished at the beginning of
+	 * the next time step, before any agent is moved.
+	 * <p></p>
+	 * The identifiers are thus asked one time step ahead. Agents that become known to an identifier
+	 * only during the time step before they should be replanned (e.g. agents entering a link that
+	 * can be left one time step later) are not replanned in that time step.
+	 * <p></p>
+	 * Replanners are run concurrently with the mobsim, which may move any agent that can leave its
+	 * link in the current time step. Therefore only {@link LeaveLinkIdentifier}s are supported: the
+	 * agents they identify for the next time step cannot leave their link before the replanning
+	 * has been finished. Other identifiers (e.g. the {@link org.matsim.withinday.replanning.identifiers.LegPerformingIdentifier}) also return
+	 * agents that are moved by the mobsim while they are replanned, so the replanning is aborted
+	 * if they are used. Replanners must only use data that may be read while the mobsim is running
+	 * (e.g. the travel times of the TravelTimeCollector). The replanning is based on information
+	 * which is one time step older.
+	 */
+	public void doAsynchronousDuringLegReplanning(boolean value) {
+		asynchronousDuringLegReplanning = value;
+	}
+
+	public boolean isAsynchronousDuringLegReplanning() {
+		return asynchronousDuringLegReplanning;
+	}
+
 	public void addIntialReplannerFactory(WithinDayInitialReplannerFactory factory) {
 		this.parallelInitialReplanner.addWithinDayReplannerFactory(factory);
 	}
@@ -157,6 +187,12 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	@Override
 	public void doSimStep(double time) {
 	
+		/*
+		 * Finish the during leg replanning that has been started in the previous time step.
+		 * No agent has been moved in this time step so far.
+		 */
+		duringLegReplanningModule.awaitReplanning();
+		
 		/*
 		 * Initial replanning (so far?) cannot be performed in the onPrepareSim()
 		 * method since the identifiers and replanners do not know the agents at
@@ -181,7 +217,24 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		}
 
 		if (isDuringLegReplanning()) {
-			duringLegReplanningModule.doReplanning(time);
+			if (isAsynchronousDuringLegReplanning()) {
+				checkAsynchronousDuringLegIdentifiers();
+				double timeStepSize = this.internalInterface.getMobsim().getSimTimer().getSimTimestepSize();
+				duringLegReplanningModule.startReplanning(time + timeStepSize);
+			} else {
+				duringLegReplanningModule.doReplanning(time);
+			}
+		}
+	}
+
+	private void checkAsynchronousDuringLegIdentifiers() {
+		for (WithinDayDuringLegReplannerFactory factory : this.parallelDuringLegReplanner.getWithinDayReplannerFactories()) {
+			for (DuringLegAgentSelector identifier : factory.getIdentifers()) {
+				if (!(identifier instanceof LeaveLinkIdentifier)) {
+					throw new RuntimeException("Asynchronous during leg replanning only supports identifiers of type " +
+							LeaveLinkIdentifier.class.getSimpleName() + ", but found " + identifier.getClass().getName() + ". Aborting!");
+				}
+			}
 		}
 	}
 
@@ -35,6 +35,25 @@ public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFact
 	protected ParallelReplanner<T> parallelReplanner;
 	
 	public void doReplanning(double time) {
+		this.addReplanningTasks(time);
+		this.parallelReplanner.run(time);
+	}
+	
+	/**
+	 * Identifies the agents to be replanned at the given time and starts their replanning, without
+	 * waiting for it. {@link #awaitReplanning()} has to be called before these agents are used by
+	 * the mobsim again.
+	 */
+	public void startReplanning(double time) {
+		this.addReplanningTasks(time);
+		this.parallelReplanner.startReplanning(time);
+	}
+	
+	public void awaitReplanning() {
+		this.parallelReplanner.awaitReplanning();
+	}
+	
+	private void addReplanningTasks(double time) {
 		for (T factory : this.parallelReplanner.getWithinDayReplannerFactories()) {
 			Set<? extends AgentSelector> identifiers = factory.getIdentifers(); 
 			Id<WithinDayReplanner> id = factory.getId();
@@ -46,8 +65,6 @@ public abstract class WithinDayReplanningModule<T extends WithinDayReplannerFact
 				}
 			}
 		}
-		
-		this.parallelReplanner.run(time);
 	}
 	
 
@@ -75,6 +75,7 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	protected CyclicBarrier timeStepEndBarrier;
 	
 	protected boolean simIsRunning = false;
+	private boolean replanningStarted = false;
 	
 	public ParallelReplanner(int numOfThreads, EventsManager eventsManager) {
 		this.setNumberOfThreads(numOfThreads);
@@ -170,6 +171,20 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	 * "as it is"...
 	 */
 	public final void run(double time) {
+		startReplanning(time);
+		awaitReplanning();
+	}
+	
+	/**
+	 * Starts the replanning of the added replanning tasks and returns without waiting
+	 * for the replanning threads. {@link #awaitReplanning()} has to be called before
+	 * further tasks are added and before the replanned agents are used by the mobsim.
+	 */
+	public final void startReplanning(double time) {
+		if (this.replanningStarted) {
+			throw new IllegalStateException("The replanning that has been started before has not been awaited.");
+		}
+		
 		// no Agents to Replan
 		if (lastRoundRobin == roundRobin) return;
 		else lastRoundRobin = roundRobin;
@@ -190,18 +205,41 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 			}
 
 			this.timeStepStartBarrier.await();
+			this.replanningStarted = true;
 
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (BrokenBarrierException e) {
+	      	throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Waits until the replanning threads have finished the replanning started by
+	 * {@link #startReplanning(double)}, and processes their replanning events. Returns
+	 * immediately if no replanning has been started.
+	 */
+	public final void awaitReplanning() {
+		if (!this.replanningStarted) return;
+		this.replanningStarted = false;
+		
+		try {
 			this.timeStepEndBarrier.await();
-
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
 		} catch (BrokenBarrierException e) {
 	      	throw new RuntimeException(e);
 		}
+		
+		for (ReplanningRunnable replanningRunnable : replanningRunnables) {
+			replanningRunnable.processReplanningEvents();
+		}
 	}
 
 	public final void afterSim() {
 
+		if (!this.hadException.get()) awaitReplanning();
+		this.replanningStarted = false;
 		this.simIsRunning = false;
 		
 		if (this.hadException.get()) {
@@ -32,7 +32,9 @@ import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -70,6 +72,13 @@ public abstract class ReplanningRunnable implements Runnable {
 	 */
 	protected Map<Id<WithinDayReplanner>, Queue<ReplanningTask>> replanningTasks = new TreeMap<>();
     protected EventsManager eventsManager;
+    
+	/*
+	 * The replanning events are not processed by the replanning threads, but collected and
+	 * processed by the mobsim thread once the replanning is finished. Otherwise, they would
+	 * be processed concurrently with the mobsim's events if the replanning runs asynchronously.
+	 */
+	private final List<ReplanningEvent> replanningEvents = new ArrayList<>();
 	
 	protected CyclicBarrier timeStepStartBarrier;
 	protected CyclicBarrier betweenReplannerBarrier;
@@ -114,6 +123,13 @@ public abstract class ReplanningRunnable implements Runnable {
 		this.replanningTasks.remove(replannerId);
 	}
 	
+	public final void processReplanningEvents() {
+		for (ReplanningEvent replanningEvent : this.replanningEvents) {
+			this.eventsManager.processEvent(replanningEvent);
+		}
+		this.replanningEvents.clear();
+	}
+	
 	public final void resetReplanners() {
 		this.counter.reset();
 		for (WithinDayReplanner<? extends AgentSelector> withinDayReplanner : this.withinDayReplanners.values()) {
@@ -180,7 +196,7 @@ public abstract class ReplanningRunnable implements Runnable {
 					if (eventsManager != null) {
 						ReplanningEvent replanningEvent = new ReplanningEvent(time, withinDayAgent.getId(), 
 								withinDayReplanner.getClass().getSimpleName());
-						eventsManager.processEvent(replanningEvent);
+						this.replanningEvents.add(replanningEvent);
 					}
 					
 					counter.incCounter();
@@ -28,14 +28,11 @@ import org.matsim.api.core.v01.events.handler.*;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
-import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
-import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.network.NetworkChangeEvent;
@@ -49,13 +46,23 @@ import org.matsim.vehicles.Vehicle;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.*;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
+ * <p></p>
+ * All link data is kept in arrays indexed by {@link Id#index()} of the link ids. The trips
+ * of a link are stored in a ring buffer, ordered by their leave time. The mean travel times
+ * of the links with stored trips are updated at the end of every sim step, for the time of
+ * the next sim step, by the QSim thread and a pool of update threads. The travel times are
+ * published in an {@link AtomicLongArray}, so that {@link #getLinkTravelTime(Link, double, Person, Vehicle)}
+ * is wait-free and can be called by replanning threads at any time.
  * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
@@ -66,18 +73,45 @@ import java.util.concurrent.CyclicBarrier;
 public class TravelTimeCollector implements TravelTime,
 		LinkEnterEventHandler, LinkLeaveEventHandler, PersonStuckEventHandler,
 		VehicleLeavesTrafficEventHandler, VehicleEntersTrafficEventHandler,
-		MobsimInitializedListener, MobsimBeforeSimStepListener, MobsimAfterSimStepListener,
+		MobsimInitializedListener, MobsimAfterSimStepListener,
 		MobsimBeforeCleanupListener {
 
 	private static final Logger log = Logger.getLogger(TravelTimeCollector.class);
 
+	/*
+	 * Below this number of active links per thread, the update is not worth
+	 * handing it over to the update threads.
+	 */
+	private static final int minActiveLinksPerThread = 256;
+	private static final int initialTripCapacity = 4;
+
+	private static Counter enlarge = new Counter("TravelTimeCollector: enlarged time bin size: ");
+	private static Counter shrink = new Counter("TravelTimeCollector: shrunk time bin size: ");
+
 	private Network network;
 
-	// Trips with no Activity on the current Link
-	private Map<Id<Vehicle>, TripBin> regularActiveTrips; // VehicleId
-	private Map<Id<Link>, TravelTimeInfo> travelTimeInfos; // LinkId
-	
-	private TravelTimeInfoProvider travelTimeInfoProvider;
+	// Trips with no Activity on the current Link: link enter time per vehicle index, NaN if not on a link
+	private double[] enterTimes;
+
+	/*
+	 * Link data, indexed by the link id index. The trips of a link are stored in a
+	 * ring buffer: leave time and trip time of the i-th oldest trip are found at
+	 * (firstTrip + i) % capacity.
+	 */
+	private double[][] tripLeaveTimes;
+	private double[][] tripTravelTimes;
+	private int[] firstTrip;
+	private int[] tripCount;
+	private double[] addedTravelTimes;
+	private double[] sumTravelTimes; // We cache the sum of the TravelTimes
+	private double[] freeSpeedTravelTimes; // We cache the FreeSpeedTravelTimes
+	private double[] dynamicBinSizes; // size of the time window that is taken into account
+	private boolean[] isActive;
+	private volatile AtomicLongArray travelTimes; // the published travel times, as raw long bits
+
+	// Links that have stored trips or have been changed
+	private int[] activeLinks;
+	private int activeLinksCount;
 
 	// Links that are changed by network change events
 	private Map<Double, Collection<Link>> changedLinks;
@@ -85,10 +119,9 @@ public class TravelTimeCollector implements TravelTime,
 	/*
 	 * For parallel Execution
 	 */
-	private CyclicBarrier startBarrier;
-	private CyclicBarrier endBarrier;
-	private UpdateMeanTravelTimesRunnable[] updateMeanTravelTimesRunnables;
+	private ExecutorService executor;
 	private final int numOfThreads;
+	private double simTimestepSize = 1.0;
 
 	private final int infoTimeStep = 3600;
 	private int nextInfoTime = 0;
@@ -97,8 +130,6 @@ public class TravelTimeCollector implements TravelTime,
 	private final Set<String> analyzedModes;
 	private final boolean filterModes;
 
-	boolean problem = true ;
-
 	@Inject
 	TravelTimeCollector(Scenario scenario) {
 		this(scenario, null);
@@ -124,62 +155,57 @@ public class TravelTimeCollector implements TravelTime,
 	}
 
 	private void init() {
-		this.regularActiveTrips = new HashMap<>();
-		this.travelTimeInfos = new ConcurrentHashMap<>();
+		this.enterTimes = new double[0];
 		this.changedLinks = new HashMap<>();
 		this.vehiclesToFilter = new HashSet<>();
-				
-		for (Link link : this.network.getLinks().values()) {
-			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
-			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
-		}
-		/*
-		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
-		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
-		 * routing times of a AStarLandmarks router by ~5%.
-		 */
-//		this.travelTimeInfoProvider = new MapBasedTravelTimeInfoProvider(this.travelTimeInfos);
-		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos, this.network);
+
+		this.tripLeaveTimes = new double[0][];
+		this.tripTravelTimes = new double[0][];
+		this.firstTrip = new int[0];
+		this.tripCount = new int[0];
+		this.addedTravelTimes = new double[0];
+		this.sumTravelTimes = new double[0];
+		this.freeSpeedTravelTimes = new double[0];
+		this.dynamicBinSizes = new double[0];
+		this.isActive = new boolean[0];
+		this.travelTimes = new AtomicLongArray(0);
+		ensureLinkCapacity(Id.getNumberOfIds(Link.class) - 1);
+		this.activeLinks = new int[Math.max(16, this.network.getLinks().size() / 16)];
+		this.activeLinksCount = 0;
 		
 		/*
 		 * If the network is time variant, we have to update the link parameters
 		 * according to the network change events.
 		 */
-		if (this.network instanceof Network) {
-			Collection<NetworkChangeEvent> networkChangeEvents = NetworkUtils.getNetworkChangeEvents(((Network) this.network));
-			if (networkChangeEvents != null) {
-				for (NetworkChangeEvent networkChangeEvent : networkChangeEvents) {
-					ChangeValue freespeedChange = networkChangeEvent.getFreespeedChange();
-					if (freespeedChange != null) {
-						double startTime = networkChangeEvent.getStartTime();
-						Collection<Link> links = changedLinks.get(startTime);
-						if (links == null) {
-							links = new HashSet<>();
-							changedLinks.put(startTime, links);
-						}
-						links.addAll(networkChangeEvent.getLinks());
+		Collection<NetworkChangeEvent> networkChangeEvents = NetworkUtils.getNetworkChangeEvents(this.network);
+		if (networkChangeEvents != null) {
+			for (NetworkChangeEvent networkChangeEvent : networkChangeEvents) {
+				ChangeValue freespeedChange = networkChangeEvent.getFreespeedChange();
+				if (freespeedChange != null) {
+					double startTime = networkChangeEvent.getStartTime();
+					Collection<Link> links = changedLinks.get(startTime);
+					if (links == null) {
+						links = new HashSet<>();
+						changedLinks.put(startTime, links);
 					}
-				}				
-			}
-		}		
+					links.addAll(networkChangeEvent.getLinks());
+				}
+			}				
+		}
 	}
 
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-		return this.travelTimeInfoProvider.getTravelTimeData(link).travelTime;
+		AtomicLongArray travelTimes = this.travelTimes;
+		int linkIndex = link.getId().index();
+		// links whose ids have been created after the last update have no collected data yet
+		if (linkIndex >= travelTimes.length()) return link.getLength() / link.getFreespeed(time);
+		return Double.longBitsToDouble(travelTimes.get(linkIndex));
 	}
 
 	@Override
 	public void reset(int iteration) {
 		init();
-		int resetCnt = 0;
-		if ( resetCnt >=1 ) {
-			if ( problem ) {
-				throw new RuntimeException("using TravelTimeCollector, but mobsim notifications not called between two resets.  "
-						+ "Did you really add this as a mobsim listener?") ;
-				// in practice, it seems to fail even earlier with some null pointer exception. kai, may'15
-			}
-		}
 	}
 
 	@Override
@@ -190,34 +216,33 @@ public class TravelTimeCollector implements TravelTime,
 		 */
 		if (filterModes && vehiclesToFilter.contains(event.getVehicleId())) return;
 		
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = new TripBin();
-		tripBin.enterTime = time;
-
-		this.regularActiveTrips.put(vehicleId, tripBin);
+		int vehicleIndex = event.getVehicleId().index();
+		if (vehicleIndex >= this.enterTimes.length) {
+			int oldLength = this.enterTimes.length;
+			this.enterTimes = Arrays.copyOf(this.enterTimes, Math.max(vehicleIndex + 1, Id.getNumberOfIds(Vehicle.class)));
+			Arrays.fill(this.enterTimes, oldLength, this.enterTimes.length, Double.NaN);
+		}
+		this.enterTimes[vehicleIndex] = event.getTime();
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		Id<Link> linkId = event.getLinkId();
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = this.regularActiveTrips.remove(vehicleId);
-		if (tripBin != null) {
-			tripBin.leaveTime = time;
-
-			double tripTime = tripBin.leaveTime - tripBin.enterTime;
-
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
-			travelTimeInfo.addedTravelTimes += tripTime;
-			travelTimeInfo.addedTrips++;
+		double enterTime = removeEnterTime(event.getVehicleId());
+		if (!Double.isNaN(enterTime)) {
+			double tripTime = event.getTime() - enterTime;
+
+			int linkIndex = event.getLinkId().index();
+			ensureLinkCapacity(linkIndex);
+			if (this.freeSpeedTravelTimes[linkIndex] == Double.MAX_VALUE) {
+				// the link has been added to the network after the mobsim was initialized
+				Link link = this.network.getLinks().get(event.getLinkId());
+				if (link != null) initLink(linkIndex, link.getLength() / link.getFreespeed(event.getTime()));
+			}
+			addTrip(linkIndex, event.getTime(), tripTime);
+			this.addedTravelTimes[linkIndex] += tripTime;
 
-			travelTimeInfo.checkActiveState();
-			travelTimeInfo.checkBinSize(tripTime);
+			checkActiveState(linkIndex);
+			checkBinSize(linkIndex, tripTime);
 		}
 	}
 
@@ -237,9 +262,7 @@ public class TravelTimeCollector implements TravelTime,
 	 */
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		Id<Vehicle> vehicleId = event.getVehicleId();
-
-		this.regularActiveTrips.remove(vehicleId);
+		removeEnterTime(event.getVehicleId());
 		
 		// try to remove vehicle from set with filtered vehicles
 		if (filterModes) this.vehiclesToFilter.remove(event.getVehicleId());
@@ -260,10 +283,9 @@ public class TravelTimeCollector implements TravelTime,
 	 */
 	@Override
 	public void notifyMobsimInitialized(MobsimInitializedEvent e) {
-		problem = false ;
-
 		if (e.getQueueSimulation() instanceof QSim) {
 			double simStartTime = ((QSim) e.getQueueSimulation()).getSimTimer().getSimStartTime();
+			this.simTimestepSize = ((QSim) e.getQueueSimulation()).getSimTimer().getSimTimestepSize();
 
 			/*
 			 * infoTime may be < simStartTime, this ensures to print 
@@ -273,129 +295,147 @@ public class TravelTimeCollector implements TravelTime,
 		}
 		
 		
+		ensureLinkCapacity(Id.getNumberOfIds(Link.class) - 1);
 		for (Link link : this.network.getLinks().values()) {
 			double freeSpeedTravelTime = link.getLength() / link.getFreespeed(Time.UNDEFINED_TIME);
 
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(link);
-			travelTimeInfo.travelTime = freeSpeedTravelTime;
-			travelTimeInfo.init(freeSpeedTravelTime);
+			int linkIndex = link.getId().index();
+			setTravelTime(linkIndex, freeSpeedTravelTime);
+			initLink(linkIndex, freeSpeedTravelTime);
 		}
 
 		// Now initialize the Parallel Update Threads
 		initParallelThreads();
 	}
 
-	// Update Link TravelTimeInfos if link attributes have changed
+	/*
+	 * Update Link TravelTimeInfos if link attributes have changed, then update the
+	 * link travel times for the next sim step. Doing this at the end of the sim step
+	 * (instead of at the beginning of the next one) has the same result, since no
+	 * link is entered or left in between.
+	 */
 	@Override
 	public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
-		problem = false ;
-		
 		Collection<Link> links = changedLinks.remove(e.getSimulationTime());
 		
 		if (links != null) {
 			for (Link link : links) {
 				double freeSpeedTravelTime = link.getLength() / link.getFreespeed(e.getSimulationTime());
-				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(link);
-				travelTimeInfo.init(freeSpeedTravelTime);
-				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
+				int linkIndex = link.getId().index();
+				ensureLinkCapacity(linkIndex);
+				initLink(linkIndex, freeSpeedTravelTime);
+				checkActiveState(linkIndex);	// ensure that the estimated link travel time is updated
 			}
 		}
-	}
-
-	// Update Link TravelTimes
-	@Override
-	public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
-		problem = false ;
 
-		// parallel Execution
-		this.run(e.getSimulationTime());
+		double time = e.getSimulationTime() + this.simTimestepSize;
+		updateTravelTimes(time);
 
-		printInfo(e.getSimulationTime());
+		printInfo(time);
 	}
 
-
+	/*
+	 * The update threads are daemons and kept for the next mobsim.
+	 */
 	@Override
 	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
-		problem = false ;
-		
-		/*
-		 * Calling the afterSim Method of the Threads will set their 
-		 * simulationRunning flag to false.
-		 */
-		for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-			runnable.afterSim();
-		}
-
-		/*
-		 * Triggering the startBarrier of the UpdateMeanTravelTimesRunnables.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will terminate.
-		 */
-		try {
-			this.startBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException ex) {
-			throw new RuntimeException(ex);
-		}
 	}
 	
 	private void printInfo(double time) {
 		if (time >= this.nextInfoTime) {
-			int activeLinks = 0;
-			for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-				activeLinks += runnable.getActiveLinksCount();
-			}
-
-			log.info("TravelTimeCollector at " + Time.writeTime(time) + " #links=" + activeLinks);
+			log.info("TravelTimeCollector at " + Time.writeTime(time) + " #links=" + this.activeLinksCount);
 
 			this.nextInfoTime += this.infoTimeStep;
 		}
 	}
 
-	private static class TripBin {
-		double enterTime;
-		double leaveTime;
+	private double removeEnterTime(Id<Vehicle> vehicleId) {
+		int vehicleIndex = vehicleId.index();
+		if (vehicleIndex >= this.enterTimes.length) return Double.NaN;
+		double enterTime = this.enterTimes[vehicleIndex];
+		this.enterTimes[vehicleIndex] = Double.NaN;
+		return enterTime;
 	}
 
-	/*package*/ static class TravelTimeInfo {
-
-		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<>();
-
-		boolean isActive = false;
-		// int numActiveTrips = 0;
-		int addedTrips = 0;
-		double addedTravelTimes = 0.0;
-		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
-
-		double freeSpeedTravelTime = Double.MAX_VALUE; // We cache the FreeSpeedTravelTimes
-		double travelTime = Double.MAX_VALUE; 
+	/*
+	 * Grows the link arrays like the enter times, if link ids have been created after the
+	 * arrays were allocated. Links without data get Double.MAX_VALUE as travel time until
+	 * they are initialized.
+	 */
+	private void ensureLinkCapacity(int linkIndex) {
+		int oldLength = this.isActive.length;
+		if (linkIndex < oldLength) return;
+		int length = Math.max(linkIndex + 1, Id.getNumberOfIds(Link.class));
+		this.tripLeaveTimes = Arrays.copyOf(this.tripLeaveTimes, length);
+		this.tripTravelTimes = Arrays.copyOf(this.tripTravelTimes, length);
+		this.firstTrip = Arrays.copyOf(this.firstTrip, length);
+		this.tripCount = Arrays.copyOf(this.tripCount, length);
+		this.addedTravelTimes = Arrays.copyOf(this.addedTravelTimes, length);
+		this.sumTravelTimes = Arrays.copyOf(this.sumTravelTimes, length);
+		this.freeSpeedTravelTimes = Arrays.copyOf(this.freeSpeedTravelTimes, length);
+		this.dynamicBinSizes = Arrays.copyOf(this.dynamicBinSizes, length);
+		this.isActive = Arrays.copyOf(this.isActive, length);
+		Arrays.fill(this.freeSpeedTravelTimes, oldLength, length, Double.MAX_VALUE);
+		AtomicLongArray newTravelTimes = new AtomicLongArray(length);
+		for (int i = 0; i < length; i++) {
+			newTravelTimes.set(i, i < oldLength ? this.travelTimes.get(i) : Double.doubleToRawLongBits(Double.MAX_VALUE));
+		}
+		this.travelTimes = newTravelTimes;
+	}
 
-		double dynamicBinSize = 0.0; // size of the time window that is taken into account
+	private void setTravelTime(int linkIndex, double travelTime) {
+		this.travelTimes.set(linkIndex, Double.doubleToRawLongBits(travelTime));
+	}
 
-		static Counter enlarge = new Counter("TravelTimeCollector: enlarged time bin size: ");
-		static Counter shrink = new Counter("TravelTimeCollector: shrunk time bin size: ");
+	private void initLink(int linkIndex, double freeSpeedTravelTime) {
+		this.freeSpeedTravelTimes[linkIndex] = freeSpeedTravelTime;
+		this.dynamicBinSizes[linkIndex] = freeSpeedTravelTime * 2.5;
+	}
 
-		/*package*/ void init(double freeSpeedTravelTime) {
-			this.freeSpeedTravelTime = freeSpeedTravelTime;
-			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
+	private void checkActiveState(int linkIndex) {
+		if (!this.isActive[linkIndex]) {
+			this.isActive[linkIndex] = true;
+			if (this.activeLinksCount == this.activeLinks.length) {
+				this.activeLinks = Arrays.copyOf(this.activeLinks, this.activeLinks.length * 2);
+			}
+			this.activeLinks[this.activeLinksCount++] = linkIndex;
 		}
+	}
 
-		/*package*/ void checkActiveState() {
-			if (!isActive) {
-				this.isActive = true;
-				runnable.addTravelTimeInfo(this);
-			}
+	private void checkBinSize(int linkIndex, double tripTime) {
+		if (tripTime > this.dynamicBinSizes[linkIndex]) {
+			this.dynamicBinSizes[linkIndex] = tripTime * 2;
+			enlarge.incCounter();
+		} else if (tripTime * 3 < this.dynamicBinSizes[linkIndex]) {
+			this.dynamicBinSizes[linkIndex] = tripTime * 3;
+			shrink.incCounter();
 		}
+	}
 
-		/*package*/ void checkBinSize(double tripTime) {
-			if (tripTime > dynamicBinSize) {
-				dynamicBinSize = tripTime * 2;
-				enlarge.incCounter();
-			} else if (tripTime * 3 < dynamicBinSize) {
-				dynamicBinSize = tripTime * 3;
-				shrink.incCounter();
+	private void addTrip(int linkIndex, double leaveTime, double tripTime) {
+		double[] leaveTimes = this.tripLeaveTimes[linkIndex];
+		double[] travelTimes = this.tripTravelTimes[linkIndex];
+		int count = this.tripCount[linkIndex];
+		if (leaveTimes == null || count == leaveTimes.length) {
+			// grow the ring buffer, moving the oldest trip to the front
+			int capacity = leaveTimes == null ? initialTripCapacity : leaveTimes.length * 2;
+			double[] newLeaveTimes = new double[capacity];
+			double[] newTravelTimes = new double[capacity];
+			for (int i = 0; i < count; i++) {
+				int position = (this.firstTrip[linkIndex] + i) % leaveTimes.length;
+				newLeaveTimes[i] = leaveTimes[position];
+				newTravelTimes[i] = travelTimes[position];
 			}
+			leaveTimes = newLeaveTimes;
+			travelTimes = newTravelTimes;
+			this.tripLeaveTimes[linkIndex] = leaveTimes;
+			this.tripTravelTimes[linkIndex] = travelTimes;
+			this.firstTrip[linkIndex] = 0;
 		}
+		int position = (this.firstTrip[linkIndex] + count) % leaveTimes.length;
+		leaveTimes[position] = leaveTime;
+		travelTimes[position] = tripTime;
+		this.tripCount[linkIndex] = count + 1;
 	}
 
 	/*
@@ -405,204 +445,127 @@ public class TravelTimeCollector implements TravelTime,
 	 */
 
 	/*
-	 * The Threads are waiting at the TimeStepStartBarrier. We trigger them by
-	 * reaching this Barrier. Now the Threads will start moving the Nodes. We
-	 * wait until all of them reach the TimeStepEndBarrier to move on. We should
-	 * not have any Problems with Race Conditions because even if the Threads
-	 * would be faster than this Thread, means they reach the TimeStepEndBarrier
-	 * before this Method does, it should work anyway.
+	 * The active links are split into one consecutive range per thread. Each link is
+	 * thus updated by exactly one thread, and no locking is needed. Links without stored
+	 * trips are marked as inactive by the threads and afterwards removed from the active
+	 * links by this thread.
 	 */
-	private void run(double time) {
-
-		try {
-			// set current Time
-			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
-				updateMeanTravelTimesRunnable.setTime(time);
-			}
+	private void updateTravelTimes(final double time) {
 
-			this.startBarrier.await();
+		final int count = this.activeLinksCount;
+		int nOfThreads = this.executor == null ? 1 : Math.min(this.numOfThreads, count / minActiveLinksPerThread);
 
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	private void initParallelThreads() {
-
-		this.startBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.endBarrier = new CyclicBarrier(numOfThreads + 1);
-
-		Thread[] threads = new Thread[numOfThreads];
-		this.updateMeanTravelTimesRunnables = new UpdateMeanTravelTimesRunnable[numOfThreads];
-
-		// setup threads
-		for (int i = 0; i < numOfThreads; i++) {
-			UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable = new UpdateMeanTravelTimesRunnable();
-			updateMeanTravelTimesRunnable.setStartBarrier(this.startBarrier);
-			updateMeanTravelTimesRunnable.setEndBarrier(this.endBarrier);
-			updateMeanTravelTimesRunnables[i] = updateMeanTravelTimesRunnable;
-			
-			Thread thread = new Thread(updateMeanTravelTimesRunnable);
-			thread.setName("UpdateMeanTravelTimes" + i);
-			thread.setDaemon(true); // make the Thread demons so they will terminate automatically
-			threads[i] = thread;
-			
-			thread.start();
-		}
-
-		/*
-		 * Assign the TravelTimeInfos to the Threads
-		 */
-		int roundRobin = 0;
-		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos.values()) {
-			travelTimeInfo.runnable = updateMeanTravelTimesRunnables[roundRobin % numOfThreads];
-			roundRobin++;
+		if (nOfThreads <= 1) {
+			updateTravelTimes(time, 0, count);
+		} else {
+			List<Future<?>> futures = new ArrayList<>(nOfThreads);
+			for (int i = 0; i < nOfThreads; i++) {
+				final int from = (int) ((long) count * i / nOfThreads);
+				final int to = (int) ((long) count * (i + 1) / nOfThreads);
+				futures.add(this.executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						updateTravelTimes(time, from, to);
+					}
+				}));
+			}
+			try {
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
 		}
 
-		/*
-		 * After initialization the Threads are waiting at the endBarrier. We
-		 * trigger this Barrier once so they wait at the startBarrier what has
-		 * to be their state if the run() method is called.
-		 */
-		try {
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
+		int stillActive = 0;
+		for (int i = 0; i < count; i++) {
+			int linkIndex = this.activeLinks[i];
+			if (this.isActive[linkIndex]) {
+				this.activeLinks[stillActive++] = linkIndex;
+			}
 		}
+		this.activeLinksCount = stillActive;
 	}
 
 	/*
-	 * The thread class that updates the mean travel times.
+	 * The pool is created for the first mobsim and reused afterwards.
 	 */
-	private static class UpdateMeanTravelTimesRunnable implements Runnable {
-
-		private volatile boolean simulationRunning = true;
-		
-		private CyclicBarrier startBarrier = null;
-		private CyclicBarrier endBarrier = null;
-		
-		private double time = Time.UNDEFINED_TIME;
-		private Collection<TravelTimeInfo> activeTravelTimeInfos;
-
-		public UpdateMeanTravelTimesRunnable() {
-			activeTravelTimeInfos = new ArrayList<>();
-		}
-
-		public void setStartBarrier(CyclicBarrier cyclicBarrier) {
-			this.startBarrier = cyclicBarrier;
-		}
-
-		public void setEndBarrier(CyclicBarrier cyclicBarrier) {
-			this.endBarrier = cyclicBarrier;
-		}
-
-		public void setTime(final double t) {
-			time = t;
-		}
-
-		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
-			this.activeTravelTimeInfos.add(travelTimeInfo);
-		}
-
-		public int getActiveLinksCount() {
-			return this.activeTravelTimeInfos.size();
+	private void initParallelThreads() {
+		if (this.executor == null && this.numOfThreads > 1) {
+			this.executor = Executors.newFixedThreadPool(this.numOfThreads, new ThreadFactory() {
+				private int threadCount = 0;
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable);
+					thread.setName("UpdateMeanTravelTimes" + this.threadCount++);
+					thread.setDaemon(true); // make the Thread demons so they will terminate automatically
+					return thread;
+				}
+			});
 		}
+	}
 
-		public void afterSim() {
-			this.simulationRunning = false;
-		}
-		
-		@Override
-		public void run() {
-
-			while (true) {
-				try {
-					/*
-					 * The End of the Moving is synchronized with the
-					 * endBarrier. If all Threads reach this Barrier the main
-					 * run() Thread can go on.
-					 * 
-					 * The Threads wait now at the startBarrier until they are
-					 * triggered again in the next TimeStep by the main run()
-					 * method.
-					 */
-					endBarrier.await();
-
-					startBarrier.await();
-
-					/*
-					 * Check if Simulation is still running.
-					 * Otherwise print CPU usage and end Thread.
-					 */
-					if (!simulationRunning) {
-						Gbl.printCurrentThreadCpuTime();
-						return;
-					}
-					
-					Iterator<TravelTimeInfo> iter = activeTravelTimeInfos.iterator();
-					while (iter.hasNext()) {
-						TravelTimeInfo travelTimeInfo = iter.next();
-						calcBinTravelTime(this.time, travelTimeInfo);
-
-						/*
-						 * If no further trips are stored in the TravelTimeInfo,
-						 * we deactivate the link and ensure that its expected
-						 * travel time is its free speed travel time.
-						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
-							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-							iter.remove();
-						}
-					}
-
-				} catch (InterruptedException | BrokenBarrierException e) {
-					throw new RuntimeException(e);
-				}
-			}
-		} // run()
-
-		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
-			double removedTravelTimes = 0.0;
-
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
-			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
-			}
+	private void updateTravelTimes(double time, int from, int to) {
+		for (int i = from; i < to; i++) {
+			int linkIndex = this.activeLinks[i];
+			calcBinTravelTime(time, linkIndex);
 
 			/*
-			 * We don't need an update if no Trips have been added or removed
-			 * within the current SimStep. The initial FreeSpeedTravelTime has
-			 * to be set correctly via setTravelTime!
+			 * If no further trips are stored for the link, we deactivate
+			 * the link and ensure that its expected travel time is its
+			 * free speed travel time.
 			 */
-			if (removedTravelTimes == 0.0 && travelTimeInfo.addedTravelTimes == 0.0) return;
+			if (this.tripCount[linkIndex] == 0) {
+				this.isActive[linkIndex] = false;
+				setTravelTime(linkIndex, this.freeSpeedTravelTimes[linkIndex]);
+			}
+		}
+	}
 
-			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes + travelTimeInfo.addedTravelTimes;
+	private void calcBinTravelTime(double time, int linkIndex) {
+		double removedTravelTimes = 0.0;
+
+		// first remove old TravelTimes
+		double[] leaveTimes = this.tripLeaveTimes[linkIndex];
+		double[] travelTimes = this.tripTravelTimes[linkIndex];
+		double dynamicBinSize = this.dynamicBinSizes[linkIndex];
+		int first = this.firstTrip[linkIndex];
+		int count = this.tripCount[linkIndex];
+		while (count > 0 && leaveTimes[first] + dynamicBinSize < time) {
+			removedTravelTimes += travelTimes[first];
+			first = (first + 1) % leaveTimes.length;
+			count--;
+		}
+		this.firstTrip[linkIndex] = first;
+		this.tripCount[linkIndex] = count;
 
-			travelTimeInfo.addedTravelTimes = 0.0;
+		/*
+		 * We don't need an update if no Trips have been added or removed
+		 * within the current SimStep. The initial FreeSpeedTravelTime has
+		 * to be set correctly via setTravelTime!
+		 */
+		if (removedTravelTimes == 0.0 && this.addedTravelTimes[linkIndex] == 0.0) return;
 
-			/*
-			 * Ensure, that we don't allow TravelTimes shorter than the
-			 * FreeSpeedTravelTime.
-			 */
-			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
+		this.sumTravelTimes[linkIndex] = this.sumTravelTimes[linkIndex] - removedTravelTimes + this.addedTravelTimes[linkIndex];
 
-			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
-				log.warn("Mean TravelTime to short?");
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-			} else travelTimeInfo.travelTime = meanTravelTime;
-		}
+		this.addedTravelTimes[linkIndex] = 0.0;
 
-	} // ReplannerRunnable
+		/*
+		 * Ensure, that we don't allow TravelTimes shorter than the
+		 * FreeSpeedTravelTime.
+		 */
+		double freeSpeedTravelTime = this.freeSpeedTravelTimes[linkIndex];
+		double meanTravelTime = freeSpeedTravelTime;
+		if (count > 0) meanTravelTime = this.sumTravelTimes[linkIndex] / count;
+
+		if (meanTravelTime < freeSpeedTravelTime) {
+			log.warn("Mean TravelTime to short?");
+			setTravelTime(linkIndex, freeSpeedTravelTime);
+		} else setTravelTime(linkIndex, meanTravelTime);
+	}
 
-}
\ No newline at end of file
+}
@@ -281,5 +281,13 @@ public class CalcLinkStatsTest {
 		Assert.assertEquals(2.0, cls2.getAvgLinkVolumes(link2.getId())[0], 1e-8);
 		Assert.assertEquals(2.5, cls2.getAvgLinkVolumes(link1.getId())[1], 1e-8);
 		Assert.assertEquals(3.0, cls2.getAvgLinkVolumes(link2.getId())[1], 1e-8);
+
+		// compressed in parallel
+		String gzFilename = this.util.getOutputDirectory() + "linkstats.txt.gz";
+		cls.writeFile(gzFilename, 4);
+		CalcLinkStats cls3 = new CalcLinkStats(network);
+		cls3.readFile(gzFilename, 4);
+		Assert.assertArrayEquals(cls2.getAvgLinkVolumes(link1.getId()), cls3.getAvgLinkVolumes(link1.getId()), 1e-8);
+		Assert.assertArrayEquals(cls2.getAvgLinkVolumes(link2.getId()), cls3.getAvgLinkVolumes(link2.getId()), 1e-8);
 	}
 }
@@ -67,7 +67,29 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		int before = Id.getNumberOfIds(TIndexed.class);
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+
+		Assert.assertEquals(before, id1.index());
+		Assert.assertEquals(before + 1, id2.index());
+		Assert.assertEquals(id1.index(), id1again.index());
+		Assert.assertEquals(before + 2, Id.getNumberOfIds(TIndexed.class));
+		Assert.assertSame(id2, Id.get(id2.index(), TIndexed.class));
+		Assert.assertSame(id1, Id.get("1", TIndexed.class));
+		Assert.assertNull(Id.get("3", TIndexed.class));
+
+		// indices are per type
+		Id<TOtherIndexed> other = Id.create("x", TOtherIndexed.class);
+		Assert.assertEquals(0, other.index());
+	}
+
 	private static class TLink {}
+	private static class TIndexed {}
+	private static class TOtherIndexed {}
 	private static class TNode {}
 	
 }
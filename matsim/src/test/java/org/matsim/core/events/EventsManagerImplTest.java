@@ -22,7 +22,10 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
 
@@ -63,6 +66,49 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_HandlersAddedAndRemovedLater() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler1 = new CountingMyEventHandler();
+		CountingMyEventHandler handler2 = new CountingMyEventHandler();
+		manager.addHandler(handler1);
+		manager.processEvent(new MyEvent(1.0));
+		manager.addHandler(handler2);
+		manager.processEvent(new MyEvent(2.0));
+		manager.removeHandler(handler1);
+		manager.processEvent(new MyEvent(3.0));
+		Assert.assertEquals(2, handler1.counter);
+		Assert.assertEquals(2, handler2.counter);
+	}
+
+	@Test
+	public void testProcessEvent_SubclassOfCustomEvent() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MySubEvent(123.45));
+		manager.processEvent(new MyEvent(123.45));
+		Assert.assertEquals("EventHandler was not called for both events.", 2, handler.counter);
+	}
+
+	@Test
+	public void testProcessEvent_CustomAndCoreEventsInSameHandler() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyAndLinkEnterEventHandler handler = new CountingMyAndLinkEnterEventHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MyEvent(1.0));
+		manager.processEvent(new LinkEnterEvent(2.0, Id.createVehicleId(1), Id.createLinkId(1)));
+		manager.processEvent(new MyEvent(3.0));
+		Assert.assertEquals("EventHandler was not called for the custom events.", 2, handler.myEventCounter);
+		Assert.assertEquals("EventHandler was not called for the core event.", 1, handler.linkEnterEventCounter);
+	}
+
+	/*package*/ static class MySubEvent extends MyEvent {
+		public MySubEvent(final double time) {
+			super(time);
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -89,6 +135,24 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingMyAndLinkEnterEventHandler implements MyEventHandler, LinkEnterEventHandler {
+		/*package*/ int myEventCounter = 0;
+		/*package*/ int linkEnterEventCounter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.myEventCounter = 0;
+			this.linkEnterEventCounter = 0;
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.myEventCounter++;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.linkEnterEventCounter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventsReaderBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		List<Event> written = createEvents();
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		writeEvents(filename, written);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		assertSameEvents(written, collector.getEvents());
+	}
+
+	/**
+	 * Uses a tiny window, so records regularly cross the boundaries of the mapped regions.
+	 */
+	@Test
+	public void testWriteRead_smallWindows() {
+		List<Event> written = createEvents();
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		writeEvents(filename, written);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new EventsReaderBinary(events, 7).readFile(filename);
+
+		assertSameEvents(written, collector.getEvents());
+	}
+
+	/**
+	 * Uses a tiny dictionary, so it is cleared several times while writing.
+	 */
+	@Test
+	public void testWriteRead_clearDictionary() {
+		List<Event> written = createEvents();
+		for (int i = 0; i < 100; i++) {
+			written.add(new LinkEnterEvent(30000.0 + i, Id.create("v" + i, Vehicle.class), Id.create("l" + i, Link.class)));
+		}
+		written.addAll(createEvents());
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename, 8);
+		for (Event event : written) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		assertSameEvents(written, collector.getEvents());
+	}
+
+	@Test
+	public void testIsBinaryEventsFile() {
+		String filename = this.utils.getOutputDirectory() + "events.data";
+		writeEvents(filename, createEvents());
+		Assert.assertTrue(EventsReaderBinary.isBinaryEventsFile(filename));
+		Assert.assertFalse(EventsReaderBinary.isBinaryEventsFile(this.utils.getOutputDirectory() + "doesNotExist.bin"));
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		Assert.assertEquals(createEvents().size(), collector.getEvents().size());
+	}
+
+	private static void writeEvents(final String filename, final List<Event> events) {
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	private static List<Event> createEvents() {
+		Id<Person> person = Id.create("p<1>", Person.class);
+		Id<Vehicle> vehicle = Id.create("v1", Vehicle.class);
+		Id<Link> link1 = Id.create("1", Link.class);
+		Id<Link> link2 = Id.create("2", Link.class);
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(21600.0, person, link1, null, "höme"));
+		events.add(new PersonDepartureEvent(21600.0, person, link1, "car"));
+		events.add(new VehicleEntersTrafficEvent(21600.0, person, link1, vehicle, "car", 0.75));
+		events.add(new LinkLeaveEvent(21601.0, vehicle, link1));
+		events.add(new LinkEnterEvent(21601.0, vehicle, link2));
+		events.add(new LinkLeaveEvent(21700.5, vehicle, link2));
+		events.add(new TeleportationArrivalEvent(21650.0, person, 1234.567));
+		events.add(new PersonMoneyEvent(-3.0, person, -2.5));
+		GenericEvent generic = new GenericEvent("rain", 1e9);
+		generic.getAttributes().put("intensity", "heavy");
+		generic.getAttributes().put("person", person.toString());
+		generic.getAttributes().put("wind", null);
+		generic.getAttributes().put("snow", "null");
+		events.add(generic);
+		events.add(new LinkLeaveEvent(0.0, vehicle, link1));
+		events.add(new PersonEntersVehicleEvent(21800.0, person, vehicle));
+		events.add(new VehicleLeavesTrafficEvent(21810.0, person, link2, vehicle, null, 1.0));
+		events.add(new PersonLeavesVehicleEvent(21810.0, person, vehicle));
+		events.add(new PersonArrivalEvent(21810.0, person, link2, "car"));
+		events.add(new ActivityStartEvent(21810.0, person, link2, Id.create("f1", ActivityFacility.class), "work"));
+		// an id created for another type than it is used for, with the same index as the vehicle id
+		while (Id.getNumberOfIds(Person.class) <= vehicle.index()) {
+			Id.create("p" + Id.getNumberOfIds(Person.class), Person.class);
+		}
+		@SuppressWarnings("unchecked")
+		Id<Vehicle> personAsVehicle = (Id<Vehicle>) (Id<?>) Id.get(vehicle.index(), Person.class);
+		events.add(new PersonEntersVehicleEvent(21820.0, person, personAsVehicle));
+		// subclasses are written with their attributes
+		events.add(new LinkEnterEvent(21830.0, vehicle, link1) {
+			@Override
+			public String getEventType() {
+				return "special link enter";
+			}
+		});
+		events.add(new PersonEntersVehicleEvent(21840.0, person, vehicle));
+		return events;
+	}
+
+	private static void assertSameEvents(final List<Event> expected, final List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Event e = expected.get(i);
+			Event a = actual.get(i);
+			if (e.getClass().isAnonymousClass()) {
+				Assert.assertEquals("wrong type of event " + i, e.getEventType(), a.getEventType());
+				continue;
+			}
+			Assert.assertEquals("wrong class of event " + i, e.getClass(), a.getClass());
+			Assert.assertEquals("wrong time of event " + i, e.getTime(), a.getTime(), 0.0);
+			Assert.assertEquals("wrong attributes of event " + i, e.getAttributes(), a.getAttributes());
+		}
+	}
+
+}
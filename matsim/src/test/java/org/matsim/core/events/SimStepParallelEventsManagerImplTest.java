@@ -1,9 +1,15 @@
 package org.matsim.core.events;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
 import org.matsim.testcases.utils.EventsCollector;
@@ -51,4 +57,78 @@ public class SimStepParallelEventsManagerImplTest {
 					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
 	}
 
+	@Test
+	public void testEventsFromMultipleThreadsInSimStep() throws InterruptedException {
+		final SimStepParallelEventsManagerImpl events = new SimStepParallelEventsManagerImpl(2);
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+
+		final int numThreads = 4;
+		final int numEventsPerThread = 1000;
+		for (int time = 0; time < 3; time++) {
+			final double now = time;
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < numThreads; t++) {
+				final int threadIndex = t;
+				threads.add(new Thread() {
+					@Override
+					public void run() {
+						for (int i = 0; i < numEventsPerThread; i++) {
+							events.processEvent(new LinkEnterEvent(now, Id.createVehicleId(threadIndex), Id.createLinkId(i)));
+						}
+					}
+				});
+			}
+			for (Thread thread : threads) thread.start();
+			for (Thread thread : threads) thread.join();
+			events.afterSimStep(now);
+			Assert.assertEquals((time + 1) * numThreads * numEventsPerThread, collector.getEvents().size());
+		}
+		events.finishProcessing();
+
+		// the events of each thread must arrive in the order they were created
+		int[][] lastLinkPerThreadAndTime = new int[numThreads][3];
+		for (int[] last : lastLinkPerThreadAndTime) Arrays.fill(last, -1);
+		double lastTime = 0.0;
+		for (Event e : collector.getEvents()) {
+			LinkEnterEvent event = (LinkEnterEvent) e;
+			Assert.assertTrue(event.getTime() >= lastTime);
+			lastTime = event.getTime();
+			int thread = Integer.parseInt(event.getVehicleId().toString());
+			int link = Integer.parseInt(event.getLinkId().toString());
+			Assert.assertEquals(lastLinkPerThreadAndTime[thread][(int) event.getTime()] + 1, link);
+			lastLinkPerThreadAndTime[thread][(int) event.getTime()] = link;
+		}
+	}
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventAfterLastSimStep() {
+		final SimStepParallelEventsManagerImpl events = new SimStepParallelEventsManagerImpl(2);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		// e.g. events created by the cleanup of the mobsim
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
 }
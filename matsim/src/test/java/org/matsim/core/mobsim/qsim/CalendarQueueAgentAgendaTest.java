@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueAgentAgendaTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.collections.Tuple;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.Facility;
+
+public class CalendarQueueAgentAgendaTest {
+
+	@Test
+	public void testPollDue_Order() {
+		CalendarQueueAgentAgenda agenda = new CalendarQueueAgentAgenda();
+		MobsimAgent a1 = new DummyAgent("1");
+		MobsimAgent a2 = new DummyAgent("2");
+		MobsimAgent a3 = new DummyAgent("3");
+		MobsimAgent a4 = new DummyAgent("4");
+		agenda.add(20.5, a1);
+		agenda.add(20.0, a2);
+		agenda.add(20.0, a3);
+		agenda.add(3 * 86400.0, a4);
+
+		Assert.assertNull(agenda.pollDue(19.0));
+		Assert.assertSame(a3, agenda.pollDue(20.0)); // same time: larger id first
+		Assert.assertSame(a2, agenda.pollDue(20.0));
+		Assert.assertNull(agenda.pollDue(20.0));
+		Assert.assertSame(a1, agenda.pollDue(21.0));
+		Assert.assertNull(agenda.pollDue(21.0));
+		Assert.assertEquals(1, agenda.getEntries().size());
+		Assert.assertSame(a4, agenda.pollDue(3 * 86400.0));
+		Assert.assertTrue(agenda.getEntries().isEmpty());
+	}
+
+	@Test
+	public void testRemoveAndPastTimes() {
+		CalendarQueueAgentAgenda agenda = new CalendarQueueAgentAgenda();
+		MobsimAgent a1 = new DummyAgent("1");
+		MobsimAgent a2 = new DummyAgent("2");
+		MobsimAgent a3 = new DummyAgent("3");
+		agenda.add(100.0, a1);
+		agenda.add(200.0, a2);
+		Assert.assertNull(agenda.pollDue(50.0));
+
+		Assert.assertTrue(agenda.remove(a2));
+		Assert.assertFalse(agenda.remove(a2));
+		agenda.add(Time.UNDEFINED_TIME, a2);
+		agenda.add(120.0, a3);
+
+		Assert.assertSame(a2, agenda.pollDue(150.0));
+		Assert.assertSame(a1, agenda.pollDue(150.0));
+		Assert.assertSame(a3, agenda.pollDue(150.0));
+		Assert.assertNull(agenda.pollDue(1000.0));
+		Assert.assertFalse(agenda.remove(a3));
+	}
+
+	/**
+	 * Runs random operations on a calendar queue agenda and on a priority queue agenda and
+	 * checks that the agents leave in the same order.
+	 */
+	@Test
+	public void testSameAsPriorityQueue() {
+		Random random = new Random(4711);
+		AgentAgenda expected = new PriorityQueueAgentAgenda(false);
+		AgentAgenda actual = new CalendarQueueAgentAgenda();
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			agents.add(new DummyAgent(Integer.toString(i)));
+		}
+
+		double now = 0.0;
+		while (now < 4 * 86400.0) {
+			for (int i = 0; i < 10; i++) {
+				MobsimAgent agent = agents.get(random.nextInt(agents.size()));
+				Assert.assertEquals(expected.remove(agent), actual.remove(agent));
+				if (random.nextDouble() < 0.9) {
+					double time;
+					double r = random.nextDouble();
+					if (r < 0.1) {
+						time = now - random.nextInt(1000);
+					} else if (r < 0.2) {
+						time = now + random.nextInt(3 * CalendarQueueAgentAgenda.NUMBER_OF_BUCKETS);
+					} else {
+						time = Math.floor(now + random.nextInt(3600)) + random.nextInt(4) * 0.25;
+					}
+					expected.add(time, agent);
+					actual.add(time, agent);
+				}
+			}
+			MobsimAgent agent;
+			while ((agent = expected.pollDue(now)) != null) {
+				Assert.assertSame(agent, actual.pollDue(now));
+			}
+			Assert.assertNull(actual.pollDue(now));
+			now += 1 + random.nextInt(random.nextDouble() < 0.01 ? 50000 : 60);
+		}
+
+		List<Tuple<Double, MobsimAgent>> remaining = expected.getEntries();
+		Assert.assertEquals(remaining.size(), actual.getEntries().size());
+		actual.clear();
+		Assert.assertTrue(actual.getEntries().isEmpty());
+		Assert.assertNull(actual.pollDue(Double.POSITIVE_INFINITY));
+	}
+
+	private static class DummyAgent implements MobsimAgent {
+
+		private final Id<Person> id;
+
+		DummyAgent(final String id) {
+			this.id = Id.create(id, Person.class);
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+
+		@Override
+		public Id<Link> getCurrentLinkId() {
+			return null;
+		}
+
+		@Override
+		public Id<Link> getDestinationLinkId() {
+			return null;
+		}
+
+		@Override
+		public String getMode() {
+			return null;
+		}
+
+		@Override
+		public State getState() {
+			return State.ACTIVITY;
+		}
+
+		@Override
+		public double getActivityEndTime() {
+			return 0;
+		}
+
+		@Override
+		public void endActivityAndComputeNextState(final double now) {
+		}
+
+		@Override
+		public void endLegAndComputeNextState(final double now) {
+		}
+
+		@Override
+		public void setStateToAbort(final double now) {
+		}
+
+		@Override
+		public Double getExpectedTravelTime() {
+			return null;
+		}
+
+		@Override
+		public Double getExpectedTravelDistance() {
+			return null;
+		}
+
+		@Override
+		public void notifyArrivalOnLinkByNonNetworkMode(final Id<Link> linkId) {
+		}
+
+		@Override
+		public Facility<? extends Facility<?>> getCurrentFacility() {
+			return null;
+		}
+
+		@Override
+		public Facility<? extends Facility<?>> getDestinationFacility() {
+			return null;
+		}
+	}
+
+}
@@ -68,6 +68,7 @@ import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.mobsim.qsim.agents.AgentFactory;
@@ -598,6 +599,48 @@ public class QSimTest {
 		}
 	}
 
+
+	/**
+	 * Same as {@link #testFlowCapacityDriving()}, but with several netsim threads and spatial partitioning of the network. The
+	 * partitioning must not change the result.
+	 */
+	@Test
+	public void testFlowCapacityDriving_SpatialPartitioning() {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		f.config.qsim().setNumberOfThreads(2);
+		f.config.qsim().setNetsimPartitioning(NetsimPartitioning.spatial);
+
+		for (int i = 1; i <= 10000; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a.setEndTime(7*3600 - 1812);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			NetworkRoute route = ((PopulationFactory) f.scenario.getPopulation().getFactory()).getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		VolumesAnalyzer vAnalyzer = new VolumesAnalyzer(3600, 9*3600, f.network);
+		events.addHandler(vAnalyzer);
+
+		QSim sim = createQSim(f, events);
+		sim.run();
+
+		int[] volume = vAnalyzer.getVolumesForLink(f.link2.getId());
+		if(this.isUsingFastCapacityUpdate) {
+			Assert.assertEquals(3001, volume[6]);
+			Assert.assertEquals(6000, volume[7]);
+			Assert.assertEquals(999, volume[8]);
+		} else {
+			Assert.assertEquals(3000, volume[6]);
+			Assert.assertEquals(6000, volume[7]);
+			Assert.assertEquals(1000, volume[8]);
+		}
+	}
 	
 	/**
 	 * Tests that on a link with a flow capacity of 0.25 vehicles per time step, after the first vehicle
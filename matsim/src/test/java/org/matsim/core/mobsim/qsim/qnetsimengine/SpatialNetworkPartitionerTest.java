@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpatialNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class SpatialNetworkPartitionerTest {
+
+	@Test
+	public void testPartition_Grid() {
+		Network network = createGrid(10, 10);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+
+		int[] partitions = SpatialNetworkPartitioner.partition(nodes, 4);
+
+		Assert.assertEquals(nodes.size(), partitions.length);
+		int[] counts = new int[4];
+		double[] sumX = new double[4];
+		double[] sumY = new double[4];
+		for (int i = 0; i < partitions.length; i++) {
+			counts[partitions[i]]++;
+			sumX[partitions[i]] += nodes.get(i).getCoord().getX();
+			sumY[partitions[i]] += nodes.get(i).getCoord().getY();
+		}
+		for (int p = 0; p < 4; p++) {
+			// all nodes have the same number of out-links in the inner part of the grid, so the sizes should be close
+			Assert.assertTrue("partition " + p + " has " + counts[p] + " nodes.", counts[p] >= 20 && counts[p] <= 30);
+		}
+		// the four partitions should be the four quadrants of the grid
+		boolean[] quadrants = new boolean[4];
+		for (int p = 0; p < 4; p++) {
+			int qx = sumX[p] / counts[p] < 450 ? 0 : 1;
+			int qy = sumY[p] / counts[p] < 450 ? 0 : 1;
+			quadrants[qx * 2 + qy] = true;
+		}
+		for (int q = 0; q < 4; q++) {
+			Assert.assertTrue("no partition in quadrant " + q, quadrants[q]);
+		}
+	}
+
+	@Test
+	public void testPartition_MorePartitionsThanNodes() {
+		Network network = createGrid(2, 1);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+
+		int[] partitions = SpatialNetworkPartitioner.partition(nodes, 5);
+
+		Assert.assertEquals(2, partitions.length);
+		Assert.assertNotEquals(partitions[0], partitions[1]);
+		for (int p : partitions) {
+			Assert.assertTrue(p >= 0 && p < 5);
+		}
+	}
+
+	@Test
+	public void testPartition_SinglePartition() {
+		Network network = createGrid(3, 3);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+
+		for (int p : SpatialNetworkPartitioner.partition(nodes, 1)) {
+			Assert.assertEquals(0, p);
+		}
+	}
+
+	private static Network createGrid(int nx, int ny) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[nx][ny];
+		for (int x = 0; x < nx; x++) {
+			for (int y = 0; y < ny; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < nx; x++) {
+			for (int y = 0; y < ny; y++) {
+				if (x + 1 < nx) {
+					NetworkUtils.createAndAddLink(network, Id.create(x + "_" + y + "_e", Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(x + "_" + y + "_w", Link.class), nodes[x + 1][y], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < ny) {
+					NetworkUtils.createAndAddLink(network, Id.create(x + "_" + y + "_n", Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(x + "_" + y + "_s", Link.class), nodes[x][y + 1], nodes[x][y], 100, 10, 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+}
@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FIFOVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleTypeImpl;
+
+public class FIFOVehicleQTest {
+
+	@Test
+	public void testOrder() {
+		VehicleType type = new VehicleTypeImpl(Id.create("defaultVehicleType", VehicleType.class));
+		QVehicle[] vehicles = new QVehicle[100];
+		for (int i = 0; i < vehicles.length; i++) {
+			vehicles[i] = new QVehicle(new VehicleImpl(Id.create(i, Vehicle.class), type));
+		}
+
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		// wrap around the end of the array a few times
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < vehicles.length; i++) {
+				queue.add(vehicles[i]);
+				if (i % 3 == 2) {
+					Assert.assertSame(vehicles[i / 3 * 2], queue.poll());
+					Assert.assertSame(vehicles[i / 3 * 2 + 1], queue.poll());
+				}
+			}
+			while (!queue.isEmpty()) {
+				queue.poll();
+			}
+		}
+
+		queue.add(vehicles[1]);
+		queue.add(vehicles[2]);
+		queue.add(vehicles[3]);
+		queue.addFirst(vehicles[0]);
+		Assert.assertEquals(4, queue.size());
+		Assert.assertTrue(queue.remove(vehicles[2]));
+		Assert.assertFalse(queue.remove(vehicles[2]));
+		Assert.assertSame(vehicles[0], queue.poll());
+		Assert.assertSame(vehicles[1], queue.poll());
+		Assert.assertSame(vehicles[3], queue.peek());
+		queue.clear();
+		Assert.assertNull(queue.poll());
+	}
+
+}
@@ -0,0 +1,271 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPlanTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCompact_KeepsPlanElements() {
+		CompactPlan plan = createPlan();
+		List<PlanElement> before = plan.getPlanElements();
+		Assert.assertFalse(plan.isCompact());
+		Assert.assertTrue(plan.compact());
+		Assert.assertTrue(plan.isCompact());
+		Assert.assertEquals(Double.valueOf(12.5), plan.getScore());
+
+		List<PlanElement> after = plan.getPlanElements();
+		Assert.assertFalse(plan.isCompact());
+		Assert.assertNotSame(before, after);
+		assertSamePlanElements(before, after);
+	}
+
+	@Test
+	public void testCompact_ElementsWithAttributesAreKept() {
+		CompactPlan plan = createPlan();
+		Activity act = (Activity) plan.getPlanElements().get(0);
+		act.getAttributes().putAttribute("key", "value");
+		Assert.assertFalse(plan.compact());
+		Assert.assertFalse(plan.isCompact());
+		Assert.assertSame(act, plan.getPlanElements().get(0));
+	}
+
+	@Test
+	public void testCompact_IdsOfOtherTypeAreKept() {
+		// the index of a node id refers to the node ids, so it cannot be stored as the index of a link id
+		@SuppressWarnings("unchecked")
+		Id<Link> nodeIdAsLinkId = (Id<Link>) (Id<?>) Id.createNodeId("node used as link");
+		CompactPlan plan = createPlan();
+		Activity act = (Activity) plan.getPlanElements().get(0);
+		act.setLinkId(nodeIdAsLinkId);
+		Assert.assertFalse(plan.compact());
+		Assert.assertFalse(plan.isCompact());
+		Assert.assertSame(act, plan.getPlanElements().get(0));
+		Assert.assertSame(nodeIdAsLinkId, act.getLinkId());
+
+		act.setLinkId(Id.createLinkId("1"));
+		@SuppressWarnings("unchecked")
+		Id<Link> personIdAsLinkId = (Id<Link>) (Id<?>) Id.createPersonId("person used as link");
+		((NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute()).setLinkIds(Id.createLinkId("1"),
+				Collections.singletonList(personIdAsLinkId), Id.createLinkId("4"));
+		Assert.assertFalse(plan.compact());
+		Assert.assertFalse(plan.isCompact());
+	}
+
+	@Test
+	public void testGetPlanElementsWithoutExpanding() {
+		CompactPlan plan = createPlan();
+		List<PlanElement> expected = new ArrayList<>(plan.getPlanElements());
+		Assert.assertSame(plan.getPlanElements(), PopulationUtils.getPlanElementsWithoutExpanding(plan));
+		plan.compact();
+
+		assertSamePlanElements(expected, PopulationUtils.getPlanElementsWithoutExpanding(plan));
+		Assert.assertTrue(plan.isCompact());
+	}
+
+	@Test
+	public void testPopulationWriter_KeepsPlansCompact() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPlanStorage(PlansConfigGroup.PlanStorage.compact);
+		Population population = PopulationUtils.createPopulation(config);
+		Person person = population.getFactory().createPerson(Id.createPersonId(1));
+		Plan plan = population.getFactory().createPlan();
+		plan.addActivity(population.getFactory().createActivityFromCoord("home", new Coord(1.0, 2.0)));
+		person.addPlan(plan);
+		population.addPerson(person);
+		PopulationUtils.compactPlans(population);
+
+		new PopulationWriter(population).write(this.utils.getOutputDirectory() + "plans.xml.gz");
+		Assert.assertTrue(((CompactPlan) plan).isCompact());
+	}
+
+	@Test
+	public void testCreateCopy_OfCompactPlan() {
+		CompactPlan plan = createPlan();
+		List<PlanElement> expected = new ArrayList<>(plan.getPlanElements());
+		plan.compact();
+
+		CompactPlan copy = plan.createCopy();
+		Assert.assertTrue(copy.isCompact());
+		Assert.assertEquals(plan.getScore(), copy.getScore());
+		((Activity) copy.getPlanElements().get(0)).setEndTime(5.0);
+		((Leg) copy.getPlanElements().get(3)).getRoute().setTravelTime(1.0);
+
+		Assert.assertTrue(plan.isCompact());
+		assertSamePlanElements(expected, plan.getPlanElements());
+	}
+
+	@Test
+	public void testPerson_CopyOfSelectedPlan() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPlanStorage(PlansConfigGroup.PlanStorage.compact);
+		Population population = PopulationUtils.createPopulation(config);
+		Person person = population.getFactory().createPerson(Id.createPersonId(1));
+		Plan plan = population.getFactory().createPlan();
+		plan.addActivity(population.getFactory().createActivityFromCoord("home", new Coord(1.0, 2.0)));
+		person.addPlan(plan);
+		population.addPerson(person);
+		Assert.assertTrue(plan instanceof CompactPlan);
+		Assert.assertEquals(1, PopulationUtils.compactPlans(population));
+
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof CompactPlan);
+		Assert.assertSame(person, copy.getPerson());
+		Assert.assertSame(copy, person.getSelectedPlan());
+		Assert.assertEquals("home", ((Activity) copy.getPlanElements().get(0)).getType());
+		Assert.assertEquals(2, PopulationUtils.compactPlans(population));
+	}
+
+	@Test
+	public void testControler_WithCompactPlans() {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(2);
+		config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists);
+		config.plans().setPlanStorage(PlansConfigGroup.PlanStorage.compact);
+		Controler controler = new Controler(config);
+		controler.run();
+
+		int plans = 0;
+		for (Person person : controler.getScenario().getPopulation().getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assert.assertTrue(plan instanceof CompactPlan);
+				Assert.assertNotNull(plan.getScore());
+				plans++;
+			}
+		}
+		Assert.assertTrue(plans > controler.getScenario().getPopulation().getPersons().size());
+		// the plans executed in the last iteration were expanded, but all of them can be compacted
+		Assert.assertEquals(plans, PopulationUtils.compactPlans(controler.getScenario().getPopulation()));
+	}
+
+	private static CompactPlan createPlan() {
+		CompactPlan plan = new CompactPlan(new RouteFactories(), new CompactPlan.StringDictionary());
+		plan.setScore(12.5);
+		ActivityImpl home = new ActivityImpl("home");
+		home.setCoord(new Coord(1.0, 2.0));
+		home.setLinkId(Id.createLinkId("1"));
+		home.setEndTime(7.5 * 3600 + 0.25);
+		plan.addActivity(home);
+
+		LegImpl car = new LegImpl("car");
+		car.setDepartureTime(7.5 * 3600);
+		car.setTravelTime(600.0);
+		List<Id<Link>> linkIds = new ArrayList<>();
+		linkIds.add(Id.createLinkId("2"));
+		linkIds.add(Id.createLinkId("3"));
+		NetworkRoute route = new RouteFactories().createRoute(NetworkRoute.class, Id.createLinkId("1"), Id.createLinkId("4"));
+		route.setLinkIds(Id.createLinkId("1"), linkIds, Id.createLinkId("4"));
+		route.setVehicleId(Id.create("v1", Vehicle.class));
+		route.setDistance(1234.0);
+		route.setTravelTime(600.0);
+		plan.addLeg(car);
+		car.setRoute(route);
+
+		ActivityImpl work = new ActivityImpl("work");
+		work.setCoord(new Coord(10.0, 20.0, 30.0));
+		work.setFacilityId(Id.create("f1", ActivityFacility.class));
+		work.setMaximumDuration(8 * 3600);
+		work.setStartTime(8 * 3600);
+		plan.addActivity(work);
+
+		LegImpl walk = new LegImpl("walk");
+		GenericRouteImpl walkRoute = new GenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("1"));
+		walkRoute.setRouteDescription("some description");
+		walkRoute.setTravelTime(900.0);
+		walk.setRoute(walkRoute);
+		plan.addLeg(walk);
+
+		plan.addActivity(new ActivityImpl("home"));
+		plan.addLeg(new LegImpl("pt"));
+		plan.addActivity(new ActivityImpl("home"));
+		return plan;
+	}
+
+	private static void assertSamePlanElements(final List<PlanElement> expected, final List<PlanElement> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			if (expected.get(i) instanceof Activity) {
+				Activity e = (Activity) expected.get(i);
+				Activity a = (Activity) actual.get(i);
+				Assert.assertEquals(e.getType(), a.getType());
+				Assert.assertEquals(e.getCoord(), a.getCoord());
+				Assert.assertEquals(e.getLinkId(), a.getLinkId());
+				Assert.assertEquals(e.getFacilityId(), a.getFacilityId());
+				Assert.assertEquals(e.getStartTime(), a.getStartTime(), 0.0);
+				Assert.assertEquals(e.getEndTime(), a.getEndTime(), 0.0);
+				Assert.assertEquals(e.getMaximumDuration(), a.getMaximumDuration(), 0.0);
+			} else {
+				Leg e = (Leg) expected.get(i);
+				Leg a = (Leg) actual.get(i);
+				Assert.assertEquals(e.getMode(), a.getMode());
+				Assert.assertEquals(e.getDepartureTime(), a.getDepartureTime(), 0.0);
+				Assert.assertEquals(e.getTravelTime(), a.getTravelTime(), 0.0);
+				if (e.getRoute() == null) {
+					Assert.assertNull(a.getRoute());
+					continue;
+				}
+				Assert.assertEquals(e.getRoute().getClass(), a.getRoute().getClass());
+				Assert.assertEquals(e.getRoute().getStartLinkId(), a.getRoute().getStartLinkId());
+				Assert.assertEquals(e.getRoute().getEndLinkId(), a.getRoute().getEndLinkId());
+				Assert.assertEquals(e.getRoute().getRouteDescription(), a.getRoute().getRouteDescription());
+				Assert.assertEquals(e.getRoute().getDistance(), a.getRoute().getDistance(), 0.0);
+				Assert.assertEquals(e.getRoute().getTravelTime(), a.getRoute().getTravelTime(), 0.0);
+				if (e.getRoute() instanceof NetworkRoute) {
+					Assert.assertEquals(((NetworkRoute) e.getRoute()).getLinkIds(), ((NetworkRoute) a.getRoute()).getLinkIds());
+					Assert.assertEquals(((NetworkRoute) e.getRoute()).getVehicleId(), ((NetworkRoute) a.getRoute()).getVehicleId());
+				}
+			}
+		}
+		Assert.assertEquals(Time.UNDEFINED_TIME, ((Activity) actual.get(actual.size() - 1)).getEndTime(), 0.0);
+	}
+
+}
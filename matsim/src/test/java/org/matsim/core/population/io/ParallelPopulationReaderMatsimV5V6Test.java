@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV5V6Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV5V6Test {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testReadV6_SameAsSequential() {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		Population population = createPopulation(5000);
+		population.getAttributes().putAttribute("source", "test");
+		new PopulationWriter(population).writeV6(file);
+		assertSameAsSequential(file);
+	}
+
+	@Test
+	public void testReadV5_SameAsSequential() {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(5000)).writeV5(file);
+		assertSameAsSequential(file);
+	}
+
+	@Test
+	public void testStreaming_KeepsOrder() {
+		String file = this.utils.getOutputDirectory() + "population.xml.gz";
+		Population population = createPopulation(5000);
+		new PopulationWriter(population).writeV6(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(createConfig(4));
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		final List<Id<Person>> ids = new ArrayList<>();
+		reader.addAlgorithm(new PersonAlgorithm() {
+			@Override
+			public void run(final Person person) {
+				Assert.assertEquals(3, person.getSelectedPlan().getPlanElements().size());
+				ids.add(person.getId());
+			}
+		});
+		reader.readFile(file);
+
+		Scenario sequential = ScenarioUtils.createScenario(createConfig(1));
+		new PopulationReader(sequential).readFile(file);
+		Assert.assertEquals(population.getPersons().size(), ids.size());
+		Assert.assertEquals(new ArrayList<>(sequential.getPopulation().getPersons().keySet()), ids);
+	}
+
+	private void assertSameAsSequential(final String file) {
+		Scenario sequential = ScenarioUtils.createScenario(createConfig(1));
+		new PopulationReader(sequential).readFile(file);
+		Scenario parallel = ScenarioUtils.createScenario(createConfig(4));
+		new PopulationReader(parallel).readFile(file);
+
+		Assert.assertEquals(sequential.getPopulation().getAttributes().getAttribute("source"),
+				parallel.getPopulation().getAttributes().getAttribute("source"));
+		Assert.assertEquals(new ArrayList<>(sequential.getPopulation().getPersons().keySet()),
+				new ArrayList<>(parallel.getPopulation().getPersons().keySet()));
+		for (Person expected : sequential.getPopulation().getPersons().values()) {
+			Person actual = parallel.getPopulation().getPersons().get(expected.getId());
+			Assert.assertEquals(expected.getPlans().size(), actual.getPlans().size());
+			Assert.assertEquals(expected.getSelectedPlan().getScore(), actual.getSelectedPlan().getScore());
+			Assert.assertEquals(expected.getAttributes().getAttribute("index"), actual.getAttributes().getAttribute("index"));
+			Activity expectedAct = (Activity) expected.getSelectedPlan().getPlanElements().get(2);
+			Activity actualAct = (Activity) actual.getSelectedPlan().getPlanElements().get(2);
+			Assert.assertEquals(expectedAct.getType(), actualAct.getType());
+			Assert.assertEquals(expectedAct.getCoord(), actualAct.getCoord());
+			Assert.assertEquals(expectedAct.getEndTime(), actualAct.getEndTime(), 0.0);
+		}
+	}
+
+	private static Config createConfig(final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		return config;
+	}
+
+	private static Population createPopulation(final int size) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < size; i++) {
+			Person person = factory.createPerson(Id.createPersonId("p" + (i * 7919 % size)));
+			person.getAttributes().putAttribute("index", i);
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromCoord("home", new Coord(i, 2 * i));
+			home.setEndTime(6 * 3600 + i);
+			plan.addActivity(home);
+			Leg leg = factory.createLeg("walk");
+			plan.addLeg(leg);
+			Activity work = factory.createActivityFromCoord("work" + (i % 3), new Coord(-i, i));
+			work.setEndTime(17 * 3600 + i);
+			plan.addActivity(work);
+			plan.setScore((double) i);
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
@@ -26,8 +26,15 @@ import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningLoadBalancing;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author mrieser
  */
@@ -60,6 +67,85 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_WorkStealing() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, ReplanningLoadBalancing.workStealing);
+			testee.prepareReplanning(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testHandlesAllPlans() {
+		for (ReplanningLoadBalancing loadBalancing : ReplanningLoadBalancing.values()) {
+			CountingModule testee = new CountingModule(3, loadBalancing, false);
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 1000; i++) {
+				testee.handlePlan(PopulationUtils.createPlan());
+			}
+			testee.finishReplanning();
+			Assert.assertEquals(loadBalancing.toString(), 1000, testee.handledPlans.get());
+			Assert.assertEquals(loadBalancing.toString(), 1000, testee.distinctPlans.size());
+		}
+	}
+
+	@Test
+	public void testReusesPlanAlgoInstances_WorkStealing() {
+		CountingModule testee = new CountingModule(2, ReplanningLoadBalancing.workStealing, true);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 100; i++) {
+				testee.handlePlan(PopulationUtils.createPlan());
+			}
+			testee.finishReplanning();
+		}
+		Assert.assertEquals(300, testee.handledPlans.get());
+		// the pool might have needed additional instances, but surely not new ones in every iteration
+		Assert.assertTrue(testee.createdInstances.get() < 3 * 2);
+
+		CountingModule notReusing = new CountingModule(2, ReplanningLoadBalancing.workStealing, false);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			notReusing.prepareReplanning(null);
+			notReusing.handlePlan(PopulationUtils.createPlan());
+			notReusing.finishReplanning();
+		}
+		Assert.assertTrue(notReusing.createdInstances.get() >= 3 * 2);
+	}
+
+	private static class CountingModule extends AbstractMultithreadedModule {
+		final AtomicInteger handledPlans = new AtomicInteger(0);
+		final AtomicInteger createdInstances = new AtomicInteger(0);
+		final Set<Plan> distinctPlans = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Plan, Boolean>()));
+		private final boolean reusable;
+
+		public CountingModule(final int nOfThreads, final ReplanningLoadBalancing loadBalancing, final boolean reusable) {
+			super(nOfThreads, loadBalancing);
+			this.reusable = reusable;
+		}
+		@Override
+		protected boolean isPlanAlgoInstanceReusable() {
+			return this.reusable;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			this.createdInstances.incrementAndGet();
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					CountingModule.this.distinctPlans.add(plan);
+					CountingModule.this.handledPlans.incrementAndGet();
+				}
+			};
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,6 +160,9 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final ReplanningLoadBalancing loadBalancing) {
+			super(nOfThreads, loadBalancing);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
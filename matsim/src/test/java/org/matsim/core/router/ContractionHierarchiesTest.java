@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Compares the paths with the ones found by {@link Dijkstra} on a grid network with
+	 * random link lengths and speeds, some one-way links and a dead end node without outgoing links.
+	 * An additional node has no incoming links, so no path leads to it.
+	 */
+	public void testCalcLeastCostPath_SameAsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		Random random = new Random(4711);
+		Node[] nodes = createGridNetwork(network, random, 15);
+		Node unreachable = NetworkUtils.createAndAddNode(network, Id.create("unreachable", Node.class), new Coord(-100.0, 0.0));
+		addLink(network, random, unreachable, nodes[0], network.getLinks().size());
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 7.0 * 3600, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, 7.0 * 3600, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			assertEquals(actual.links.size() + 1, actual.nodes.size());
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+
+		Node deadEnd = nodes[nodes.length - 1];
+		assertNull(ch.calcLeastCostPath(deadEnd, nodes[0], 7.0 * 3600, null, null));
+
+		assertNull(dijkstra.calcLeastCostPath(nodes[0], unreachable, 7.0 * 3600, null, null));
+		assertNull(ch.calcLeastCostPath(nodes[0], unreachable, 7.0 * 3600, null, null));
+		assertNotNull(ch.calcLeastCostPath(unreachable, nodes[1], 7.0 * 3600, null, null));
+	}
+
+	/**
+	 * Routers created by the same factory for different travel disutilities of the same class must
+	 * each find the least-cost paths of their own disutility.
+	 */
+	public void testCalcLeastCostPath_DifferentDisutilitiesOfSameClass() {
+		Network network = NetworkUtils.createNetwork();
+		Random random = new Random(42);
+		Node[] nodes = createGridNetwork(network, random, 10);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PenalizingTravelDisutility evenPenalized = new PenalizingTravelDisutility(travelTime, 0);
+		PenalizingTravelDisutility oddPenalized = new PenalizingTravelDisutility(travelTime, 1);
+
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		LeastCostPathCalculator chEven = factory.createPathCalculator(network, evenPenalized, travelTime);
+		LeastCostPathCalculator chOdd = factory.createPathCalculator(network, oddPenalized, travelTime);
+		LeastCostPathCalculator dijkstraEven = new Dijkstra(network, evenPenalized, travelTime);
+		LeastCostPathCalculator dijkstraOdd = new Dijkstra(network, oddPenalized, travelTime);
+
+		int differentPaths = 0;
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(nodes.length - 1)];
+			Node to = nodes[random.nextInt(nodes.length - 1)];
+			Path even = chEven.calcLeastCostPath(from, to, 7.0 * 3600, null, null);
+			Path odd = chOdd.calcLeastCostPath(from, to, 7.0 * 3600, null, null);
+			assertEquals(dijkstraEven.calcLeastCostPath(from, to, 7.0 * 3600, null, null).travelCost, even.travelCost, 1e-6);
+			assertEquals(dijkstraOdd.calcLeastCostPath(from, to, 7.0 * 3600, null, null).travelCost, odd.travelCost, 1e-6);
+			if (!even.links.equals(odd.links)) {
+				differentPaths++;
+			}
+		}
+		assertTrue(differentPaths > 0);
+	}
+
+	/**
+	 * Disutilities that result in the same link weights share their hierarchies.
+	 */
+	public void testGetHierarchy_SharedForSameWeights() {
+		Network network = NetworkUtils.createNetwork();
+		createGridNetwork(network, new Random(42), 5);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessContractionHierarchies data = new PreProcessContractionHierarchies(network);
+		ContractionHierarchy ch = data.getHierarchy(7, new PenalizingTravelDisutility(travelTime, 0));
+		assertSame(ch, data.getHierarchy(7, new PenalizingTravelDisutility(travelTime, 0)));
+		assertNotSame(ch, data.getHierarchy(7, new PenalizingTravelDisutility(travelTime, 1)));
+		assertNotSame(ch, data.getHierarchy(8, new PenalizingTravelDisutility(travelTime, 0)));
+
+		int generation = data.getGeneration();
+		data.clearHierarchies();
+		assertTrue(generation != data.getGeneration());
+		assertNotSame(ch, data.getHierarchy(7, new PenalizingTravelDisutility(travelTime, 0)));
+	}
+
+	/**
+	 * Multiplies the free speed travel time of every second link by 3.
+	 */
+	private static class PenalizingTravelDisutility implements TravelDisutility {
+		private final TravelTime travelTime;
+		private final int penalizedRemainder;
+
+		PenalizingTravelDisutility(final TravelTime travelTime, final int penalizedRemainder) {
+			this.travelTime = travelTime;
+			this.penalizedRemainder = penalizedRemainder;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			double tt = this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			int index = Integer.parseInt(link.getId().toString().substring(1));
+			return index % 2 == this.penalizedRemainder ? 3.0 * tt : tt;
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	/**
+	 * Creates a grid with random link lengths and speeds and some one-way links. The last node is a dead end:
+	 * it can be reached from its two neighbours, but has no outgoing links.
+	 */
+	private static Node[] createGridNetwork(final Network network, final Random random, final int size) {
+		Node[] nodes = new Node[size * size];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.create("n" + i, Node.class), new Coord((i % size) * 100.0, (i / size) * 100.0));
+		}
+		int linkCount = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			int x = i % size;
+			int y = i / size;
+			if (i == nodes.length - 1) {
+				continue; // the last node has no outgoing links
+			}
+			if (x + 1 < size) {
+				addLink(network, random, nodes[i], nodes[i + 1], linkCount++);
+				if (random.nextDouble() < 0.8 && i + 1 != nodes.length - 1) {
+					addLink(network, random, nodes[i + 1], nodes[i], linkCount++);
+				}
+			}
+			if (y + 1 < size) {
+				addLink(network, random, nodes[i], nodes[i + size], linkCount++);
+				if (random.nextDouble() < 0.8 && i + size != nodes.length - 1) {
+					addLink(network, random, nodes[i + size], nodes[i], linkCount++);
+				}
+			}
+		}
+		return nodes;
+	}
+
+	private static void addLink(final Network network, final Random random, final Node from, final Node to, final int index) {
+		double length = 100.0 + random.nextInt(200);
+		double freespeed = 5.0 + random.nextInt(4) * 5.0;
+		NetworkUtils.createAndAddLink(network, Id.create("l" + index, Link.class), from, to, length, freespeed, 1000.0, 1.0);
+	}
+
+}
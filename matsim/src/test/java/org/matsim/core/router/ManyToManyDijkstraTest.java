@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ManyToManyDijkstraTest {
+
+	@Test
+	public void testManyToManyEqualsDijkstra() {
+		Network network = createGridNetwork(20);
+		TravelTime travelTime = new RushHourTravelTime();
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		TravelDisutility travelCosts = new RandomizingTimeDistanceTravelDisutilityFactory("car", scoring).createTravelDisutility(travelTime);
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		Random random = new Random(4711);
+		List<Node> fromNodes = new ArrayList<>();
+		List<Node> toNodes = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			fromNodes.add(nodes[random.nextInt(nodes.length)]);
+		}
+		for (int i = 0; i < 30; i++) {
+			toNodes.add(nodes[random.nextInt(nodes.length)]);
+		}
+		toNodes.add(toNodes.get(0));
+		toNodes.add(fromNodes.get(0));
+
+		double startTime = 7.0 * 3600 - 300;
+		ManyToManyDijkstra router = new ManyToManyDijkstra(network, travelCosts, travelTime, 4);
+		ManyToManyDijkstra.Matrix matrix = router.calcManyToMany(fromNodes, toNodes, startTime, null, null);
+		Assert.assertEquals(fromNodes.size(), matrix.getRowCount());
+		Assert.assertEquals(toNodes.size(), matrix.getColumnCount());
+		Assert.assertEquals(fromNodes.size() * toNodes.size(), matrix.getTravelTimes().length);
+
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelCosts, travelTime);
+		for (int i = 0; i < fromNodes.size(); i++) {
+			for (int j = 0; j < toNodes.size(); j++) {
+				Path path = dijkstra.calcLeastCostPath(fromNodes.get(i), toNodes.get(j), startTime, null, null);
+				Assert.assertEquals(path.travelCost, matrix.getTravelCost(i, j), 1e-8);
+				Assert.assertEquals(path.travelTime, matrix.getTravelTime(i, j), 1e-8);
+			}
+		}
+		Assert.assertEquals(0.0, matrix.getTravelTime(0, toNodes.size() - 1), 0.0);
+
+		// the threads are reused by the next calculation
+		ManyToManyDijkstra.Matrix matrix2 = router.calcManyToMany(fromNodes, toNodes, startTime, null, null);
+		Assert.assertArrayEquals(matrix.getTravelTimes(), matrix2.getTravelTimes(), 0.0);
+		Assert.assertArrayEquals(matrix.getTravelCosts(), matrix2.getTravelCosts(), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMatrix_TooLarge() {
+		new ManyToManyDijkstra.Matrix(50000, 50000);
+	}
+
+	@Test
+	public void testOneToMany() {
+		Network network = createGridNetwork(5);
+		Node unreachable = NetworkUtils.createAndAddNode(network, Id.createNodeId("unreachable"), new Coord(1000.0, 1000.0));
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Node fromNode = network.getNodes().get(Id.createNodeId("0_0"));
+		List<Node> toNodes = Arrays.asList(network.getNodes().get(Id.createNodeId("4_4")), unreachable, fromNode);
+
+		ManyToManyDijkstra router = new ManyToManyDijkstra(network, travelCosts, travelCosts);
+		ManyToManyDijkstra.Matrix matrix = router.calcOneToMany(fromNode, toNodes, 8.0 * 3600, null, null);
+		Assert.assertEquals(1, matrix.getRowCount());
+		Path path = new Dijkstra(network, travelCosts, travelCosts).calcLeastCostPath(fromNode, toNodes.get(0), 8.0 * 3600, null, null);
+		Assert.assertEquals(path.travelTime, matrix.getTravelTime(0, 0), 1e-8);
+		Assert.assertEquals(path.travelCost, matrix.getTravelCost(0, 0), 1e-8);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelTime(0, 1), 0.0);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelCost(0, 1), 0.0);
+		Assert.assertEquals(0.0, matrix.getTravelCost(0, 2), 0.0);
+
+		// the same instance can be reused
+		Assert.assertEquals(path.travelTime, router.calcOneToMany(fromNode, toNodes, 8.0 * 3600, null, null).getTravelTime(0, 0), 1e-8);
+	}
+
+	/**
+	 * Doubles the free speed travel times between 7 and 8 am, so that the results depend on the departure time.
+	 */
+	private static class RushHourTravelTime implements TravelTime {
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			double travelTime = link.getLength() / link.getFreespeed();
+			return (time >= 7.0 * 3600 && time < 8.0 * 3600) ? 2.0 * travelTime : travelTime;
+		}
+	}
+
+	private static Network createGridNetwork(final int size) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100.0, y * 100.0));
+			}
+		}
+		Random random = new Random(42);
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkId, random);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkId, random);
+					linkId += 2;
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node node1, final Node node2, final int linkId, final Random random) {
+		double freespeed = 5.0 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), node1, node2, 100.0, freespeed, 1000.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), node2, node1, 100.0, freespeed, 1000.0, 1.0);
+	}
+
+}
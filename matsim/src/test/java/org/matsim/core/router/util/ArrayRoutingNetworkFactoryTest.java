@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayRoutingNetworkFactoryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+public class ArrayRoutingNetworkFactoryTest {
+
+	@Test
+	public void testSharedRoutingNetwork() {
+		Network network = createGridNetwork(5);
+		ArrayRoutingNetwork shared = new ArrayRoutingNetworkFactory(null).getSharedRoutingNetwork(network);
+		Assert.assertSame(shared, new ArrayRoutingNetworkFactory(null).getSharedRoutingNetwork(network));
+		Assert.assertEquals(network.getNodes().size(), shared.getNodes().size());
+
+		PreProcessDijkstra preProcessData = new PreProcessDijkstra();
+		preProcessData.run(network);
+		ArrayRoutingNetwork withPreProcessData = new ArrayRoutingNetworkFactory(preProcessData).getSharedRoutingNetwork(network);
+		Assert.assertNotSame(shared, withPreProcessData);
+		Assert.assertSame(withPreProcessData, new ArrayRoutingNetworkFactory(preProcessData).getSharedRoutingNetwork(network));
+
+		Assert.assertNotSame(shared, new ArrayRoutingNetworkFactory(null).getSharedRoutingNetwork(createGridNetwork(5)));
+		Assert.assertNotSame(shared, new ArrayRoutingNetworkFactory(null).createRoutingNetwork(network));
+	}
+
+	@Test
+	public void testConcurrentRoutersWithSharedRoutingNetwork() throws InterruptedException {
+		final Network network = createGridNetwork(30);
+		final FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		final LeastCostPathCalculatorFactory factory = new FastDijkstraFactory();
+		final Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		final Random random = new Random(4711);
+		final int[] from = new int[500];
+		final int[] to = new int[from.length];
+		final double[] expectedCosts = new double[from.length];
+		LeastCostPathCalculator reference = new DijkstraFactory().createPathCalculator(network, travelCosts, travelCosts);
+		for (int i = 0; i < from.length; i++) {
+			from[i] = random.nextInt(nodes.length);
+			to[i] = random.nextInt(nodes.length);
+			expectedCosts[i] = reference.calcLeastCostPath(nodes[from[i]], nodes[to[i]], 7.0 * 3600, null, null).travelCost;
+		}
+
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					LeastCostPathCalculator router = factory.createPathCalculator(network, travelCosts, travelCosts);
+					for (int i = 0; i < from.length; i++) {
+						Path path = router.calcLeastCostPath(nodes[from[i]], nodes[to[i]], 7.0 * 3600, null, null);
+						if (Math.abs(path.travelCost - expectedCosts[i]) > 1e-8 || path.nodes.get(0) != nodes[from[i]]) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(0, failures.get());
+	}
+
+	private static Network createGridNetwork(final int size) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100.0, y * 100.0));
+			}
+		}
+		Random random = new Random(42);
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkId, random);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkId, random);
+					linkId += 2;
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node node1, final Node node2, final int linkId, final Random random) {
+		double freespeed = 5.0 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), node1, node2, 100.0, freespeed, 1000.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), node2, node1, 100.0, freespeed, 1000.0, 1.0);
+	}
+
+}
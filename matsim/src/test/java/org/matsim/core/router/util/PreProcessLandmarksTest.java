@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.PreProcessLandmarks.LandmarksData;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PreProcessLandmarksTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testLandmarkTravelTimesAreLeastCosts() {
+		Network network = createGridNetwork(12);
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelCosts, 4);
+		preProcessData.run(network);
+
+		Node[] landmarks = preProcessData.getLandmarks();
+		Assert.assertEquals(4, landmarks.length);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelCosts, travelCosts);
+		for (Node node : network.getNodes().values()) {
+			LandmarksData data = preProcessData.getNodeData(node);
+			for (int i = 0; i < landmarks.length; i++) {
+				double from = dijkstra.calcLeastCostPath(landmarks[i], node, 0.0, null, null).travelCost;
+				double to = dijkstra.calcLeastCostPath(node, landmarks[i], 0.0, null, null).travelCost;
+				Assert.assertEquals(Math.min(from, to), data.getMinLandmarkTravelTime(i), 1e-8);
+				Assert.assertEquals(Math.max(from, to), data.getMaxLandmarkTravelTime(i), 1e-8);
+			}
+		}
+	}
+
+	@Test
+	public void testCache() {
+		Network network = createGridNetwork(12);
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = this.utils.getOutputDirectory() + "landmarks";
+
+		CountingLandmarker landmarker = new CountingLandmarker("a");
+		PreProcessLandmarks computed = new PreProcessLandmarks(travelCosts, landmarker, 4);
+		computed.setCacheDirectory(cacheDirectory);
+		computed.run(network);
+		Assert.assertEquals(1, landmarker.count);
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+
+		PreProcessLandmarks loaded = new PreProcessLandmarks(travelCosts, landmarker, 4);
+		loaded.setCacheDirectory(cacheDirectory);
+		loaded.run(network);
+		Assert.assertEquals("landmarks should have been read from the cache", 1, landmarker.count);
+		Assert.assertArrayEquals(computed.getLandmarks(), loaded.getLandmarks());
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 4; i++) {
+				Assert.assertEquals(computed.getNodeData(node).getMinLandmarkTravelTime(i), loaded.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				Assert.assertEquals(computed.getNodeData(node).getMaxLandmarkTravelTime(i), loaded.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		scoring.getModes().get(TransportMode.car).setMarginalUtilityOfTraveling(-12.0);
+		PreProcessLandmarks otherCosts = new PreProcessLandmarks(new FreespeedTravelTimeAndDisutility(scoring), landmarker, 4);
+		otherCosts.setCacheDirectory(cacheDirectory);
+		otherCosts.run(network);
+		Assert.assertEquals("other cost function parameters must not use the cache", 2, landmarker.count);
+		Assert.assertEquals(2, new File(cacheDirectory).list().length);
+
+		CountingLandmarker otherParameters = new CountingLandmarker("b");
+		PreProcessLandmarks otherLandmarks = new PreProcessLandmarks(travelCosts, otherParameters, 4);
+		otherLandmarks.setCacheDirectory(cacheDirectory);
+		otherLandmarks.run(network);
+		Assert.assertEquals("other landmarker parameters must not use the cache", 1, otherParameters.count);
+		Assert.assertEquals(3, new File(cacheDirectory).list().length);
+
+		CountingLandmarker notCacheable = new CountingLandmarker(null);
+		PreProcessLandmarks uncached = new PreProcessLandmarks(travelCosts, notCacheable, 4);
+		uncached.setCacheDirectory(cacheDirectory);
+		uncached.run(network);
+		uncached.run(network);
+		Assert.assertEquals(2, notCacheable.count);
+		Assert.assertEquals(3, new File(cacheDirectory).list().length);
+
+		Assert.assertNotEquals(new PieSlicesLandmarker(new Rectangle2D.Double()).getCacheKey(),
+				new PieSlicesLandmarker(new Rectangle2D.Double(0.0, 0.0, 500.0, 500.0)).getCacheKey());
+	}
+
+	private static class CountingLandmarker implements Landmarker {
+		private final Landmarker delegate = new PieSlicesLandmarker(new Rectangle2D.Double());
+		private final String cacheKey;
+		private int count = 0;
+
+		CountingLandmarker(final String cacheKey) {
+			this.cacheKey = cacheKey;
+		}
+
+		@Override
+		public Node[] identifyLandmarks(final int nLandmarks, final Network network) {
+			this.count++;
+			return this.delegate.identifyLandmarks(nLandmarks, network);
+		}
+
+		@Override
+		public String getCacheKey() {
+			return this.cacheKey;
+		}
+	}
+
+	private static Network createGridNetwork(final int size) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100.0, y * 100.0));
+			}
+		}
+		Random random = new Random(42);
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkId, random);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkId, random);
+					linkId += 2;
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node node1, final Node node2, final int linkId, final Random random) {
+		double freespeed = 5.0 + random.nextInt(20);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), node1, node2, 100.0, freespeed, 1000.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), node2, node1, 100.0, freespeed, 1000.0, 1.0);
+	}
+
+}
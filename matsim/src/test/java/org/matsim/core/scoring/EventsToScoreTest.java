@@ -142,6 +142,63 @@ public class EventsToScoreTest extends MatsimTestCase {
 		}
 	}
 
+	/**
+	 * Tests that the events of each person are handled in order and the scores are assigned
+	 * if the scoring is distributed to several threads.
+	 */
+	public void testScoringThreads() {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().setNumberOfScoringThreads(3);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 1000; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create("st" + i, Person.class));
+			person.addPlan(PopulationUtils.createPlan());
+			population.addPerson(person);
+		}
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsToScore e2s = EventsToScore.createWithScoreUpdating(scenario, new OrderSensitiveScoringFunctionFactory(), events);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			e2s.beginIteration(iteration);
+			for (int amount = 1; amount <= 3; amount++) {
+				for (Person person : population.getPersons().values()) {
+					events.processEvent(new PersonMoneyEvent(3600.0 * amount, person.getId(), amount));
+				}
+			}
+			e2s.finish();
+			for (Person person : population.getPersons().values()) {
+				assertEquals(123.0, e2s.getAgentScore(person.getId()));
+				assertEquals(123.0, person.getSelectedPlan().getScore());
+			}
+		}
+	}
+
+	/**
+	 * Money scoring whose score depends on the order of the money events.
+	 */
+	private static class OrderSensitiveScoringFunctionFactory implements ScoringFunctionFactory {
+
+		@Override
+		public ScoringFunction createNewScoringFunction(final Person person) {
+			SumScoringFunction sumScoringFunction = new SumScoringFunction();
+			sumScoringFunction.addScoringFunction(new SumScoringFunction.MoneyScoring() {
+				double money = 0.0;
+				@Override
+				public void addMoney(double amount) {
+					money = money * 10 + amount;
+				}
+				@Override
+				public void finish() {}
+				@Override
+				public double getScore() {
+					return money;
+				}
+			});
+			return sumScoringFunction;
+		}
+
+	}
+
 	private static class MockScoringFunctionFactory implements ScoringFunctionFactory {
 
 		@Override
@@ -0,0 +1,128 @@
+package org.matsim.core.scoring;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.controler.ReplayEvents;
+import org.matsim.core.events.EventsManagerModule;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class StreamingExperiencedPlansServiceImplTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameOutputAsExperiencedPlansService() {
+		String expectedFile = this.utils.getOutputDirectory() + "experienced_plans.xml.gz";
+		ExperiencedPlansService service = runIteration(false, 0, expectedFile);
+		Assert.assertTrue(service instanceof ExperiencedPlansServiceImpl);
+
+		String streamedFile = this.utils.getOutputDirectory() + "streamed_experienced_plans.xml.gz";
+		service = runIteration(true, 0, streamedFile);
+		Assert.assertTrue(service instanceof StreamingExperiencedPlansServiceImpl);
+		try {
+			service.getExperiencedPlans();
+			Assert.fail("streamed experienced plans must not be available");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		Scenario expected = readPlans(expectedFile);
+		Scenario streamed = readPlans(streamedFile);
+		Assert.assertEquals(2, streamed.getPopulation().getPersons().size());
+		for (Person person : expected.getPopulation().getPersons().values()) {
+			Plan expectedPlan = person.getSelectedPlan();
+			Plan streamedPlan = streamed.getPopulation().getPersons().get(person.getId()).getSelectedPlan();
+			Assert.assertEquals(expectedPlan.getPlanElements().size(), streamedPlan.getPlanElements().size());
+			for (int i = 0; i < expectedPlan.getPlanElements().size(); i++) {
+				if (expectedPlan.getPlanElements().get(i) instanceof Activity) {
+					Activity expectedAct = (Activity) expectedPlan.getPlanElements().get(i);
+					Activity streamedAct = (Activity) streamedPlan.getPlanElements().get(i);
+					Assert.assertEquals(expectedAct.getType(), streamedAct.getType());
+					Assert.assertEquals(expectedAct.getEndTime(), streamedAct.getEndTime(), 0.0);
+				} else {
+					Leg expectedLeg = (Leg) expectedPlan.getPlanElements().get(i);
+					Leg streamedLeg = (Leg) streamedPlan.getPlanElements().get(i);
+					Assert.assertEquals(expectedLeg.getMode(), streamedLeg.getMode());
+					Assert.assertEquals(expectedLeg.getTravelTime(), streamedLeg.getTravelTime(), 0.0);
+					Assert.assertEquals(expectedLeg.getRoute().getDistance(), streamedLeg.getRoute().getDistance(), 0.0);
+				}
+			}
+		}
+		Assert.assertEquals(3, streamed.getPopulation().getPersons().get(Id.createPersonId("1")).getSelectedPlan().getPlanElements().size());
+	}
+
+	@Test
+	public void testNotRecordedInIterationsWithoutOutput() {
+		String file = this.utils.getOutputDirectory() + "experienced_plans.xml.gz";
+		runIteration(true, 1, file);
+		Scenario streamed = readPlans(file);
+		Assert.assertEquals(0, streamed.getPopulation().getPersons().get(Id.createPersonId("1")).getSelectedPlan().getPlanElements().size());
+	}
+
+	private static ExperiencedPlansService runIteration(boolean streaming, int iteration, String filename) {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().setWriteExperiencedPlans(true);
+		config.planCalcScore().setStreamingExperiencedPlans(streaming);
+		config.controler().setWritePlansInterval(2);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		for (String id : new String[] {"1", "2"}) {
+			Person person = scenario.getPopulation().getFactory().createPerson(Id.createPersonId(id));
+			person.addPlan(PopulationUtils.createPlan());
+			scenario.getPopulation().addPerson(person);
+		}
+		com.google.inject.Injector injector = Injector.createInjector(config,
+				new ExperiencedPlansModule(),
+				new EventsManagerModule(),
+				new ScenarioByInstanceModule(scenario),
+				new ReplayEvents.Module());
+		ExperiencedPlansService service = injector.getInstance(ExperiencedPlansService.class);
+		ControlerListenerManagerImpl listenerManager = (ControlerListenerManagerImpl) injector.getInstance(ControlerListenerManager.class);
+		EventsManager events = injector.getInstance(EventsManager.class);
+
+		listenerManager.fireControlerIterationStartsEvent(iteration);
+		Id<Link> linkId = Id.createLinkId("1");
+		for (String id : new String[] {"1", "notInPopulation"}) {
+			Id<Person> personId = Id.createPersonId(id);
+			events.processEvent(new ActivityEndEvent(7.0 * 3600, personId, linkId, null, "home"));
+			events.processEvent(new PersonDepartureEvent(7.0 * 3600, personId, linkId, TransportMode.walk));
+			events.processEvent(new TeleportationArrivalEvent(7.5 * 3600, personId, 2000.0));
+			events.processEvent(new PersonArrivalEvent(7.5 * 3600, personId, linkId, TransportMode.walk));
+			events.processEvent(new ActivityStartEvent(7.5 * 3600, personId, linkId, null, "work"));
+		}
+		listenerManager.fireControlerAfterMobsimEvent(iteration);
+		service.writeExperiencedPlans(filename);
+		return service;
+	}
+
+	private static Scenario readPlans(String filename) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(scenario).readFile(filename);
+		return scenario;
+	}
+
+}
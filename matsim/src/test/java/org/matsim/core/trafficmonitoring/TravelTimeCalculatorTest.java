@@ -52,6 +52,7 @@ import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.io.IOUtils;
@@ -176,6 +177,43 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, compareFile, false);
 	}
 
+	public final void testTravelTimeCalculator_FlatArray_Optimistic() throws IOException {
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		AbstractTravelTimeAggregator aggregator = new OptimisticTravelTimeAggregator(numSlots, binSize);
+		doTravelTimeCalculatorTest(scenario, null, aggregator, binSize, compareFile, false);
+	}
+
+	public final void testTravelTimeCalculator_FlatArray_Optimistic_LinearInterpolation() throws IOException {
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes_linearinterpolation.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		AbstractTravelTimeAggregator aggregator = new OptimisticTravelTimeAggregator(numSlots, binSize);
+		aggregator.connectTravelTimeGetter(new LinearInterpolatingTravelTimeGetter(numSlots, binSize));
+		doTravelTimeCalculatorTest(scenario, null, aggregator, binSize, compareFile, false);
+	}
+
+	public final void testTravelTimeCalculator_FlatArray_Pessimistic() throws IOException {
+		int endTime = 12*3600;
+		int binSize = 1*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes_pessimistic.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		AbstractTravelTimeAggregator aggregator = new PessimisticTravelTimeAggregator(binSize, numSlots);
+		doTravelTimeCalculatorTest(scenario, null, aggregator, binSize, compareFile, false);
+	}
+
+	/**
+	 * @param ttDataFactory the factory for the travel time data, or <code>null</code> to store the travel times in flat arrays.
+	 */
 	private final void doTravelTimeCalculatorTest(final MutableScenario scenario, final TravelTimeDataFactory ttDataFactory,
 			final AbstractTravelTimeAggregator aggregator, final int timeBinSize,
 			final String compareFile, final boolean generateNewData) throws IOException {
@@ -194,7 +232,11 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 
 		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 30*3600, scenario.getConfig().travelTimeCalculator());
 		ttcalc.setTravelTimeAggregator(aggregator);
-		ttcalc.setTravelTimeDataFactory(ttDataFactory);
+		if (ttDataFactory == null) {
+			ttcalc.useLinkTravelTimeArrays(network);
+		} else {
+			ttcalc.setTravelTimeDataFactory(ttDataFactory);
+		}
 		events2.addHandler(ttcalc);
 		for (Event e : collector.getEvents()) {
 			events2.processEvent(e);
@@ -285,6 +327,88 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(10     , ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60 + 5*timeBinSize, null, null), EPSILON);  // freespeedTravelTime > linkTravelTime2 - 2*timeBinSize
 	}
 
+	/**
+	 * Same as {@link #testLongTravelTimeInEmptySlot()}, but with the travel times stored in flat arrays.
+	 */
+	public void testLongTravelTimeInEmptySlot_FlatArray() {
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Network network = (Network) scenario.getNetwork();
+		network.setCapacityPeriod(3600.0);
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		final Node fromNode = node1;
+		final Node toNode = node2;
+		Link link1 = NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), fromNode, toNode, 1000.0, 100.0, 3600.0, 1.0 );
+
+		int timeBinSize = 15*60;
+		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		ttcalc.useLinkTravelTimeArrays(network);
+
+		Id<Vehicle> vehId = Id.create(1980, Vehicle.class);
+		
+		// generate some events that suggest a really long travel time
+		double linkEnterTime1 = 7.0 * 3600 + 10;
+		double linkTravelTime1 = 50.0 * 60; // 50minutes!
+		double linkEnterTime2 = 7.75 * 3600 + 10;
+		double linkTravelTime2 = 10.0 * 60; // 10minutes!
+
+		ttcalc.handleEvent(new LinkEnterEvent(linkEnterTime1, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(linkEnterTime1 + linkTravelTime1, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(linkEnterTime2, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(linkEnterTime2 + linkTravelTime2, vehId, link1.getId()));
+
+		assertEquals(50 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60, null, null), EPSILON); // linkTravelTime1
+		assertEquals(35 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60 + 1*timeBinSize, null, null), EPSILON);  // linkTravelTime1 - 1*timeBinSize
+		assertEquals(20 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60 + 2*timeBinSize, null, null), EPSILON);  // linkTravelTime1 - 2*timeBinSize
+		assertEquals(10 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60 + 3*timeBinSize, null, null), EPSILON);  // linkTravelTime2 > linkTravelTime1 - 3*timeBinSize !
+		assertEquals(10     , ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60 + 4*timeBinSize, null, null), EPSILON);  // freespeedTravelTime > linkTravelTime2 - 1*timeBinSize
+		assertEquals(10     , ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600 + 5 * 60 + 5*timeBinSize, null, null), EPSILON);  // freespeedTravelTime > linkTravelTime2 - 2*timeBinSize
+	}
+
+	/**
+	 * Travel times are read from a snapshot, which must be updated when new data arrives or the calculator is reset,
+	 * but not while the mobsim is running.
+	 */
+	public void testFlatArray_SnapshotUpdates() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, 1000.0, 100.0, 3600.0, 1.0 );
+
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorFlatArray.toString());
+		TravelTimeCalculator ttcalc = TravelTimeCalculator.create(network, config);
+		TravelTime travelTime = ttcalc.getLinkTravelTimes();
+		Id<Vehicle> vehId = Id.create(1, Vehicle.class);
+
+		assertEquals(10.0, travelTime.getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7.0 * 3600 + 100, vehId, link1.getId()));
+		ttcalc.notifyAfterMobsim(null);
+		assertEquals(100.0, travelTime.getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600 + 200, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7.0 * 3600 + 400, vehId, link1.getId()));
+		assertEquals(150.0, travelTime.getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+
+		ttcalc.reset(1);
+		assertEquals(10.0, travelTime.getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+
+		// during the mobsim, reads do not see the data collected by the running mobsim
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7.0 * 3600 + 300, vehId, link1.getId()));
+		ttcalc.notifyAfterMobsim(null);
+		ttcalc.reset(2);
+		ttcalc.notifyBeforeMobsim(null);
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600, vehId, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7.0 * 3600 + 500, vehId, link1.getId()));
+		assertEquals(10.0, travelTime.getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+		ttcalc.notifyAfterMobsim(null);
+		assertEquals(500.0, travelTime.getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+	}
+
 	/**
 	 * Tests that calculating LinkTravelTimes works also without reading in a complete scenario including population.
 	 *
@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		IdMap<TKey, String> map = new IdMap<>(TKey.class, 2);
+		Id<TKey> id1 = Id.create("1", TKey.class);
+		Id<TKey> id2 = Id.create("2", TKey.class);
+		Id<TKey> id3 = Id.create("3", TKey.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals("one", map.put(id1, "uno"));
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertEquals("uno", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertTrue(map.containsValue("three"));
+		Assert.assertNull(map.get("1"));
+
+		Assert.assertEquals("uno", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(id3));
+	}
+
+	@Test
+	public void testNullValues() {
+		IdMap<TKey, String> map = new IdMap<>(TKey.class);
+		Id<TKey> id = Id.create("null", TKey.class);
+		Assert.assertNull(map.put(id, null));
+		Assert.assertTrue(map.containsKey(id));
+		Assert.assertNull(map.get(id));
+		Assert.assertEquals(1, map.size());
+		Assert.assertNull(map.remove(id));
+		Assert.assertFalse(map.containsKey(id));
+		Assert.assertEquals(0, map.size());
+	}
+
+	/**
+	 * Ids of different types are equal if their keys are equal, so the map must behave like a HashMap for them.
+	 */
+	@Test
+	public void testOtherIdType() {
+		IdMap<TKey, String> map = new IdMap<>(TKey.class);
+		Id<TKey> id = Id.create("a", TKey.class);
+		Id<TOther> otherId = Id.create("a", TOther.class);
+		map.put(id, "a");
+		Assert.assertEquals("a", map.get(otherId));
+		Assert.assertNull(map.get(Id.create("doesNotExist", TOther.class)));
+		Assert.assertEquals("a", map.remove(otherId));
+		Assert.assertTrue(map.isEmpty());
+
+		// there is no id of our type to store this key at, and the map must not create one
+		@SuppressWarnings("unchecked")
+		Id<TKey> unknownId = (Id<TKey>) (Id<?>) Id.create("onlyOtherType", TOther.class);
+		try {
+			map.put(unknownId, "b");
+			Assert.fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+		Assert.assertNull(Id.get("onlyOtherType", TKey.class));
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testIteration() {
+		IdMap<TKey, Integer> map = new IdMap<>(TKey.class);
+		Id<TKey> idA = Id.create("it-a", TKey.class);
+		Id<TKey> idB = Id.create("it-b", TKey.class);
+		Id<TKey> idC = Id.create("it-c", TKey.class);
+		map.put(idC, 3);
+		map.put(idA, 1);
+		map.put(idB, 2);
+
+		// iterated in the order of the ids' indices
+		Iterator<Map.Entry<Id<TKey>, Integer>> iter = map.entrySet().iterator();
+		Map.Entry<Id<TKey>, Integer> e = iter.next();
+		Assert.assertSame(idA, e.getKey());
+		Assert.assertEquals(1, e.getValue().intValue());
+		e = iter.next();
+		Assert.assertSame(idB, e.getKey());
+		iter.remove();
+		e = iter.next();
+		Assert.assertSame(idC, e.getKey());
+		e.setValue(33);
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(idB));
+		Assert.assertEquals(33, map.get(idC).intValue());
+		Assert.assertEquals(2, map.keySet().size());
+		Assert.assertTrue(map.values().contains(33));
+	}
+
+	private static class TKey {}
+	private static class TOther {}
+
+}
@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSetTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		IdSet<TKey> set = new IdSet<>(TKey.class);
+		Id<TKey> id1 = Id.create("1", TKey.class);
+		Id<TKey> id2 = Id.create("2", TKey.class);
+
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(1, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertFalse(set.contains(id2));
+		Assert.assertTrue(set.contains(Id.create("1", TOther.class)));
+		Assert.assertFalse(set.contains("1"));
+
+		Assert.assertFalse(set.remove(id2));
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testIteration() {
+		IdSet<TKey> set = new IdSet<>(TKey.class);
+		Id<TKey> idA = Id.create("it-a", TKey.class);
+		Id<TKey> idB = Id.create("it-b", TKey.class);
+		Id<TKey> idC = Id.create("it-c", TKey.class);
+		set.add(idC);
+		set.add(idA);
+		set.add(idB);
+
+		Iterator<Id<TKey>> iter = set.iterator();
+		Assert.assertSame(idA, iter.next());
+		Assert.assertSame(idB, iter.next());
+		iter.remove();
+		Assert.assertSame(idC, iter.next());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, set.size());
+		Assert.assertFalse(set.contains(idB));
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.iterator().hasNext());
+	}
+
+	private static class TKey {}
+	private static class TOther {}
+
+}
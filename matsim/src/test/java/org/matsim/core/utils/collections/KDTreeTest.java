@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * KDTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link KDTree}, mostly by comparing the results with the ones of the {@link QuadTree}.
+ */
+public class KDTreeTest {
+
+	private static final int N = 2000;
+
+	@Test
+	public void testQueries_SameAsQuadTree() {
+		Random random = new Random(4711);
+		QuadTree<Integer> quadTree = new QuadTree<>(0.0, 0.0, 1000.0, 1000.0);
+		double[] xs = new double[N];
+		double[] ys = new double[N];
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			// some points on a grid, to get points with equal coordinates
+			xs[i] = i % 4 == 0 ? Math.floor(random.nextDouble() * 10) * 100 : random.nextDouble() * 1000;
+			ys[i] = i % 4 == 0 ? Math.floor(random.nextDouble() * 10) * 100 : random.nextDouble() * 1000;
+			values.add(i);
+			quadTree.put(xs[i], ys[i], i);
+		}
+		KDTree<Integer> tree = new KDTree<>(xs, ys, values);
+		assertEquals(N, tree.size());
+		assertEquals(new HashSet<>(values), new HashSet<>(tree.values()));
+
+		for (int q = 0; q < 200; q++) {
+			double x = random.nextDouble() * 1200 - 100;
+			double y = random.nextDouble() * 1200 - 100;
+
+			Integer closest = tree.getClosest(x, y);
+			assertEquals(distance(quadTree.getClosest(x, y), xs, ys, x, y), distance(closest, xs, ys, x, y), 1e-9);
+
+			assertSameElements(quadTree.getDisk(x, y, 150.0), tree.getDisk(x, y, 150.0));
+			assertSameElements(quadTree.getRing(x, y, 50.0, 150.0), tree.getRing(x, y, 50.0, 150.0));
+			assertSameElements(quadTree.getElliptical(x, y, x + 100, y - 50, 300.0), tree.getElliptical(x, y, x + 100, y - 50, 300.0));
+			assertSameElements(quadTree.getRectangle(x, y, x + 200, y + 100, new ArrayList<Integer>()),
+					tree.getRectangle(x, y, x + 200, y + 100, new ArrayList<Integer>()));
+
+			List<Integer> kNearest = tree.getKNearest(x, y, 10);
+			assertEquals(10, kNearest.size());
+			List<Double> expected = new ArrayList<>();
+			for (int i = 0; i < N; i++) {
+				expected.add(distance(i, xs, ys, x, y));
+			}
+			Collections.sort(expected);
+			for (int i = 0; i < kNearest.size(); i++) {
+				assertEquals(expected.get(i), distance(kNearest.get(i), xs, ys, x, y), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testGetClosest_Batch() {
+		Random random = new Random(42);
+		double[] xs = new double[N];
+		double[] ys = new double[N];
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			xs[i] = random.nextDouble() * 1000;
+			ys[i] = random.nextDouble() * 1000;
+			values.add("p" + i);
+		}
+		KDTree<String> tree = new KDTree<>(xs, ys, values);
+
+		double[] qxs = new double[10000];
+		double[] qys = new double[10000];
+		for (int i = 0; i < qxs.length; i++) {
+			qxs[i] = random.nextDouble() * 1000;
+			qys[i] = random.nextDouble() * 1000;
+		}
+		List<String> closest = tree.getClosest(qxs, qys, 4);
+		assertEquals(qxs.length, closest.size());
+		for (int i = 0; i < qxs.length; i++) {
+			assertEquals(tree.getClosest(qxs[i], qys[i]), closest.get(i));
+		}
+	}
+
+	/**
+	 * Many points at the same location must not make the construction quadratic.
+	 */
+	@Test(timeout = 3000)
+	public void testManyEqualCoordinates() {
+		int n = 200000;
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			xs[i] = i % 100 == 0 ? i : 500.0;
+			ys[i] = i % 100 == 0 ? i : 500.0;
+			values.add(i);
+		}
+		KDTree<Integer> tree = new KDTree<>(xs, ys, values);
+		assertEquals(n, tree.size());
+		assertEquals(n - n / 100 + 1, tree.getDisk(500.0, 500.0, 1.0).size()); // including point 500
+		assertEquals(Integer.valueOf(0), tree.getClosest(-10.0, -10.0));
+		assertEquals(Integer.valueOf(199900), tree.getClosest(n, n));
+	}
+
+	@Test
+	public void testFromQuadTree() {
+		QuadTree<String> quadTree = new QuadTree<>(-50.0, -50.0, +150.0, +150.0);
+		quadTree.put(10.0, 10.0, "10.0, 10.0");
+		quadTree.put(15.0, 15.0, "15.0, 15.0");
+		quadTree.put(-15.0, 0.0, "-15.0, 0.0");
+		quadTree.put(150.0, 150.0, "150.0, 150.0");
+		quadTree.put(15.0, 15.0, "15.0, 15.0 B");
+
+		KDTree<String> tree = new KDTree<>(quadTree);
+		assertEquals(5, tree.size());
+		assertEquals("150.0, 150.0", tree.getClosest(140.0, 160.0));
+		assertEquals("-15.0, 0.0", tree.getClosest(-20.0, 0.0));
+		assertEquals(-15.0, tree.getMinEasting(), 0.0);
+		assertEquals(150.0, tree.getMaxNorthing(), 0.0);
+		assertEquals(2, tree.getDisk(15.0, 15.0, 1.0).size());
+	}
+
+	@Test
+	public void testEmpty() {
+		KDTree<String> tree = new KDTree<>(new double[0], new double[0], new ArrayList<String>());
+		assertNull(tree.getClosest(0.0, 0.0));
+		assertTrue(tree.getKNearest(0.0, 0.0, 3).isEmpty());
+		assertTrue(tree.getDisk(0.0, 0.0, 100.0).isEmpty());
+	}
+
+	private static double distance(final Integer index, final double[] xs, final double[] ys, final double x, final double y) {
+		return Math.sqrt((xs[index] - x) * (xs[index] - x) + (ys[index] - y) * (ys[index] - y));
+	}
+
+	private static void assertSameElements(final Collection<Integer> expected, final Collection<Integer> actual) {
+		List<Integer> e = new ArrayList<>(expected);
+		List<Integer> a = new ArrayList<>(actual);
+		Collections.sort(e);
+		Collections.sort(a);
+		assertEquals(e, a);
+	}
+
+}
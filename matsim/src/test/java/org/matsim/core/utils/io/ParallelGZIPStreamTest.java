@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPStreamTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Tests {@link ParallelGZIPOutputStream} and {@link ParallelGZIPInputStream}.
+ */
+public class ParallelGZIPStreamTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testOutput_ReadableByGZIPInputStream() throws IOException {
+		byte[] data = createText(1000000);
+		byte[] compressed = compress(data, 4);
+		Assert.assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		byte[] data = createText(1000000);
+		byte[] compressed = compress(data, 3);
+		Assert.assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), 4)));
+	}
+
+	@Test
+	public void testRoundTrip_IncompressibleData() throws IOException {
+		byte[] data = new byte[300000];
+		new Random(4711).nextBytes(data);
+		byte[] compressed = compress(data, 2);
+		Assert.assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), 2)));
+		Assert.assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+	}
+
+	@Test
+	public void testRoundTrip_Empty() throws IOException {
+		byte[] compressed = compress(new byte[0], 2);
+		Assert.assertEquals(0, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), 2)).length);
+		Assert.assertEquals(0, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))).length);
+	}
+
+	@Test
+	public void testInput_ReadsStandardGzip() throws IOException {
+		byte[] data = createText(200000);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(data);
+		}
+		Assert.assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()), 4)));
+	}
+
+	@Test
+	public void testInput_ReadsAppendedStandardGzip() throws IOException {
+		byte[] blocks = createText(300000);
+		byte[] plain = createText(100000);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(compress(blocks, 2));
+		try (OutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(plain);
+		}
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(blocks);
+		expected.write(plain);
+		Assert.assertArrayEquals(expected.toByteArray(), readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()), 4)));
+	}
+
+	@Test
+	public void testInput_ReadsBlocksAppendedToStandardGzip() throws IOException {
+		byte[] plain = createText(100000);
+		byte[] blocks = createText(300000);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		out.write(plain);
+		out.finish();
+		bytes.write(compress(blocks, 2));
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(plain);
+		expected.write(blocks);
+		Assert.assertArrayEquals(expected.toByteArray(), readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()), 4)));
+	}
+
+	@Test
+	public void testIOUtils_WithCompressionThreads() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.gz";
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename, IOUtils.CHARSET_UTF8, false, 4)) {
+			for (int i = 0; i < 100000; i++) {
+				writer.write("line " + i + "\n");
+			}
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename, IOUtils.CHARSET_UTF8, 4)) {
+			for (int i = 0; i < 100000; i++) {
+				Assert.assertEquals("line " + i, reader.readLine());
+			}
+			Assert.assertNull(reader.readLine());
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			Assert.assertEquals("line 0", reader.readLine());
+		}
+	}
+
+	private static byte[] compress(final byte[] data, final int threads) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new ParallelGZIPOutputStream(bytes, threads)) {
+			// write in odd chunks so that the block boundaries are not aligned
+			int pos = 0;
+			while (pos < data.length) {
+				int n = Math.min(data.length - pos, 7777);
+				out.write(data, pos, n);
+				pos += n;
+				if (pos < data.length) {
+					out.write(data[pos++]);
+				}
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] readAll(final InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[10000];
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] createText(final int length) {
+		Random random = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			sb.append("<event time=\"").append(random.nextInt(86400)).append("\" type=\"entered link\" link=\"")
+				.append(random.nextInt(10000)).append("\" />\n");
+		}
+		return sb.substring(0, length).getBytes(IOUtils.CHARSET_UTF8);
+	}
+
+}
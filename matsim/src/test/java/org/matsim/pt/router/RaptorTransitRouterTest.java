@@ -0,0 +1,297 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.config.TransitRouterConfigGroup;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+/**
+ * Most tests are the same as in {@link TransitRouterImplTest}, as both routers should find the same routes.
+ */
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testSingleLine() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 5.0*3600, null);
+		assertEquals(3, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertTrue("expected TransitRoute in leg.", legs.get(1).getRoute() instanceof ExperimentalTransitRoute);
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:06 course, arriving in D at *:29
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testDirectWalkCheaper() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = new Coord((double) 4000, (double) 3000);
+		Coord toCoord = new Coord((double) 8000, (double) 3000);
+		List<Leg> legs = router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600, null);
+		assertEquals(1, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		double expectedTravelTime = CoordUtils.calcEuclideanDistance(fromCoord, toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testSingleLine_DifferentWaitingTime() {
+		Fixture f = new Fixture();
+		f.init();
+		RaptorTransitRouter router = new RaptorTransitRouter(createConfig(f), f.schedule);
+		Coord fromCoord = new Coord((double) 4000, (double) 5002);
+		Coord toCoord = new Coord((double) 8000, (double) 5002);
+
+		double inVehicleTime = 7.0*60; // travel time from A to B
+		for (int min = 0; min < 30; min += 3) {
+			List<Leg> legs = router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600 + min*60, null);
+			assertEquals(3, legs.size()); // walk-pt-walk
+			double waitingTime = ((46 - min) % 20) * 60; // departures at *:06 and *:26 and *:46
+			assertEquals("expected different waiting time at 05:"+min, waitingTime, calcTravelTime(legs) - inVehicleTime, MatsimTestCase.EPSILON);
+		}
+	}
+
+	@Test
+	public void testLineChange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 10050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 6.0*3600, null);
+		assertEquals(5, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertEquals(TransportMode.pt, legs.get(3).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(4).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		assertEquals(Id.create("18", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("19", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.greenLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("green clockwise", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 31.0 * 60 + // agent takes the *:06 course, arriving in C at *:18, departing at *:21, arriving in K at*:31
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("19", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFasterAlternative() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 28100, (double) 4950);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 5.0*3600 + 40.0*60, null);
+		assertEquals(4, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.pt, legs.get(2).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(3).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(2).getRoute();
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("12", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.redLine.getId(), ptRoute.getLineId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:46 course, arriving in C at *:58, departing at *:00, arriving in G at*:09
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("12", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testTransferWeights() {
+		// see TransitRouterImplTest.testTransferWeights()
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setUtilityOfLineSwitch_utl(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 11900, (double) 5100)), new FakeFacility(new Coord((double) 24100, (double) 4950)), 6.0*3600 - 5.0*60, null);
+		assertEquals(5, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(3).getRoute()).getLineId());
+
+		config.setUtilityOfLineSwitch_utl(300.0 * config.getMarginalUtilityOfTravelTimePt_utl_s()); // corresponds to 5 minutes transit travel time
+		legs = router.calcRoute(new FakeFacility(new Coord((double) 11900, (double) 5100)), new FakeFacility(new Coord((double) 24100, (double) 4950)), 6.0*3600 - 5.0*60, null);
+		assertEquals(3, legs.size());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+	}
+
+	@Test
+	public void testTransferTime() {
+		// see TransitRouterImplTest.testTransferTime()
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setUtilityOfLineSwitch_utl(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 11900, (double) 5100)), new FakeFacility(new Coord((double) 24100, (double) 4950)), 6.0*3600 - 5.0*60, null);
+		assertEquals(5, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(3).getRoute()).getLineId());
+
+		config.setAdditionalTransferTime(3.0*60); // 3 mins already enough, as there is a small distance to walk anyway which adds some time
+		legs = router.calcRoute(new FakeFacility(new Coord((double) 11900, (double) 5100)), new FakeFacility(new Coord((double) 24100, (double) 4950)), 6.0*3600 - 5.0*60, null);
+		assertEquals(3, legs.size());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+	}
+
+	@Test
+	public void testAfterMidnight() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setBeelineWalkSpeed(0.1); // something very slow, so the agent does not walk over night
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 25.0*3600, null);
+		assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double expectedTravelTime = 4*3600 + 29.0 * 60 + // arrival at 05:29 at D
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testCoordFarAway() {
+		Fixture f = new Fixture();
+		f.init();
+		RaptorTransitRouter router = new RaptorTransitRouter(createConfig(f), f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) -2000, (double) 0)), new FakeFacility(new Coord((double) 42000, (double) 0)), 5.5*3600, null); // should map to stops A and I
+		assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("16", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+	}
+
+	@Test
+	public void testSameTravelTimesAsTransitRouterImpl() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorData data = RaptorData.createFromSchedule(f.schedule, config.getBeelineWalkConnectionDistance());
+		TransitTravelDisutility disutility = new TransitRouterNetworkTravelTimeAndDisutility(config, new PreparedTransitSchedule(f.schedule));
+		RaptorTransitRouter raptor1 = new RaptorTransitRouter(config, data, disutility);
+		RaptorTransitRouter raptor2 = new RaptorTransitRouter(config, data, disutility);
+		TransitRouterImpl dijkstra = new TransitRouterImpl(config, f.schedule);
+		for (int x = 0; x <= 40000; x += 4000) {
+			for (int y = 0; y <= 10000; y += 5000) {
+				for (double time = 5.0 * 3600; time < 10.0 * 3600; time += 1234.0) {
+					FakeFacility from = new FakeFacility(new Coord((double) 3800, (double) 5100));
+					FakeFacility to = new FakeFacility(new Coord(x + 100.0, y - 50.0));
+					List<Leg> expected = dijkstra.calcRoute(from, to, time, null);
+					List<Leg> actual = raptor1.calcRoute(from, to, time, null);
+					assertEquals(calcTravelTime(expected), calcTravelTime(actual), MatsimTestCase.EPSILON);
+					// the data is shared, but not the search
+					assertEquals(calcTravelTime(actual), calcTravelTime(raptor2.calcRoute(from, to, time, null)), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRangeQuery() {
+		Fixture f = new Fixture();
+		f.init();
+		RaptorTransitRouter router = new RaptorTransitRouter(createConfig(f), f.schedule);
+		FakeFacility from = new FakeFacility(new Coord((double) 3800, (double) 5100));
+		FakeFacility to = new FakeFacility(new Coord((double) 16100, (double) 5050));
+		List<List<Leg>> journeys = router.calcRoutes(from, to, 5.0 * 3600, 6.0 * 3600, null);
+		assertEquals(3, journeys.size()); // the blue line at *:06, *:26 and *:46
+		double prevDepartureTime = Double.NEGATIVE_INFINITY;
+		for (List<Leg> legs : journeys) {
+			assertEquals(3, legs.size());
+			assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+			double departureTime = legs.get(0).getDepartureTime();
+			assertTrue(departureTime > prevDepartureTime);
+			assertTrue(departureTime >= 5.0 * 3600 && departureTime <= 6.0 * 3600);
+			// the agent does not wait at the stop
+			assertEquals(departureTime + legs.get(0).getTravelTime(), legs.get(1).getDepartureTime(), MatsimTestCase.EPSILON);
+			// the same journey as found by a single query
+			List<Leg> single = router.calcRoute(from, to, departureTime, null);
+			assertEquals(calcTravelTime(single), calcTravelTime(legs), MatsimTestCase.EPSILON);
+			prevDepartureTime = departureTime;
+		}
+		Assert.assertTrue(router.calcRoutes(from, to, 3.0 * 3600, 4.0 * 3600, null).isEmpty());
+	}
+
+	@Test
+	public void testConfigGroup() {
+		TransitRouterConfigGroup configGroup = new TransitRouterConfigGroup();
+		assertEquals(TransitRouterConfigGroup.TransitRoutingAlgorithmType.Dijkstra, configGroup.getRoutingAlgorithmType());
+		configGroup.addParam("routingAlgorithmType", "Raptor");
+		assertEquals(TransitRouterConfigGroup.TransitRoutingAlgorithmType.Raptor, configGroup.getRoutingAlgorithmType());
+	}
+
+	private static TransitRouterConfig createConfig(final Fixture f) {
+		return new TransitRouterConfig(f.scenario.getConfig().planCalcScore(),
+				f.scenario.getConfig().plansCalcRoute(), f.scenario.getConfig().transitRouter(),
+				f.scenario.getConfig().vspExperimental());
+	}
+
+	private static double calcTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+}
@@ -22,11 +22,30 @@
 
 package org.matsim.withinday.controller;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.analysis.ScoreStatsControlerListener;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
+import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.StartupListener;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.withinday.events.ReplanningEvent;
+import org.matsim.withinday.events.handler.ReplanningEventHandler;
+import org.matsim.withinday.mobsim.WithinDayEngine;
 
 public class ExampleWithinDayControllerTest {
 
@@ -42,4 +61,83 @@ public class ExampleWithinDayControllerTest {
         controler.run();
     }
 
+    @Test
+    public void testRunAsynchronousDuringLegReplanning() {
+        RunStatistics synchronous = runWithinDayController(false);
+        RunStatistics asynchronous = runWithinDayController(true);
+
+        Assert.assertTrue("no agents were replanned.", asynchronous.replanningEvents > 0);
+        Assert.assertEquals("unexpected number of replanned agents.", synchronous.replanningEvents, asynchronous.replanningEvents, 0.1 * synchronous.replanningEvents);
+        Assert.assertEquals("unexpected number of trips.", synchronous.trips, asynchronous.trips);
+        Assert.assertEquals("unexpected travel time.", synchronous.travelTime, asynchronous.travelTime, 0.05 * synchronous.travelTime);
+        Assert.assertEquals("unexpected executed score.", synchronous.executedScore, asynchronous.executedScore, 0.05 * Math.abs(synchronous.executedScore));
+    }
+
+    private RunStatistics runWithinDayController(final boolean asynchronous) {
+        Config config = utils.loadConfig("test/scenarios/equil/config.xml");
+        config.controler().setOutputDirectory(utils.getOutputDirectory() + (asynchronous ? "asynchronous/" : "synchronous/"));
+        config.controler().setLastIteration(1);
+        config.global().setNumberOfThreads(2);
+        Controler controler = new Controler(config);
+        ExampleWithinDayController.configure(controler);
+        final RunStatistics statistics = new RunStatistics();
+        controler.addOverridingModule(new AbstractModule() {
+            @Override
+            public void install() {
+                addEventHandlerBinding().toInstance(statistics);
+                addControlerListenerBinding().toInstance(new StartupListener() {
+                    @Inject private WithinDayEngine withinDayEngine;
+
+                    @Override
+                    public void notifyStartup(StartupEvent event) {
+                        this.withinDayEngine.doAsynchronousDuringLegReplanning(asynchronous);
+                    }
+                });
+            }
+        });
+        controler.run();
+        double[] executedScores = controler.getScoreStats().getHistory()[ScoreStatsControlerListener.INDEX_EXECUTED];
+        statistics.executedScore = executedScores[executedScores.length - 1];
+        return statistics;
+    }
+
+    /**
+     * Collects the replanning events and the trips of the last iteration.
+     */
+    private static class RunStatistics implements ReplanningEventHandler, PersonDepartureEventHandler, PersonArrivalEventHandler {
+
+        private final Map<Id<Person>, Double> departureTimes = new HashMap<>();
+        int replanningEvents = 0;
+        int trips = 0;
+        double travelTime = 0.0;
+        double executedScore = 0.0;
+
+        @Override
+        public void reset(int iteration) {
+            this.departureTimes.clear();
+            this.replanningEvents = 0;
+            this.trips = 0;
+            this.travelTime = 0.0;
+        }
+
+        @Override
+        public void handleEvent(ReplanningEvent event) {
+            this.replanningEvents++;
+        }
+
+        @Override
+        public void handleEvent(PersonDepartureEvent event) {
+            this.departureTimes.put(event.getPersonId(), event.getTime());
+        }
+
+        @Override
+        public void handleEvent(PersonArrivalEvent event) {
+            Double departureTime = this.departureTimes.remove(event.getPersonId());
+            if (departureTime != null) {
+                this.trips++;
+                this.travelTime += event.getTime() - departureTime;
+            }
+        }
+    }
+
 }
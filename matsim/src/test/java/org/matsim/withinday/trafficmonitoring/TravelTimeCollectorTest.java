@@ -20,23 +20,33 @@
 
 package org.matsim.withinday.trafficmonitoring;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
 import org.matsim.core.controler.events.StartupEvent;
 import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
@@ -47,6 +57,7 @@ import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestCase;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author cdobler
@@ -118,6 +129,90 @@ public class TravelTimeCollectorTest extends MatsimTestCase {
 		controler.run();
 	}
 
+	/**
+	 * Feeds link enter and leave events directly into the collector. A link is left every
+	 * 10 seconds, so at most three trips are within the time window of 25 seconds (2.5 times
+	 * the free speed travel time) and the ring buffer with the initial capacity of four trips
+	 * wraps around several times.
+	 */
+	@Test
+	public void testCollectTravelTimes() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node node1 = factory.createNode(Id.create("ttc1", Node.class), new Coord(0.0, 0.0));
+		Node node2 = factory.createNode(Id.create("ttc2", Node.class), new Coord(100.0, 0.0));
+		network.addNode(node1);
+		network.addNode(node2);
+		Link link = factory.createLink(Id.create("ttc1", Link.class), node1, node2);
+		link.setLength(100.0);
+		link.setFreespeed(10.0);
+		network.addLink(link);
+		double freeSpeedTravelTime = 10.0;
+
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+		assertEquals(freeSpeedTravelTime, travelTime.getLinkTravelTime(link, 0.0, null, null), 0.0);
+
+		List<double[]> trips = new ArrayList<>();
+		double leaveTime = 0.0;
+		for (int i = 0; i < 20; i++) {
+			leaveTime = 100.0 + 10.0 * i;
+			double tripTime = 10.0 + (i * 7) % 15;
+			Id<Vehicle> vehicleId = Id.create("ttc" + i, Vehicle.class);
+			travelTime.handleEvent(new LinkEnterEvent(leaveTime - tripTime, vehicleId, link.getId()));
+			travelTime.handleEvent(new LinkLeaveEvent(leaveTime, vehicleId, link.getId()));
+			trips.add(new double[] {leaveTime, tripTime});
+			travelTime.notifyMobsimAfterSimStep(new MobsimAfterSimStepEvent<Mobsim>(null, leaveTime));
+
+			// the travel times are updated for the next time step
+			double sum = 0.0;
+			int count = 0;
+			for (double[] trip : trips) {
+				if (trip[0] + 25.0 >= leaveTime + 1.0) {
+					sum += trip[1];
+					count++;
+				}
+			}
+			assertTrue(count <= 3);
+			assertEquals("wrong travel time after trip " + i, sum / count, travelTime.getLinkTravelTime(link, leaveTime + 1.0, null, null), 1e-10);
+		}
+
+		// all trips are outside of the time window, so the free speed travel time is used again
+		travelTime.notifyMobsimAfterSimStep(new MobsimAfterSimStepEvent<Mobsim>(null, leaveTime + 30.0));
+		assertEquals(freeSpeedTravelTime, travelTime.getLinkTravelTime(link, leaveTime + 31.0, null, null), 0.0);
+	}
+
+	/**
+	 * Links whose ids are created after the collector has been initialized return their
+	 * free speed travel time, and their trips are collected.
+	 */
+	@Test
+	public void testLinkCreatedLater() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node node1 = factory.createNode(Id.create("ttcLater1", Node.class), new Coord(0.0, 0.0));
+		Node node2 = factory.createNode(Id.create("ttcLater2", Node.class), new Coord(100.0, 0.0));
+		network.addNode(node1);
+		network.addNode(node2);
+
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<Mobsim>(null));
+
+		Link link = factory.createLink(Id.create("ttcLater" + Id.getNumberOfIds(Link.class), Link.class), node1, node2);
+		link.setLength(100.0);
+		link.setFreespeed(10.0);
+		network.addLink(link);
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 0.0, null, null), 0.0);
+
+		Id<Vehicle> vehicleId = Id.create("ttcLater", Vehicle.class);
+		travelTime.handleEvent(new LinkEnterEvent(100.0, vehicleId, link.getId()));
+		travelTime.handleEvent(new LinkLeaveEvent(120.0, vehicleId, link.getId()));
+		travelTime.notifyMobsimAfterSimStep(new MobsimAfterSimStepEvent<Mobsim>(null, 120.0));
+		assertEquals(20.0, travelTime.getLinkTravelTime(link, 121.0, null, null), 0.0);
+	}
+
 	/**
 	 * Check travel times before and after a time step.
 	 * 
@@ -93,6 +93,12 @@ public class CentralityBasedLandmarker implements Landmarker {
 		return landmarks.toArray( new Node[ 0 ] );
 	}
 
+	@Override
+	public String getCacheKey() {
+		// depends on random seeds and on the cost function
+		return null;
+	}
+
 	private Coord getCenter( Network network ) {
 		// mass center of the network.
 		// alternatively, nodes could be weighted by degree (should not really matter)
@@ -77,6 +77,12 @@ public class DegreeBasedLandmarker implements Landmarker {
 		return landmarks.toArray( new Node[ nLandmarks ] );
 	}
 
+	@Override
+	public String getCacheKey() {
+		// no parameters
+		return "";
+	}
+
 	private Coord getCenter( Network network ) {
 		// mass center of the network.
 		// alternatively, nodes could be weighted by degree (should not really matter)